@@ -34,6 +34,9 @@ public class ApplicationConfig extends Application {
         resources.add(blink.servicelayer.WorkflowService.class);
         resources.add(blink.servicelayer.FileService.class);
         resources.add(blink.servicelayer.VerbService.class);
+        resources.add(blink.servicelayer.MetricsService.class);
+        resources.add(blink.servicelayer.AuthenticationFilter.class);
+        resources.add(blink.servicelayer.CompressionFilter.class);
         resources.add(blink.servicelayer.FileService.class);
 
         resources.add(io.swagger.jaxrs.listing.ApiListingResource.class);
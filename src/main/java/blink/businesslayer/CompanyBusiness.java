@@ -1,8 +1,10 @@
 package blink.businesslayer;
 
 import blink.datalayer.CompanyDB;
+import blink.datalayer.ReferenceData;
 import blink.utility.exceptions.ConflictException;
 import blink.utility.objects.Company;
+import blink.utility.objects.Page;
 import blink.utility.objects.Person;
 
 import javax.ws.rs.BadRequestException;
@@ -25,13 +27,16 @@ public class CompanyBusiness {
     }
 
     /**
-     * Gets all companies from the database
-     * @return Company object containing data from the database\
+     * Gets a page of companies from the database
+     * @param limit Number of companies in a page, null for the largest page
+     * @param after companyID of the last company of the previous page, null for the first page
+     * @return Page of companies
+     * @throws BadRequestException A paging parameter was invalid
      * @throws InternalServerErrorException Error connecting to database or executing query
      */
-    public List<Company> getAllCompanies() throws InternalServerErrorException{
+    public Page<Company> getAllCompanies(String limit, String after) throws BadRequestException, InternalServerErrorException{
         try {
-            return companyDB.getAllCompanies();
+            return companyDB.getCompanies(ListQueries.parse(limit, after, null, null, null, null, null));
         }
         catch(SQLException sqle){
             throw new InternalServerErrorException(sqle.getMessage());
@@ -39,7 +44,7 @@ public class CompanyBusiness {
     }
 
     /**
-     * Gets a company from the database by companyID
+     * Gets a company from the reference data by companyID
      * @param companyID CompanyId to search the database for
      * @return Company object containing data from the database
      * @throws BadRequestException CompanyID was an invalid integer format
@@ -48,7 +53,7 @@ public class CompanyBusiness {
      */
     public Company getCompanyByID(String companyID) throws BadRequestException, NotFoundException, InternalServerErrorException{
         try {
-            Company company = companyDB.getCompanyByID(Integer.parseInt(companyID));
+            Company company = ReferenceData.getCompany(Integer.parseInt(companyID));
 
             if(company == null){
                 throw new NotFoundException("No company with that id exists");
@@ -126,8 +131,10 @@ public class CompanyBusiness {
             }
 
             companyDB.insertCompany(companyName);
+            Company company = companyDB.getCompanyByName(companyName);
+            ReferenceData.refreshCompany(company.getCompanyID());
 
-            return companyDB.getCompanyByName(companyName);
+            return company;
         }
         catch(SQLException sqle){
             throw new InternalServerErrorException(sqle.getMessage());
@@ -157,6 +164,8 @@ public class CompanyBusiness {
             }
 
             companyDB.updateCompany(storedCompany.getCompanyID(), companyName);
+            ReferenceData.refreshCompany(storedCompany.getCompanyID());
+            PersonBusiness.invalidateAllPeople();
 
             return new Company(storedCompany.getCompanyID(), companyName);
         }
@@ -178,11 +187,14 @@ public class CompanyBusiness {
      */
     public String deleteCompanyByID(String companyID) throws BadRequestException, NotFoundException, InternalServerErrorException{
         try {
-            int numRowsAffected = companyDB.deleteCompany(Integer.parseInt(companyID));
+            int companyIDInteger = Integer.parseInt(companyID);
+            int numRowsAffected = companyDB.deleteCompany(companyIDInteger);
 
             if(numRowsAffected == 0){
                 throw new NotFoundException("No company with that id exists");
             }
+            ReferenceData.refreshCompany(companyIDInteger);
+            PersonBusiness.invalidateAllPeople();
 
             return "Successfully deleted company.";
         }
@@ -207,7 +219,7 @@ public class CompanyBusiness {
         try {
             int companyIDInteger = Integer.parseInt(companyID);
             personID = personBusiness.getPersonByUUID(personID).getUuid();
-            if(companyDB.getCompanyByID(companyIDInteger) == null){ throw new NotFoundException("No company with that ID exists. ");}
+            if(ReferenceData.getCompany(companyIDInteger) == null){ throw new NotFoundException("No company with that ID exists. ");}
 
             for(Person person : this.getAllPeopleByCompany(companyID)){
                 if(personID.equals(person.getUuid())) {
@@ -216,6 +228,7 @@ public class CompanyBusiness {
             }
 
             companyDB.addPersonToCompany(companyIDInteger, personID);
+            PersonBusiness.invalidatePerson(personID);
 
             return "Successfully added person to company.";
         }
@@ -239,12 +252,13 @@ public class CompanyBusiness {
     public String removePersonFromCompany(String companyID, String personID) throws BadRequestException, NotFoundException, InternalServerErrorException{
         try {
             int companyIDInteger = Integer.parseInt(companyID);
-            if(companyDB.getCompanyByID(companyIDInteger) == null){ throw new NotFoundException("No company with that ID exists. ");}
+            if(ReferenceData.getCompany(companyIDInteger) == null){ throw new NotFoundException("No company with that ID exists. ");}
             if(personBusiness.getPersonByUUID(personID) == null){ throw new NotFoundException("No person with that ID exists. ");}
 
             if(companyDB.removePersonFromCompany(companyIDInteger, personID) == 0){
                 throw new NotFoundException("That person was not a part of that company");
             }
+            PersonBusiness.invalidatePerson(personID);
 
             return "Successfully removed person from company.";
         }
@@ -1,28 +1,36 @@
 package blink.businesslayer;
 
 import blink.datalayer.FileDB;
+import blink.utility.compression.CompressedMediaTypes;
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
 import blink.utility.objects.*;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
-import eu.medsea.mimeutil.MimeUtil;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Parameter;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 public class FileBusiness {
+    private static final int ARCHIVE_COMPRESSION_LEVEL =
+            Integer.parseInt(new EnvManager().getValue(EnvKeyValues.ARCHIVE_COMPRESSION_LEVEL));
+
     private FileDB fileDB;
     private PersonBusiness personBusiness;
     private CompanyBusiness companyBusiness;
@@ -66,6 +74,44 @@ public class FileBusiness {
         }
     }
 
+    /**
+     * Get information about the raw content of a file the requester has access to
+     * @param fileID to retrieve from the database
+     * @param uuid id of requester
+     * @return file content information used to stream the file
+     */
+    public FileContent getFileContent(String fileID, String uuid) {
+        try {
+            int fileIDInteger = Integer.parseInt(fileID);
+
+            FileContent fileContent = fileDB.getFileContent(fileIDInteger);
+            if(fileContent == null){
+                throw new NotFoundException("No file with that ID exists");
+            }
+
+            this.checkRequesterAccess(fileIDInteger, uuid);
+
+            return fileContent;
+        }
+        //Error converting file id to integer
+        catch(NumberFormatException nfe){
+            throw new BadRequestException("File ID must be a valid integer");
+        }
+        catch(SQLException sqle) {
+            throw new InternalServerErrorException(sqle.getMessage());
+        }
+    }
+
+    /**
+     * Opens a stream of the raw bytes of a file. Access must already have been checked with getFileContent
+     * @param fileContent file content information returned by getFileContent
+     * @return stream of the file bytes; the caller must close it
+     * @throws IOException Error reading the file
+     */
+    public InputStream openFileContent(FileContent fileContent) throws IOException {
+        return fileDB.openFileContent(fileContent);
+    }
+
     /**
      * Get file by fileID
      * @param fileID to retrieve from the database
@@ -85,21 +131,21 @@ public class FileBusiness {
     }
 
     /**
-     * Get all files relevant to a user
+     * Get a page of the files relevant to a user
      * @param uuid id of requester
-     * @return list of files
+     * @param limit Number of files in a page, null for the largest page
+     * @param after fileID of the last file of the previous page, null for the first page
+     * @param companyID Only files of this company, null for files of any company
+     * @param view "summary" to list files without their content, null or "full" for whole files
+     * @return page of files
      */
-    public List<File> getAllConcreteFiles(String uuid) {
+    public Page<File> getAllConcreteFiles(String uuid, String limit, String after, String companyID, String view) {
         try {
+            ListQuery listQuery = ListQueries.parse(limit, after, companyID, null, null, null, view);
             Person requester = this.personBusiness.getPersonByUUID(uuid);
 
-            //Check that user has access to this milestone
-            if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                return this.fileDB.getAllConcreteFiles(uuid);
-            }
-            else{
-                return this.fileDB.getAllConcreteFiles();
-            }
+            //Users outside the company only see files of their own companies
+            return this.fileDB.getConcreteFiles(ListQueries.companyScope(requester, listQuery), listQuery);
 
         } catch(SQLException sqle) {
             throw new InternalServerErrorException(sqle.getMessage());
@@ -109,75 +155,59 @@ public class FileBusiness {
     /**
      * Get all template files
      * @param uuid of the requester
-     * @return List<File>
+     * @param view "summary" to list files without their content, null or "full" for whole files
+     * @return files, read from the database a page at a time as they are consumed
      */
-    public List<File> getAllTemplateFiles(String uuid) {
-        try {
-            Person requester = this.personBusiness.getPersonByUUID(uuid);
-
-            //Check that user has access to this milestone
-            if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                throw new NotAuthorizedException("You do not have access to these files.");
-            }
-
-            return fileDB.getAllTemplateFiles();
+    public RowSource<File> getAllTemplateFiles(String uuid, String view) {
+        Person requester = this.personBusiness.getPersonByUUID(uuid);
 
-        } catch(SQLException sqle) {
-            throw new InternalServerErrorException(sqle.getMessage());
+        //Check that user has access to this milestone
+        if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
+            throw new NotAuthorizedException("You do not have access to these files.");
         }
+
+        boolean withContent = !ListQueries.isSummary(view);
+        return after -> fileDB.getTemplateFilePage(withContent, after);
     }
 
     /**
      * Get all files by milestoneID
      * @param milestoneID to retrieve files by
      * @param uuid id of requester
-     * @return list of files
+     * @param view "summary" to list files without their content, null or "full" for whole files
+     * @return files, read from the database a page at a time as they are consumed
      */
-    public List<File> getAllFilesByMilestone(String milestoneID, String uuid) {
-        try {
-            Person requester = this.personBusiness.getPersonByUUID(uuid);
-            Milestone milestone = milestoneBusiness.getMilestoneByID(milestoneID);
-
-                //Check that user has access to this milestone
-            if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
-                if(!companyIDList.contains(milestone.getCompany().getCompanyID())){
-                    throw new NotAuthorizedException("You do not have access to this file.");
-                }
-            }
-
-            return fileDB.getAllFilesByMilestone(Integer.parseInt(milestoneID));
+    public RowSource<File> getAllFilesByMilestone(String milestoneID, String uuid, String view) {
+        this.checkMilestoneAccess(milestoneID, uuid);
 
-        } catch(SQLException sqle) {
-            throw new InternalServerErrorException(sqle.getMessage());
-        }
+        int milestoneIDInteger = Integer.parseInt(milestoneID);
+        boolean withContent = !ListQueries.isSummary(view);
+        return after -> fileDB.getFilePageByMilestone(milestoneIDInteger, withContent, after);
     }
 
     /**
      * Get all files by companyID
      * @param companyID to retrieve files by
      * @param uuid id of requester
-     * @return list of files
+     * @param view "summary" to list files without their content, null or "full" for whole files
+     * @return files, read from the database a page at a time as they are consumed
      */
-    public List<File> getAllFilesByCompany(String companyID, String uuid) {
-        try {
-            Person requester = this.personBusiness.getPersonByUUID(uuid);
-            Company company = this.companyBusiness.getCompanyByID(companyID);
+    public RowSource<File> getAllFilesByCompany(String companyID, String uuid, String view) {
+        Person requester = this.personBusiness.getPersonByUUID(uuid);
+        Company company = this.companyBusiness.getCompanyByID(companyID);
 
 
-            //Check that user has access to this company
-            if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
-                if(!companyIDList.contains(company.getCompanyID())){
-                    throw new NotAuthorizedException("You do not have access to files from these companies.");
-                }
+        //Check that user has access to this company
+        if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
+            List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
+            if(!companyIDList.contains(company.getCompanyID())){
+                throw new NotAuthorizedException("You do not have access to files from these companies.");
             }
-
-            return fileDB.getAllFilesByCompany(Integer.parseInt(companyID));
-
-        } catch(SQLException sqle) {
-            throw new InternalServerErrorException(sqle.getMessage());
         }
+
+        int companyIDInteger = Integer.parseInt(companyID);
+        boolean withContent = !ListQueries.isSummary(view);
+        return after -> fileDB.getFilePageByCompany(companyIDInteger, withContent, after);
     }
 
 
@@ -327,38 +357,83 @@ public class FileBusiness {
         }
     }
 
-    public File zipAllFilesByMilestone(String milestoneID, String uuid) {
-        //Retrieves all files to be zipped
-        List<File> files = this.getAllFilesByMilestone(milestoneID, uuid);
+    /**
+     * Get content information for every file of a milestone the requester has access to
+     * @param milestoneID to retrieve files by
+     * @param uuid id of requester
+     * @return list of file content information used to stream the archive
+     */
+    public List<FileContent> getMilestoneArchiveContents(String milestoneID, String uuid) {
+        try {
+            this.checkMilestoneAccess(milestoneID, uuid);
 
-        //Processes each file and adds it to the archive
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            return fileDB.getFileContentsByMilestone(Integer.parseInt(milestoneID));
+        } catch(SQLException sqle) {
+            throw new InternalServerErrorException(sqle.getMessage());
+        }
+    }
 
-            ZipOutputStream zipOutputStream = new ZipOutputStream(byteArrayOutputStream);
+    /**
+     * Writes a zip archive of files to a stream, reading one file at a time from the database
+     * Access must already have been checked with getMilestoneArchiveContents
+     * @param fileContents files to archive
+     * @param outputStream stream to write the archive to
+     * @throws IOException Error reading a file or writing the archive
+     */
+    public void writeArchive(List<FileContent> fileContents, OutputStream outputStream) throws IOException {
+        //Not closed here, the container owns the underlying stream
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        Set<String> entryNames = new HashSet<>();
+
+        for(FileContent fileContent : fileContents) {
+            //Compressing already compressed media costs cpu for no gain
+            zipOutputStream.setLevel(CompressedMediaTypes.isCompressed(fileContent.getMimeType()) ? Deflater.NO_COMPRESSION : ARCHIVE_COMPRESSION_LEVEL);
+
+            //Creates a new entry for the file we are archiving
+            zipOutputStream.putNextEntry(new ZipEntry(uniqueEntryName(fileContent.getName(), entryNames)));
+            try (InputStream inputStream = fileDB.openFileContent(fileContent)) {
+                inputStream.transferTo(zipOutputStream);
+            }
+            zipOutputStream.closeEntry();
+        }
 
-            for(File file: files) {
-                //Removes the MimeType from the file for archiving
-                String split = file.getDecodedString().split("base64,")[1];
+        //Writes the central directory to finalize the archive
+        zipOutputStream.finish();
+    }
 
-                //Converts the file into bytes
-                byte[] bytes = Base64.getDecoder().decode(split.getBytes());
+    /**
+     * Checks that a user has access to the files of a milestone
+     * @param milestoneID milestone being accessed
+     * @param uuid id of requester
+     */
+    private void checkMilestoneAccess(String milestoneID, String uuid) {
+        Person requester = this.personBusiness.getPersonByUUID(uuid);
+        Milestone milestone = milestoneBusiness.getMilestoneByID(milestoneID);
 
-                //Creates a new entry for the file we are archiving
-                zipOutputStream.putNextEntry(new ZipEntry(file.getName()));
-                zipOutputStream.write(bytes);
-                zipOutputStream.closeEntry();
+        //Check that user has access to this milestone
+        if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
+            List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
+            if(!companyIDList.contains(milestone.getCompany().getCompanyID())){
+                throw new NotAuthorizedException("You do not have access to this file.");
             }
-            //Closes the zip stream to finalize the archive
-            zipOutputStream.close();
-
-            //Converts the archive into a base64 format for the front end, appending the MimeType
-            String base64 = new String(Base64.getEncoder().encode(byteArrayOutputStream.toByteArray()));
-            base64 = new String("data:" + MimeUtil.getMimeTypes(base64) + ";base64," + base64);
-
-            return new File("Milestone_" + milestoneID + "_Archive.zip", base64, true, false);
-        } catch(IOException ioException) {
-            throw new InternalServerErrorException(ioException.getMessage());
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Zip entries must be unique, so repeated names are numbered
+     * @param name file name
+     * @param entryNames names already used in the archive
+     * @return name not yet used in the archive
+     */
+    private static String uniqueEntryName(String name, Set<String> entryNames) {
+        String baseName = (name == null || name.isEmpty()) ? "file" : name;
+        String entryName = baseName;
+        for(int copy = 1; !entryNames.add(entryName); copy++) {
+            int extension = baseName.lastIndexOf('.');
+            entryName = extension > 0
+                    ? baseName.substring(0, extension) + " (" + copy + ")" + baseName.substring(extension)
+                    : baseName + " (" + copy + ")";
+        }
+        return entryName;
+    }
+}
@@ -0,0 +1,144 @@
+package blink.businesslayer;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.ListQuery;
+import blink.utility.objects.Person;
+
+import javax.ws.rs.BadRequestException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Class intended to consolidate logic for reading the paging and filter parameters of list endpoints
+ */
+final class ListQueries {
+    static final String SUMMARY_VIEW = "summary";
+    static final String FULL_VIEW = "full";
+
+    private ListQueries(){
+        //this is not used as this class is meant to be used as a static utility class
+    }
+
+    /**
+     * Read the parameters of a list keyed by an integer ID
+     * @param limit Number of rows in a page, null for the largest page
+     * @param after ID of the last row of the previous page, null for the first page
+     * @param companyID Only rows of this company, null for any company
+     * @param from Only rows delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only rows delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param archived "true" or "false" for only archived or only active rows, null for both
+     * @param view "summary" or "full", null for full
+     * @return The list query
+     * @throws BadRequestException A parameter could not be read
+     */
+    static ListQuery parse(String limit, String after, String companyID, String from, String to, String archived, String view) throws BadRequestException {
+        if(after != null){
+            parseInteger("after", after);
+        }
+
+        LocalDate fromDate = parseDate("from", from);
+        LocalDate toDate = parseDate("to", to);
+        if(fromDate != null && toDate != null && fromDate.isAfter(toDate)){
+            throw new BadRequestException("from must not be after to.");
+        }
+
+        return new ListQuery(parseLimit(limit), after, parseCompanyID(companyID), fromDate, toDate, parseArchived(archived), isSummary(view));
+    }
+
+    /**
+     * Read the parameters of a list keyed by UUID
+     * @param limit Number of rows in a page, null for the largest page
+     * @param after UUID of the last row of the previous page, null for the first page
+     * @param companyID Only rows of this company, null for any company
+     * @return The list query
+     * @throws BadRequestException A parameter could not be read
+     */
+    static ListQuery parseByUUID(String limit, String after, String companyID) throws BadRequestException {
+        return new ListQuery(parseLimit(limit), after, parseCompanyID(companyID), null, null, null, false);
+    }
+
+    /**
+     * Work out the companies a requester may list rows of
+     * @param requester Person requesting the list
+     * @param listQuery List query holding the company filter
+     * @return Company IDs to restrict the list to, or null if the list is not restricted
+     */
+    static List<Integer> companyScope(Person requester, ListQuery listQuery){
+        Integer companyID = listQuery.getCompanyID();
+        if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
+            return companyID == null ? null : List.of(companyID);
+        }
+
+        List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
+        if(companyID == null){
+            return companyIDList;
+        }
+        //Filtering on a company the requester is not part of matches nothing
+        return companyIDList.contains(companyID) ? List.of(companyID) : new ArrayList<>();
+    }
+
+    /**
+     * Read the view parameter of a list
+     * @param view "summary" or "full", null for full
+     * @return True for the summary view
+     * @throws BadRequestException The view is neither summary nor full
+     */
+    static boolean isSummary(String view) throws BadRequestException {
+        if(view == null || view.equalsIgnoreCase(FULL_VIEW)){
+            return false;
+        }
+        if(!view.equalsIgnoreCase(SUMMARY_VIEW)){
+            throw new BadRequestException("view must be " + SUMMARY_VIEW + " or " + FULL_VIEW + ".");
+        }
+        return true;
+    }
+
+    private static int parseLimit(String limit) throws BadRequestException {
+        if(limit == null){
+            return ListQuery.MAX_LIMIT;
+        }
+        int value = parseInteger("limit", limit);
+        if(value < 1 || value > ListQuery.MAX_LIMIT){
+            throw new BadRequestException("limit must be between 1 and " + ListQuery.MAX_LIMIT + ".");
+        }
+        return value;
+    }
+
+    private static Integer parseCompanyID(String companyID) throws BadRequestException {
+        return companyID == null ? null : parseInteger("company", companyID);
+    }
+
+    private static Boolean parseArchived(String archived) throws BadRequestException {
+        if(archived == null){
+            return null;
+        }
+        if(!archived.equalsIgnoreCase("true") && !archived.equalsIgnoreCase("false")){
+            throw new BadRequestException("archived must be true or false.");
+        }
+        return Boolean.valueOf(archived);
+    }
+
+    private static int parseInteger(String name, String value) throws BadRequestException {
+        try{
+            return Integer.parseInt(value);
+        }
+        catch(NumberFormatException nfe){
+            throw new BadRequestException(name + " must be a valid integer.");
+        }
+    }
+
+    private static LocalDate parseDate(String name, String value) throws BadRequestException {
+        if(value == null){
+            return null;
+        }
+        try{
+            return LocalDate.parse(value);
+        }
+        catch(DateTimeParseException dtpe){
+            throw new BadRequestException(name + " must be a date in the format yyyy-MM-dd.");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package blink.businesslayer;
+
+import blink.utility.concurrent.BoundedExecutor;
+import blink.utility.concurrent.KeyedTokenBuckets;
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
+import blink.utility.metrics.MetricsRegistry;
+import blink.utility.security.PasswordEncryption;
+import com.google.gson.JsonObject;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.Response;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Admission control for login attempts.
+ * Attempts are throttled per username and per client address, and password hashing runs on its own executor
+ * sized to the CPU, so a burst of logins cannot take the CPU or the request threads from other traffic.
+ */
+final class LoginGuard {
+    static final int TOO_MANY_REQUESTS = 429;
+
+    //Seconds a client is asked to wait when every hashing thread is busy and the queue is full
+    private static final long RETRY_AFTER_SECONDS = 1;
+    //Longest a login waits for its hash, far above the time a hash takes on an idle executor
+    private static final long HASH_TIMEOUT_SECONDS = 10;
+    private static final int MAX_TRACKED_KEYS = 10_000;
+
+    private static final EnvManager ENV_MANAGER = new EnvManager();
+
+    private static final BoundedExecutor HASH_EXECUTOR = new BoundedExecutor(
+            "blink-login-hash",
+            Runtime.getRuntime().availableProcessors(),
+            Integer.parseInt(ENV_MANAGER.getValue(EnvKeyValues.LOGIN_QUEUE_SIZE))
+    );
+
+    private static final KeyedTokenBuckets<String> USER_BUCKETS = buckets(EnvKeyValues.LOGIN_USER_ATTEMPTS);
+    private static final KeyedTokenBuckets<String> ADDRESS_BUCKETS = buckets(EnvKeyValues.LOGIN_IP_ATTEMPTS);
+
+    static {
+        MetricsRegistry.register("loginHashExecutor", HASH_EXECUTOR::metrics);
+        MetricsRegistry.register("loginThrottle", () -> {
+            JsonObject json = new JsonObject();
+            json.add("username", USER_BUCKETS.metrics());
+            json.add("address", ADDRESS_BUCKETS.metrics());
+            return json;
+        });
+    }
+
+    private LoginGuard(){
+        //this is not used as this class is meant to be used as a static utility class
+    }
+
+    private static KeyedTokenBuckets<String> buckets(String attemptsPerMinuteKey) {
+        int attemptsPerMinute = Integer.parseInt(ENV_MANAGER.getValue(attemptsPerMinuteKey));
+        return new KeyedTokenBuckets<>(attemptsPerMinute, attemptsPerMinute, MAX_TRACKED_KEYS);
+    }
+
+    /**
+     * Counts a login attempt against the client address and the username
+     * @param username Username of the attempt
+     * @param clientAddress Address the attempt came from, null if unknown
+     * @throws ClientErrorException 429 TOO MANY REQUESTS with a Retry-After header if either has no attempts left
+     */
+    static void admit(String username, String clientAddress) throws ClientErrorException {
+        if(clientAddress != null && !ADDRESS_BUCKETS.tryAcquire(clientAddress)){
+            throw tooManyRequests(ADDRESS_BUCKETS.getRetryAfterSeconds());
+        }
+        //Usernames are matched without regard to case
+        if(!USER_BUCKETS.tryAcquire(username.toLowerCase(Locale.ROOT))){
+            throw tooManyRequests(USER_BUCKETS.getRetryAfterSeconds());
+        }
+    }
+
+    /**
+     * Checks a password against a stored hash on the login hashing executor
+     * @param password Plain text password
+     * @param storedHash Stored hash record
+     * @param salt Salt column of the person
+     * @return True if the password matches
+     * @throws ServiceUnavailableException Every hashing thread is busy and the queue is full
+     * @throws InternalServerErrorException Hashing failed
+     */
+    static boolean verify(String password, String storedHash, String salt) throws ServiceUnavailableException, InternalServerErrorException {
+        return onHashExecutor(() -> PasswordEncryption.verify(password, storedHash, salt));
+    }
+
+    /**
+     * Hashes a password under the current policy on the login hashing executor
+     * @param password Plain text password
+     * @param salt Salt column of the person
+     * @return Hash record
+     * @throws ServiceUnavailableException Every hashing thread is busy and the queue is full
+     * @throws InternalServerErrorException Hashing failed
+     */
+    static String hash(String password, String salt) throws ServiceUnavailableException, InternalServerErrorException {
+        return onHashExecutor(() -> PasswordEncryption.hash(password, salt));
+    }
+
+    private static <T> T onHashExecutor(Callable<T> work) throws ServiceUnavailableException, InternalServerErrorException {
+        Future<T> result;
+        try {
+            result = HASH_EXECUTOR.submit(work);
+        }
+        catch(RejectedExecutionException ree){
+            throw new ServiceUnavailableException(RETRY_AFTER_SECONDS);
+        }
+
+        try {
+            return result.get(HASH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch(TimeoutException te){
+            result.cancel(true);
+            throw new ServiceUnavailableException(RETRY_AFTER_SECONDS);
+        }
+        catch(InterruptedException ie){
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Interrupted while hashing password.");
+        }
+        catch(ExecutionException ee){
+            throw new InternalServerErrorException(ee.getCause().getMessage());
+        }
+    }
+
+    private static ClientErrorException tooManyRequests(long retryAfterSeconds) {
+        return new ClientErrorException("Too many login attempts, please try again later.",
+                Response.status(TOO_MANY_REQUESTS).header("Retry-After", retryAfterSeconds).build());
+    }
+}
@@ -2,7 +2,10 @@ package blink.businesslayer;
 
 import blink.datalayer.MilestoneDB;
 import blink.utility.objects.Company;
+import blink.utility.objects.EntityVersion;
+import blink.utility.objects.ListQuery;
 import blink.utility.objects.Milestone;
+import blink.utility.objects.Page;
 import blink.utility.objects.Person;
 import blink.utility.objects.Workflow;
 
@@ -10,13 +13,10 @@ import javax.ws.rs.BadRequestException;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
-import java.util.ArrayList;
 import java.util.Date;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class MilestoneBusiness {
     private MilestoneDB milestoneDB;
@@ -33,71 +33,61 @@ public class MilestoneBusiness {
 
 
     /**
-     * Get all milestones
+     * Get a page of milestones
      * @param uuid uuid of the requesting user
-     * @return List of milestones
+     * @param limit Number of milestones in a page, null for the largest page
+     * @param after milestoneID of the last milestone of the previous page, null for the first page
+     * @param companyID Only milestones of this company, null for any company
+     * @param from Only milestones delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only milestones delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param archived "true" or "false" for only archived or only active milestones, null for every milestone
+     * @param view "summary" to leave out descriptions, null or "full" for whole milestones
+     * @return Page of milestones
      * @throws NotAuthorizedException requester uuid was not found in the database
+     * @throws BadRequestException A paging or filter parameter was invalid
      * @throws InternalServerErrorException Error in data layer
      */
-    public List<Milestone> getAllMilestones(String uuid) throws NotAuthorizedException, InternalServerErrorException {
-        try{
-            Person requester = personBusiness.getPersonByUUID(uuid);
-
-            List<Milestone> milestoneList = new ArrayList<>();
-            if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                milestoneList = milestoneDB.getAllMilestones();
-            }
-            else{
-                List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
-                milestoneList.addAll(milestoneDB.getAllMilestones(companyIDList));
-            }
-
-            for(Milestone milestone : milestoneList) {
-                milestone.setPercentComplete(uuid);
-                if(milestone.isCompleted()) {
-                    this.milestoneDB.markMilestoneComplete(milestone.getCompletedDate(), milestone.getMileStoneID());
-                }
-            }
+    public Page<Milestone> getAllMilestones(String uuid, String limit, String after, String companyID, String from, String to, String archived, String view) throws NotAuthorizedException, BadRequestException, InternalServerErrorException {
+        return this.getAllMilestones(uuid, ListQueries.parse(limit, after, companyID, from, to, archived, view));
+    }
 
-            return milestoneList;
-        }
-        //If requester uuid does not exist then they were deleted and should not have access anymore
-        catch(NotFoundException nfe){
-            throw new NotAuthorizedException("Requesting UUID was not found.");
-        }
-        //SQLException If the data layer throws an SQLException; throw a custom Internal Server Error
-        catch(SQLException ex){
-            throw new InternalServerErrorException(ex.getMessage());
-        }
+    /**
+     * Get a page of active milestones
+     * @param uuid uuid of the requesting user
+     * @param limit Number of milestones in a page, null for the largest page
+     * @param after milestoneID of the last milestone of the previous page, null for the first page
+     * @param companyID Only milestones of this company, null for any company
+     * @param from Only milestones delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only milestones delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param view "summary" to leave out descriptions, null or "full" for whole milestones
+     * @return Page of active milestones
+     * @throws BadRequestException A paging or filter parameter was invalid
+     * @throws InternalServerErrorException Error in data layer
+     */
+    public Page<Milestone> getActiveMilestones(String uuid, String limit, String after, String companyID, String from, String to, String view) throws BadRequestException, InternalServerErrorException {
+        return this.getAllMilestones(uuid, ListQueries.parse(limit, after, companyID, from, to, null, view).withArchived(false));
     }
 
     /**
-     * Get all active milestones
+     * Get the versions of the page of active milestones getActiveMilestones returns for the same arguments
      * @param uuid uuid of the requesting user
-     * @return List of active milestones
+     * @param limit Number of milestones in a page, null for the largest page
+     * @param after milestoneID of the last milestone of the previous page, null for the first page
+     * @param companyID Only milestones of this company, null for any company
+     * @param from Only milestones delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only milestones delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param view "summary" or "full", only checked here
+     * @return Page of versions of active milestones
+     * @throws NotAuthorizedException requester uuid was not found in the database
+     * @throws BadRequestException A paging or filter parameter was invalid
      * @throws InternalServerErrorException Error in data layer
      */
-    public List<Milestone> getActiveMilestones(String uuid) throws InternalServerErrorException {
+    public Page<EntityVersion> getActiveMilestoneVersions(String uuid, String limit, String after, String companyID, String from, String to, String view) throws NotAuthorizedException, BadRequestException, InternalServerErrorException {
+        ListQuery listQuery = ListQueries.parse(limit, after, companyID, from, to, null, view).withArchived(false);
         try{
             Person requester = personBusiness.getPersonByUUID(uuid);
 
-            List<Milestone> milestoneList = new ArrayList<>();
-            if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                milestoneList = milestoneDB.getAllMilestones(false);
-            }
-            else{
-                List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
-                milestoneList.addAll(milestoneDB.getAllMilestones(companyIDList, false));
-            }
-
-            for(Milestone milestone : milestoneList) {
-                milestone.setPercentComplete(requester.getUuid());
-                if(milestone.isCompleted()) {
-                    this.milestoneDB.markMilestoneComplete(milestone.getCompletedDate(), milestone.getMileStoneID());
-                }
-            }
-
-            return milestoneList;
+            return milestoneDB.getMilestoneVersions(ListQueries.companyScope(requester, listQuery), listQuery);
         }
         //If requester uuid does not exist then they were deleted and should not have access anymore
         catch(NotFoundException nfe){
@@ -110,31 +100,35 @@ public class MilestoneBusiness {
     }
 
     /**
-     * Get all archived milestones
-     * @return List of archived milestones
+     * Get a page of archived milestones
+     * @param uuid uuid of the requesting user
+     * @param limit Number of milestones in a page, null for the largest page
+     * @param after milestoneID of the last milestone of the previous page, null for the first page
+     * @param companyID Only milestones of this company, null for any company
+     * @param from Only milestones delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only milestones delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param view "summary" to leave out descriptions, null or "full" for whole milestones
+     * @return Page of archived milestones
+     * @throws BadRequestException A paging or filter parameter was invalid
+     * @throws InternalServerErrorException Error in data layer
+     */
+    public Page<Milestone> getArchivedMilestones(String uuid, String limit, String after, String companyID, String from, String to, String view) throws BadRequestException, InternalServerErrorException {
+        return this.getAllMilestones(uuid, ListQueries.parse(limit, after, companyID, from, to, null, view).withArchived(true));
+    }
+
+    /**
+     * Get a page of milestones
+     * @param uuid uuid of the requesting user
+     * @param listQuery Page and filters requested
+     * @return Page of milestones the requester may see
+     * @throws NotAuthorizedException requester uuid was not found in the database
      * @throws InternalServerErrorException Error in data layer
      */
-    public List<Milestone> getArchivedMilestones(String uuid) throws InternalServerErrorException {
+    private Page<Milestone> getAllMilestones(String uuid, ListQuery listQuery) throws NotAuthorizedException, InternalServerErrorException {
         try{
             Person requester = personBusiness.getPersonByUUID(uuid);
 
-            List<Milestone> milestoneList = new ArrayList<>();
-            if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                milestoneList = milestoneDB.getAllMilestones(true);
-            }
-            else{
-                List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
-                milestoneList.addAll(milestoneDB.getAllMilestones(companyIDList, true));
-            }
-
-            for(Milestone milestone : milestoneList) {
-                milestone.setPercentComplete(requester.getUuid());
-                if(milestone.isCompleted()) {
-                    this.milestoneDB.markMilestoneComplete(milestone.getCompletedDate(), milestone.getMileStoneID());
-                }
-            }
-
-            return milestoneList;
+            return milestoneDB.getMilestones(ListQueries.companyScope(requester, listQuery), listQuery);
         }
         //If requester uuid does not exist then they were deleted and should not have access anymore
         catch(NotFoundException nfe){
@@ -162,11 +156,6 @@ public class MilestoneBusiness {
 
         Person requester = personBusiness.getPersonByUUID(uuid);
 
-        milestone.setPercentComplete(requester.getUuid());
-        if(milestone.isCompleted()) {
-            this.milestoneDB.markMilestoneComplete(milestone.getCompletedDate(), milestone.getMileStoneID());
-        }
-
         if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
             return milestone;
         }
@@ -246,7 +235,7 @@ public class MilestoneBusiness {
             int insertedMilestoneID = milestoneDB.insertMilestone(name, description, today, parsedStartDate, parsedDeliveryDate, company.getCompanyID());
 
             //Reaching this indicates no issues have been met and a success message can be returned
-            return new Milestone(insertedMilestoneID, name, description, today, today, parsedStartDate, parsedDeliveryDate, null, false, company);
+            return new Milestone(insertedMilestoneID, name, description, today, today, parsedStartDate, parsedDeliveryDate, null, false, company, 0, 0);
         }
         catch(NumberFormatException nfe){
             throw new BadRequestException("Company ID must be a valid integer");
@@ -312,7 +301,7 @@ public class MilestoneBusiness {
             milestoneDB.updateMilestone(existingMilestone.getMileStoneID(), name, description, today, parsedStartDate, parsedDeliveryDate, company.getCompanyID());
 
             //Reaching this indicates no issues have been met and a success message can be returned
-            return new Milestone(existingMilestone.getMileStoneID(), name, description, existingMilestone.getCreatedDate(), today, parsedStartDate, parsedDeliveryDate, existingMilestone.getCompletedDate(), existingMilestone.isArchived(), company);
+            return new Milestone(existingMilestone.getMileStoneID(), name, description, existingMilestone.getCreatedDate(), today, parsedStartDate, parsedDeliveryDate, existingMilestone.getCompletedDate(), existingMilestone.isArchived(), company, existingMilestone.getLeafSteps(), existingMilestone.getCompletedLeafSteps());
         }
         catch (NumberFormatException nfe) {
             throw new BadRequestException("Company ID must be a valid integer");
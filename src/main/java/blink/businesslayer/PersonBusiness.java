@@ -2,9 +2,11 @@ package blink.businesslayer;
 
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
+import java.util.logging.Logger;
 
 import blink.datalayer.PersonDB;
 
@@ -12,17 +14,28 @@ import javax.naming.InterruptedNamingException;
 import javax.sql.rowset.serial.SerialBlob;
 import javax.ws.rs.*;
 
+import blink.utility.cache.TtlCache;
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
 import blink.utility.exceptions.ConflictException;
+import blink.utility.metrics.MetricsRegistry;
 import blink.utility.objects.AccessLevel;
 import blink.utility.objects.File;
+import blink.utility.objects.ListQuery;
+import blink.utility.objects.Page;
 import blink.utility.objects.Person;
 import blink.utility.security.PasswordEncryption;
+import blink.utility.security.RequestPrincipal;
 
 /**
  * Business layer for functionality related to person
  * Includes login as well as business operations for people
  */
 public class PersonBusiness {
+    //Shared by every instance, people and their company memberships rarely change
+    private static final TtlCache<String, Person> PERSON_CACHE = createPersonCache();
+    private static final Logger LOGGER = Logger.getLogger(PersonBusiness.class.getName());
+
     private PersonDB personDB;
     private AccessLevelBusiness accessLevelBusiness;
 
@@ -35,16 +48,22 @@ public class PersonBusiness {
      * Checks that a username and password matches an entry in the database
      * @param user Username for login attempt
      * @param password Plaintext password for login attempt
+     * @param clientAddress Address the login attempt came from, null if unknown
      * @return Person object that matches username and password input
      * @throws NotAuthorizedException If username is not found or password does not match database entry
      * @throws BadRequestException Username or password passed in was empty or null
+     * @throws ClientErrorException 429 TOO MANY REQUESTS if the username or address has run out of attempts
+     * @throws ServiceUnavailableException Too many logins are being hashed at once
      * @throws InternalServerErrorException Error in password encryption or database connectivity process
      */
-    public Person login(String user, String password) throws NotAuthorizedException, BadRequestException, InternalServerErrorException{
+    public Person login(String user, String password, String clientAddress) throws NotAuthorizedException, BadRequestException, ClientErrorException, ServiceUnavailableException, InternalServerErrorException{
         //Initial parameter validation; throws BadRequestException if there is an issue
         if(user == null || user.isEmpty()){ throw new BadRequestException("Invalid username syntax"); }
         if(password == null || password.isEmpty()){ throw new BadRequestException("Invalid password syntax"); }
 
+        //Throttle before doing any work for the attempt
+        LoginGuard.admit(user, clientAddress);
+
         try{
             //Retrieve the person from the database by name
             Person person = this.personDB.getPersonByUsername(user);
@@ -55,12 +74,16 @@ public class PersonBusiness {
 
             //Encrypt password that was passed in and compare to hash stored in database
             //Throw UnauthorizedException if they do not match
-            String encryptedPassword = PasswordEncryption.hash(password, person.getSalt());
-
-            if(!person.getPasswordHash().equals(encryptedPassword)){
+            //Hashing runs on the login executor so it cannot crowd out other requests
+            if(!LoginGuard.verify(password, person.getPasswordHash(), person.getSalt())){
                 throw new NotAuthorizedException("Invalid login credentials.");
             }
 
+            //Upgrade a hash stored under an older policy while the plain text password is at hand
+            if(PasswordEncryption.needsRehash(person.getPasswordHash())){
+                this.rehashPassword(person.getUuid(), password, person.getSalt());
+            }
+
             //Reaching this indicates no issues have been met and a success message can be returned
             return this.getPersonSignature(person.getUuid());
         }
@@ -72,14 +95,38 @@ public class PersonBusiness {
     }
 
     /**
-     * Get all people from the database
-     * @return ArrayList of people found in database
+     * Replaces a person's password hash with one made under the current policy.
+     * A failure leaves the old hash in place, it is tried again on the next login.
+     * @param uuid UUID of the person
+     * @param password Plaintext password that was just verified
+     * @param salt Salt of the person
+     */
+    private void rehashPassword(String uuid, String password, String salt) {
+        try{
+            this.personDB.updatePasswordHash(uuid, LoginGuard.hash(password, salt));
+            invalidatePerson(uuid);
+        }
+        catch(SQLException | WebApplicationException ex){
+            LOGGER.warning("Could not upgrade the password hash of " + uuid + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Get a page of people from the database
+     * @param limit Number of people in a page, null for the largest page
+     * @param after UUID of the last person of the previous page, null for the first page
+     * @param companyID Only people of this company, null for people of any company
+     * @return Page of people found in database
+     * @throws BadRequestException A paging or filter parameter was invalid
      * @throws InternalServerErrorException Error in data layer
      */
-    public List<Person> getAllPeople() throws InternalServerErrorException {
+    public Page<Person> getAllPeople(String limit, String after, String companyID) throws BadRequestException, InternalServerErrorException {
         try{
-            //Return response from getAllPeople process
-            return personDB.getAllPeople();
+            ListQuery listQuery = ListQueries.parseByUUID(limit, after, companyID);
+            Integer company = listQuery.getCompanyID();
+
+            //Return response from getPeople process
+            return personDB.getPeople(company == null ? null : List.of(company), listQuery);
         }
         //SQLException If the data layer throws an SQLException; throw a custom Internal Server Error
         catch(SQLException ex){
@@ -100,12 +147,27 @@ public class PersonBusiness {
             //Initial parameter validation; throws BadRequestException if there is an issue
             if(uuid == null || uuid.isEmpty()){ throw new BadRequestException("A user ID must be provided"); }
 
-            //Retrieve the person from the database by String
-            Person person = personDB.getPersonByUUID(uuid);
+            //The caller of this request is loaded once and reused by every layer
+            RequestPrincipal principal = RequestPrincipal.forUUID(uuid);
+            if(principal != null && principal.getPerson() != null){
+                return principal.getPerson();
+            }
 
-            //If null is returned, no user was found with given UUID
+            Person person = PERSON_CACHE.get(uuid);
             if(person == null){
-                throw new NotFoundException("No user with that UUID exists.");
+                //Retrieve the person from the database by String
+                long stamp = PERSON_CACHE.stamp();
+                person = personDB.getPersonByUUID(uuid);
+
+                //If null is returned, no user was found with given UUID
+                if(person == null){
+                    throw new NotFoundException("No user with that UUID exists.");
+                }
+                PERSON_CACHE.put(uuid, person, stamp);
+            }
+
+            if(principal != null){
+                principal.setPerson(person);
             }
 
             //Reaching this indicates no issues have been met and a success message can be returned
@@ -158,9 +220,10 @@ public class PersonBusiness {
      * @return Person object containing inserted data
      * @throws NotFoundException Company name does not exist in the database
      * @throws BadRequestException Paramaters are null, empty or inconvertible into integer
+     * @throws ServiceUnavailableException Too many passwords are being hashed at once
      * @throws InternalServerErrorException Error creating a salt, hashing password or connecting to database
      */
-    public Person insertPerson(String username, String password, String fName, String lName, String email, String title, String accessLevelID, String signature) throws ConflictException, NotFoundException, BadRequestException, InternalServerErrorException {
+    public Person insertPerson(String username, String password, String fName, String lName, String email, String title, String accessLevelID, String signature) throws ConflictException, NotFoundException, BadRequestException, ServiceUnavailableException, InternalServerErrorException {
         try{
             //Initial parameter validation; throws BadRequestException if there is an issue
             if(username == null || username.isEmpty()){ throw new BadRequestException("A username must be provided"); }
@@ -181,7 +244,7 @@ public class PersonBusiness {
 
             //Get new salt and hash password with new salt
             String salt = PasswordEncryption.getSalt();
-            String passwordHash = PasswordEncryption.hash(password, salt);
+            String passwordHash = LoginGuard.hash(password, salt);
 
             //Retrieve the person from the database by UUID
             personDB.insertPerson(uuid, username, passwordHash, salt, fName, lName, email, title, accessLevel.getAccessLevelID(), signature);
@@ -207,9 +270,10 @@ public class PersonBusiness {
      * @return Person object containing updated data
      * @throws NotFoundException Company name does not exist in the database
      * @throws BadRequestException Paramaters are null, empty or inconvertible into integer
+     * @throws ServiceUnavailableException Too many passwords are being hashed at once
      * @throws InternalServerErrorException Error creating a salt, hashing password or connecting to database
      */
-    public Person updatePerson(String requesterID, String uuid, String username, String password, String fName, String lName, String email, String title, String accessLevelID, String signature) throws ConflictException, NotFoundException, BadRequestException, InternalServerErrorException {
+    public Person updatePerson(String requesterID, String uuid, String username, String password, String fName, String lName, String email, String title, String accessLevelID, String signature) throws ConflictException, NotFoundException, BadRequestException, ServiceUnavailableException, InternalServerErrorException {
         try{
             if(uuid == null || uuid.isEmpty()) { throw new BadRequestException("Must provide a valid UUID for updating a person."); }
 
@@ -230,7 +294,7 @@ public class PersonBusiness {
 
             //Hash new password or use old password if new password is null
             if(password == null || password.isEmpty()){ password = person.getPasswordHash(); }
-            else{ password = PasswordEncryption.hash(password, person.getSalt()); }
+            else{ password = LoginGuard.hash(password, person.getSalt()); }
 
             //Alter less impactful data
             if(fName == null || fName.isEmpty()){ fName = person.getFName(); }
@@ -254,6 +318,7 @@ public class PersonBusiness {
 
             //Retrieve the person from the database by UUID
             personDB.updatePerson(uuid, username, password, fName, lName, email, title, accessLevelIDInteger, signature);
+            invalidatePerson(uuid);
 
             //Reaching this indicates no issues have been met and a success message can be returned
             return this.getPersonSignature(uuid);
@@ -283,6 +348,7 @@ public class PersonBusiness {
 
             //Retrieve the person from the database by UUID
             int numRowsDeleted = personDB.deletePersonByUUID(uuid);
+            invalidatePerson(uuid);
 
             //If null is returned, no user was found with given UUID
             if(numRowsDeleted == 0){
@@ -297,4 +363,37 @@ public class PersonBusiness {
             throw new InternalServerErrorException(ex.getMessage());
         }
     }
+
+    /**
+     * Drops any cached copy of a person so the next lookup reads the database
+     * @param uuid UUID of the person that changed
+     */
+    static void invalidatePerson(String uuid) {
+        PERSON_CACHE.invalidate(uuid);
+        RequestPrincipal.invalidatePerson(uuid);
+    }
+
+    /**
+     * Drops every cached person, used when data embedded in many people changes such as a company name
+     */
+    static void invalidateAllPeople() {
+        PERSON_CACHE.invalidateAll();
+        RequestPrincipal principal = RequestPrincipal.current();
+        if(principal != null){
+            principal.setPerson(null);
+        }
+    }
+
+    /**
+     * Creates the person cache from the environment and publishes its counters
+     * @return Empty person cache
+     */
+    private static TtlCache<String, Person> createPersonCache() {
+        EnvManager env = new EnvManager();
+        TtlCache<String, Person> cache = new TtlCache<>(
+                Integer.parseInt(env.getValue(EnvKeyValues.PERSON_CACHE_SIZE)),
+                Duration.parse(env.getValue(EnvKeyValues.PERSON_CACHE_TTL)));
+        MetricsRegistry.register("personCache", cache::metrics);
+        return cache;
+    }
 }
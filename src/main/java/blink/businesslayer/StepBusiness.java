@@ -2,7 +2,7 @@ package blink.businesslayer;
 
 import blink.datalayer.FileDB;
 import blink.datalayer.StepDB;
-import blink.utility.objects.File;
+import blink.utility.json.JsonMapper;
 import blink.utility.objects.Step;
 import com.google.gson.*;
 
@@ -13,7 +13,9 @@ import javax.ws.rs.NotFoundException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -37,6 +39,13 @@ public class StepBusiness {
         this.verbBusiness = new VerbBusiness();
     }
 
+    StepBusiness(StepDB stepDB, FileDB fileDB, PersonBusiness personBusiness, VerbBusiness verbBusiness){
+        this.stepDB = stepDB;
+        this.fileDB = fileDB;
+        this.personBusiness = personBusiness;
+        this.verbBusiness = verbBusiness;
+    }
+
     /**
      * Gets higher level steps from the database
      * @param stepID ID of step to retrieve from database
@@ -68,11 +77,7 @@ public class StepBusiness {
      */
     public List<Step> getSteps(String workflowID) {
         try {
-            List<Step> steps = stepDB.getHigherLevelSteps(Integer.parseInt(workflowID));
-            for (Step step : steps) {
-                step.setChildren(this.getRelatedSteps(step));
-            }
-            return steps;
+            return stepDB.getStepTree(Integer.parseInt(workflowID));
         } catch(NumberFormatException nfe) {
             throw new BadRequestException(WORKFLOWID_ERROR);
         } catch(SQLException sqle) {
@@ -81,25 +86,18 @@ public class StepBusiness {
     }
 
     /**
-     * Get related steps from higher level step
-     * @param step Higher level step to retrieve stepID from
-     * @return Array of steps containing related steps
+     * Gets the steps assigned to a person that are ready to be worked on
+     * @param uuid UUID of the person
+     * @param companyIDList Companies whose workflows to search, null to search every company
+     * @return Ready steps
      * @throws InternalServerErrorException Error connecting to database or executing query
      */
-    public List<Step> getRelatedSteps(Step step) {
-        List<Step> relatedSteps;
+    public List<Step> getPendingSteps(String uuid, List<Integer> companyIDList) {
         try {
-            relatedSteps = stepDB.getRelatedSteps(step.getStepID());
+            return this.stepDB.getPendingSteps(uuid, companyIDList);
         } catch(SQLException sqle) {
-            throw new InternalServerErrorException("Problem returning related steps.");
-        }
-        if (relatedSteps != null) {
-            step.setChildren(relatedSteps);
-            for(Step relatedStep : step.getChildren()){
-                relatedStep.setChildren(this.getRelatedSteps(relatedStep));
-            }
+            throw new InternalServerErrorException(sqle.getMessage());
         }
-        return relatedSteps;
     }
 
     /**
@@ -134,27 +132,23 @@ public class StepBusiness {
     }
 
     /**
-     * Deletes existing steps by workflowID and adds updated step list
+     * Updates the stored steps of a workflow to match an updated step list.
+     * Only steps that were added, changed or removed are written.
+     * @param workflowID WorkflowID of the steps
      * @param stepList Updated list of step objects
-     * @return Success Message
+     * @param conn Connection with an open transaction
+     * @return Number of inserted, updated and deleted steps
      */
-    public int updateSteps(List<Step> stepList, Connection conn) {
-        int numUpdatedSteps;
+    public int updateSteps(int workflowID, List<Step> stepList, Connection conn) {
         try {
-            stepList = this.validateSteps(stepList);
+            Map<Integer, Step> storedSteps = this.stepDB.getStepsForUpdate(workflowID, conn);
 
-            numUpdatedSteps = this.stepDB.updateSteps(stepList, conn);
+            stepList = this.validateSteps(stepList, storedSteps);
 
-            if(numUpdatedSteps <= 0) {
-                throw new NotFoundException("No records with that workflowID exist.");
-            }
-        } catch(NumberFormatException ex) {
-            throw new BadRequestException(WORKFLOWID_ERROR);
+            return this.stepDB.updateSteps(workflowID, stepList, storedSteps, conn);
         } catch(SQLException ex) {
             throw new InternalServerErrorException(ex.getMessage());
         }
-
-        return numUpdatedSteps;
     }
 
     /**
@@ -181,8 +175,7 @@ public class StepBusiness {
      */
     public List<Step> jsonToStepList(JsonArray steps, int workflowID) {
         try {
-            Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
-            List<Step> stepList = Arrays.asList(gson.fromJson(steps, Step[].class));
+            List<Step> stepList = Arrays.asList(JsonMapper.gson().fromJson(steps, Step[].class));
 
             return insertWorkflowID(stepList, workflowID);
         }
@@ -208,29 +201,40 @@ public class StepBusiness {
     }
 
     private List<Step> validateSteps(List<Step> steps) throws SQLException{
-        for (Step step : steps) {
+        return this.validateSteps(steps, Collections.emptyMap());
+    }
 
-            //Check that fileID exists
-            File linkedFile = this.fileDB.getFileByID(step.getFileID());
-            if(linkedFile == null){
-                throw new NotFoundException("A file you assigned does not exist.");
+    /**
+     * Validates the steps that are new or changed compared to the stored steps.
+     * New steps, and steps linked to a different file, get their own copy of the linked file.
+     * @param steps Steps to validate
+     * @param storedSteps Stored steps of the workflow by stepID
+     * @return The validated steps
+     */
+    private List<Step> validateSteps(List<Step> steps, Map<Integer, Step> storedSteps) throws SQLException{
+        for (Step step : steps) {
+            Step storedStep = storedSteps.get(step.getStepID());
+
+            //Duplicate the linked file and reassign step to the duplicate, the duplicate shares the stored contents
+            if (storedStep == null || storedStep.getFileID() != step.getFileID()) {
+                int newFileID = this.fileDB.copyFile(step.getFileID());
+                if(newFileID == 0){
+                    throw new NotFoundException("A file you assigned does not exist.");
+                }
+                step.setFileID(newFileID);
             }
 
-            //If fileID points to template file, duplicate file and reassign step to duplicate file
-            int newFileID = this.fileDB.insertFile(linkedFile);
-            step.setFileID(newFileID);
-
             //validate that person exists
-            if (step.getUUID() != null) {
+            if (step.getUUID() != null && (storedStep == null || !step.getUUID().equals(storedStep.getUUID()))) {
                 this.personBusiness.getPersonByUUID(step.getUUID());
             }
 
-            if (step.getVerbID() != 0) {
+            if (step.getVerbID() != 0 && (storedStep == null || step.getVerbID() != storedStep.getVerbID())) {
                 this.verbBusiness.getVerb(step.getVerbID());
             }
 
             if (step.hasChildren()) {
-                step.setChildren(this.validateSteps(step.getChildren()));
+                step.setChildren(this.validateSteps(step.getChildren(), storedSteps));
             }
         }
 
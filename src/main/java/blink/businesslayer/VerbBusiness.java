@@ -1,6 +1,6 @@
 package blink.businesslayer;
 
-import blink.datalayer.VerbDB;
+import blink.datalayer.ReferenceData;
 import blink.utility.objects.Verb;
 
 import javax.ws.rs.InternalServerErrorException;
@@ -9,20 +9,14 @@ import java.sql.SQLException;
 import java.util.List;
 
 public class VerbBusiness {
-    private VerbDB verbDB;
-
-    public VerbBusiness(){
-        this.verbDB = new VerbDB();
-    }
-
     /**
-     * Uses data layer to get all verbs from the database
+     * Gets all verbs from the reference data
      * @throws InternalServerErrorException Error in the data layer
      * @return Generic list of verbs
      */
     public List<Verb> getAllVerbs(){
         try{
-            return this.verbDB.getAllVerbs();
+            return ReferenceData.getAllVerbs();
         }
         catch(SQLException sqle){
             throw new InternalServerErrorException(sqle.getMessage());
@@ -30,13 +24,15 @@ public class VerbBusiness {
     }
 
     /**
-     * Uses data layer to get all verbs from the database
+     * Gets a verb from the reference data
+     * @param verbID ID of the verb
+     * @throws NotFoundException No verb with that ID exists
      * @throws InternalServerErrorException Error in the data layer
-     * @return Generic list of verbs
+     * @return Verb
      */
     public Verb getVerb(int verbID){
         try{
-            Verb verb = this.verbDB.getVerb(verbID);
+            Verb verb = ReferenceData.getVerb(verbID);
             if(verb == null){
                 throw new NotFoundException("No verb with that ID exists.");
             }
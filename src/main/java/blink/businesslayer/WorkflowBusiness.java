@@ -1,6 +1,7 @@
 package blink.businesslayer;
 
 import blink.datalayer.WorkflowDB;
+import blink.utility.json.JsonMapper;
 import blink.utility.objects.*;
 import com.google.gson.*;
 import io.swagger.v3.core.util.AnnotationsUtils;
@@ -9,7 +10,6 @@ import javax.ws.rs.*;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,40 +27,27 @@ public class WorkflowBusiness {
         this.personBusiness = new PersonBusiness();
         this.milestoneBusiness = new MilestoneBusiness();
         this.stepBusiness = new StepBusiness();
-        this.gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
+        this.gson = JsonMapper.gson();
         this.dateParser = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
     }
 
     /**
-     * Get all workflows
+     * Get a page of workflows
      * @param uuid Uuid of the requesting user
-     * @return List of workflows
+     * @param limit Number of workflows in a page, null for the largest page
+     * @param after workflowID of the last workflow of the previous page, null for the first page
+     * @param companyID Only workflows of this company, null for any company
+     * @param from Only workflows delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only workflows delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param archived "true" or "false" for only archived or only active workflows, null for every workflow
+     * @param view "summary" to leave out steps and descriptions, null or "full" for whole workflows
+     * @return Page of workflows
      * @throws NotAuthorizedException Requester uuid was not found in the database
+     * @throws BadRequestException A paging or filter parameter was invalid
      * @throws InternalServerErrorException Error in data layer
      */
-    public List<Workflow> getAllWorkflows(String uuid) throws NotAuthorizedException, InternalServerErrorException {
-        try{
-            Person requester = personBusiness.getPersonByUUID(uuid);
-
-            List<Workflow> workflowList = new ArrayList<>();
-            if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                workflowList = workflowDB.getAllWorkflows();
-            }
-            else{
-                List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
-                workflowList.addAll(workflowDB.getAllWorkflows(companyIDList));
-            }
-
-            return workflowList;
-        }
-        //If requester uuid does not exist then they were deleted and should not have access anymore
-        catch(NotFoundException nfe){
-            throw new NotAuthorizedException("Requesting UUID was not found.");
-        }
-        //SQLException If the data layer throws an SQLException; throw a custom Internal Server Error
-        catch(SQLException ex){
-            throw new InternalServerErrorException(ex.getMessage());
-        }
+    public Page<Workflow> getAllWorkflows(String uuid, String limit, String after, String companyID, String from, String to, String archived, String view) throws NotAuthorizedException, BadRequestException, InternalServerErrorException {
+        return this.getAllWorkflows(uuid, ListQueries.parse(limit, after, companyID, from, to, archived, view));
     }
 
     /**
@@ -86,25 +73,17 @@ public class WorkflowBusiness {
     }
 
     /**
-     * Get all workflows by archive status
+     * Get a page of workflows
      * @param uuid Uuid of the requesting user
-     * @return List of active workflows
+     * @param listQuery Page and filters requested
+     * @return Page of workflows the requester may see
      * @throws InternalServerErrorException Error in data layer
      */
-    private List<Workflow> getAllWorkflows(String uuid, boolean archived) throws InternalServerErrorException {
+    private Page<Workflow> getAllWorkflows(String uuid, ListQuery listQuery) throws InternalServerErrorException {
         try{
             Person requester = personBusiness.getPersonByUUID(uuid);
 
-            List<Workflow> workflowList = new ArrayList<>();
-            if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
-                workflowList = workflowDB.getConcreteWorkflows(archived);
-            }
-            else{
-                List<Integer> companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
-                workflowList.addAll(workflowDB.getConcreteWorkflows(companyIDList, archived));
-            }
-
-            return workflowList;
+            return workflowDB.getWorkflows(ListQueries.companyScope(requester, listQuery), listQuery);
         }
         //If requester uuid does not exist then they were deleted and should not have access anymore
         catch(NotFoundException nfe){
@@ -117,21 +96,65 @@ public class WorkflowBusiness {
     }
 
     /**
-     * Wrapper function of getConcreteWorkflows that gets all active workflows
+     * Wrapper function of getAllWorkflows that gets a page of active workflows
+     * @param uuid Requester's UUID
+     * @param limit Number of workflows in a page, null for the largest page
+     * @param after workflowID of the last workflow of the previous page, null for the first page
+     * @param companyID Only workflows of this company, null for any company
+     * @param from Only workflows delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only workflows delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param view "summary" to leave out steps and descriptions, null or "full" for whole workflows
+     * @return Page of active workflows relevant to the user
+     */
+    public Page<Workflow> getActiveWorkflows(String uuid, String limit, String after, String companyID, String from, String to, String view){
+        return this.getAllWorkflows(uuid, ListQueries.parse(limit, after, companyID, from, to, null, view).withArchived(false));
+    }
+
+    /**
+     * Get the versions of the page of active workflows getActiveWorkflows returns for the same arguments
+     * The steps and descriptions of the workflows are not read
      * @param uuid Requester's UUID
-     * @return List of all workflows relevant to the user
+     * @param limit Number of workflows in a page, null for the largest page
+     * @param after workflowID of the last workflow of the previous page, null for the first page
+     * @param companyID Only workflows of this company, null for any company
+     * @param from Only workflows delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only workflows delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param view "summary" or "full", only checked here
+     * @return Page of versions of active workflows relevant to the user
+     * @throws NotAuthorizedException Requester uuid was not found in the database
+     * @throws BadRequestException A paging or filter parameter was invalid
+     * @throws InternalServerErrorException Error in data layer
      */
-    public List<Workflow> getActiveWorkflows(String uuid){
-        return this.getAllWorkflows(uuid, false);
+    public Page<EntityVersion> getActiveWorkflowVersions(String uuid, String limit, String after, String companyID, String from, String to, String view) throws NotAuthorizedException, BadRequestException, InternalServerErrorException {
+        ListQuery listQuery = ListQueries.parse(limit, after, companyID, from, to, null, view).withArchived(false);
+        try{
+            Person requester = personBusiness.getPersonByUUID(uuid);
+
+            return workflowDB.getWorkflowVersions(ListQueries.companyScope(requester, listQuery), listQuery);
+        }
+        //If requester uuid does not exist then they were deleted and should not have access anymore
+        catch(NotFoundException nfe){
+            throw new NotAuthorizedException("Requesting UUID was not found.");
+        }
+        //SQLException If the data layer throws an SQLException; throw a custom Internal Server Error
+        catch(SQLException sqle){
+            throw new InternalServerErrorException(sqle.getMessage());
+        }
     }
 
     /**
-     * Wrapper function of getConcreteWorkflows that gets all archived workflows
+     * Wrapper function of getAllWorkflows that gets a page of archived workflows
      * @param uuid Requester's UUID
-     * @return List of all workflows relevant to the user
+     * @param limit Number of workflows in a page, null for the largest page
+     * @param after workflowID of the last workflow of the previous page, null for the first page
+     * @param companyID Only workflows of this company, null for any company
+     * @param from Only workflows delivered on or after this date (yyyy-MM-dd), null for no lower bound
+     * @param to Only workflows delivered on or before this date (yyyy-MM-dd), null for no upper bound
+     * @param view "summary" to leave out steps and descriptions, null or "full" for whole workflows
+     * @return Page of archived workflows relevant to the user
      */
-    public List<Workflow> getArchivedWorkflows(String uuid){
-        return this.getAllWorkflows(uuid, true);
+    public Page<Workflow> getArchivedWorkflows(String uuid, String limit, String after, String companyID, String from, String to, String view){
+        return this.getAllWorkflows(uuid, ListQueries.parse(limit, after, companyID, from, to, null, view).withArchived(true));
     }
 
     /**
@@ -162,6 +185,47 @@ public class WorkflowBusiness {
         }
     }
 
+    /**
+     * Get the version of a workflow without loading its steps
+     * Checks the requester the same way getWorkflowByID does, so a version is only revealed to those who may get the workflow
+     * @param uuid UUID of requester
+     * @param workflowID WorkflowID must be convertible to integer
+     * @return Version of the workflow with matching id
+     * @throws NotAuthorizedException Requester is either not internal or not part of the relevant company
+     * @throws NotFoundException WorkflowID does not exist in database
+     * @throws BadRequestException WorkflowID was either null or invalid integer
+     * @throws InternalServerErrorException Error in data layer
+     */
+    public EntityVersion getWorkflowVersion(String uuid, String workflowID) throws NotAuthorizedException, NotFoundException, BadRequestException, InternalServerErrorException {
+        EntityVersion version;
+        try{
+            //Initial parameter validation; throws BadRequestException if there is an issue
+            if(workflowID == null || workflowID.isEmpty()){ throw new BadRequestException("A workflow ID must be provided"); }
+
+            version = workflowDB.getWorkflowVersion(Integer.parseInt(workflowID));
+        }
+        //Error converting workflow to integer
+        catch(NumberFormatException nfe){
+            throw new BadRequestException("Workflow ID must be a valid integer");
+        }
+        //SQLException If the data layer throws an SQLException; throw a custom Internal Server Error
+        catch(SQLException sqle){
+            throw new InternalServerErrorException(sqle.getMessage());
+        }
+
+        //If null is returned, no workflow was found with given id
+        if(version == null){
+            throw new NotFoundException("No workflow with that ID exists.");
+        }
+
+        Person requester = personBusiness.getPersonByUUID(uuid);
+        if(Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())
+                || requester.getCompanies().stream().anyMatch(company -> version.getCompanyID() != null && company.getCompanyID() == version.getCompanyID())){
+            return version;
+        }
+        throw new NotAuthorizedException("You do not have the authorization to get this workflow");
+    }
+
     /**
      * Get a workflow from the database by workflowID
      * @param workflowID WorkflowID must be convertible to integer
@@ -495,17 +559,16 @@ public class WorkflowBusiness {
     public List<Step> getPendingTasks(String uuid) throws NotFoundException, BadRequestException, InternalServerErrorException {
         try{
             //Validate requester
-            uuid = this.personBusiness.getPersonByUUID(uuid).getUuid();
-
-            List<Workflow> userWorkflows = this.getActiveWorkflows(uuid);
+            Person requester = this.personBusiness.getPersonByUUID(uuid);
 
-            List<Step> pendingSteps = new ArrayList<>();
-            for(Workflow workflow : userWorkflows){
-                pendingSteps.addAll(this.findPendingSteps(workflow.getSteps(), uuid, false));
+            //Search the same workflows getActiveWorkflows would return
+            List<Integer> companyIDList = null;
+            if(!Authorization.INTERNAL_USER_LEVELS.contains(requester.getAccessLevelID())){
+                companyIDList = requester.getCompanies().stream().map(Company::getCompanyID).collect(Collectors.toList());
             }
 
             //Reaching this indicates no issues have been met and a success message can be returned
-            return pendingSteps;
+            return this.stepBusiness.getPendingSteps(requester.getUuid(), companyIDList);
         }
         //SQLException - If the data layer throws an SQLException; throw a custom Internal Server Error
         //ArithmeticException - If the password encryption process fails
@@ -514,33 +577,6 @@ public class WorkflowBusiness {
         }
     }
 
-    /**
-     * Helper function for searching step list and finding tasks which are ready to be worked on
-     * @param steps - step list to search through
-     * @param uuid - user to identify tasks from
-     * @return list of pending steps for this user in this workflow
-     */
-    private List<Step> findPendingSteps(List<Step> steps, String uuid, boolean async){
-        List<Step> pendingSteps = new ArrayList<>();
-
-        for (int i = 0; i < steps.size(); i++) {
-            Step currStep = steps.get(i);
-            //If step is not already complete, asynchronous, first step or first incomplete step then it is pending
-            if (!currStep.getCompleted() && (async || i == 0 || steps.get(i - 1).getCompleted())) {
-                //If leaf step assigned to requester, add to list
-                if (!currStep.hasChildren() && uuid.equals(currStep.getUUID())) {
-                    pendingSteps.add(currStep);
-                }
-                //If composite step, check children
-                else {
-                    pendingSteps.addAll(this.findPendingSteps(currStep.getChildren(), uuid, currStep.getAsynchronous()));
-                }
-            }
-        }
-
-        return pendingSteps;
-    }
-
     /**
      * Archive or unarchive an existing workflow
      * @param workflowID ID of workflow to archive
@@ -600,35 +636,11 @@ public class WorkflowBusiness {
                 throw new ForbiddenException("This step is not assigned to you and cannot be marked as completed");
             }
 
-            Workflow workflow = this.getWorkflowByID(Integer.toString(step.getWorkflowID()));
-            if(workflow.getCompany() == null){
+            //Update only the step and the ancestors it completes
+            if(!this.workflowDB.completeStep(step.getWorkflowID(), step.getStepID(), new Date())){
                 throw new BadRequestException("This step belongs to a template workflow and cannot be marked as complete");
             }
 
-            //Get workflow and find nested completions that may have occurred
-            workflow = new Workflow(workflow.getWorkflowID(),
-                    workflow.getName(),
-                    workflow.getDescription(),
-                    workflow.getCreatedDate(),
-                    workflow.getLastUpdatedDate(),
-                    workflow.getStartDate(),
-                    workflow.getDeliveryDate(),
-                    workflow.getCompletedDate(),
-                    workflow.isArchived(),
-                    workflow.getCompany(),
-                    workflow.getMilestoneID(),
-                    this.stepBusiness.insertWorkflowID(findStepCompletions(workflow.getSteps(), step.getStepID()), workflow.getWorkflowID()));
-
-            //Update changes in the step completion
-            this.workflowDB.updateWorkflow(workflow.getWorkflowID(),
-                    workflow.getName(),
-                    workflow.getDescription(),
-                    workflow.getLastUpdatedDate(),
-                    workflow.getStartDate(),
-                    workflow.getDeliveryDate(),
-                    workflow.getCompletedDate(),
-                    workflow.getSteps());
-
             return "Step successfully completed.";
         }
         catch(SQLException sqle){
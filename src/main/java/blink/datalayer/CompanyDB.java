@@ -1,6 +1,8 @@
 package blink.datalayer;
 
 import blink.utility.objects.Company;
+import blink.utility.objects.ListQuery;
+import blink.utility.objects.Page;
 import blink.utility.objects.Person;
 
 import java.sql.Connection;
@@ -20,18 +22,19 @@ public class CompanyDB {
     }
 
     /**
-     * Connect to database and retrieve all content of person table
-     * @return ArrayList of all Company objects in database
+     * Connect to database and retrieve one page of the company table, ordered by companyID
+     * @param listQuery Page requested by the client
+     * @return Page of Company objects
      * @throws SQLException Error connecting to database or executing query
      */
-    public List<Company> getAllCompanies() throws SQLException {
+    public Page<Company> getCompanies(final ListQuery listQuery) throws SQLException {
         //Prepare sql statement
-        String query = "SELECT * FROM company;";
+        PagedQuery query = new PagedQuery("SELECT * FROM company ", listQuery);
 
         try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            PreparedStatement preparedStatement = query.prepare(conn, "company.companyID", true)) {
 
-            //Set parameters and execute query
+            //Execute query
             try (ResultSet result = preparedStatement.executeQuery()) {
 
                 ArrayList<Company> companyList = new ArrayList<>();
@@ -41,7 +44,8 @@ public class CompanyDB {
                             result.getString("name")));
                 }
 
-                return companyList;
+                String nextCursor = query.trim(companyList, Company::getCompanyID);
+                return new Page<>(companyList, nextCursor);
             }
         }
     }
@@ -73,38 +77,6 @@ public class CompanyDB {
         }
     }
 
-    /**
-     * Get a companies information by companyID
-     * @param companyID companyID to search database for
-     * @return company object or null if not found
-     * @throws SQLException error connecting to database or executing query
-     */
-    public Company getCompanyByID(final int companyID) throws SQLException {
-        //Prepare sql statement
-        String query = "SELECT * FROM company WHERE company.companyID = ?";
-
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-
-            //Set parameters and execute query
-            preparedStatement.setInt(1, companyID);
-
-            try (ResultSet result = preparedStatement.executeQuery()) {
-
-                Company company = null;
-
-                while (result.next()) {
-
-                    //Pull response content and map into a Person object
-                    company = new Company(result.getInt("companyID"),
-                            result.getString("name"));
-                }
-
-                return company;
-            }
-        }
-    }
-
     /**
      * Gets a company from the database by company name
      * @param companyName name to search database for
@@ -164,15 +136,33 @@ public class CompanyDB {
     public void updateCompany(final int companyID, final String name) throws SQLException {
         //Prepare sql statement
         String query = "UPDATE company SET company.name = ? WHERE company.companyID = ?;";
-
-        try (Connection conn = this.dbConn.connect();
-             PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-
-            //Set parameters and execute query
-            preparedStatement.setString(1, name);
-            preparedStatement.setInt(2, companyID);
-
-            preparedStatement.executeUpdate();
+        //Milestones and workflows carry the company name, so they change with it
+        String milestoneQuery = "UPDATE milestone SET version = version + 1 WHERE milestone.companyID = ?;";
+        String workflowQuery = "UPDATE workflow JOIN milestone ON (workflow.milestoneID = milestone.milestoneID) " +
+                                    "SET workflow.version = workflow.version + 1 WHERE milestone.companyID = ?;";
+
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = conn.prepareStatement(query);
+                 PreparedStatement milestonePS = conn.prepareStatement(milestoneQuery);
+                 PreparedStatement workflowPS = conn.prepareStatement(workflowQuery)) {
+
+                //Set parameters and execute query
+                preparedStatement.setString(1, name);
+                preparedStatement.setInt(2, companyID);
+                milestonePS.setInt(1, companyID);
+                workflowPS.setInt(1, companyID);
+
+                preparedStatement.executeUpdate();
+                milestonePS.executeUpdate();
+                workflowPS.executeUpdate();
+
+                conn.commit();
+            }
+            catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            }
         }
     }
 
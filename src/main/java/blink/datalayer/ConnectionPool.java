@@ -0,0 +1,408 @@
+package blink.datalayer;
+
+import blink.utility.metrics.Histogram;
+import com.google.gson.JsonObject;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of physical database connections.
+ * Connections handed out are proxies whose close() returns the physical connection to the pool.
+ * Waiting borrowers are served in arrival order and give up after the configured wait time.
+ */
+class ConnectionPool implements DataSource {
+
+    // Connections used more recently than this are handed out without a validation round trip.
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long MAINTENANCE_INTERVAL_SECONDS = 5;
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+
+    //One permit per connection that may be borrowed, fair so waiters are served first come first served
+    private final Semaphore permits;
+    //Most recently returned connections are at the head so idle ones drift to the tail and can be evicted
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ScheduledExecutorService maintenance;
+
+    private final Histogram waitTime = new Histogram();
+    private final Histogram borrowLatency = new Histogram();
+    private final Histogram holdTime = new Histogram();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+
+    /**
+     * Creates a connection pool and starts its maintenance task.
+     * @param url JDBC url of the database.
+     * @param user Database user.
+     * @param password Database password.
+     * @param minSize Number of idle connections the pool tries to keep open.
+     * @param maxSize Maximum number of open connections.
+     * @param maxWait Maximum time a borrower waits for a connection.
+     * @param idleTimeout Time after which an unused connection above the minimum is closed.
+     * @param leakThreshold Time after which a borrowed connection is reported as a possible leak.
+     */
+    ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                   Duration maxWait, Duration idleTimeout, Duration leakThreshold) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.maxWaitNanos = maxWait.toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.leakThresholdNanos = leakThreshold.toNanos();
+        this.permits = new Semaphore(this.maxSize, true);
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blink-db-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenance.scheduleWithFixedDelay(this::maintain,
+                MAINTENANCE_INTERVAL_SECONDS, MAINTENANCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the configured time for one to become available.
+     * @return A pooled connection. Closing it returns it to the pool.
+     * @throws SQLException Thrown if no connection became available in time or a new one could not be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+
+        this.waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = this.permits.tryAcquire(this.maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection");
+        } finally {
+            this.waiting.decrementAndGet();
+            this.waitTime.record(System.nanoTime() - start);
+        }
+
+        if (!acquired) {
+            this.timeouts.increment();
+            throw new SQLException("Timed out waiting for a database connection");
+        }
+
+        try {
+            PooledConnection pooled = this.takeIdleOrCreate();
+            pooled.borrowedAt = System.nanoTime();
+            pooled.borrowSite = new Throwable("Connection borrowed here");
+            pooled.leakReported = false;
+            this.borrowed.add(pooled);
+
+            this.borrowLatency.record(System.nanoTime() - start);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new ConnectionHandle(pooled));
+        } catch (SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a connection that is not managed by the pool.
+     * Used for work that changes session state which should not leak into pooled connections.
+     * @return A physical connection the caller is responsible for closing.
+     * @throws SQLException Thrown if the connection could not be opened.
+     */
+    Connection openPhysicalConnection() throws SQLException {
+        return DriverManager.getConnection(this.url, this.user, this.password);
+    }
+
+    /**
+     * Returns a json snapshot of the pool state and timings.
+     * @return Json object of pool metrics.
+     */
+    JsonObject metrics() {
+        JsonObject json = new JsonObject();
+        json.addProperty("minSize", this.minSize);
+        json.addProperty("maxSize", this.maxSize);
+        json.addProperty("size", this.total.get());
+        json.addProperty("idle", this.idle.size());
+        json.addProperty("borrowed", this.borrowed.size());
+        json.addProperty("waiting", this.waiting.get());
+        json.addProperty("created", this.created.sum());
+        json.addProperty("destroyed", this.destroyed.sum());
+        json.addProperty("timeouts", this.timeouts.sum());
+        json.addProperty("validationFailures", this.validationFailures.sum());
+        json.addProperty("leaksDetected", this.leaksDetected.sum());
+        json.add("waitTime", this.waitTime.toJson());
+        json.add("borrowLatency", this.borrowLatency.toJson());
+        json.add("holdTime", this.holdTime.toJson());
+        return json;
+    }
+
+    /**
+     * Takes the most recently used idle connection, validating it, or opens a new one.
+     * Caller must hold a permit.
+     */
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = this.idle.pollFirst()) != null) {
+            if (this.isUsable(pooled)) {
+                return pooled;
+            }
+            this.validationFailures.increment();
+            this.destroy(pooled);
+        }
+        return this.create();
+    }
+
+    /**
+     * Checks that an idle connection is still alive.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastUsed < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException sqle) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a new physical connection and counts it against the pool size.
+     */
+    private PooledConnection create() throws SQLException {
+        Connection physical;
+        try {
+            physical = this.openPhysicalConnection();
+        } catch (SQLException sqle) {
+            throw new SQLException("Could not connect to database", sqle);
+        }
+        this.total.incrementAndGet();
+        this.created.increment();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Closes a physical connection and removes it from the pool size.
+     */
+    private void destroy(PooledConnection pooled) {
+        this.total.decrementAndGet();
+        this.destroyed.increment();
+        try {
+            pooled.physical.close();
+        } catch (SQLException sqle) {
+            logger.log(Level.FINE, "Could not close pooled connection cleanly", sqle);
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool, discarding it if its state cannot be reset.
+     */
+    private void release(PooledConnection pooled) {
+        this.borrowed.remove(pooled);
+        this.holdTime.record(System.nanoTime() - pooled.borrowedAt);
+        pooled.borrowSite = null;
+
+        try {
+            //Undo anything a caller left behind so the next borrower gets a clean session
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.physical.clearWarnings();
+            pooled.lastUsed = System.nanoTime();
+            this.idle.offerFirst(pooled);
+        } catch (SQLException sqle) {
+            this.destroy(pooled);
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Evicts connections idle for too long, refills the pool to its minimum and reports suspected leaks.
+     */
+    private void maintain() {
+        try {
+            long now = System.nanoTime();
+
+            Iterator<PooledConnection> oldestFirst = this.idle.descendingIterator();
+            while (oldestFirst.hasNext() && this.total.get() > this.minSize) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastUsed > this.idleTimeoutNanos && this.idle.removeLastOccurrence(pooled)) {
+                    this.destroy(pooled);
+                }
+            }
+
+            while (this.total.get() < this.minSize && this.permits.tryAcquire()) {
+                try {
+                    PooledConnection pooled = this.create();
+                    pooled.lastUsed = System.nanoTime();
+                    this.idle.offerLast(pooled);
+                } finally {
+                    this.permits.release();
+                }
+            }
+
+            for (PooledConnection pooled : this.borrowed) {
+                Throwable site = pooled.borrowSite;
+                if (!pooled.leakReported && site != null && now - pooled.borrowedAt > this.leakThresholdNanos) {
+                    pooled.leakReported = true;
+                    this.leaksDetected.increment();
+
+                    StringWriter sw = new StringWriter();
+                    site.printStackTrace(new PrintWriter(sw));
+                    logger.warning(String.format("Possible connection leak, connection borrowed %d ms ago: %s",
+                            TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt), sw.toString()));
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Connection pool maintenance failed", e);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        //Logging goes through java.util.logging
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getLogger(ConnectionPool.class.getPackage().getName());
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * A physical connection along with its bookkeeping.
+     */
+    private static class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed = System.nanoTime();
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * The connection handed to callers. A fresh handle is made per borrow so a stale reference
+     * cannot touch the physical connection after it has been returned.
+     */
+    private class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean closed;
+
+        private ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!this.closed) {
+                        this.closed = true;
+                        release(this.pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return this.closed || this.pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + this.pooled.physical;
+                default:
+                    break;
+            }
+
+            if (this.closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                return method.invoke(this.pooled.physical, args);
+            } catch (InvocationTargetException ite) {
+                throw ite.getCause();
+            }
+        }
+    }
+}
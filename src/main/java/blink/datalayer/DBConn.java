@@ -2,44 +2,98 @@ package blink.datalayer;
 
 import blink.utility.env.EnvManager;
 import blink.utility.env.EnvKeyValues;
+import blink.utility.metrics.MetricsRegistry;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
 
 class DBConn {
-    private String driver;
-    private String url;
-    private String user;
-    private String password;
+
+    /**
+     * Holds the application wide connection pool.
+     * The pool is created on first use so nothing connects before the environment is read.
+     */
+    private static class PoolHolder {
+        private static final ConnectionPool POOL = createPool();
+
+        private static ConnectionPool createPool() {
+            EnvManager env = new EnvManager();
+
+            String url = String.format("jdbc:mariadb://%s:3306/%s?allowPublicKeyRetrieval=true",
+                    env.getValue(EnvKeyValues.DB_HOSTNAME),
+                    env.getValue(EnvKeyValues.DB_DATABASE)
+            );
+
+            //The driver's read ahead stream reads the socket inside synchronized methods, which pins a virtual
+            //thread to its carrier for the whole read. The plain buffered stream it uses otherwise does not.
+            if (Boolean.parseBoolean(env.getValue(EnvKeyValues.ASYNC_VIRTUAL_THREADS))) {
+                url += "&useReadAheadInput=false";
+            }
+
+            ConnectionPool pool = new ConnectionPool(
+                    url,
+                    env.getValue(EnvKeyValues.DB_USER_NAME),
+                    env.getValue(EnvKeyValues.DB_USER_PASS),
+                    Integer.parseInt(env.getValue(EnvKeyValues.DB_POOL_MIN_SIZE)),
+                    Integer.parseInt(env.getValue(EnvKeyValues.DB_POOL_MAX_SIZE)),
+                    Duration.parse(env.getValue(EnvKeyValues.DB_POOL_MAX_WAIT)),
+                    Duration.parse(env.getValue(EnvKeyValues.DB_POOL_IDLE_TIMEOUT)),
+                    Duration.parse(env.getValue(EnvKeyValues.DB_POOL_LEAK_THRESHOLD))
+            );
+            MetricsRegistry.register("dbPool", pool::metrics);
+            return pool;
+        }
+    }
+
+    private static final boolean DRIVER_LOADED = loadDriver();
 
     DBConn() {
-        EnvManager env = new EnvManager();
-
-        this.driver = "org.mariadb.jdbc.Driver";
-        this.url = String.format("jdbc:mariadb://%s:3306/%s?allowPublicKeyRetrieval=true",
-                env.getValue(EnvKeyValues.DB_HOSTNAME),
-                env.getValue(EnvKeyValues.DB_DATABASE)
-        );
-        this.user = env.getValue(EnvKeyValues.DB_USER_NAME);
-        this.password = env.getValue(EnvKeyValues.DB_USER_PASS);
+        //Connection settings live in the shared pool
     }
 
     /**
-     * Opens a connection to the database
+     * Borrows a connection from the pool. Closing the connection returns it to the pool.
      * Throws a custom SQLException on error
      */
     Connection connect() throws SQLException {
-        try{
-            Class.forName(this.driver);
-            return DriverManager.getConnection(this.url, this.user, this.password);
+        this.checkDriver();
+        return PoolHolder.POOL.getConnection();
+    }
+
+    /**
+     * Opens a connection outside of the pool. The caller must close it.
+     * Use this for work that alters session state.
+     * Throws a custom SQLException on error
+     */
+    Connection connectUnpooled() throws SQLException {
+        this.checkDriver();
+        try {
+            return PoolHolder.POOL.openPhysicalConnection();
         }
-        //return false on error connecting
         catch(SQLException sqle){
             throw new SQLException("Could not connect to database");
         }
-        catch(ClassNotFoundException cnfe){
+    }
+
+    /**
+     * Ensures the MariaDB driver is available.
+     */
+    private void checkDriver() throws SQLException {
+        if (!DRIVER_LOADED) {
             throw new SQLException("Mariadb driver not found");
         }
     }
+
+    /**
+     * Loads the MariaDB driver once per class loader.
+     */
+    private static boolean loadDriver() {
+        try {
+            Class.forName("org.mariadb.jdbc.Driver");
+            return true;
+        } catch (ClassNotFoundException cnfe) {
+            return false;
+        }
+    }
 }
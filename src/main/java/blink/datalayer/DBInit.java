@@ -14,6 +14,7 @@ import java.util.logging.Logger;
 public class DBInit {
 
     private DBConn dBconn;
+    private DBMigrator migrator;
     private EnvManager env = new EnvManager();
     public static final int MAX_ATTEMPTS = 100;
     private final Logger logger = Logger.getLogger(this.getClass().getName());
@@ -23,10 +24,11 @@ public class DBInit {
      */
     public DBInit() {
         this.dBconn = new DBConn();
+        this.migrator = new DBMigrator();
     }
 
     /**
-     * This will attempt to initialize the database.
+     * This will attempt to initialize the database, bring its schema up to date, then load the reference data.
      * @throws IOException Thrown if we can connect to the database, but the resource file needed to provision
      * the database cannot be found.
      * @throws SQLException Thrown if the connection made to the database is invalid.
@@ -40,7 +42,11 @@ public class DBInit {
             } else {
                 logger.info("DB tables already exist.");
             }
+            this.migrator.migrate();
+            ReferenceData.load();
+            logger.info("Reference data loaded.");
         } catch (SQLException sqle) {
+            logger.severe(sqle.getMessage());
             throw new SQLException("FATAL - Could not initialize the database!");
         } catch (IOException ioe) {
             throw new IOException("FATAL - Could not read needed resource files!");
@@ -79,7 +85,8 @@ public class DBInit {
         String dbCreateString = rectReader.getResourceAsString();
         dbCreateString = dbCreateString.replace(EnvKeyValues.DB_DATABASE, env.getValue(EnvKeyValues.DB_DATABASE));
 
-        try (Connection conn = this.dBconn.connect()) {
+        //Unpooled, the script changes session settings that must not be handed to other callers
+        try (Connection conn = this.dBconn.connectUnpooled()) {
             try (Statement st = conn.createStatement()) {
                 for (String s : dbCreateString.split(";")) {
                     // Ensure that there is no spaces before or after the request string
@@ -0,0 +1,182 @@
+package blink.datalayer;
+
+import blink.utility.ResourceReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date by running versioned migration scripts in order.
+ * Applied migrations are recorded in the schemaVersion table along with a checksum of their script.
+ * Every statement in a script must be safe to run more than once, so a migration that failed part way
+ * through can simply be run again on the next start.
+ */
+public class DBMigrator {
+
+    //Migration scripts in resources/migrations, in the order they are applied.
+    //Only ever append to this list, a script that has been applied must not change.
+    private static final String[] MIGRATIONS = {
+            "V1__content_addressed_files.sql",
+            "V2__progress_counters.sql",
+            "V3__pending_task_index.sql",
+            "V4__query_path_indexes.sql",
+            "V5__password_hash_records.sql",
+            "V6__row_versions.sql",
+            "V7__inline_file_contents.sql"
+    };
+
+    private static final String MIGRATION_DIRECTORY = "migrations/";
+    //Keeps several instances starting at once from migrating at the same time
+    private static final String LOCK_NAME = "blink_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private DBConn dBconn;
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * Creates a DBMigrator object.
+     */
+    public DBMigrator() {
+        this.dBconn = new DBConn();
+    }
+
+    DBMigrator(DBConn dBconn) {
+        this.dBconn = dBconn;
+    }
+
+    /**
+     * Runs every migration that has not been applied yet.
+     * @throws IOException Thrown if a migration script cannot be read.
+     * @throws SQLException Thrown if a migration fails or an applied migration's script has changed.
+     */
+    public void migrate() throws IOException, SQLException {
+        //Unpooled, the schema lock belongs to the session
+        try (Connection conn = this.dBconn.connectUnpooled()) {
+            this.acquireLock(conn);
+            try {
+                this.createVersionTable(conn);
+                Map<Integer, String> appliedChecksums = this.getAppliedChecksums(conn);
+
+                for (String migration : MIGRATIONS) {
+                    int version = versionOf(migration);
+                    String script = new ResourceReader(MIGRATION_DIRECTORY + migration).getResourceAsString();
+                    String checksum = checksumOf(script);
+
+                    String appliedChecksum = appliedChecksums.get(version);
+                    if (appliedChecksum == null) {
+                        logger.info("Applying migration " + migration);
+                        this.executeScript(conn, script);
+                        this.recordMigration(conn, version, descriptionOf(migration), checksum);
+                    } else if (!appliedChecksum.equals(checksum)) {
+                        throw new SQLException("Migration " + migration + " has changed since it was applied.");
+                    }
+                }
+            } finally {
+                this.releaseLock(conn);
+            }
+        }
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement preparedStatement = conn.prepareStatement("SELECT GET_LOCK(?, ?);")) {
+            preparedStatement.setString(1, LOCK_NAME);
+            preparedStatement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                if (!result.next() || result.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish migrating the database.");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement preparedStatement = conn.prepareStatement("SELECT RELEASE_LOCK(?);")) {
+            preparedStatement.setString(1, LOCK_NAME);
+            preparedStatement.executeQuery().close();
+        }
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        String query = "CREATE TABLE IF NOT EXISTS `schemaVersion` (" +
+                            "`version` int(11) NOT NULL, " +
+                            "`description` varchar(255) NOT NULL, " +
+                            "`checksum` char(64) NOT NULL, " +
+                            "`installedOn` datetime NOT NULL, " +
+                            "PRIMARY KEY (`version`)" +
+                        ") ENGINE=InnoDB DEFAULT CHARSET=latin1;";
+
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate(query);
+        }
+    }
+
+    private Map<Integer, String> getAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> appliedChecksums = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet result = st.executeQuery("SELECT version, checksum FROM schemaVersion;")) {
+            while (result.next()) {
+                appliedChecksums.put(result.getInt("version"), result.getString("checksum"));
+            }
+        }
+        return appliedChecksums;
+    }
+
+    private void executeScript(Connection conn, String script) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String s : script.split(";")) {
+                // Skip the empty statement after the last semicolon
+                if (!s.trim().equals("")) {
+                    st.executeUpdate(s);
+                }
+            }
+        }
+    }
+
+    private void recordMigration(Connection conn, int version, String description, String checksum) throws SQLException {
+        String query = "INSERT INTO schemaVersion (version, description, checksum, installedOn) VALUES (?, ?, ?, NOW());";
+
+        try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, version);
+            preparedStatement.setString(2, description);
+            preparedStatement.setString(3, checksum);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads the version from a script name such as V2__progress_counters.sql
+     */
+    private static int versionOf(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    /**
+     * Reads the description from a script name, V2__progress_counters.sql is described as "progress counters"
+     */
+    private static String descriptionOf(String migration) {
+        return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf(".sql")).replace('_', ' ');
+    }
+
+    private static String checksumOf(String script) {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("SHA-256 is not available", nsae);
+        }
+
+        byte[] hash = messageDigest.digest(script.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
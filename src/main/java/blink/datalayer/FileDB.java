@@ -1,7 +1,15 @@
 package blink.datalayer;
 
 import blink.utility.objects.File;
-
+import blink.utility.objects.FileContent;
+import blink.utility.objects.ListQuery;
+import blink.utility.objects.Page;
+
+import javax.sql.rowset.serial.SerialBlob;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,10 +17,36 @@ import java.util.List;
 public class FileDB {
     private DBConn dbConn;
 
+    //File contents are stored once in fileBlob keyed by their SHA-256 digest, file rows reference them.
+    //Rows written before that still hold their contents inline in file.file.
+    private static final String FILE_BLOB_JOIN = "LEFT JOIN fileBlob ON (fileBlob.digest = file.digest) ";
+    private static final String FILE_CONTENT = "COALESCE(fileBlob.content, file.file)";
+    private static final String FILE_COLUMNS = "file.fileID, file.name, " + FILE_CONTENT + " AS file, file.confidential, file.form ";
+    //File lists without content never touch the stored values
+    private static final String FILE_SUMMARY_COLUMNS = "file.fileID, file.name, file.confidential, file.form ";
+    //Files read per round trip when a whole list is sent with content, each page is held in memory until it is sent
+    private static final int CONTENT_PAGE_SIZE = 10;
+
+    //Files used by a step of a concrete workflow, a file shared by several steps is still matched once
+    private static final String USED_BY_CONCRETE_STEP = "EXISTS (SELECT 1 FROM step " +
+            "JOIN workflow ON workflow.workflowID = step.workflowID " +
+            "JOIN milestone ON milestone.milestoneID = workflow.milestoneID " +
+            "WHERE step.fileID = file.fileID";
+
+    //Only the edges of the stored value are read, they are enough to work out content type and size
+    private static final String CONTENT_INFO_SELECT = "SELECT file.fileID, file.name, file.digest, " +
+            "COALESCE(LENGTH(" + FILE_CONTENT + "), 0) AS storedLength, " +
+            "SUBSTRING(" + FILE_CONTENT + ", 1, " + FileContent.HEAD_LENGTH + ") AS head, " +
+            "SUBSTRING(" + FILE_CONTENT + ", GREATEST(LENGTH(" + FILE_CONTENT + ") - " + (FileContent.TAIL_LENGTH - 1) + ", 1)) AS tail ";
+
     public FileDB(){
         this.dbConn = new DBConn();
     }
 
+    FileDB(DBConn dbConn){
+        this.dbConn = dbConn;
+    }
+
     /**
      * Get file information based on the fileID
      * @param fileID fileID to retrieve file from
@@ -21,7 +55,7 @@ public class FileDB {
      */
     public File getFileByID(int fileID) throws SQLException {
         //Prepare sql statement
-        String query = "SELECT * FROM file WHERE file.fileID = ?;";
+        String query = "SELECT " + FILE_COLUMNS + "FROM file " + FILE_BLOB_JOIN + "WHERE file.fileID = ?;";
 
         try (Connection conn = this.dbConn.connect();
              PreparedStatement preparedStatement = conn.prepareStatement(query)) {
@@ -51,161 +85,258 @@ public class FileDB {
     }
 
     /**
-     * Returns all concrete files
-     * @return List<File> files
-     * @throws SQLException Error connecting to the database or executing the query
+     * Get the name, type and size of a file's content without reading the content itself
+     * @param fileID fileID to retrieve content information for
+     * @return file content information or null if not found
+     * @throws SQLException Error connecting to database or executing query
      */
-    public List<File> getAllConcreteFiles() throws SQLException {
-        List<File> files = new ArrayList<>();
+    public FileContent getFileContent(int fileID) throws SQLException {
+        //Prepare sql statement
+        String query = CONTENT_INFO_SELECT +
+                        "FROM file " + FILE_BLOB_JOIN + "WHERE file.fileID = ?;";
 
-        String query = "SELECT DISTINCT file.fileID, file.name, file.file, file.confidential, file.form FROM file JOIN step ON step.fileID = file.fileID JOIN workflow ON workflow.workflowID = step.workflowID JOIN milestone ON milestone.milestoneID = workflow.milestoneID AND file.fileID != 0;";
+        try (Connection conn = this.dbConn.connect();
+             PreparedStatement preparedStatement = conn.prepareStatement(query)) {
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            //Set parameters and execute query
+            preparedStatement.setInt(1, fileID);
+            try (ResultSet result = preparedStatement.executeQuery()) {
 
-            try(ResultSet result = preparedStatement.executeQuery()) {
-                while(result.next()) {
-                    int id = result.getInt("fileID");
-                    String name = result.getString("name");
-                    Blob blob;
-                    if(result.getBlob("file") == null) {
-                        blob = conn.createBlob();
-                    } else {
-                        blob = result.getBlob("file");
-                    }
-                    boolean confidential = result.getBoolean("confidential");
-                    boolean form = result.getBoolean("form");
-                    files.add(new File(id, name, blob, confidential, form));
+                FileContent fileContent = null;
+                while (result.next()) {
+                    fileContent = this.parseFileContent(result);
                 }
-                return files;
+                return fileContent;
             }
         }
     }
 
     /**
-     *
-     * Returns all concrete files
-     * @param uuid
-     * @return List<File> files
-     * @throws SQLException Error connecting to the database or executing the query
+     * Get the name, type and size of the content of every file of a milestone without reading the content itself
+     * @param milestoneID milestoneID to retrieve content information for
+     * @return list of file content information
+     * @throws SQLException Error connecting to database or executing query
      */
-    public List<File> getAllConcreteFiles(String uuid) throws SQLException {
-        List<File> files = new ArrayList<>();
+    public List<FileContent> getFileContentsByMilestone(int milestoneID) throws SQLException {
+        List<FileContent> fileContents = new ArrayList<>();
 
-        String query = "SELECT DISTINCT file.fileID, file.name, file.file, file.confidential, file.form FROM file JOIN step ON step.fileID = file.fileID JOIN workflow ON workflow.workflowID = step.workflowID JOIN milestone ON milestone.milestoneID = workflow.milestoneID JOIN personCompany ON personCompany.companyID = milestone.companyID WHERE personCompany.uuid = ? AND file.fileID != 0;";
+        //Prepare sql statement
+        String query = CONTENT_INFO_SELECT + "FROM file " + FILE_BLOB_JOIN +
+                          "WHERE file.fileID IN (" +
+                                "SELECT step.fileID FROM step " +
+                                "JOIN workflow on workflow.workflowID = step.workflowID " +
+                                "WHERE workflow.milestoneID = ?) " +
+                          "AND file.fileID > 0;";
 
         try(Connection conn = this.dbConn.connect();
             PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-            preparedStatement.setString(1, uuid);
 
+            //Set parameters and execute query
+            preparedStatement.setInt(1, milestoneID);
             try(ResultSet result = preparedStatement.executeQuery()) {
                 while(result.next()) {
-                    int id = result.getInt("fileID");
-                    String name = result.getString("name");
-                    Blob blob;
-                    if(result.getBlob("file") == null) {
-                        blob = conn.createBlob();
-                    } else {
-                        blob = result.getBlob("file");
-                    }
-                    boolean confidential = result.getBoolean("confidential");
-                    boolean form = result.getBoolean("form");
-                    files.add(new File(id, name, blob, confidential, form));
+                    fileContents.add(this.parseFileContent(result));
                 }
-                return files;
+                return fileContents;
             }
         }
     }
 
     /**
-     * Returns all template files without an ID of 0
-     * @return List<File> files
-     * @throws SQLException Error connecting to the database or executing the query
+     * Builds file content information from a row selected with CONTENT_INFO_SELECT
+     * @param result result set positioned on a file row
+     * @return file content information
+     * @throws SQLException Error reading from the result set
      */
-    public List<File> getAllTemplateFiles() throws SQLException {
-        List<File> files = new ArrayList<>();
+    private FileContent parseFileContent(ResultSet result) throws SQLException {
+        byte[] head = result.getBytes("head");
+        byte[] tail = result.getBytes("tail");
+        return FileContent.fromStoredEdges(result.getInt("fileID"),
+                result.getString("name"),
+                result.getString("digest"),
+                result.getLong("storedLength"),
+                head == null ? new byte[0] : head,
+                tail == null ? new byte[0] : tail);
+    }
 
-        String query = "SELECT DISTINCT * FROM file WHERE file.fileID NOT IN " +
-                            "(SELECT step.fileID FROM step " +
-                                "JOIN workflow ON (step.workflowID = workflow.workflowID) " +
-                                "JOIN milestone ON (workflow.milestoneID = milestone.milestoneID));";
+    /**
+     * Opens a stream over the raw content of a file.
+     * The content is read from the fileBlob row of the digest the content information was read with.
+     * That row never changes, so a file updated during the download cannot mix two versions.
+     * @param fileContent content information from getFileContent
+     * @return stream of the raw file bytes; the caller must close it
+     * @throws IOException Error connecting to the database or executing the query
+     */
+    public InputStream openFileContent(FileContent fileContent) throws IOException {
+        if (fileContent.getStoredLength() == 0) {
+            return FileContent.decode(InputStream.nullInputStream());
+        }
+        //Inline contents are moved into fileBlob by migration V7
+        if (fileContent.getDigest() == null) {
+            throw new IOException("File contents are not stored by digest");
+        }
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+        StoredFileInputStream storedStream;
+        try {
+            storedStream = new StoredFileInputStream(fileContent.getDigest(), fileContent.getStoredLength());
+        } catch (SQLException sqle) {
+            throw new IOException(sqle.getMessage(), sqle);
+        }
 
-            try(ResultSet result = preparedStatement.executeQuery()) {
-                while(result.next()) {
-                    int id = result.getInt("fileID");
-                    String name = result.getString("name");
-                    Blob blob;
-                    if(result.getBlob("file") == null) {
-                        blob = conn.createBlob();
-                    } else {
-                        blob = result.getBlob("file");
-                    }
-                    boolean confidential = result.getBoolean("confidential");
-                    boolean form = result.getBoolean("form");
-                    files.add(new File(id, name, blob, confidential, form));
-                }
-                return files;
-            }
+        //The header is read here, the caller has no stream to close if that fails
+        try {
+            return FileContent.decode(storedStream);
+        } catch (IOException ioe) {
+            storedStream.close();
+            throw ioe;
         }
     }
 
-    public List<File> getAllFilesByMilestone(int milestoneID) throws SQLException {
-        List<File> files = new ArrayList<>();
+    /**
+     * Returns one page of the files used by concrete workflows, ordered by fileID
+     * @param companyIDList Only files used by milestones of these companies, null for files of any company
+     * @param listQuery Page requested by the client
+     * @return Page of files, without content if a summary was requested
+     * @throws SQLException Error connecting to the database or executing the query
+     */
+    public Page<File> getConcreteFiles(List<Integer> companyIDList, ListQuery listQuery) throws SQLException {
+        if(companyIDList != null && companyIDList.isEmpty()){
+            return new Page<>(new ArrayList<>(), null);
+        }
 
-        String query = "SELECT DISTINCT file.fileID, file.name, file.file, file.confidential, file.form FROM file " +
-                          "JOIN step on step.fileID = file.fileID " +
-                          "JOIN workflow on workflow.workflowID = step.workflowID " +
-                          "JOIN milestone on workflow.milestoneID = milestone.milestoneID " +
-                          "WHERE milestone.milestoneID = ? " +
-                          "AND file.fileID > 0;";
+        //A file shared by several steps is listed once without DISTINCT having to compare file contents
+        StringBuilder usedByConcreteStep = new StringBuilder(USED_BY_CONCRETE_STEP);
+        if(companyIDList != null){
+            usedByConcreteStep.append(" AND milestone.companyID IN (").append(PagedQuery.placeholders(companyIDList.size())).append(")");
+        }
+        usedByConcreteStep.append(")");
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+        boolean withContent = !listQuery.isSummary();
+        PagedQuery query = new PagedQuery(fileSelect(withContent), listQuery)
+                .where("file.fileID != 0")
+                .where(usedByConcreteStep.toString(), companyIDList == null ? new Object[0] : companyIDList.toArray());
 
-            preparedStatement.setInt(1, milestoneID);
+        List<File> files = new ArrayList<>();
+        try(Connection conn = this.dbConn.connect();
+            PreparedStatement preparedStatement = query.prepare(conn, "file.fileID", true)) {
 
             try(ResultSet result = preparedStatement.executeQuery()) {
                 while(result.next()) {
-                    files.add(new File(result.getInt("fileID"),
-                                    result.getString("name"),
-                                    result.getBlob("file"),
-                                    result.getBoolean("confidential"),
-                                    result.getBoolean("form")));
+                    files.add(readFile(result, withContent));
                 }
-                return files;
+                String nextCursor = query.trim(files, File::getFileID);
+                return new Page<>(files, nextCursor);
             }
         }
     }
 
-    public List<File> getAllFilesByCompany(int companyID) throws SQLException {
-        List<File> files = new ArrayList<>();
+    /**
+     * Returns one page of the template files, ordered by fileID
+     * @param withContent Read the content of every file, files are listed without content otherwise
+     * @param after fileID of the last file of the previous page, null for the first page
+     * @return Page of files
+     * @throws SQLException Error connecting to the database or executing the query
+     */
+    public Page<File> getTemplateFilePage(boolean withContent, String after) throws SQLException {
+        PagedQuery query = new PagedQuery(fileSelect(withContent), streamedPage(withContent, after))
+                .where("NOT " + USED_BY_CONCRETE_STEP + ")");
+        return readFilePage(query, withContent);
+    }
 
-        String query = "SELECT DISTINCT file.fileID, file.name, file.file, file.confidential, file.form FROM file " +
-                "JOIN step on step.fileID = file.fileID " +
-                "JOIN workflow on workflow.workflowID = step.workflowID " +
-                "JOIN milestone on workflow.milestoneID = milestone.milestoneID " +
-                "JOIN company on company.companyID = milestone.companyID " +
-                "WHERE company.companyID = ?;";
+    /**
+     * Returns one page of the files used by the workflows of a milestone, ordered by fileID
+     * @param milestoneID milestone to retrieve files by
+     * @param withContent Read the content of every file, files are listed without content otherwise
+     * @param after fileID of the last file of the previous page, null for the first page
+     * @return Page of files
+     * @throws SQLException Error connecting to the database or executing the query
+     */
+    public Page<File> getFilePageByMilestone(int milestoneID, boolean withContent, String after) throws SQLException {
+        PagedQuery query = new PagedQuery(fileSelect(withContent), streamedPage(withContent, after))
+                .where(USED_BY_CONCRETE_STEP + " AND milestone.milestoneID = ?)", milestoneID)
+                .where("file.fileID > 0");
+        return readFilePage(query, withContent);
+    }
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+    /**
+     * Returns one page of the files used by the workflows of a company, ordered by fileID
+     * @param companyID company to retrieve files by
+     * @param withContent Read the content of every file, files are listed without content otherwise
+     * @param after fileID of the last file of the previous page, null for the first page
+     * @return Page of files
+     * @throws SQLException Error connecting to the database or executing the query
+     */
+    public Page<File> getFilePageByCompany(int companyID, boolean withContent, String after) throws SQLException {
+        PagedQuery query = new PagedQuery(fileSelect(withContent), streamedPage(withContent, after))
+                .where(USED_BY_CONCRETE_STEP + " AND milestone.companyID = ?)", companyID);
+        return readFilePage(query, withContent);
+    }
 
-            preparedStatement.setInt(1, companyID);
+    /**
+     * SELECT and FROM clauses of a file list
+     * @param withContent Select the content of every file
+     * @return Start of the query
+     */
+    private static String fileSelect(boolean withContent) {
+        return withContent ? "SELECT " + FILE_COLUMNS + "FROM file " + FILE_BLOB_JOIN
+                           : "SELECT " + FILE_SUMMARY_COLUMNS + "FROM file ";
+    }
 
-            try(ResultSet result = preparedStatement.executeQuery()) {
-                while(result.next()) {
-                    files.add(new File(result.getInt("fileID"),
-                            result.getString("name"),
-                            result.getBlob("file"),
-                            result.getBoolean("confidential"),
-                            result.getBoolean("form")));
-                }
-                return files;
+    /**
+     * Page of a file list that is sent whole, a page at a time
+     * @param withContent the query selects the content of every file
+     * @param after fileID of the last file of the previous page, null for the first page
+     * @return Page bounds of the query
+     */
+    private static ListQuery streamedPage(boolean withContent, String after) {
+        return new ListQuery(withContent ? CONTENT_PAGE_SIZE : ListQuery.MAX_LIMIT, after, null, null, null, null, !withContent);
+    }
+
+    /**
+     * Runs one page of a file list query.
+     * The rows are read in full and the connection is returned to the pool before the page is handed out,
+     * so a slow client never holds a connection or a result set open on the server.
+     * @param query file list query
+     * @param withContent the query selects the content of every file
+     * @return Page of files
+     * @throws SQLException Error connecting to the database or executing the query
+     */
+    private Page<File> readFilePage(PagedQuery query, boolean withContent) throws SQLException {
+        List<File> files = new ArrayList<>();
+        try(Connection conn = this.dbConn.connect();
+            PreparedStatement preparedStatement = query.prepare(conn, "file.fileID", true);
+            ResultSet result = preparedStatement.executeQuery()) {
+
+            while(result.next()) {
+                files.add(readFile(result, withContent));
             }
         }
+        String nextCursor = query.trim(files, File::getFileID);
+        return new Page<>(files, nextCursor);
+    }
+
+    /**
+     * Reads the file on the current row of a file list
+     * @param result result set positioned on a file row
+     * @param withContent the query selects the content of the file
+     * @return file, its content is null if it was not selected or is empty
+     * @throws SQLException Error reading the row
+     */
+    private File readFile(ResultSet result, boolean withContent) throws SQLException {
+        int id = result.getInt("fileID");
+        String name = result.getString("name");
+        boolean confidential = result.getBoolean("confidential");
+        boolean form = result.getBoolean("form");
+        if(!withContent) {
+            return new File(id, name, (String) null, confidential, form);
+        }
+
+        //Copied out of the row, the page outlives its result set
+        byte[] content = result.getBytes("file");
+        if(content == null || content.length == 0) {
+            return new File(id, name, (String) null, confidential, form);
+        }
+        return new File(id, name, new SerialBlob(content), confidential, form);
     }
 
     /**
@@ -214,54 +345,113 @@ public class FileDB {
      * @throws SQLException Error connecting to database or executing update
      */
     public int insertFile(File file) throws SQLException {
-        //Prepare sql statement
-        String query = "INSERT INTO file (name, file, confidential, form) VALUES (?, ?, ?, ?);";
+        byte[] content = file.getEncodedString().getBytes();
+        String digest = digestOf(content);
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        //Prepare sql statement
+        String query = "INSERT INTO file (name, file, digest, confidential, form) VALUES (?, NULL, ?, ?, ?);";
 
-            Blob blob = conn.createBlob();
-            blob.setBytes(1, file.getEncodedString().getBytes());
+        try(Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
+            try(PreparedStatement preparedStatement = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                this.storeBlob(conn, digest, content);
 
-            //Set parameters and execute update
-            preparedStatement.setString(1, file.getName());
-            preparedStatement.setBlob(2, blob);
-            preparedStatement.setBoolean(3, file.getConfidential());
-            preparedStatement.setBoolean(4, file.getForm());
+                //Set parameters and execute update
+                preparedStatement.setString(1, file.getName());
+                preparedStatement.setString(2, digest);
+                preparedStatement.setBoolean(3, file.getConfidential());
+                preparedStatement.setBoolean(4, file.getForm());
 
-            preparedStatement.executeUpdate();
+                preparedStatement.executeUpdate();
 
-            try(ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
-                resultSet.next();
-                return resultSet.getInt(1);
+                int fileID;
+                try(ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+                    resultSet.next();
+                    fileID = resultSet.getInt(1);
+                }
+                conn.commit();
+                return fileID;
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
             }
         }
     }
 
+    /**
+     * Adds a file that shares the contents of an existing file.
+     * Only a new file row is written, the contents are not read or copied.
+     * @param fileID id of the file to copy
+     * @return id of the new file or 0 if the file to copy does not exist
+     * @throws SQLException Error connecting to database or executing update
+     */
+    public int copyFile(int fileID) throws SQLException {
+        //Prepare sql statements
+        String query = "INSERT INTO file (name, digest, confidential, form) " +
+                            "SELECT file.name, file.digest, file.confidential, file.form FROM file WHERE file.fileID = ?;";
+
+        try(Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
+            try(PreparedStatement preparedStatement = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                this.moveInlineContent(conn, fileID);
+
+                //Set parameters and execute update
+                preparedStatement.setInt(1, fileID);
+                if (preparedStatement.executeUpdate() == 0) {
+                    conn.rollback();
+                    return 0;
+                }
+
+                int copiedFileID;
+                try(ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+                    resultSet.next();
+                    copiedFileID = resultSet.getInt(1);
+                }
+                conn.commit();
+                return copiedFileID;
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            }
+        }
+    }
 
     /**
      * Connect to database and add
+     * Files sharing the old contents keep them, only this file is pointed at the new contents.
      * @param file existing file to update into the database
      * @throws SQLException Error connecting to database or executing update
      */
     public void updateFile(File file) throws SQLException {
+        byte[] content = file.getEncodedString().getBytes();
+        String digest = digestOf(content);
+
         //Prepare sql statement
-        String query = "UPDATE file SET file.name = ?, file.file = ?, file.confidential = ?, file.form = ? WHERE file.fileID = ?;";
+        String query = "UPDATE file SET file.name = ?, file.file = NULL, file.digest = ?, file.confidential = ?, file.form = ? WHERE file.fileID = ?;";
 
-        try (Connection conn = this.dbConn.connect();
-             PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+                String oldDigest = this.lockDigest(conn, file.getFileID());
+                this.storeBlob(conn, digest, content);
 
-            Blob blob = conn.createBlob();
-            blob.setBytes(1, file.getEncodedString().getBytes());
+                //Set parameters and execute update
+                preparedStatement.setString(1, file.getName());
+                preparedStatement.setString(2, digest);
+                preparedStatement.setBoolean(3, file.getConfidential());
+                preparedStatement.setBoolean(4, file.getForm());
+                preparedStatement.setInt(5, file.getFileID());
 
-            //Set parameters and execute update
-            preparedStatement.setString(1, file.getName());
-            preparedStatement.setBlob(2, blob);
-            preparedStatement.setBoolean(3, file.getConfidential());
-            preparedStatement.setBoolean(4, file.getForm());
-            preparedStatement.setInt(5, file.getFileID());
+                preparedStatement.executeUpdate();
 
-            preparedStatement.executeUpdate();
+                if (oldDigest != null && !oldDigest.equals(digest)) {
+                    this.deleteUnreferencedBlob(conn, oldDigest);
+                }
+                conn.commit();
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            }
         }
     }
 
@@ -275,13 +465,133 @@ public class FileDB {
         //Prepare the sql statement
         String query = "DELETE FROM file WHERE file.fileID = ?;";
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+        try(Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
+            try(PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+                String digest = this.lockDigest(conn, fileID);
+
+                //Set parameters and execute update
+                preparedStatement.setInt(1, fileID);
+                int deleted = preparedStatement.executeUpdate();
+
+                if (digest != null) {
+                    this.deleteUnreferencedBlob(conn, digest);
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            }
+        }
+    }
+
+    /**
+     * Stores file contents unless contents with the same digest are already stored.
+     * A single upsert both inserts new contents and locks stored ones, so the blob row stays locked until the
+     * caller's transaction ends and cannot be collected in between. Taking no gap lock, it cannot deadlock
+     * with a concurrent upload of the same contents.
+     * @param conn connection with an open transaction
+     * @param digest SHA-256 digest of the contents
+     * @param content contents to store
+     * @throws SQLException Error executing update
+     */
+    private void storeBlob(Connection conn, String digest, byte[] content) throws SQLException {
+        //Prepare sql statement
+        String query = "INSERT INTO fileBlob (digest, content) VALUES (?, ?) " +
+                            "ON DUPLICATE KEY UPDATE digest = digest;";
+
+        try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            Blob blob = conn.createBlob();
+            blob.setBytes(1, content);
 
             //Set parameters and execute update
+            preparedStatement.setString(1, digest);
+            preparedStatement.setBlob(2, blob);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Locks a file row and returns the digest of its contents.
+     * @param conn connection with an open transaction
+     * @param fileID id of the file
+     * @return digest or null if the file does not exist or holds its contents inline
+     * @throws SQLException Error executing query
+     */
+    private String lockDigest(Connection conn, int fileID) throws SQLException {
+        String query = "SELECT file.digest FROM file WHERE file.fileID = ? FOR UPDATE;";
+
+        try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
             preparedStatement.setInt(1, fileID);
-            return preparedStatement.executeUpdate();
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return result.next() ? result.getString("digest") : null;
+            }
+        }
+    }
+
+    /**
+     * Moves contents a file holds inline into fileBlob so they can be shared.
+     * The digest is computed by the database, the contents never leave it.
+     * @param conn connection with an open transaction
+     * @param fileID id of the file
+     * @throws SQLException Error executing update
+     */
+    private void moveInlineContent(Connection conn, int fileID) throws SQLException {
+        //Prepare sql statements
+        String blobQuery = "INSERT IGNORE INTO fileBlob (digest, content) " +
+                                "SELECT SHA2(file.file, 256), file.file FROM file " +
+                                "WHERE file.fileID = ? AND file.digest IS NULL AND file.file IS NOT NULL;";
+        String fileQuery = "UPDATE file SET file.digest = SHA2(file.file, 256), file.file = NULL " +
+                                "WHERE file.fileID = ? AND file.digest IS NULL AND file.file IS NOT NULL;";
+
+        try (PreparedStatement blobStatement = conn.prepareStatement(blobQuery);
+             PreparedStatement fileStatement = conn.prepareStatement(fileQuery)) {
+            blobStatement.setInt(1, fileID);
+            blobStatement.executeUpdate();
+            fileStatement.setInt(1, fileID);
+            fileStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Removes stored contents once no file references them.
+     * @param conn connection with an open transaction
+     * @param digest digest of the contents
+     * @throws SQLException Error executing update
+     */
+    private void deleteUnreferencedBlob(Connection conn, String digest) throws SQLException {
+        String query = "DELETE FROM fileBlob WHERE fileBlob.digest = ? " +
+                            "AND NOT EXISTS (SELECT 1 FROM file WHERE file.digest = ?);";
+
+        try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setString(1, digest);
+            preparedStatement.setString(2, digest);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Computes the key file contents are stored under.
+     * Matches SHA2(content, 256) so digests computed here and by the database agree.
+     * @param content stored file contents
+     * @return lowercase hex SHA-256 digest
+     */
+    private static String digestOf(byte[] content) {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("SHA-256 is not available", nsae);
+        }
+
+        byte[] hash = messageDigest.digest(content);
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
         }
+        return hex.toString();
     }
 
     /**
@@ -314,4 +624,128 @@ public class FileDB {
         return companyID;
     }
 
-}
\ No newline at end of file
+    /**
+     * Streams stored file contents in chunks of CHUNK_SIZE bytes.
+     * A single query reads the fileBlob row once and returns it as one row per chunk. The driver is asked to stream
+     * the rows, so only one chunk is held at a time and the database reads the value once whatever the file size.
+     * The rows stream over a connection of their own, opened outside the pool, so a slow client holds no pooled
+     * connection. Closing the stream before the last chunk aborts that connection rather than reading the rest.
+     */
+    private class StoredFileInputStream extends InputStream {
+        private static final int CHUNK_SIZE = 1024 * 1024;
+
+        private final long storedLength;
+        private final Connection conn;
+        private final PreparedStatement preparedStatement;
+        private final ResultSet result;
+        //1 based position of the next chunk, as used by SUBSTRING
+        private long nextPosition = 1;
+        private byte[] chunk = new byte[0];
+        private int chunkIndex;
+        private boolean closed;
+
+        private StoredFileInputStream(String digest, long storedLength) throws SQLException {
+            this.storedLength = storedLength;
+
+            //Prepare sql statement
+            //The positions of the chunks come from a recursive CTE, fileBlob is read once by its primary key
+            String query = "WITH RECURSIVE chunks (position) AS (" +
+                                "SELECT 1 UNION ALL SELECT position + ? FROM chunks WHERE position + ? <= ?) " +
+                            "SELECT chunks.position, SUBSTRING(fileBlob.content, chunks.position, ?) AS chunk " +
+                            "FROM fileBlob JOIN chunks WHERE fileBlob.digest = ?;";
+
+            this.conn = dbConn.connectUnpooled();
+            try {
+                this.preparedStatement = this.conn.prepareStatement(query);
+                this.preparedStatement.setFetchSize(1);
+
+                //Set parameters and execute query
+                this.preparedStatement.setInt(1, CHUNK_SIZE);
+                this.preparedStatement.setInt(2, CHUNK_SIZE);
+                this.preparedStatement.setLong(3, storedLength);
+                this.preparedStatement.setInt(4, CHUNK_SIZE);
+                this.preparedStatement.setString(5, digest);
+                this.result = this.preparedStatement.executeQuery();
+            } catch (SQLException sqle) {
+                this.conn.close();
+                throw sqle;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!this.ensureChunk()) {
+                return -1;
+            }
+            return this.chunk[this.chunkIndex++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.ensureChunk()) {
+                return -1;
+            }
+            int count = Math.min(length, this.chunk.length - this.chunkIndex);
+            System.arraycopy(this.chunk, this.chunkIndex, buffer, offset, count);
+            this.chunkIndex += count;
+            return count;
+        }
+
+        /**
+         * Moves on to the next row once the current chunk is used up
+         * @return false at the end of the stored value
+         */
+        private boolean ensureChunk() throws IOException {
+            if (this.chunkIndex < this.chunk.length) {
+                return true;
+            }
+            if (this.nextPosition > this.storedLength) {
+                return false;
+            }
+
+            try {
+                if (!this.result.next()) {
+                    //The contents are only collected once no file references them
+                    throw new IOException("File was removed while it was being read");
+                }
+                //Rows are not sorted, sorting would make the database hold every chunk at once
+                if (this.result.getLong("position") != this.nextPosition) {
+                    throw new IOException("File contents were read out of order");
+                }
+                byte[] bytes = this.result.getBytes("chunk");
+                if (bytes == null || bytes.length == 0) {
+                    throw new IOException("File was removed while it was being read");
+                }
+                this.chunk = bytes;
+                this.chunkIndex = 0;
+                this.nextPosition += bytes.length;
+                return true;
+            } catch (SQLException sqle) {
+                throw new IOException(sqle.getMessage(), sqle);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+
+            try (Connection connection = this.conn) {
+                if (this.nextPosition <= this.storedLength) {
+                    //Closing a streaming result early would read every remaining row first
+                    connection.abort(Runnable::run);
+                } else {
+                    this.result.close();
+                    this.preparedStatement.close();
+                }
+            } catch (SQLException sqle) {
+                throw new IOException(sqle.getMessage(), sqle);
+            }
+        }
+    }
+}
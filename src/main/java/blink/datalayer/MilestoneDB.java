@@ -1,7 +1,10 @@
 package blink.datalayer;
 
-import blink.businesslayer.CompanyBusiness;
+import blink.utility.objects.Company;
+import blink.utility.objects.EntityVersion;
+import blink.utility.objects.ListQuery;
 import blink.utility.objects.Milestone;
+import blink.utility.objects.Page;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -10,190 +13,105 @@ import java.util.List;
 
 public class MilestoneDB {
     private DBConn dbConn;
-    private CompanyBusiness companyBusiness;
+
+    //Lists read the company name in the same query rather than looking up the company of every row
+    private static final String COMPANY_JOIN = "LEFT JOIN company ON (company.companyID = milestone.companyID) ";
+    //Summary columns leave out the description
+    private static final String SUMMARY_COLUMNS = "milestone.milestoneID, milestone.name, milestone.createdDate, milestone.lastUpdatedDate, " +
+            "milestone.startDate, milestone.deliveryDate, milestone.completedDate, milestone.archived, milestone.companyID, " +
+            "milestone.leafSteps, milestone.completedLeafSteps, ";
 
     public MilestoneDB(){
         this.dbConn = new DBConn();
-        this.companyBusiness = new CompanyBusiness();
     }
 
-    /**
-     * Get all milestones
-     * @return List of milestone objects
-     * @throws SQLException Error connecting to database or executing query
-     */
-    public List<Milestone> getAllMilestones() throws SQLException {
-        try(Connection conn = this.dbConn.connect()) {
-
-            //Prepare sql statement
-            String query = "SELECT * FROM milestone;";
-
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-
-                //Set parameters and execute query
-                try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Milestone> milestoneList = new ArrayList<>();
-                    while (result.next()) {
-                        milestoneList.add(new Milestone(result.getInt("milestoneID"),
-                                                        result.getString("name"),
-                                                        result.getString("description"),
-                                                        result.getDate("createdDate"),
-                                                        result.getDate("lastUpdatedDate"),
-                                                        result.getDate("startDate"),
-                                                        result.getDate("deliveryDate"),
-                                                        result.getDate("completedDate"),
-                                                        result.getBoolean("archived"),
-                                                        this.companyBusiness.getCompanyByID(result.getString("companyID")))
-                        );
-                    }
-
-                    //Return milestone
-                    return milestoneList;
-                }
-            }
-        }
+    MilestoneDB(DBConn dbConn){
+        this.dbConn = dbConn;
     }
 
     /**
-     * Get all milestones by CompanyID
-     * @param companyIDList List of company IDs to retrieve milestones by
-     * @return List of milestone objects assigned to company with companyID
+     * Get one page of milestones, ordered by milestoneID
+     * @param companyIDList Only milestones of these companies, null for milestones of any company
+     * @param listQuery Page and filters requested by the client
+     * @return Page of milestone objects, without descriptions if a summary was requested
      * @throws SQLException Error connecting to database or executing query
      */
-    public List<Milestone> getAllMilestones(List<Integer> companyIDList) throws SQLException {
-        if(companyIDList.isEmpty()){
-            return new ArrayList();
+    public Page<Milestone> getMilestones(List<Integer> companyIDList, ListQuery listQuery) throws SQLException {
+        if(companyIDList != null && companyIDList.isEmpty()){
+            return new Page<>(new ArrayList<>(), null);
         }
 
-        try(Connection conn = this.dbConn.connect()) {
-
-            //Prepare sql statement
-            StringBuilder query = new StringBuilder();
-            query.append("SELECT * FROM milestone " +
-                            "WHERE milestone.companyID IN (");
-            for(int x = 0; x < companyIDList.size(); x++){
-                if(x == companyIDList.size()-1){ query.append("?);"); }
-                else{ query.append("?,"); }
-            }
+        //Prepare sql statement
+        String columns = listQuery.isSummary() ? SUMMARY_COLUMNS : "milestone.*, ";
+        PagedQuery query = new PagedQuery("SELECT " + columns + "company.name AS companyName FROM milestone " + COMPANY_JOIN, listQuery)
+                .whereCompanyIn("milestone.companyID", companyIDList)
+                .whereArchivedAndDelivered("milestone.archived", "milestone.deliveryDate");
 
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query.toString())) {
-                for(int x = 0; x < companyIDList.size(); x++){
-                    preparedStatement.setInt(x+1, companyIDList.get(x));
+        try(Connection conn = this.dbConn.connect();
+            PreparedStatement preparedStatement = query.prepare(conn, "milestone.milestoneID", true)) {
+
+            //Execute query
+            try (ResultSet result = preparedStatement.executeQuery()) {
+
+                List<Milestone> milestoneList = new ArrayList<>();
+                while (result.next()) {
+                    milestoneList.add(new Milestone(result.getInt("milestoneID"),
+                            result.getString("name"),
+                            listQuery.isSummary() ? null : result.getString("description"),
+                            result.getDate("createdDate"),
+                            result.getDate("lastUpdatedDate"),
+                            result.getDate("startDate"),
+                            result.getDate("deliveryDate"),
+                            result.getDate("completedDate"),
+                            result.getBoolean("archived"),
+                            result.getString("companyID") == null ? null : new Company(result.getInt("companyID"), result.getString("companyName")),
+                            result.getInt("leafSteps"),
+                            result.getInt("completedLeafSteps"))
+                    );
                 }
 
-                //Set parameters and execute query
-                try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Milestone> milestoneList = new ArrayList<>();
-                    while (result.next()) {
-                        milestoneList.add(new Milestone(result.getInt("milestoneID"),
-                                result.getString("name"),
-                                result.getString("description"),
-                                result.getDate("createdDate"),
-                                result.getDate("lastUpdatedDate"),
-                                result.getDate("startDate"),
-                                result.getDate("deliveryDate"),
-                                result.getDate("completedDate"),
-                                result.getBoolean("archived"),
-                                this.companyBusiness.getCompanyByID(result.getString("companyID")))
-                        );
-                    }
-
-                    //Return milestone
-                    return milestoneList;
-                }
+                //Return page of milestones
+                String nextCursor = query.trim(milestoneList, Milestone::getMileStoneID);
+                return new Page<>(milestoneList, nextCursor);
             }
         }
     }
 
     /**
-     * Get all milestones based on archived or not archived
-     * @param archived Search for either archived or unarchived milestones
-     * @return List of milestone objects
+     * Get the versions of one page of milestones, the page getMilestones returns for the same arguments
+     * @param companyIDList Only milestones of these companies, null for milestones of any company
+     * @param listQuery Page and filters requested by the client
+     * @return Page of milestone versions
      * @throws SQLException Error connecting to database or executing query
      */
-    public List<Milestone> getAllMilestones(boolean archived) throws SQLException {
-        try(Connection conn = this.dbConn.connect()) {
-
-            //Prepare sql statement
-            String query = "SELECT * FROM milestone WHERE archived = ?;";
-
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-                preparedStatement.setBoolean(1, archived);
-
-                //Set parameters and execute query
-                try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Milestone> milestoneList = new ArrayList<>();
-                    while (result.next()) {
-                        milestoneList.add(new Milestone(result.getInt("milestoneID"),
-                                result.getString("name"),
-                                result.getString("description"),
-                                result.getDate("createdDate"),
-                                result.getDate("lastUpdatedDate"),
-                                result.getDate("startDate"),
-                                result.getDate("deliveryDate"),
-                                result.getDate("completedDate"),
-                                result.getBoolean("archived"),
-                                this.companyBusiness.getCompanyByID(result.getString("companyID")))
-                        );
-                    }
-
-                    //Return milestone
-                    return milestoneList;
-                }
-            }
+    public Page<EntityVersion> getMilestoneVersions(List<Integer> companyIDList, ListQuery listQuery) throws SQLException {
+        if(companyIDList != null && companyIDList.isEmpty()){
+            return new Page<>(new ArrayList<>(), null);
         }
-    }
-
-    /**
-     * Get all milestones based on archived or not archived
-     * @param companyIDList List of company IDs to retrieve milestones by
-     * @param archived Search for either archived or unarchived milestones
-     * @return List of milestone objects
-     * @throws SQLException Error connecting to database or executing query
-     */
-    public List<Milestone> getAllMilestones(List<Integer> companyIDList, boolean archived) throws SQLException {
-        try(Connection conn = this.dbConn.connect()) {
 
-            //Prepare sql statement
-            StringBuilder query = new StringBuilder();
-            query.append("SELECT * FROM milestone " +
-                    "WHERE archived = ? " +
-                    "AND milestone.companyID IN (");
-            for(int x = 0; x < companyIDList.size(); x++){
-                if(x == companyIDList.size()-1){ query.append("?);"); }
-                else{ query.append("?,"); }
-            }
+        //Prepare sql statement, only the version columns are read
+        PagedQuery query = new PagedQuery("SELECT milestone.milestoneID, milestone.version, milestone.lastModified, milestone.companyID FROM milestone ", listQuery)
+                .whereCompanyIn("milestone.companyID", companyIDList)
+                .whereArchivedAndDelivered("milestone.archived", "milestone.deliveryDate");
 
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query.toString())) {
-                preparedStatement.setBoolean(1, archived);
-                for(int x = 0; x < companyIDList.size(); x++){
-                    preparedStatement.setInt(x+2, companyIDList.get(x));
+        try(Connection conn = this.dbConn.connect();
+            PreparedStatement preparedStatement = query.prepare(conn, "milestone.milestoneID", true)) {
+
+            //Execute query
+            try (ResultSet result = preparedStatement.executeQuery()) {
+
+                List<EntityVersion> versions = new ArrayList<>();
+                while (result.next()) {
+                    versions.add(new EntityVersion(result.getInt("milestoneID"),
+                            result.getInt("version"),
+                            result.getTimestamp("lastModified"),
+                            result.getString("companyID") == null ? null : result.getInt("companyID"))
+                    );
                 }
 
-                //Set parameters and execute query
-                try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Milestone> milestoneList = new ArrayList<>();
-                    while (result.next()) {
-                        milestoneList.add(new Milestone(result.getInt("milestoneID"),
-                                result.getString("name"),
-                                result.getString("description"),
-                                result.getDate("createdDate"),
-                                result.getDate("lastUpdatedDate"),
-                                result.getDate("startDate"),
-                                result.getDate("deliveryDate"),
-                                result.getDate("completedDate"),
-                                result.getBoolean("archived"),
-                                this.companyBusiness.getCompanyByID(result.getString("companyID")))
-                        );
-                    }
-
-                    //Return milestone
-                    return milestoneList;
-                }
+                //Return page of versions
+                String nextCursor = query.trim(versions, EntityVersion::getId);
+                return new Page<>(versions, nextCursor);
             }
         }
     }
@@ -228,7 +146,9 @@ public class MilestoneDB {
                                 result.getDate("deliveryDate"),
                                 result.getDate("completedDate"),
                                 result.getBoolean("archived"),
-                                this.companyBusiness.getCompanyByID(result.getString("companyID"))
+                                result.getString("companyID") == null ? null : ReferenceData.getCompany(result.getInt("companyID")),
+                                result.getInt("leafSteps"),
+                                result.getInt("completedLeafSteps")
                         );
                     }
 
@@ -285,21 +205,37 @@ public class MilestoneDB {
      */
     public void updateMilestone(final int milestoneID, final String name, final String description, final Date lastUpdatedDate, final Date startDate, final Date deliveryDate, final int companyID) throws SQLException {
         //Prepare sql statement
-        String query = "UPDATE milestone SET name = ?, description = ?, lastUpdatedDate = ?, startDate = ?, deliveryDate = ?, companyID = ? WHERE milestoneID = ?;";
+        String query = "UPDATE milestone SET name = ?, description = ?, lastUpdatedDate = ?, startDate = ?, deliveryDate = ?, companyID = ?, version = version + 1 WHERE milestoneID = ?;";
+        //Workflows carry the company of their milestone, so they change with it. Run first to compare with the old company.
+        String workflowQuery = "UPDATE workflow JOIN milestone ON (workflow.milestoneID = milestone.milestoneID) " +
+                                    "SET workflow.version = workflow.version + 1 WHERE milestone.milestoneID = ? AND milestone.companyID != ?;";
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement workflowPS = conn.prepareStatement(workflowQuery);
+                 PreparedStatement preparedStatement = conn.prepareStatement(query)) {
 
-            //Set parameters and execute update
-            preparedStatement.setString(1, name);
-            preparedStatement.setString(2, description);
-            preparedStatement.setTimestamp(3, new java.sql.Timestamp(lastUpdatedDate.getTime()));
-            preparedStatement.setTimestamp(4, new java.sql.Timestamp(startDate.getTime()));
-            preparedStatement.setTimestamp(5, new java.sql.Timestamp(deliveryDate.getTime()));
-            preparedStatement.setInt(6, companyID);
-            preparedStatement.setInt(7, milestoneID);
+                //Set parameters and execute update
+                workflowPS.setInt(1, milestoneID);
+                workflowPS.setInt(2, companyID);
 
-            preparedStatement.executeUpdate();
+                preparedStatement.setString(1, name);
+                preparedStatement.setString(2, description);
+                preparedStatement.setTimestamp(3, new java.sql.Timestamp(lastUpdatedDate.getTime()));
+                preparedStatement.setTimestamp(4, new java.sql.Timestamp(startDate.getTime()));
+                preparedStatement.setTimestamp(5, new java.sql.Timestamp(deliveryDate.getTime()));
+                preparedStatement.setInt(6, companyID);
+                preparedStatement.setInt(7, milestoneID);
+
+                workflowPS.executeUpdate();
+                preparedStatement.executeUpdate();
+
+                conn.commit();
+            }
+            catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            }
         }
     }
 
@@ -311,8 +247,8 @@ public class MilestoneDB {
      */
     public void updateMilestoneArchiveStatus(final int milestoneID, boolean archiveStatus) throws SQLException {
         //Prepare sql statement
-        String milestoneQuery = "UPDATE milestone SET archived = ? WHERE milestoneID = ?;";
-        String workflowQuery = "UPDATE workflow SET archived = ? WHERE milestoneID = ?;";
+        String milestoneQuery = "UPDATE milestone SET archived = ?, version = version + 1 WHERE milestoneID = ?;";
+        String workflowQuery = "UPDATE workflow SET archived = ?, version = version + 1 WHERE milestoneID = ?;";
 
         try(Connection conn = this.dbConn.connect();
             PreparedStatement milestonePS = conn.prepareStatement(milestoneQuery);
@@ -354,22 +290,61 @@ public class MilestoneDB {
     }
 
     /**
-     * Connect to db and update milestone completion date
-     * @param completeDate
-     * @param milestoneID
-     * @throws SQLException
+     * Recounts the leaf steps of a milestone from the counters of its workflows
+     * and sets its completed date once every leaf step is complete
+     * @param milestoneID ID of milestone to refresh
+     * @param completedDate The date to set the completedDate to if the milestone completes
+     * @param conn connection with an open transaction, the caller commits
+     * @throws SQLException Error executing update
      */
-    public void markMilestoneComplete(Date completeDate, int milestoneID) throws SQLException {
+    void refreshProgress(final int milestoneID, final Date completedDate, Connection conn) throws SQLException {
         //Prepare sql statement
-        String query = "UPDATE milestone SET milestone.completedDate = ? WHERE milestone.milestoneID = ?;";
+        String query = "UPDATE milestone SET " +
+                            "leafSteps = (SELECT COALESCE(SUM(workflow.leafSteps), 0) FROM workflow WHERE workflow.milestoneID = milestone.milestoneID), " +
+                            "completedLeafSteps = (SELECT COALESCE(SUM(workflow.completedLeafSteps), 0) FROM workflow WHERE workflow.milestoneID = milestone.milestoneID), " +
+                            "version = version + 1 " +
+                            "WHERE milestone.milestoneID = ?;";
 
-        try(Connection conn = this.dbConn.connect();
-            PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+        try(PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, milestoneID);
+            preparedStatement.executeUpdate();
+        }
 
-            //Set parameters and execute update
-            preparedStatement.setTimestamp(1, new java.sql.Timestamp(completeDate.getTime()));
-            preparedStatement.setInt(2, milestoneID);
+        this.markCompleteIfDone(milestoneID, completedDate, conn);
+    }
 
+    /**
+     * Counts one more completed leaf step for a milestone
+     * and sets its completed date once every leaf step is complete
+     * @param milestoneID ID of milestone to update
+     * @param completedDate The date to set the completedDate to if the milestone completes
+     * @param conn connection with an open transaction, the caller commits
+     * @throws SQLException Error executing update
+     */
+    void addCompletedLeafStep(final int milestoneID, final Date completedDate, Connection conn) throws SQLException {
+        //Prepare sql statement
+        String query = "UPDATE milestone SET completedLeafSteps = completedLeafSteps + 1, version = version + 1 WHERE milestone.milestoneID = ?;";
+
+        try(PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, milestoneID);
+            preparedStatement.executeUpdate();
+        }
+
+        this.markCompleteIfDone(milestoneID, completedDate, conn);
+    }
+
+    /**
+     * Sets the completed date of a milestone whose leaf steps are all complete, unless it is already set
+     */
+    private void markCompleteIfDone(final int milestoneID, final Date completedDate, Connection conn) throws SQLException {
+        //Prepare sql statement
+        String query = "UPDATE milestone SET milestone.completedDate = ?, milestone.version = milestone.version + 1 " +
+                            "WHERE milestone.milestoneID = ? AND milestone.completedDate IS NULL " +
+                            "AND milestone.leafSteps > 0 AND milestone.completedLeafSteps >= milestone.leafSteps;";
+
+        try(PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setTimestamp(1, new java.sql.Timestamp(completedDate.getTime()));
+            preparedStatement.setInt(2, milestoneID);
             preparedStatement.executeUpdate();
         }
     }
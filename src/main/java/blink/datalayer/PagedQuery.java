@@ -0,0 +1,136 @@
+package blink.datalayer;
+
+import blink.utility.objects.ListQuery;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Builds a list query that returns one page of rows.
+ * Rows are ordered by a unique key and a page starts after the key of the last row of the previous page, so
+ * every page is one index range read no matter how deep the client pages, unlike OFFSET which reads and drops
+ * every earlier row. One row past the limit is read to tell whether another page follows.
+ */
+final class PagedQuery {
+    private final StringBuilder query;
+    private final List<Object> parameters = new ArrayList<>();
+    private final ListQuery listQuery;
+    private boolean hasWhere;
+
+    /**
+     * @param select SELECT and FROM clauses of the query
+     * @param listQuery Page and filters requested by the client
+     */
+    PagedQuery(String select, ListQuery listQuery){
+        this.query = new StringBuilder(select);
+        this.listQuery = listQuery;
+    }
+
+    /**
+     * Add a condition, joined to earlier ones with AND
+     * @param condition SQL condition with a ? for each value
+     * @param values Values of the condition in order
+     * @return This query
+     */
+    PagedQuery where(String condition, Object... values){
+        this.query.append(this.hasWhere ? "AND " : "WHERE ").append(condition).append(' ');
+        this.hasWhere = true;
+        for(Object value : values){
+            this.parameters.add(value);
+        }
+        return this;
+    }
+
+    /**
+     * Restrict a column to a list of company IDs
+     * @param column Company ID column
+     * @param companyIDList Company IDs, null for no restriction
+     * @return This query
+     */
+    PagedQuery whereCompanyIn(String column, List<Integer> companyIDList){
+        if(companyIDList == null){
+            return this;
+        }
+        return this.where(column + " IN (" + placeholders(companyIDList.size()) + ")", companyIDList.toArray());
+    }
+
+    /**
+     * Apply the archived and delivery date filters of the client
+     * @param archivedColumn Archived column
+     * @param deliveryDateColumn Delivery date column
+     * @return This query
+     */
+    PagedQuery whereArchivedAndDelivered(String archivedColumn, String deliveryDateColumn){
+        if(this.listQuery.getArchived() != null){
+            this.where(archivedColumn + " = ?", this.listQuery.getArchived());
+        }
+        if(this.listQuery.getFrom() != null){
+            this.where(deliveryDateColumn + " >= ?", java.sql.Date.valueOf(this.listQuery.getFrom()));
+        }
+        if(this.listQuery.getTo() != null){
+            this.where(deliveryDateColumn + " <= ?", java.sql.Date.valueOf(this.listQuery.getTo()));
+        }
+        return this;
+    }
+
+    /**
+     * Finish the query with the page bounds and prepare it
+     * @param conn Connection to prepare the statement on
+     * @param keyColumn Unique column the list is ordered by
+     * @param integerKey True if the key is an integer column, the cursor is then compared as a number
+     * @return Prepared statement with every parameter set
+     * @throws SQLException Error preparing the statement
+     */
+    PreparedStatement prepare(Connection conn, String keyColumn, boolean integerKey) throws SQLException {
+        if(this.listQuery.getAfter() != null){
+            this.where(keyColumn + " > ?", integerKey ? Integer.valueOf(this.listQuery.getAfter()) : this.listQuery.getAfter());
+        }
+        this.query.append("ORDER BY ").append(keyColumn).append(" LIMIT ?;");
+        this.parameters.add(this.listQuery.getLimit() + 1);
+
+        PreparedStatement preparedStatement = conn.prepareStatement(this.query.toString());
+        try {
+            for(int x = 0; x < this.parameters.size(); x++){
+                preparedStatement.setObject(x+1, this.parameters.get(x));
+            }
+        }
+        catch(SQLException sqle){
+            preparedStatement.close();
+            throw sqle;
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Drop the row read past the limit
+     * @param rows Rows read by the query, trimmed in place to the page
+     * @param key Key of a row
+     * @param <T> Type of the rows
+     * @return Cursor of the next page or null if this is the last page
+     */
+    <T> String trim(List<T> rows, Function<T, Object> key){
+        if(rows.size() <= this.listQuery.getLimit()){
+            return null;
+        }
+        rows.subList(this.listQuery.getLimit(), rows.size()).clear();
+        return String.valueOf(key.apply(rows.get(rows.size() - 1)));
+    }
+
+    /**
+     * Placeholders for an IN list
+     * @param count Number of values
+     * @return "?,?,...?"
+     */
+    static String placeholders(int count){
+        StringBuilder placeholders = new StringBuilder();
+        for(int x = 0; x < count; x++){
+            if(x == count-1){ placeholders.append("?"); }
+            else{ placeholders.append("?,"); }
+        }
+        return placeholders.toString();
+    }
+}
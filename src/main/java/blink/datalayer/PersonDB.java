@@ -6,6 +6,8 @@ import java.util.List;
 
 import blink.utility.objects.Company;
 import blink.utility.objects.File;
+import blink.utility.objects.ListQuery;
+import blink.utility.objects.Page;
 import blink.utility.objects.Person;
 
 public class PersonDB {
@@ -16,20 +18,32 @@ public class PersonDB {
     }
 
     /**
-     * Connect to database and retrieve all content of person table
-     * @return ArrayList of all Person objects
+     * Connect to database and retrieve one page of the person table, ordered by UUID
+     * @param companyIDList Only people belonging to one of these companies, null for everybody
+     * @param listQuery Page and filters requested by the client
+     * @return Page of Person objects
      * @throws SQLException Error connecting to database or executing query
      */
-    public List<Person> getAllPeople() throws SQLException {
-        String getAllPeopleQuery = "SELECT * FROM person;";
+    public Page<Person> getPeople(final List<Integer> companyIDList, final ListQuery listQuery) throws SQLException {
+        if(companyIDList != null && companyIDList.isEmpty()){
+            return new Page<>(new ArrayList<>(), null);
+        }
+
+        //Prepare sql statements
+        PagedQuery getPeopleQuery = new PagedQuery("SELECT * FROM person ", listQuery);
+        if(companyIDList != null){
+            getPeopleQuery.where("person.UUID IN (SELECT personCompany.UUID FROM personCompany " +
+                    "WHERE personCompany.companyID IN (" + PagedQuery.placeholders(companyIDList.size()) + "))", companyIDList.toArray());
+        }
+
         String getAllCompaniesForPersonQuery = "SELECT * FROM person " +
                 "JOIN personCompany ON (person.UUID = personCompany.UUID) " +
                 "JOIN company ON (personCompany.companyID = company.companyID) " +
                 "WHERE person.UUID = ?";
 
         try(Connection conn = this.dbConn.connect();
-            PreparedStatement getAllPeopleStatement = conn.prepareStatement(getAllPeopleQuery);
-            ResultSet result = getAllPeopleStatement.executeQuery();
+            PreparedStatement getPeopleStatement = getPeopleQuery.prepare(conn, "person.UUID", false);
+            ResultSet result = getPeopleStatement.executeQuery();
             PreparedStatement getAllCompaniesForPersonStatement = conn.prepareStatement(getAllCompaniesForPersonQuery)) {
 
             ArrayList<Person> people = new ArrayList<>();
@@ -62,7 +76,8 @@ public class PersonDB {
                 }
             }
 
-            return people;
+            String nextCursor = getPeopleQuery.trim(people, Person::getUuid);
+            return new Page<>(people, nextCursor);
         }
     }
 
@@ -287,6 +302,27 @@ public class PersonDB {
         }
     }
 
+    /**
+     * Connect to database and replace the password hash of a person
+     * @param UUID UUID of the person
+     * @param passwordHash new password hash record
+     * @throws SQLException error connecting to database or executing query
+     */
+    public void updatePasswordHash(final String UUID, final String passwordHash) throws SQLException {
+        //Prepare sql statement
+        String query = "UPDATE person SET passwordHash = ? WHERE UUID = ?;";
+
+        try (Connection conn = this.dbConn.connect();
+             PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+
+            //Set parameters and execute query
+            preparedStatement.setString(1, passwordHash);
+            preparedStatement.setString(2, UUID);
+
+            preparedStatement.executeUpdate();
+        }
+    }
+
     /**
      * Connect to database and delete a person by UUID
      * @param UUID UUID to delete from database
@@ -0,0 +1,195 @@
+package blink.datalayer;
+
+import blink.utility.cache.IntKeyedMap;
+import blink.utility.metrics.MetricsRegistry;
+import blink.utility.objects.AccessLevel;
+import blink.utility.objects.Company;
+import blink.utility.objects.Verb;
+import com.google.gson.JsonObject;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the verb, accessLevel and company tables in memory.
+ * The tables are small and rarely change, so they are read once at startup and lookups are then served without
+ * going to the database. Readers see an immutable snapshot. Changes build a new snapshot and swap it in whole,
+ * so a reader never sees a half applied change and never waits on a writer.
+ * Companies change through CompanyBusiness, which refreshes the company it changed. Verbs and access levels are
+ * only changed by migrations, which run before the tables are loaded.
+ */
+public final class ReferenceData {
+
+    private static final DBConn DB_CONN = new DBConn();
+    //Serializes writers, readers never take it once the tables are loaded
+    private static final Object WRITE_LOCK = new Object();
+
+    private static volatile Snapshot snapshot;
+
+    private static final LongAdder LOADS = new LongAdder();
+    private static final LongAdder COMPANY_REFRESHES = new LongAdder();
+
+    static {
+        MetricsRegistry.register("referenceData", ReferenceData::metrics);
+    }
+
+    /**
+     * An immutable copy of the reference tables.
+     */
+    private static final class Snapshot {
+        private final IntKeyedMap<Verb> verbs;
+        private final IntKeyedMap<AccessLevel> accessLevels;
+        private final IntKeyedMap<Company> companies;
+
+        private Snapshot(IntKeyedMap<Verb> verbs, IntKeyedMap<AccessLevel> accessLevels, IntKeyedMap<Company> companies) {
+            this.verbs = verbs;
+            this.accessLevels = accessLevels;
+            this.companies = companies;
+        }
+    }
+
+    private ReferenceData() {
+        //this is not used as this class is meant to be used as a static utility class
+    }
+
+    /**
+     * Reads every reference table and replaces the held copy
+     * @throws SQLException Error connecting to database or executing query
+     */
+    public static void load() throws SQLException {
+        synchronized (WRITE_LOCK) {
+            try (Connection conn = DB_CONN.connect()) {
+                List<Verb> verbs = new ArrayList<>();
+                try (PreparedStatement preparedStatement = conn.prepareStatement("SELECT verbID, name FROM verb;");
+                     ResultSet result = preparedStatement.executeQuery()) {
+                    while (result.next()) {
+                        verbs.add(new Verb(result.getInt("verbID"), result.getString("name")));
+                    }
+                }
+
+                List<AccessLevel> accessLevels = new ArrayList<>();
+                try (PreparedStatement preparedStatement = conn.prepareStatement("SELECT accessLevelID, accessLevelName FROM accessLevel;");
+                     ResultSet result = preparedStatement.executeQuery()) {
+                    while (result.next()) {
+                        accessLevels.add(new AccessLevel(result.getInt("accessLevelID"), result.getString("accessLevelName")));
+                    }
+                }
+
+                List<Company> companies = new ArrayList<>();
+                try (PreparedStatement preparedStatement = conn.prepareStatement("SELECT companyID, name FROM company;");
+                     ResultSet result = preparedStatement.executeQuery()) {
+                    while (result.next()) {
+                        companies.add(new Company(result.getInt("companyID"), result.getString("name")));
+                    }
+                }
+
+                snapshot = new Snapshot(IntKeyedMap.of(verbs, Verb::getVerbID),
+                        IntKeyedMap.of(accessLevels, AccessLevel::getAccessLevelID),
+                        IntKeyedMap.of(companies, Company::getCompanyID));
+                LOADS.increment();
+            }
+        }
+    }
+
+    /**
+     * Re-reads one company after it was inserted, updated or deleted.
+     * The row is read while writers are held off, so two changes to the same company cannot be applied out of order.
+     * @param companyID companyID of the changed company
+     * @throws SQLException Error connecting to database or executing query
+     */
+    public static void refreshCompany(final int companyID) throws SQLException {
+        synchronized (WRITE_LOCK) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                //Nothing is held yet, the first lookup reads the whole table
+                return;
+            }
+
+            Company company = null;
+            try (Connection conn = DB_CONN.connect();
+                 PreparedStatement preparedStatement = conn.prepareStatement("SELECT companyID, name FROM company WHERE companyID = ?;")) {
+                preparedStatement.setInt(1, companyID);
+                try (ResultSet result = preparedStatement.executeQuery()) {
+                    while (result.next()) {
+                        company = new Company(result.getInt("companyID"), result.getString("name"));
+                    }
+                }
+            }
+
+            IntKeyedMap<Company> companies = company == null
+                    ? current.companies.without(companyID)
+                    : current.companies.with(companyID, company);
+            snapshot = new Snapshot(current.verbs, current.accessLevels, companies);
+            COMPANY_REFRESHES.increment();
+        }
+    }
+
+    /**
+     * Get a verb by verbID
+     * @param verbID verbID to look up
+     * @return Verb or null if not found
+     * @throws SQLException Error reading the tables on first use
+     */
+    public static Verb getVerb(final int verbID) throws SQLException {
+        return current().verbs.get(verbID);
+    }
+
+    /**
+     * Get every verb
+     * @return Unmodifiable list of verbs ordered by verbID
+     * @throws SQLException Error reading the tables on first use
+     */
+    public static List<Verb> getAllVerbs() throws SQLException {
+        return current().verbs.values();
+    }
+
+    /**
+     * Get an access level by accessLevelID
+     * @param accessLevelID accessLevelID to look up
+     * @return AccessLevel or null if not found
+     * @throws SQLException Error reading the tables on first use
+     */
+    public static AccessLevel getAccessLevel(final int accessLevelID) throws SQLException {
+        return current().accessLevels.get(accessLevelID);
+    }
+
+    /**
+     * Get a company by companyID
+     * @param companyID companyID to look up
+     * @return Company or null if not found
+     * @throws SQLException Error reading the tables on first use
+     */
+    public static Company getCompany(final int companyID) throws SQLException {
+        return current().companies.get(companyID);
+    }
+
+    private static Snapshot current() throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (WRITE_LOCK) {
+                if (snapshot == null) {
+                    load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static JsonObject metrics() {
+        JsonObject json = new JsonObject();
+        Snapshot current = snapshot;
+        json.addProperty("loaded", current != null);
+        json.addProperty("verbs", current == null ? 0 : current.verbs.size());
+        json.addProperty("accessLevels", current == null ? 0 : current.accessLevels.size());
+        json.addProperty("companies", current == null ? 0 : current.companies.size());
+        json.addProperty("loads", LOADS.sum());
+        json.addProperty("companyRefreshes", COMPANY_REFRESHES.sum());
+        return json;
+    }
+}
@@ -5,7 +5,13 @@ import blink.utility.objects.Step;
 import javax.ws.rs.InternalServerErrorException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class StepDB {
 
@@ -26,10 +32,14 @@ public class StepDB {
         this.dbConn = new DBConn();
     }
 
+    StepDB(DBConn dbConn){
+        this.dbConn = dbConn;
+    }
+
     /**
-     * Retrieves all higher level steps from the database
+     * Retrieves a step and its direct children from the database
      * @param stepID stepID of step to retrieve
-     * @return step with matching stepID or null
+     * @return step with matching stepID or null, its children do not have their own children loaded
      * @throws SQLException Error connecting to the database or executing query
      */
     public Step getStep(int stepID) throws SQLException {
@@ -37,30 +47,31 @@ public class StepDB {
 
             //Prepare sql statement
             String query = "SELECT * FROM step " +
-                            "WHERE stepID = ?";
+                            "WHERE stepID = ? OR parentStepID = ? " +
+                            "ORDER BY step.orderNumber, step.stepID;";
 
             try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
                 //Execute query
                 preparedStatement.setInt(1, stepID);
+                preparedStatement.setInt(2, stepID);
 
                 try (ResultSet result = preparedStatement.executeQuery()) {
                     Step step = null;
+                    List<Step> children = new ArrayList<>();
 
                     while (result.next()) {
-                        return new Step.StepBuilder(
-                                result.getInt(WORKFLOWID),
-                                result.getBoolean(ASYNCHRONOUS),
-                                result.getBoolean(COMPLETED))
-                                .stepID(result.getInt(STEPID))
-                                .orderNumber(result.getInt(ORDERNUMBER))
-                                .description(result.getString(DESCRIPTION))
-                                .parentStep(result.getInt(PARENTSTEPID))
-                                .uuid(result.getString(UUID))
-                                .verbID(result.getInt(VERBID))
-                                .fileID(result.getInt(FILEID))
-                                .build();
+                        Step row = this.parseStep(result);
+                        if (row.getStepID() == stepID) {
+                            step = row;
+                        } else {
+                            children.add(row);
+                        }
+                    }
+
+                    if (step != null) {
+                        step.setChildren(children);
                     }
-                    //Return higher level steps
+                    //Return step
                     return step;
                 }
             }
@@ -68,93 +79,160 @@ public class StepDB {
     }
 
     /**
-     * Retrieves all higher level steps from the database
-     * @param workflowID workflowID of higher level steps to retrieve
-     * @return list of higher level steps containing lists of lower level steps
+     * Retrieves every step of a workflow in a single query and assembles the step tree in memory
+     * @param workflowID workflowID of steps to retrieve
+     * @return list of higher level steps containing lists of lower level steps, each level ordered by orderNumber
      * @throws SQLException Error connecting to the database or executing query
      */
-    public List<Step> getHigherLevelSteps(int workflowID) throws SQLException {
+    public List<Step> getStepTree(int workflowID) throws SQLException {
+        return this.getStepTrees(Collections.singletonList(workflowID))
+                .getOrDefault(workflowID, new ArrayList<>());
+    }
+
+    /**
+     * Retrieves every step of several workflows in a single query and assembles each step tree in memory
+     * @param workflowIDList workflowIDs of steps to retrieve
+     * @return map of workflowID to its higher level steps, each level ordered by orderNumber.
+     *          Workflows without steps are mapped to an empty list.
+     * @throws SQLException Error connecting to the database or executing query
+     */
+    public Map<Integer, List<Step>> getStepTrees(List<Integer> workflowIDList) throws SQLException {
+        Map<Integer, List<Step>> stepTrees = new HashMap<>();
+        for (Integer workflowID : workflowIDList) {
+            stepTrees.put(workflowID, new ArrayList<>());
+        }
+        if (stepTrees.isEmpty()) {
+            return stepTrees;
+        }
+
         try(Connection conn = this.dbConn.connect()) {
 
             //Prepare sql statement
-            String query = "SELECT * FROM step " +
-                                "WHERE parentStepID IS NULL " +
-                                "AND workflowID = ? ORDER BY step.orderNumber;";
+            //Rows come back ordered so each sibling list is filled in orderNumber order
+            StringBuilder query = new StringBuilder();
+            query.append("SELECT * FROM step WHERE workflowID IN (");
+            for (int x = 0; x < stepTrees.size(); x++) {
+                if (x == stepTrees.size() - 1) { query.append("?) "); }
+                else { query.append("?,"); }
+            }
+            query.append("ORDER BY step.orderNumber, step.stepID;");
 
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-                //Execute query
-                preparedStatement.setInt(1, workflowID);
+            try (PreparedStatement preparedStatement = conn.prepareStatement(query.toString())) {
+                //Set parameters and execute query
+                int parameterIndex = 1;
+                for (Integer workflowID : stepTrees.keySet()) {
+                    preparedStatement.setInt(parameterIndex++, workflowID);
+                }
 
                 try (ResultSet result = preparedStatement.executeQuery()) {
-                    List<Step> steps = new ArrayList<>();
-                    Step step;
+                    List<Step> lowerLevelSteps = new ArrayList<>();
+                    Map<Integer, Step> stepsByID = new HashMap<>();
 
                     while (result.next()) {
-                        step = new Step.StepBuilder(
-                                result.getInt(WORKFLOWID),
-                                result.getBoolean(ASYNCHRONOUS),
-                                result.getBoolean(COMPLETED))
-                                .stepID(result.getInt(STEPID))
-                                .orderNumber(result.getInt(ORDERNUMBER))
-                                .description(result.getString(DESCRIPTION))
-                                .parentStep(result.getInt(PARENTSTEPID))
-                                .uuid(result.getString(UUID))
-                                .verbID(result.getInt(VERBID))
-                                .fileID(result.getInt(FILEID))
-                                .build();
-
-                        steps.add(step);
+                        Step step = this.parseStep(result);
+                        step.setChildren(new ArrayList<>());
+                        stepsByID.put(step.getStepID(), step);
+
+                        if (result.getObject(PARENTSTEPID) == null) {
+                            stepTrees.get(step.getWorkflowID()).add(step);
+                        } else {
+                            lowerLevelSteps.add(step);
+                        }
+                    }
+
+                    //Attach each child to its parent, children keep the query order
+                    for (Step step : lowerLevelSteps) {
+                        Step parent = stepsByID.get(step.getParentStepID());
+                        if (parent != null) {
+                            parent.getChildren().add(step);
+                        }
+                    }
+
+                    //Refresh expanded now that the children are known
+                    for (Step step : stepsByID.values()) {
+                        step.setChildren(step.getChildren());
                     }
-                    //Return higher level steps
-                    return steps;
+
+                    return stepTrees;
                 }
             }
         }
     }
 
     /**
-     * Recursive function to getRelatedSteps to the stepID provided
-     * @param stepID stepID to check against relatedStep
-     * @return Return a list of steps
-     * @throws SQLException Error connecting to database or executing query
+     * Retrieves the leaf steps assigned to a person that are ready to be worked on.
+     * A step is ready when it and each of its ancestors is incomplete and is either the first of its siblings,
+     * follows a completed sibling or belongs to an asynchronous parent.
+     * Only the person's own incomplete steps and their ancestors are read.
+     * @param uuid UUID of the person the steps are assigned to
+     * @param companyIDList companies whose workflows to search, null to search every company
+     * @return ready steps ordered by workflow
+     * @throws SQLException Error connecting to the database or executing query
      */
-    public List<Step> getRelatedSteps(int stepID) throws SQLException {
-        try(Connection conn = this.dbConn.connect()) {
-
-            //Prepare sql statement
-            String query = "SELECT * FROM step " +
-                                "WHERE parentStepID = ? " +
-                                "ORDER BY step.orderNumber;";
-
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-                //Set parameters and execute query
-                preparedStatement.setInt(1, stepID);
+    public List<Step> getPendingSteps(String uuid, List<Integer> companyIDList) throws SQLException {
+        List<Step> pendingSteps = new ArrayList<>();
+        if (companyIDList != null && companyIDList.isEmpty()) {
+            return pendingSteps;
+        }
 
-                try (ResultSet result = preparedStatement.executeQuery()) {
-                    ArrayList<Step> steps = new ArrayList<>();
-                    Step step;
+        //Prepare sql statement
+        //chain pairs each candidate leaf with itself and every one of its ancestors
+        StringBuilder query = new StringBuilder();
+        query.append("WITH RECURSIVE chain (leafID, stepID) AS (" +
+                        "SELECT step.stepID, step.stepID FROM step " +
+                            "JOIN workflow ON (workflow.workflowID = step.workflowID) " +
+                            "JOIN milestone ON (milestone.milestoneID = workflow.milestoneID) " +
+                            "WHERE step.UUID = ? AND step.completed = 0 AND workflow.archived = 0 " +
+                            "AND NOT EXISTS (SELECT 1 FROM step AS child WHERE child.parentStepID = step.stepID) ");
+        if (companyIDList != null) {
+            query.append("AND milestone.companyID IN (");
+            for (int x = 0; x < companyIDList.size(); x++) {
+                if (x == companyIDList.size() - 1) { query.append("?) "); }
+                else { query.append("?,"); }
+            }
+        }
+        query.append("UNION ALL " +
+                        "SELECT chain.leafID, step.parentStepID FROM chain " +
+                            "JOIN step ON (step.stepID = chain.stepID) " +
+                            "WHERE step.parentStepID IS NOT NULL) " +
+                    "SELECT step.* FROM step " +
+                        "WHERE step.stepID IN (SELECT chain.leafID FROM chain) " +
+                        //A leaf is blocked if any step on its chain is complete or waits on the sibling before it
+                        "AND NOT EXISTS (SELECT 1 FROM chain " +
+                            "JOIN step AS node ON (node.stepID = chain.stepID) " +
+                            "LEFT JOIN step AS parent ON (parent.stepID = node.parentStepID) " +
+                            "WHERE chain.leafID = step.stepID " +
+                            "AND (node.completed = 1 " +
+                                "OR (COALESCE(parent.asynchronous, 0) = 0 " +
+                                    "AND (SELECT previous.completed FROM step AS previous " +
+                                        "WHERE previous.workflowID = node.workflowID " +
+                                        "AND previous.parentStepID <=> node.parentStepID " +
+                                        "AND (previous.orderNumber < node.orderNumber " +
+                                            "OR (previous.orderNumber = node.orderNumber AND previous.stepID < node.stepID)) " +
+                                        "ORDER BY previous.orderNumber DESC, previous.stepID DESC LIMIT 1) = 0))) " +
+                        "ORDER BY step.workflowID, step.orderNumber, step.stepID;");
+
+        try (Connection conn = this.dbConn.connect();
+             PreparedStatement preparedStatement = conn.prepareStatement(query.toString())) {
+
+            //Set parameters and execute query
+            int parameterIndex = 1;
+            preparedStatement.setString(parameterIndex++, uuid);
+            if (companyIDList != null) {
+                for (Integer companyID : companyIDList) {
+                    preparedStatement.setInt(parameterIndex++, companyID);
+                }
+            }
 
-                    while (result.next()) {
-                        step = new Step.StepBuilder(
-                                result.getInt(WORKFLOWID),
-                                result.getBoolean(ASYNCHRONOUS),
-                                result.getBoolean(COMPLETED))
-                                .stepID(result.getInt(STEPID))
-                                .orderNumber(result.getInt(ORDERNUMBER))
-                                .description(result.getString(DESCRIPTION))
-                                .parentStep(result.getInt(PARENTSTEPID))
-                                .uuid(result.getString(UUID))
-                                .verbID(result.getInt(VERBID))
-                                .fileID(result.getInt(FILEID))
-                                .build();
-
-                        steps.add(step);
-                    }
-                    //Return higher level steps
-                    return steps;
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                while (result.next()) {
+                    Step step = this.parseStep(result);
+                    step.setChildren(new ArrayList<>());
+                    pendingSteps.add(step);
                 }
             }
         }
+        return pendingSteps;
     }
 
     /**
@@ -192,7 +270,6 @@ public class StepDB {
                 }
                 counter++;
             }
-            conn.commit();
         }
 
         return numInsertedSteps;
@@ -257,18 +334,241 @@ public class StepDB {
 
                 preparedStatement.execute();
             }
+
+            //The step is part of its workflow, so the workflow has changed too
+            try(PreparedStatement preparedStatement = conn.prepareStatement("UPDATE workflow SET version = version + 1 WHERE workflowID = ?;")) {
+                preparedStatement.setInt(1, step.getWorkflowID());
+                preparedStatement.executeUpdate();
+            }
         }
     }
 
     /**
-     * Connect to the database and updateSteps
-     * @param steps list of steps to insert into database
-     * @throws SQLException Error connecting to the database or executing update
+     * Locks and retrieves every step of a workflow without assembling the tree
+     * @param workflowID workflowID of steps to retrieve
+     * @param conn connection with an open transaction, the rows stay locked until it ends
+     * @return map of stepID to stored step
+     * @throws SQLException Error executing query
+     */
+    public Map<Integer, Step> getStepsForUpdate(int workflowID, Connection conn) throws SQLException {
+        Map<Integer, Step> storedSteps = new HashMap<>();
+
+        //Prepare sql statement
+        String query = "SELECT * FROM step WHERE step.workflowID = ? FOR UPDATE;";
+
+        try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, workflowID);
+
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                while (result.next()) {
+                    Step step = this.parseStep(result);
+                    storedSteps.put(step.getStepID(), step);
+                }
+            }
+        }
+        return storedSteps;
+    }
+
+    /**
+     * Brings the stored steps of a workflow in line with an updated step tree.
+     * Steps are matched by stepID, only steps that were added, changed or removed are written.
+     * Added steps are given their new stepID.
+     * @param workflowID workflowID of the steps
+     * @param steps updated higher level steps containing lists of lower level steps
+     * @param storedSteps steps currently stored for the workflow, from getStepsForUpdate
+     * @param conn connection with an open transaction, the caller commits
+     * @return number of inserted, updated and deleted steps
+     * @throws SQLException Error executing update
      */
-    public int updateSteps(List<Step> steps, Connection conn) throws SQLException {
-        this.deleteStepsByWorkflowID(steps.get(0).getWorkflowID(), conn);
+    public int updateSteps(int workflowID, List<Step> steps, Map<Integer, Step> storedSteps, Connection conn) throws SQLException {
+        int numChangedSteps = 0;
+
+        //Group the tree by depth so parents are inserted, and know their stepID, before their children
+        List<List<PlacedStep>> levels = new ArrayList<>();
+        this.placeSteps(steps, null, 0, levels);
+
+        String insertQuery = "INSERT INTO step (orderNumber, description, parentStepID, UUID, verbID, fileID, workflowID, completed, asynchronous) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);";
+        String updateQuery = "UPDATE step " +
+                                "SET orderNumber = ?, description = ?, parentStepID = ?, UUID = ?, verbID = ?, fileID = ?, workflowID = ?, completed = ?, asynchronous = ? " +
+                                "WHERE stepID = ?;";
+        String deleteQuery = "DELETE FROM step WHERE stepID = ?;";
+
+        Set<Integer> keptStepIDs = new HashSet<>();
+        try (PreparedStatement insertStatement = conn.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement updateStatement = conn.prepareStatement(updateQuery);
+             PreparedStatement deleteStatement = conn.prepareStatement(deleteQuery)) {
+
+            int numUpdates = 0;
+            for (List<PlacedStep> level : levels) {
+                List<Step> insertedSteps = new ArrayList<>();
+
+                for (PlacedStep placedStep : level) {
+                    Step step = placedStep.step;
+                    step.setWorkflowID(workflowID);
+                    step.setOrderNumber(placedStep.orderNumber);
+                    step.setParentStepID(placedStep.parent == null ? 0 : placedStep.parent.getStepID());
+
+                    //Steps that are not stored for this workflow, or appear twice, are new
+                    Step storedStep = storedSteps.get(step.getStepID());
+                    if (storedStep == null || !keptStepIDs.add(step.getStepID())) {
+                        this.setStepParameters(insertStatement, step);
+                        insertStatement.addBatch();
+                        insertedSteps.add(step);
+                    } else if (!this.isSameRow(storedStep, step)) {
+                        this.setStepParameters(updateStatement, step);
+                        updateStatement.setInt(10, step.getStepID());
+                        updateStatement.addBatch();
+                        numUpdates++;
+                    }
+                }
+
+                if (!insertedSteps.isEmpty()) {
+                    insertStatement.executeBatch();
+                    try (ResultSet insertedKeys = insertStatement.getGeneratedKeys()) {
+                        for (Step step : insertedSteps) {
+                            insertedKeys.next();
+                            step.setStepID(insertedKeys.getInt(1));
+                        }
+                    }
+                    numChangedSteps += insertedSteps.size();
+                }
+            }
+
+            if (numUpdates > 0) {
+                updateStatement.executeBatch();
+                numChangedSteps += numUpdates;
+            }
+
+            int numDeletes = 0;
+            for (Integer stepID : storedSteps.keySet()) {
+                if (!keptStepIDs.contains(stepID)) {
+                    deleteStatement.setInt(1, stepID);
+                    deleteStatement.addBatch();
+                    numDeletes++;
+                }
+            }
+            if (numDeletes > 0) {
+                deleteStatement.executeBatch();
+                numChangedSteps += numDeletes;
+            }
+        }
+
+        return numChangedSteps;
+    }
 
-        return this.insertSteps(steps, conn);
+    /**
+     * Recursively records the depth, parent and position of every step in a tree
+     * @param steps sibling steps
+     * @param parent parent of the siblings, null for higher level steps
+     * @param depth depth of the siblings
+     * @param levels steps grouped by depth
+     */
+    private void placeSteps(List<Step> steps, Step parent, int depth, List<List<PlacedStep>> levels) {
+        if (steps == null || steps.isEmpty()) {
+            return;
+        }
+        if (levels.size() == depth) {
+            levels.add(new ArrayList<>());
+        }
+
+        int counter = 1;
+        for (Step step : steps) {
+            levels.get(depth).add(new PlacedStep(step, parent, counter));
+            this.placeSteps(step.getChildren(), step, depth + 1, levels);
+            counter++;
+        }
+    }
+
+    /**
+     * Sets the first nine parameters of an insert or update statement, in insert column order
+     * @param preparedStatement statement to set parameters on
+     * @param step step to read values from
+     * @throws SQLException Error setting parameters
+     */
+    private void setStepParameters(PreparedStatement preparedStatement, Step step) throws SQLException {
+        preparedStatement.setInt(1, step.getOrderNumber());
+        preparedStatement.setString(2, step.getDescription());
+        if (step.getParentStepID() == 0) {
+            preparedStatement.setNull(3, Types.INTEGER);
+        } else {
+            preparedStatement.setInt(3, step.getParentStepID());
+        }
+        preparedStatement.setString(4, step.getUUID());
+        preparedStatement.setInt(5, step.getVerbID());
+        preparedStatement.setInt(6, step.getFileID());
+        preparedStatement.setInt(7, step.getWorkflowID());
+        preparedStatement.setBoolean(8, step.getCompleted());
+        preparedStatement.setBoolean(9, step.getAsynchronous());
+    }
+
+    /**
+     * Compares the stored columns of two steps
+     * @return true if writing step over storedStep would change nothing
+     */
+    private boolean isSameRow(Step storedStep, Step step) {
+        return storedStep.getOrderNumber() == step.getOrderNumber()
+                && Objects.equals(storedStep.getDescription(), step.getDescription())
+                && storedStep.getParentStepID() == step.getParentStepID()
+                && Objects.equals(storedStep.getUUID(), step.getUUID())
+                && storedStep.getVerbID() == step.getVerbID()
+                && storedStep.getFileID() == step.getFileID()
+                && storedStep.getCompleted() == step.getCompleted()
+                && storedStep.getAsynchronous() == step.getAsynchronous();
+    }
+
+    /**
+     * Marks a single step complete and completes each ancestor whose children are now all complete.
+     * Only the step and the ancestors that change are written.
+     * @param stepID stepID of the step to complete
+     * @param conn connection with an open transaction holding the lock on the workflow row
+     * @return true if the step was not complete before
+     * @throws SQLException Error executing query or update
+     */
+    public boolean completeStep(int stepID, Connection conn) throws SQLException {
+        //Prepare sql statements
+        String lockQuery = "SELECT step.parentStepID FROM step WHERE step.stepID = ? FOR UPDATE;";
+        String completeQuery = "UPDATE step SET completed = 1 WHERE step.stepID = ? AND completed = 0;";
+        String remainingQuery = "SELECT COUNT(*) AS remaining FROM step WHERE step.parentStepID = ? AND completed = 0;";
+
+        try (PreparedStatement lockStatement = conn.prepareStatement(lockQuery);
+             PreparedStatement completeStatement = conn.prepareStatement(completeQuery);
+             PreparedStatement remainingStatement = conn.prepareStatement(remainingQuery)) {
+
+            boolean stepCompleted = false;
+            int currentStepID = stepID;
+            while (true) {
+                //Lock the step and find its parent
+                lockStatement.setInt(1, currentStepID);
+                int parentStepID;
+                try (ResultSet result = lockStatement.executeQuery()) {
+                    if (!result.next()) {
+                        return stepCompleted;
+                    }
+                    parentStepID = result.getInt(PARENTSTEPID);
+                }
+
+                completeStatement.setInt(1, currentStepID);
+                int numCompleted = completeStatement.executeUpdate();
+                if (currentStepID == stepID) {
+                    stepCompleted = numCompleted > 0;
+                }
+
+                if (parentStepID == 0) {
+                    return stepCompleted;
+                }
+
+                //Stop rolling up at the first ancestor that still has incomplete children
+                remainingStatement.setInt(1, parentStepID);
+                try (ResultSet result = remainingStatement.executeQuery()) {
+                    result.next();
+                    if (result.getInt("remaining") > 0) {
+                        return stepCompleted;
+                    }
+                }
+                currentStepID = parentStepID;
+            }
+        }
     }
 
     /**
@@ -286,4 +586,40 @@ public class StepDB {
             return preparedStatement.executeUpdate();
         }
     }
+
+    /**
+     * Builds a step from the current row of a result set
+     * @param result result set positioned on a step row
+     * @return step built from the row
+     * @throws SQLException Error reading from the result set
+     */
+    private Step parseStep(ResultSet result) throws SQLException {
+        return new Step.StepBuilder(
+                result.getInt(WORKFLOWID),
+                result.getBoolean(ASYNCHRONOUS),
+                result.getBoolean(COMPLETED))
+                .stepID(result.getInt(STEPID))
+                .orderNumber(result.getInt(ORDERNUMBER))
+                .description(result.getString(DESCRIPTION))
+                .parentStep(result.getInt(PARENTSTEPID))
+                .uuid(result.getString(UUID))
+                .verbID(result.getInt(VERBID))
+                .fileID(result.getInt(FILEID))
+                .build();
+    }
+
+    /**
+     * A step of an updated tree with the parent and position it will be stored with
+     */
+    private static class PlacedStep {
+        private final Step step;
+        private final Step parent;
+        private final int orderNumber;
+
+        private PlacedStep(Step step, Step parent, int orderNumber) {
+            this.step = step;
+            this.parent = parent;
+            this.orderNumber = orderNumber;
+        }
+    }
 }
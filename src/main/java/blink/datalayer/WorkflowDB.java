@@ -1,7 +1,10 @@
 package blink.datalayer;
 
-import blink.businesslayer.CompanyBusiness;
 import blink.businesslayer.StepBusiness;
+import blink.utility.objects.Company;
+import blink.utility.objects.EntityVersion;
+import blink.utility.objects.ListQuery;
+import blink.utility.objects.Page;
 import blink.utility.objects.Step;
 import blink.utility.objects.Workflow;
 import com.google.gson.Gson;
@@ -13,20 +16,31 @@ import javax.ws.rs.InternalServerErrorException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public class WorkflowDB {
     private DBConn dbConn;
     private StepBusiness stepBusiness;
-    private CompanyBusiness companyBusiness;
+    private StepDB stepDB;
+    private MilestoneDB milestoneDB;
     private String joinStatement;
     private String leftJoinStatement;
 
+    //Summary columns leave out the description, the steps are not loaded for a summary either
+    private static final String SUMMARY_COLUMNS = "workflow.workflowID, workflow.name, workflow.createdDate, workflow.lastUpdatedDate, " +
+            "workflow.startDate, workflow.deliveryDate, workflow.completedDate, workflow.archived, workflow.milestoneID, " +
+            "workflow.leafSteps, workflow.completedLeafSteps, milestone.companyID ";
+    //Version checks read only these, never the description or the steps
+    private static final String VERSION_COLUMNS = "SELECT workflow.workflowID, workflow.version, workflow.lastModified, milestone.companyID FROM workflow ";
+
     public WorkflowDB(){
         this.dbConn = new DBConn();
         this.stepBusiness = new StepBusiness();
-        this.companyBusiness = new CompanyBusiness();
+        this.stepDB = new StepDB();
+        this.milestoneDB = new MilestoneDB();
 
         this.joinStatement = "SELECT * FROM workflow " +
                                         "JOIN milestone ON (workflow.milestoneID = milestone.milestoneID) ";
@@ -35,73 +49,42 @@ public class WorkflowDB {
     }
 
     /**
-     * Get all workflows
-     * @return List of workflow objects
+     * Get one page of workflows, ordered by workflowID
+     * @param companyIDList Only workflows of milestones of these companies, null for workflows of any company
+     * @param listQuery Page and filters requested by the client. Template workflows are only listed when no
+     *                  company, archived or delivery date filter applies
+     * @return Page of workflow objects, without steps or descriptions if a summary was requested
      * @throws SQLException Error connecting to database or executing query
      */
-    public List<Workflow> getAllWorkflows() throws SQLException {
-        try(Connection conn = this.dbConn.connect()) {
-
-            //Prepare sql statement
-            String query = this.leftJoinStatement;
-
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-
-                //Set parameters and execute query
-                try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Workflow> workflowList = new ArrayList<>();
-                    while (result.next()) {
-                        workflowList.add(this.parseWorkflow(result));
-                    }
-
-                    //Return milestone
-                    return workflowList;
-                }
-            }
+    public Page<Workflow> getWorkflows(final List<Integer> companyIDList, final ListQuery listQuery) throws SQLException {
+        if(companyIDList != null && companyIDList.isEmpty()){
+            return new Page<>(new ArrayList<>(), null);
         }
-    }
 
-    /**
-     * Get all workflows pertaining to a list of CompanyID's
-     * @param companyIDList List of company IDs to retrieve workflows by
-     * @return List of workflow objects assigned to company with companyID
-     * @throws SQLException Error connecting to database or executing query
-     */
-    public List<Workflow> getAllWorkflows(final List<Integer> companyIDList) throws SQLException {
-        if(companyIDList.isEmpty()){
-            return new ArrayList<>();
+        //Prepare sql statement, template workflows have no milestone and are left out by the inner join
+        String select = listQuery.getArchived() == null ? this.leftJoinStatement : this.joinStatement;
+        if(listQuery.isSummary()){
+            select = select.replace("SELECT * ", "SELECT " + SUMMARY_COLUMNS);
         }
-        try(Connection conn = this.dbConn.connect()) {
-
-            //Prepare sql statement
-            StringBuilder query = new StringBuilder();
-            query.append(this.leftJoinStatement);
-            query.append("WHERE milestone.companyID IN (");
-            for(int x = 0; x < companyIDList.size(); x++){
-                if(x == companyIDList.size()-1){ query.append("?);"); }
-                else{ query.append("?,"); }
-            }
-
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query.toString())) {
-
-                //Set parameters and execute query
-                for(int x = 0; x < companyIDList.size(); x++){
-                    preparedStatement.setInt(x+1, companyIDList.get(x));
-                }
-
-                try (ResultSet result = preparedStatement.executeQuery()) {
+        PagedQuery query = new PagedQuery(select, listQuery)
+                .whereCompanyIn("milestone.companyID", companyIDList)
+                .whereArchivedAndDelivered("workflow.archived", "workflow.deliveryDate");
 
-                    List<Workflow> workflowList = new ArrayList<>();
-                    while (result.next()) {
-                        workflowList.add(this.parseWorkflow(result));
-                    }
+        List<WorkflowRow> workflowRows = new ArrayList<>();
+        try(Connection conn = this.dbConn.connect();
+            PreparedStatement preparedStatement = query.prepare(conn, "workflow.workflowID", true)) {
 
-                    //Return workflow
-                    return workflowList;
+            //Execute query
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                while (result.next()) {
+                    workflowRows.add(this.parseWorkflowRow(result, !listQuery.isSummary()));
                 }
             }
         }
+
+        //Fill in steps and companies for the workflows of this page only
+        String nextCursor = query.trim(workflowRows, row -> row.workflowID);
+        return new Page<>(this.hydrateWorkflows(workflowRows, !listQuery.isSummary()), nextCursor);
     }
 
     /**
@@ -110,6 +93,7 @@ public class WorkflowDB {
      * @throws SQLException Error connecting to database or executing query
      */
     public List<Workflow> getTemplateWorkflows() throws SQLException {
+        List<WorkflowRow> workflowRows = new ArrayList<>();
         try(Connection conn = this.dbConn.connect()) {
 
             //Prepare sql statement
@@ -120,93 +104,15 @@ public class WorkflowDB {
 
                 //Execute query
                 try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Workflow> workflowList = new ArrayList<>();
-                    while (result.next()) {
-                        workflowList.add(this.parseWorkflow(result));
-                    }
-
-                    //Return milestone
-                    return workflowList;
-                }
-            }
-        }
-    }
-
-    /**
-     * Get all workflows based on archived or not archived
-     * @param archived Search for either archived or unarchived workflows
-     * @return List of workflow objects
-     * @throws SQLException Error connecting to database or executing query
-     */
-    public List<Workflow> getConcreteWorkflows(final boolean archived) throws SQLException {
-        try(Connection conn = this.dbConn.connect()) {
-
-            //Prepare sql statement
-            String query = this.joinStatement +
-                            "WHERE workflow.archived = ?;";
-
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
-
-                //Set parameters and execute query
-                preparedStatement.setBoolean(1, archived);
-                try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Workflow> workflowList = new ArrayList<>();
                     while (result.next()) {
-                        workflowList.add(this.parseWorkflow(result));
+                        workflowRows.add(this.parseWorkflowRow(result, true));
                     }
-
-                    //Return workflow
-                    return workflowList;
                 }
             }
         }
-    }
-
-    /**
-     * Get all workflows based on archived or not archived pertaining to a set of companies
-     * @param companyIDList List of company IDs to retrieve workflows by
-     * @param archived Search for either archived or unarchived workflows
-     * @return List of workflow objects
-     * @throws SQLException Error connecting to database or executing query
-     */
-    public List<Workflow> getConcreteWorkflows(final List<Integer> companyIDList, final boolean archived) throws SQLException {
-        if(companyIDList.isEmpty()){
-            return new ArrayList<>();
-        }
-
-        try(Connection conn = this.dbConn.connect()) {
 
-            //Prepare sql statement
-            StringBuilder query = new StringBuilder();
-            query.append(this.leftJoinStatement);
-            query.append("WHERE workflow.archived = ? " +
-                            "AND milestone.companyID IN (");
-            for(int x = 0; x < companyIDList.size(); x++){
-                if(x == companyIDList.size()-1){ query.append("?);"); }
-                else{ query.append("?,"); }
-            }
-
-            try (PreparedStatement preparedStatement = conn.prepareStatement(query.toString())) {
-
-                //Set parameters and execute query
-                preparedStatement.setBoolean(1, archived);
-                for(int x = 0; x < companyIDList.size(); x++){
-                    preparedStatement.setInt(x+2, companyIDList.get(x));
-                }
-                try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Workflow> workflowList = new ArrayList<>();
-                    while (result.next()) {
-                        workflowList.add(this.parseWorkflow(result));
-                    }
-
-                    //Return workflow
-                    return workflowList;
-                }
-            }
-        }
+        //Fill in steps and companies for every workflow at once
+        return this.hydrateWorkflows(workflowRows, true);
     }
 
     /**
@@ -216,6 +122,7 @@ public class WorkflowDB {
      * @throws SQLException Error connecting to database or executing query
      */
     public List<Workflow> getWorkflowsByMilestoneID(final int milestoneID) throws SQLException {
+        List<WorkflowRow> workflowRows = new ArrayList<>();
         try(Connection conn = this.dbConn.connect()) {
 
             //Prepare sql statement
@@ -227,18 +134,15 @@ public class WorkflowDB {
                 //Set parameters and execute query
                 preparedStatement.setInt(1, milestoneID);
                 try (ResultSet result = preparedStatement.executeQuery()) {
-
-                    List<Workflow> workflowList = new ArrayList<>();
-
                     while (result.next()) {
-                        workflowList.add(this.parseWorkflow(result));
+                        workflowRows.add(this.parseWorkflowRow(result, true));
                     }
-
-                    //Return milestone
-                    return workflowList;
                 }
             }
         }
+
+        //Fill in steps and companies for every workflow at once
+        return this.hydrateWorkflows(workflowRows, true);
     }
 
     /**
@@ -252,23 +156,78 @@ public class WorkflowDB {
         String query = this.leftJoinStatement +
                         "WHERE workflow.workflowID = ?;";
 
+        List<WorkflowRow> workflowRows = new ArrayList<>();
         try (Connection conn = this.dbConn.connect();
              PreparedStatement preparedStatement = conn.prepareStatement(query)) {
 
             //Set parameters and execute query
             preparedStatement.setInt(1, workflowID);
             try (ResultSet result = preparedStatement.executeQuery()) {
+                while (result.next()) {
+                    workflowRows.add(this.parseWorkflowRow(result, true));
+                }
+            }
+        }
+
+        //Return workflow
+        List<Workflow> workflows = this.hydrateWorkflows(workflowRows, true);
+        return workflows.isEmpty() ? null : workflows.get(workflows.size() - 1);
+    }
+
+    /**
+     * Get the version of a workflow without reading its steps
+     * @param workflowID workflowID of the workflow
+     * @return version of the workflow, holding the company of its milestone, or null if not found
+     * @throws SQLException Error connecting to database or executing query
+     */
+    public EntityVersion getWorkflowVersion(final int workflowID) throws SQLException {
+        //Prepare sql statement
+        String query = VERSION_COLUMNS + "LEFT JOIN milestone ON (workflow.milestoneID = milestone.milestoneID) " +
+                        "WHERE workflow.workflowID = ?;";
 
-                Workflow workflow = null;
+        try (Connection conn = this.dbConn.connect();
+             PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+
+            //Set parameters and execute query
+            preparedStatement.setInt(1, workflowID);
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                return result.next() ? this.parseVersion(result) : null;
+            }
+        }
+    }
 
+    /**
+     * Get the versions of one page of workflows, the page getWorkflows returns for the same arguments
+     * @param companyIDList Only workflows of milestones of these companies, null for workflows of any company
+     * @param listQuery Page and filters requested by the client
+     * @return Page of workflow versions
+     * @throws SQLException Error connecting to database or executing query
+     */
+    public Page<EntityVersion> getWorkflowVersions(final List<Integer> companyIDList, final ListQuery listQuery) throws SQLException {
+        if(companyIDList != null && companyIDList.isEmpty()){
+            return new Page<>(new ArrayList<>(), null);
+        }
+
+        //Prepare sql statement, template workflows have no milestone and are left out by the inner join
+        String join = listQuery.getArchived() == null ? "LEFT JOIN " : "JOIN ";
+        PagedQuery query = new PagedQuery(VERSION_COLUMNS + join + "milestone ON (workflow.milestoneID = milestone.milestoneID) ", listQuery)
+                .whereCompanyIn("milestone.companyID", companyIDList)
+                .whereArchivedAndDelivered("workflow.archived", "workflow.deliveryDate");
+
+        List<EntityVersion> versions = new ArrayList<>();
+        try(Connection conn = this.dbConn.connect();
+            PreparedStatement preparedStatement = query.prepare(conn, "workflow.workflowID", true)) {
+
+            //Execute query
+            try (ResultSet result = preparedStatement.executeQuery()) {
                 while (result.next()) {
-                    workflow = this.parseWorkflow(result);
+                    versions.add(this.parseVersion(result));
                 }
-
-                //Return workflow
-                return workflow;
             }
         }
+
+        String nextCursor = query.trim(versions, EntityVersion::getId);
+        return new Page<>(versions, nextCursor);
     }
 
     /**
@@ -282,9 +241,8 @@ public class WorkflowDB {
         String query = "INSERT INTO workflow (name, description, createdDate, lastUpdatedDate) " +
                             "VALUES (?, ?, ?, ?);";
 
-        try {
-            Connection conn = this.dbConn.connect();
-
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
             try(PreparedStatement preparedStatement = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
 
                 //Set parameters and execute update
@@ -295,26 +253,23 @@ public class WorkflowDB {
 
                 preparedStatement.executeUpdate();
 
+                int workflowID;
                 try (ResultSet insertedKeys = preparedStatement.getGeneratedKeys()) {
                     insertedKeys.next();
+                    workflowID = insertedKeys.getInt(1);
+                }
 
-                    int workflowID = insertedKeys.getInt(1);
-
-                    //Convert step json to jsonArray using new workflowID
-                    this.stepBusiness.insertSteps(steps, workflowID, conn);
+                //Convert step json to jsonArray using new workflowID
+                this.stepBusiness.insertSteps(steps, workflowID, conn);
+                this.refreshProgress(workflowID, conn);
 
-                    return workflowID;
-                }
+                conn.commit();
+                return workflowID;
             }
             catch (Exception e) {
                 conn.rollback();
-                conn.close();
                 throw e;
             }
-            finally {
-                conn.commit();
-                conn.close();
-            }
         }
         catch(SQLException sqle){
             throw new SQLException(sqle.getMessage());
@@ -332,10 +287,8 @@ public class WorkflowDB {
         String query = "INSERT INTO workflow (name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, milestoneID) " +
                             "VALUES (?, ?, ?, ?, ?, ?, ?);";
 
-        try {
-            Connection conn = this.dbConn.connect();
+        try (Connection conn = this.dbConn.connect()) {
             conn.setAutoCommit(false);
-
             try(PreparedStatement preparedStatement = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
 
                 //Set parameters and execute update
@@ -349,25 +302,22 @@ public class WorkflowDB {
 
                 preparedStatement.executeUpdate();
 
+                int workflowID;
                 try (ResultSet insertedKeys = preparedStatement.getGeneratedKeys()) {
                     insertedKeys.next();
+                    workflowID = insertedKeys.getInt(1);
+                }
 
-                    int workflowID = insertedKeys.getInt(1);
-
-                    //Convert step json to jsonArray using new workflowID
-                    this.stepBusiness.insertSteps(steps, workflowID, conn);
+                //Convert step json to jsonArray using new workflowID
+                this.stepBusiness.insertSteps(steps, workflowID, conn);
+                this.refreshProgress(workflowID, conn);
 
-                    return workflowID;
-                }
-                catch (Exception e) {
-                    conn.rollback();
-                    conn.close();
-                    throw e;
-                }
-                finally {
-                    conn.commit();
-                    conn.close();
-                }
+                conn.commit();
+                return workflowID;
+            }
+            catch (Exception e) {
+                conn.rollback();
+                throw e;
             }
         }
         catch(SQLException sqle){
@@ -386,12 +336,11 @@ public class WorkflowDB {
     public void updateWorkflow(final int workflowID, final String name, final String description, final Date lastUpdatedDate, List<Step> steps) throws SQLException {
         //Prepare sql statement
         String query = "UPDATE workflow " +
-                       "SET name = ?, description = ?, lastUpdatedDate = ? " +
+                       "SET name = ?, description = ?, lastUpdatedDate = ?, version = version + 1 " +
                        "WHERE workflowID = ?;";
 
-        try {
-            Connection conn = this.dbConn.connect();
-
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
             try(PreparedStatement preparedStatement = conn.prepareStatement(query)) {
 
                 //Set parameters and execute update
@@ -402,17 +351,15 @@ public class WorkflowDB {
 
                 preparedStatement.executeUpdate();
 
-                this.stepBusiness.updateSteps(steps, conn);
+                this.stepBusiness.updateSteps(workflowID, steps, conn);
+                this.refreshProgress(workflowID, conn);
+
+                conn.commit();
             }
             catch (Exception e) {
                 conn.rollback();
-                conn.close();
                 throw e;
             }
-            finally {
-                conn.commit();
-                conn.close();
-            }
         }
         catch(SQLException sqle){
             throw new SQLException(sqle.getMessage());
@@ -433,11 +380,11 @@ public class WorkflowDB {
     public void updateWorkflow(final int workflowID, final String name, final String description, final Date lastUpdatedDate, final Date startDate, final Date deliveryDate, final Date completedDate, List<Step> steps) throws SQLException {
         //Prepare sql statement
         String query = "UPDATE workflow " +
-                       "SET name = ?, description = ?, lastUpdatedDate = ?, startDate = ?, deliveryDate = ?, completedDate = ? " +
+                       "SET name = ?, description = ?, lastUpdatedDate = ?, startDate = ?, deliveryDate = ?, completedDate = ?, version = version + 1 " +
                        "WHERE workflowID = ?;";
 
-        try {
-            Connection conn = this.dbConn.connect();
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
             try(PreparedStatement preparedStatement = conn.prepareStatement(query)) {
 
                 //Set parameters and execute update
@@ -451,17 +398,15 @@ public class WorkflowDB {
 
                 preparedStatement.executeUpdate();
 
-                this.stepBusiness.updateSteps(steps, conn);
+                this.stepBusiness.updateSteps(workflowID, steps, conn);
+                this.refreshProgress(workflowID, conn);
+
+                conn.commit();
             }
             catch (Exception e) {
                 conn.rollback();
-                conn.close();
                 throw e;
             }
-            finally {
-                conn.commit();
-                conn.close();
-            }
         }
         catch(SQLException sqle){
             throw new SQLException(sqle.getMessage());
@@ -480,26 +425,28 @@ public class WorkflowDB {
         String query = "DELETE FROM workflow " +
                             "WHERE workflow.workflowID = ?;";
 
-        try {
-            Connection conn = this.dbConn.connect();
-
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
             try(PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+                Integer milestoneID = this.lockMilestoneID(workflowID, conn);
 
                 //Set parameters and execute update
                 preparedStatement.setInt(1, workflowID);
                 numDeletedRows = preparedStatement.executeUpdate();
 
                 this.stepBusiness.deleteStepsByWorkflowID(Integer.toString(workflowID), conn);
+
+                //The milestone no longer counts the steps of this workflow
+                if (milestoneID != null) {
+                    this.milestoneDB.refreshProgress(milestoneID, new Date(), conn);
+                }
+
+                conn.commit();
             }
             catch (Exception e) {
                 conn.rollback();
-                conn.close();
                 throw e;
             }
-            finally {
-                conn.commit();
-                conn.close();
-            }
         }
         catch(SQLException sqle){
             throw new SQLException(sqle.getMessage());
@@ -516,7 +463,7 @@ public class WorkflowDB {
      */
     public void updateWorkflowArchiveStatus(final int workflowID, boolean archiveStatus) throws SQLException {
         //Prepare sql statement
-        String query = "UPDATE workflow SET archived = ? " +
+        String query = "UPDATE workflow SET archived = ?, version = version + 1 " +
                             "WHERE workflowID = ?;";
 
         try(Connection conn = this.dbConn.connect();
@@ -530,24 +477,222 @@ public class WorkflowDB {
         }
     }
 
-    private Workflow parseWorkflow(ResultSet result){
-        try {
-            String workflowID = result.getString("workflowID");
-            return new Workflow(Integer.parseInt(workflowID),
-                    result.getString("workflow.name"),
-                    result.getString("workflow.description"),
-                    result.getDate("workflow.createdDate"),
-                    result.getDate("workflow.lastUpdatedDate"),
-                    result.getDate("workflow.startDate"),
-                    result.getDate("workflow.deliveryDate"),
-                    result.getDate("workflow.completedDate"),
-                    result.getBoolean("workflow.archived"),
-                    result.getString("milestone.companyID") == null ? null : this.companyBusiness.getCompanyByID(result.getString("milestone.companyID")),
-                    result.getString("workflow.milestoneID") == null ? 0 : result.getInt("workflow.milestoneID"),
-                    this.stepBusiness.getSteps(workflowID)
-            );
-        }catch(Exception e){
-            throw new InternalServerErrorException(e.getMessage());
+    /**
+     * Marks a step of a concrete workflow complete, rolling the completion up its ancestors.
+     * Keeps the progress counters of the workflow and its milestone in step, and sets their
+     * completed dates once every leaf step is complete.
+     * The workflow row is locked for the duration, which serializes this with other writes to the workflow.
+     * @param workflowID ID of the workflow the step belongs to
+     * @param stepID ID of the step to complete
+     * @param completedDate The date to set the completedDate to if the workflow completes
+     * @return false if the workflow does not exist or is a template, nothing is changed in that case
+     * @throws SQLException Error connecting to database or executing statement
+     */
+    public boolean completeStep(final int workflowID, final int stepID, final Date completedDate) throws SQLException {
+        //Prepare sql statements
+        String lockQuery = "SELECT workflow.milestoneID, workflow.leafSteps, workflow.completedLeafSteps FROM workflow " +
+                                "WHERE workflow.workflowID = ? FOR UPDATE;";
+        String progressQuery = "UPDATE workflow SET completedLeafSteps = completedLeafSteps + 1, version = version + 1 WHERE workflowID = ?;";
+        String completedQuery = "UPDATE workflow SET completedDate = ?, version = version + 1 " +
+                                    "WHERE workflowID = ? AND completedDate IS NULL;";
+
+        try (Connection conn = this.dbConn.connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement lockStatement = conn.prepareStatement(lockQuery);
+                 PreparedStatement progressStatement = conn.prepareStatement(progressQuery);
+                 PreparedStatement completedStatement = conn.prepareStatement(completedQuery)) {
+
+                int milestoneID;
+                int leafSteps;
+                int completedLeafSteps;
+                lockStatement.setInt(1, workflowID);
+                try (ResultSet result = lockStatement.executeQuery()) {
+                    if (!result.next() || result.getObject("milestoneID") == null) {
+                        conn.rollback();
+                        return false;
+                    }
+                    milestoneID = result.getInt("milestoneID");
+                    leafSteps = result.getInt("leafSteps");
+                    completedLeafSteps = result.getInt("completedLeafSteps");
+                }
+
+                //Only a leaf step can be completed directly, so each completion is one more completed leaf
+                if (this.stepDB.completeStep(stepID, conn)) {
+                    progressStatement.setInt(1, workflowID);
+                    progressStatement.executeUpdate();
+                    completedLeafSteps++;
+
+                    this.milestoneDB.addCompletedLeafStep(milestoneID, completedDate, conn);
+                }
+
+                if (completedLeafSteps >= leafSteps) {
+                    completedStatement.setTimestamp(1, new java.sql.Timestamp(completedDate.getTime()));
+                    completedStatement.setInt(2, workflowID);
+                    completedStatement.executeUpdate();
+                }
+
+                conn.commit();
+                return true;
+            }
+            catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            }
+        }
+    }
+
+    /**
+     * Recounts the leaf steps of a workflow, and of its milestone, after its steps changed
+     * @param workflowID ID of the workflow whose steps changed
+     * @param conn connection with an open transaction, the caller commits
+     * @throws SQLException Error executing query or update
+     */
+    private void refreshProgress(final int workflowID, Connection conn) throws SQLException {
+        //Prepare sql statement
+        String leafCondition = "FROM step WHERE step.workflowID = workflow.workflowID " +
+                                    "AND NOT EXISTS (SELECT 1 FROM step AS child WHERE child.parentStepID = step.stepID)";
+        String query = "UPDATE workflow SET " +
+                            "leafSteps = (SELECT COUNT(*) " + leafCondition + "), " +
+                            "completedLeafSteps = (SELECT COUNT(*) " + leafCondition + " AND step.completed = 1), " +
+                            "version = version + 1 " +
+                            "WHERE workflow.workflowID = ?;";
+
+        try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, workflowID);
+            preparedStatement.executeUpdate();
+        }
+
+        Integer milestoneID = this.lockMilestoneID(workflowID, conn);
+        if (milestoneID != null) {
+            this.milestoneDB.refreshProgress(milestoneID, new Date(), conn);
+        }
+    }
+
+    /**
+     * Locks a workflow row and returns the milestone it belongs to
+     * @param workflowID ID of the workflow
+     * @param conn connection with an open transaction
+     * @return milestoneID or null for template workflows and workflows that do not exist
+     * @throws SQLException Error executing query
+     */
+    private Integer lockMilestoneID(final int workflowID, Connection conn) throws SQLException {
+        String query = "SELECT workflow.milestoneID FROM workflow WHERE workflow.workflowID = ? FOR UPDATE;";
+
+        try (PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, workflowID);
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                if (!result.next() || result.getObject("milestoneID") == null) {
+                    return null;
+                }
+                return result.getInt("milestoneID");
+            }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the workflow columns of the current row without loading related data
+     * @param result result set positioned on a workflow row
+     * @param withDescription Read the description, summary queries do not select it
+     * @return workflow row
+     * @throws SQLException Error reading from the result set
+     */
+    private WorkflowRow parseWorkflowRow(ResultSet result, boolean withDescription) throws SQLException {
+        WorkflowRow row = new WorkflowRow();
+        row.workflowID = result.getInt("workflow.workflowID");
+        row.name = result.getString("workflow.name");
+        row.description = withDescription ? result.getString("workflow.description") : null;
+        row.createdDate = result.getDate("workflow.createdDate");
+        row.lastUpdatedDate = result.getDate("workflow.lastUpdatedDate");
+        row.startDate = result.getDate("workflow.startDate");
+        row.deliveryDate = result.getDate("workflow.deliveryDate");
+        row.completedDate = result.getDate("workflow.completedDate");
+        row.archived = result.getBoolean("workflow.archived");
+        row.companyID = result.getString("milestone.companyID") == null ? null : result.getInt("milestone.companyID");
+        row.milestoneID = result.getString("workflow.milestoneID") == null ? 0 : result.getInt("workflow.milestoneID");
+        row.leafSteps = result.getInt("workflow.leafSteps");
+        row.completedLeafSteps = result.getInt("workflow.completedLeafSteps");
+        return row;
+    }
+
+    /**
+     * Reads the version columns of the current row
+     * @param result result set positioned on a row selected with VERSION_COLUMNS
+     * @return workflow version
+     * @throws SQLException Error reading from the result set
+     */
+    private EntityVersion parseVersion(ResultSet result) throws SQLException {
+        return new EntityVersion(result.getInt("workflow.workflowID"),
+                result.getInt("workflow.version"),
+                result.getTimestamp("workflow.lastModified"),
+                result.getString("milestone.companyID") == null ? null : result.getInt("milestone.companyID"));
+    }
+
+    /**
+     * Builds workflows from rows, loading the steps of every workflow in one query
+     * @param workflowRows rows read from the workflow table
+     * @param withSteps Load the step trees, workflows are left without steps otherwise
+     * @return list of workflows in the same order as the rows
+     * @throws SQLException Error connecting to database or executing query
+     */
+    private List<Workflow> hydrateWorkflows(List<WorkflowRow> workflowRows, boolean withSteps) throws SQLException {
+        List<Workflow> workflowList = new ArrayList<>();
+        if (workflowRows.isEmpty()) {
+            return workflowList;
+        }
+
+        //Collect the ids of this page of workflows
+        List<Integer> workflowIDList = new ArrayList<>();
+        for (WorkflowRow row : workflowRows) {
+            workflowIDList.add(row.workflowID);
+        }
+
+        Map<Integer, List<Step>> stepTrees = withSteps ? this.stepDB.getStepTrees(workflowIDList) : Collections.emptyMap();
+
+        for (WorkflowRow row : workflowRows) {
+            Company company = null;
+            if (row.companyID != null) {
+                company = ReferenceData.getCompany(row.companyID);
+                if (company == null) {
+                    throw new InternalServerErrorException("No company with that id exists");
+                }
+            }
+
+            workflowList.add(new Workflow(row.workflowID,
+                    row.name,
+                    row.description,
+                    row.createdDate,
+                    row.lastUpdatedDate,
+                    row.startDate,
+                    row.deliveryDate,
+                    row.completedDate,
+                    row.archived,
+                    company,
+                    row.milestoneID,
+                    row.leafSteps,
+                    row.completedLeafSteps,
+                    stepTrees.get(row.workflowID)
+            ));
+        }
+
+        return workflowList;
+    }
+
+    /**
+     * Workflow columns read from a result set before steps and company are attached
+     */
+    private static class WorkflowRow {
+        private int workflowID;
+        private String name;
+        private String description;
+        private Date createdDate;
+        private Date lastUpdatedDate;
+        private Date startDate;
+        private Date deliveryDate;
+        private Date completedDate;
+        private boolean archived;
+        private Integer companyID;
+        private int milestoneID;
+        private int leafSteps;
+        private int completedLeafSteps;
+    }
+}
@@ -0,0 +1,121 @@
+package blink.servicelayer;
+
+import blink.utility.concurrent.BoundedExecutor;
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
+import blink.utility.metrics.MetricsRegistry;
+import blink.utility.security.RequestPrincipal;
+import com.google.gson.JsonObject;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Class intended to consolidate logic for handling requests off the server's request threads.
+ * Endpoints that block on several database round trips hand their work to a bounded executor, so slow
+ * queries tie up executor threads instead of the threads that also serve ping and login.
+ * ASYNC_VIRTUAL_THREADS moves this executor onto virtual threads. Requests still arrive on the server's worker
+ * threads and endpoints that do not use this class run there too, so those are sized in the server configuration.
+ */
+final class AsyncResponder {
+    static final String BUSY_MESSAGE = "The server is busy, please try again shortly.";
+    //Seconds a client is asked to wait before retrying a request that was turned away
+    static final long RETRY_AFTER_SECONDS = 5;
+
+    /**
+     * Holds the executor shared by every asynchronous endpoint.
+     * The executor is created on first use so nothing starts before the environment is read.
+     */
+    private static class ExecutorHolder {
+        private static final BoundedExecutor EXECUTOR = createExecutor();
+
+        private static BoundedExecutor createExecutor() {
+            EnvManager env = new EnvManager();
+
+            BoundedExecutor executor = new BoundedExecutor(
+                    "blink-async",
+                    Integer.parseInt(env.getValue(EnvKeyValues.ASYNC_POOL_SIZE)),
+                    Integer.parseInt(env.getValue(EnvKeyValues.ASYNC_QUEUE_SIZE)),
+                    Boolean.parseBoolean(env.getValue(EnvKeyValues.ASYNC_VIRTUAL_THREADS))
+            );
+            MetricsRegistry.register("asyncExecutor", () -> {
+                JsonObject json = executor.metrics();
+                json.addProperty("timedOut", TIMED_OUT.sum());
+                json.addProperty("skipped", SKIPPED.sum());
+                return json;
+            });
+            return executor;
+        }
+    }
+
+    /**
+     * Time a request may take, from being queued to its response, unless an endpoint sets its own.
+     */
+    static final Duration DEFAULT_TIMEOUT = Duration.parse(new EnvManager().getValue(EnvKeyValues.ASYNC_TIMEOUT));
+
+    private static final LongAdder TIMED_OUT = new LongAdder();
+    private static final LongAdder SKIPPED = new LongAdder();
+
+    /**
+     * default constructor
+     */
+    private AsyncResponder(){
+        //Do nothing as this is meant to be used as a static class
+    }
+
+    /**
+     * Handle a request on the executor with the default timeout
+     * @param asyncResponse Suspended response of the request
+     * @param handler Builds the response, it must catch its own exceptions
+     */
+    static void submit(AsyncResponse asyncResponse, Supplier<Response> handler){
+        submit(asyncResponse, DEFAULT_TIMEOUT, handler);
+    }
+
+    /**
+     * Handle a request on the executor.
+     * The client gets 503 SERVICE UNAVAILABLE with a Retry-After header if the executor is saturated
+     * or the response is not ready within the timeout.
+     * @param asyncResponse Suspended response of the request
+     * @param timeout Time the request may take
+     * @param handler Builds the response, it must catch its own exceptions
+     */
+    static void submit(AsyncResponse asyncResponse, Duration timeout, Supplier<Response> handler){
+        asyncResponse.setTimeoutHandler(timedOutResponse -> {
+            TIMED_OUT.increment();
+            timedOutResponse.resume(ResponseBuilder.buildServiceUnavailableResponse(BUSY_MESSAGE, RETRY_AFTER_SECONDS));
+        });
+        asyncResponse.setTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        //The caller lives in a ThreadLocal, carry it over to the executor thread
+        RequestPrincipal principal = RequestPrincipal.current();
+        try {
+            ExecutorHolder.EXECUTOR.execute(() -> {
+                //The client already got its timeout response while this waited in the queue
+                if (!asyncResponse.isSuspended()) {
+                    SKIPPED.increment();
+                    return;
+                }
+
+                RequestPrincipal.setCurrent(principal);
+                try {
+                    asyncResponse.resume(handler.get());
+                } catch (RuntimeException re) {
+                    asyncResponse.resume(ResponseBuilder.buildInternalServerErrorResponse());
+                } finally {
+                    RequestPrincipal.setCurrent(null);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            asyncResponse.resume(ResponseBuilder.buildServiceUnavailableResponse(BUSY_MESSAGE, RETRY_AFTER_SECONDS));
+        } finally {
+            //The request thread is done with this caller
+            RequestPrincipal.setCurrent(null);
+        }
+    }
+}
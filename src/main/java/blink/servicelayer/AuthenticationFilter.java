@@ -0,0 +1,65 @@
+package blink.servicelayer;
+
+import blink.utility.security.JWTUtility;
+import blink.utility.security.RequestPrincipal;
+import io.jsonwebtoken.Claims;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.ext.Provider;
+import java.security.Principal;
+
+/**
+ * Verifies the JSON Web Token of each request once and exposes the caller as a RequestPrincipal.
+ * Requests without a valid token pass through untouched; the Authorization checks of each endpoint still decide access.
+ */
+@Provider
+public class AuthenticationFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        //Never let a principal from a previous request on this thread leak into this one
+        RequestPrincipal.setCurrent(null);
+
+        String jwt = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        Claims claims = JWTUtility.verifyToken(jwt);
+        if (claims == null) {
+            return;
+        }
+
+        RequestPrincipal principal = new RequestPrincipal(jwt, claims);
+        RequestPrincipal.setCurrent(principal);
+
+        boolean secure = requestContext.getSecurityContext().isSecure();
+        requestContext.setSecurityContext(new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return principal;
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return false;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return secure;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return "JWT";
+            }
+        });
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        RequestPrincipal.setCurrent(null);
+    }
+}
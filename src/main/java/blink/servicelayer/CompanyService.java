@@ -4,9 +4,8 @@ import blink.businesslayer.Authorization;
 import blink.businesslayer.CompanyBusiness;
 import blink.utility.exceptions.ConflictException;
 import blink.utility.objects.Company;
+import blink.utility.objects.Page;
 import blink.utility.objects.Person;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiResponse;
@@ -25,33 +24,41 @@ import java.util.List;
 @Api(value = "/company")
 public class CompanyService {
     private CompanyBusiness companyBusiness = new CompanyBusiness();
-    private Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
 
     /**
      * Get all companies from database
+     * @param limit Number of companies in a page, at most 500 which is also the default
+     * @param after companyID of the last company of the previous page, left out for the first page
      * @return HTTP Response: 200 OK for company found and returned
+     *                          400 BAD REQUEST for invalid paging or filter parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
      */
     @GET
     @Operation(summary = "getAllCompanies", description = "Gets all companies from the database")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of Company objects which each contain keys (companyID, name)"),
+            @ApiResponse(code = 200, message = "List of Company objects which each contain keys (companyID, name). One page ordered by companyID, the X-Next-Cursor header holds the after value of the next page"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllCompanies(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
+    public Response getAllCompanies(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                    @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                    @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after) {
         try {
             Authorization.isLoggedIn(jwt);
 
             //Send parameters to business layer and store response
-            List<Company> companyList = companyBusiness.getAllCompanies();
+            Page<Company> page = companyBusiness.getAllCompanies(limit, after);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(companyList));
+            return ResponseBuilder.buildPageResponse(page);
         }
         //Catch all business logic related errors and return relevant response with message from error
+        catch(BadRequestException bre){
+            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+        }
         catch(NotAuthorizedException nae){
             return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
         }
@@ -88,7 +95,7 @@ public class CompanyService {
             Company company = companyBusiness.getCompanyByID(companyID);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(company));
+            return ResponseBuilder.buildJsonResponse(company);
         }
         //Catch all business logic related errors and return relevant response with message from error
         catch(BadRequestException bre){
@@ -133,7 +140,7 @@ public class CompanyService {
             Company company = companyBusiness.getCompanyByName(companyName);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(company));
+            return ResponseBuilder.buildJsonResponse(company);
         }
         catch(BadRequestException bre){
             return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
@@ -174,7 +181,7 @@ public class CompanyService {
             List<Person> personList = companyBusiness.getAllPeopleByCompany(companyID);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(personList));
+            return ResponseBuilder.buildJsonResponse(personList);
         }
         catch(NotAuthorizedException nae){
             return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
@@ -219,7 +226,7 @@ public class CompanyService {
             Company company = companyBusiness.insertCompany(companyName);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(company));
+            return ResponseBuilder.buildJsonResponse(company);
         }
         //Catch all business logic related errors and return relevant response with message from error
         catch(BadRequestException bre){
@@ -276,7 +283,7 @@ public class CompanyService {
             Company company = companyBusiness.updateCompany(companyID, companyName);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(company));
+            return ResponseBuilder.buildJsonResponse(company);
         }
         //Catch all business logic related errors and return relevant response with message from error
         catch(BadRequestException bre){
@@ -0,0 +1,295 @@
+package blink.servicelayer;
+
+import blink.utility.compression.CompressedMediaTypes;
+import blink.utility.compression.CompressingOutputStream;
+import blink.utility.compression.DeflaterPool;
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
+import blink.utility.metrics.MetricsRegistry;
+import com.google.gson.JsonObject;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compresses response bodies with gzip or deflate when the client accepts it.
+ * The response filter picks the encoding from Accept-Encoding, and leaves out content that is already compressed,
+ * such as images and archives. The writer interceptor then compresses the body as it is written, once it passes
+ * RESPONSE_COMPRESSION_MIN_SIZE bytes, so streamed responses are compressed without being held in memory.
+ * The request filter turns entity tags of compressed responses in If-None-Match back into the tags ConditionalGet
+ * builds, but only for the encoding this request would be sent.
+ * Bytes written and sent are counted per endpoint and published with the metrics.
+ */
+@Provider
+public class CompressionFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    //Request properties handing the filter's decision to the interceptor
+    private static final String ENDPOINT_PROPERTY = CompressionFilter.class.getName() + ".endpoint";
+    private static final String ENCODING_PROPERTY = CompressionFilter.class.getName() + ".encoding";
+    private static final String UNMATCHED_ENDPOINT = "unmatched";
+
+    private static final int MIN_SIZE;
+    private static final DeflaterPool GZIP_POOL;
+    private static final DeflaterPool DEFLATE_POOL;
+    private static final Map<String, EndpointStats> ENDPOINTS = new ConcurrentSkipListMap<>();
+
+    static {
+        EnvManager env = new EnvManager();
+        MIN_SIZE = Integer.parseInt(env.getValue(EnvKeyValues.RESPONSE_COMPRESSION_MIN_SIZE));
+        int level = Integer.parseInt(env.getValue(EnvKeyValues.RESPONSE_COMPRESSION_LEVEL));
+        //Enough idle Deflaters for every core to be compressing a response, a burst beyond that creates more
+        int maxIdle = Runtime.getRuntime().availableProcessors() * 2;
+        GZIP_POOL = new DeflaterPool(level, true, maxIdle);
+        DEFLATE_POOL = new DeflaterPool(level, false, maxIdle);
+        MetricsRegistry.register("responseCompression", CompressionFilter::metrics);
+    }
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    /**
+     * Bytes written and sent by one endpoint
+     */
+    private static final class EndpointStats {
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder compressed = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String ifNoneMatch = requestContext.getHeaderString(ConditionalGet.IF_NONE_MATCH);
+        if(ifNoneMatch != null){
+            String encoding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+            requestContext.getHeaders().putSingle(ConditionalGet.IF_NONE_MATCH, withoutEncoding(ifNoneMatch, encoding));
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        //A 304 has no body but must carry the tag and Vary the full response would have been sent with
+        if(responseContext.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()){
+            String encoding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+            if(encoding != null){
+                responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                tagEncoding(responseContext.getHeaders(), encoding);
+            }
+            return;
+        }
+        if(!responseContext.hasEntity()){
+            return;
+        }
+        requestContext.setProperty(ENDPOINT_PROPERTY, this.endpoint());
+
+        MediaType mediaType = responseContext.getMediaType();
+        if(mediaType == null || responseContext.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)
+                || CompressedMediaTypes.isCompressed(mediaType.getType() + "/" + mediaType.getSubtype())){
+            return;
+        }
+
+        //Caches must keep the compressed and uncompressed forms of this response apart
+        responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if(encoding != null){
+            requestContext.setProperty(ENCODING_PROPERTY, encoding);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Object endpoint = context.getProperty(ENDPOINT_PROPERTY);
+        if(endpoint == null){
+            context.proceed();
+            return;
+        }
+
+        String encoding = (String) context.getProperty(ENCODING_PROPERTY);
+        DeflaterPool pool = encoding == null ? null : (GZIP.equals(encoding) ? GZIP_POOL : DEFLATE_POOL);
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+
+        //Headers are sent with the first byte, which the stream holds back until it knows if it compresses
+        OutputStream original = context.getOutputStream();
+        CompressingOutputStream stream = new CompressingOutputStream(original, pool, GZIP.equals(encoding), MIN_SIZE,
+                () -> markEncoded(headers, encoding));
+        context.setOutputStream(stream);
+        try{
+            context.proceed();
+            stream.finish();
+        }
+        finally{
+            stream.release();
+            context.setOutputStream(original);
+            record((String) endpoint, stream);
+        }
+    }
+
+    /**
+     * Remove the encoding added to the entity tags of compressed responses.
+     * Only tags of the encoding the current response would be sent with are changed. A tag of another encoding
+     * names different bytes, so it is left to not match, and the client is sent the response in its new encoding.
+     * @param ifNoneMatch "*" or a comma separated list of entity tags
+     * @param encoding Encoding of the current response, null if it is sent as it is
+     * @return The list with the tags of the uncompressed responses
+     */
+    static String withoutEncoding(String ifNoneMatch, String encoding){
+        if(encoding == null){
+            return ifNoneMatch;
+        }
+
+        String suffix = "-" + encoding;
+        StringBuilder tags = new StringBuilder();
+        for(String candidate : ifNoneMatch.split(",")){
+            String tag = candidate.trim();
+            boolean quoted = tag.endsWith("\"");
+            String value = quoted ? tag.substring(0, tag.length() - 1) : tag;
+            if(value.endsWith(suffix)){
+                tag = value.substring(0, value.length() - suffix.length()) + (quoted ? "\"" : "");
+            }
+            if(tags.length() > 0){
+                tags.append(", ");
+            }
+            tags.append(tag);
+        }
+        return tags.toString();
+    }
+
+    /**
+     * Pick the encoding of a response
+     * @param acceptEncoding Accept-Encoding header of the request, may be null
+     * @return gzip or deflate, gzip if both are equally preferred, or null to send the response as it is
+     */
+    static String negotiate(String acceptEncoding){
+        if(acceptEncoding == null){
+            return null;
+        }
+
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for(String part : acceptEncoding.split(",")){
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for(int x = 1; x < params.length; x++){
+                String param = params[x].trim();
+                if(param.startsWith("q=")){
+                    try{
+                        quality = Double.parseDouble(param.substring(2));
+                    }
+                    catch(NumberFormatException nfe){
+                        quality = 0;
+                    }
+                }
+            }
+
+            if(coding.equals(GZIP) || coding.equals("x-gzip")){
+                gzip = Math.max(gzip, quality);
+            }
+            else if(coding.equals(DEFLATE)){
+                deflate = Math.max(deflate, quality);
+            }
+            else if(coding.equals("*")){
+                any = quality;
+            }
+        }
+
+        //A coding that is not named is accepted with the quality of *
+        if(gzip < 0){ gzip = any; }
+        if(deflate < 0){ deflate = any; }
+
+        if(gzip > 0 && gzip >= deflate){
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * Mark a response as compressed, just before its first byte is sent
+     * @param headers Headers of the response
+     * @param encoding Encoding of the response
+     */
+    private static void markEncoded(MultivaluedMap<String, Object> headers, String encoding){
+        headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+        //The length was of the uncompressed content
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+
+        tagEncoding(headers, encoding);
+    }
+
+    /**
+     * Add the encoding to the entity tag of a response.
+     * A strong entity tag names one exact byte sequence, so the compressed form gets its own.
+     * @param headers Headers of the response
+     * @param encoding Encoding of the response
+     */
+    private static void tagEncoding(MultivaluedMap<String, Object> headers, String encoding){
+        Object eTag = headers.getFirst(HttpHeaders.ETAG);
+        if(eTag != null){
+            EntityTag tag = eTag instanceof EntityTag ? (EntityTag) eTag : EntityTag.valueOf(eTag.toString());
+            headers.putSingle(HttpHeaders.ETAG, new EntityTag(tag.getValue() + "-" + encoding, tag.isWeak()));
+        }
+    }
+
+    private String endpoint(){
+        if(this.resourceInfo == null || this.resourceInfo.getResourceMethod() == null){
+            return UNMATCHED_ENDPOINT;
+        }
+        return this.resourceInfo.getResourceClass().getSimpleName() + "." + this.resourceInfo.getResourceMethod().getName();
+    }
+
+    private static void record(String endpoint, CompressingOutputStream stream){
+        EndpointStats stats = ENDPOINTS.computeIfAbsent(endpoint, key -> new EndpointStats());
+        stats.responses.increment();
+        if(stream.isCompressed()){
+            stats.compressed.increment();
+        }
+        stats.bytesIn.add(stream.getBytesIn());
+        stats.bytesOut.add(stream.getBytesOut());
+    }
+
+    private static JsonObject metrics(){
+        JsonObject json = new JsonObject();
+        json.addProperty("minSize", MIN_SIZE);
+        json.add("gzipPool", GZIP_POOL.metrics());
+        json.add("deflatePool", DEFLATE_POOL.metrics());
+
+        JsonObject endpoints = new JsonObject();
+        for(Map.Entry<String, EndpointStats> entry : ENDPOINTS.entrySet()){
+            EndpointStats stats = entry.getValue();
+            long bytesIn = stats.bytesIn.sum();
+            long bytesOut = stats.bytesOut.sum();
+
+            JsonObject endpoint = new JsonObject();
+            endpoint.addProperty("responses", stats.responses.sum());
+            endpoint.addProperty("compressed", stats.compressed.sum());
+            endpoint.addProperty("bytesIn", bytesIn);
+            endpoint.addProperty("bytesOut", bytesOut);
+            //Bytes sent for each byte written, lower is better
+            endpoint.addProperty("ratio", bytesIn == 0 ? 1.0 : Math.round(bytesOut * 1000.0 / bytesIn) / 1000.0);
+            endpoints.add(entry.getKey(), endpoint);
+        }
+        json.add("endpoints", endpoints);
+        return json;
+    }
+}
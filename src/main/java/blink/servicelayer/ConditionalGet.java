@@ -0,0 +1,152 @@
+package blink.servicelayer;
+
+import blink.utility.metrics.MetricsRegistry;
+import blink.utility.objects.EntityVersion;
+import blink.utility.objects.Page;
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class intended to consolidate logic for answering conditional GET requests.
+ * Entity tags are built from the versions of the rows a response holds, which are read without the rows
+ * themselves, so a client that already holds the response is answered before the response is loaded.
+ */
+final class ConditionalGet {
+    static final String IF_NONE_MATCH = "If-None-Match";
+    static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    //Bytes of the page digest kept in its tag, plenty to tell versions of one page apart
+    private static final int PAGE_TAG_BYTES = 16;
+
+    private static final LongAdder CHECKED = new LongAdder();
+    private static final LongAdder NOT_MODIFIED = new LongAdder();
+
+    static {
+        MetricsRegistry.register("conditionalGet", () -> {
+            JsonObject json = new JsonObject();
+            json.addProperty("checked", CHECKED.sum());
+            json.addProperty("notModified", NOT_MODIFIED.sum());
+            return json;
+        });
+    }
+
+    private ConditionalGet(){
+        //this is not used as this class is meant to be used as a static utility class
+    }
+
+    /**
+     * Build the entity tag of one row
+     * @param kind Name of the kind of row, such as "workflow"
+     * @param version Version of the row
+     * @return Entity tag, without quotes
+     */
+    static String entityTag(String kind, EntityVersion version){
+        return kind + "-" + version.getId() + "-" + version.getVersion();
+    }
+
+    /**
+     * Build the entity tag of one page of a list
+     * @param kind Name of the kind of row, such as "workflow"
+     * @param view View of the rows requested, null for the full view
+     * @param page Versions of the rows of the page
+     * @return Entity tag, without quotes
+     */
+    static String pageTag(String kind, String view, Page<EntityVersion> page){
+        StringBuilder key = new StringBuilder(kind).append('|')
+                .append(view == null ? "full" : view.toLowerCase(Locale.ROOT)).append('|')
+                .append(page.getNextCursor());
+        for(EntityVersion version : page.getItems()){
+            key.append('|').append(version.getId()).append(':').append(version.getVersion());
+        }
+
+        try{
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return kind + "s-" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, PAGE_TAG_BYTES));
+        }
+        catch(NoSuchAlgorithmException nsae){
+            //Every Java platform is required to support SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * Work out if the client already holds the current response.
+     * If-None-Match decides when it is sent, If-Modified-Since is only read otherwise, as RFC 7232 requires.
+     * @param ifNoneMatch If-None-Match header of the request, may be null
+     * @param ifModifiedSince If-Modified-Since header of the request, may be null
+     * @param eTag Entity tag of the current response, without quotes
+     * @param lastModified Time the current response last changed, null if it is not known
+     * @return True if a 304 NOT MODIFIED should be sent instead of the response
+     */
+    static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String eTag, Date lastModified){
+        CHECKED.increment();
+        boolean notModified;
+        if(ifNoneMatch != null){
+            notModified = matches(ifNoneMatch, eTag);
+        }
+        else if(ifModifiedSince != null && lastModified != null){
+            Date since = parseDate(ifModifiedSince);
+            //The header only holds whole seconds
+            notModified = since != null && lastModified.getTime() / 1000 <= since.getTime() / 1000;
+        }
+        else{
+            notModified = false;
+        }
+
+        if(notModified){
+            NOT_MODIFIED.increment();
+        }
+        return notModified;
+    }
+
+    /**
+     * Compare an If-None-Match header to an entity tag the weak way, as RFC 7232 requires for GET
+     * @param ifNoneMatch "*" or a comma separated list of entity tags
+     * @param eTag Entity tag without quotes
+     * @return True if the header matches the tag
+     */
+    private static boolean matches(String ifNoneMatch, String eTag){
+        for(String candidate : ifNoneMatch.split(",")){
+            String tag = candidate.trim();
+            if(tag.equals("*")){
+                return true;
+            }
+            if(tag.startsWith("W/")){
+                tag = tag.substring(2);
+            }
+            if(tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")){
+                tag = tag.substring(1, tag.length() - 1);
+            }
+            //CompressionFilter has already removed the encoding from the tag of a compressed response
+            if(tag.equals(eTag)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read an HTTP date
+     * @param value Date in the format of RFC 1123
+     * @return The date or null if it could not be read, a date that cannot be read is ignored
+     */
+    private static Date parseDate(String value){
+        try{
+            return Date.from(ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        }
+        catch(DateTimeParseException dtpe){
+            return null;
+        }
+    }
+}
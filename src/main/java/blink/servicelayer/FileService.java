@@ -6,7 +6,13 @@ import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 
 import blink.businesslayer.StepBusiness;
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
+import blink.utility.json.JsonMapper;
 import blink.utility.objects.File;
+import blink.utility.objects.FileContent;
+import blink.utility.objects.Page;
+import blink.utility.objects.RowSource;
 import blink.utility.objects.Step;
 import blink.utility.security.JWTUtility;
 import com.google.gson.*;
@@ -19,10 +25,16 @@ import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -31,8 +43,11 @@ import java.util.List;
 @Path("file")
 @Api(value = "/file")
 public class FileService {
+    //Only covers checking access and listing the files, the zip itself is streamed after the response resumes
+    private static final Duration ARCHIVE_TIMEOUT = Duration.parse(new EnvManager().getValue(EnvKeyValues.ARCHIVE_TIMEOUT));
+
     private FileBusiness fileBusiness = new FileBusiness();
-    private Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
+    private Gson gson = JsonMapper.gson();
 
     /**
      * Get file from the database
@@ -59,7 +74,7 @@ public class FileService {
             File file = fileBusiness.getFile(fileID, JWTUtility.getUUIDFromToken(jwt));
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(file));
+            return ResponseBuilder.buildJsonResponse(file);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -80,31 +95,46 @@ public class FileService {
     }
 
     /**
-     * Construct archive from files retrieved by milestoneID
+     * Stream the raw content of a file
      * @Param jwt JSON web token for authorization
-     * @return HTTP Response: 200 OK for file returned
+     * @return HTTP Response: 200 OK with the file bytes
+     *                        400 BAD REQUEST if fileID is not a valid integer
      *                        401 UNAUTHORIZED for invalid JSON Web Token in header
+     *                        404 NOT FOUND if no file with that ID exists
      *                        500 INTERNAL SERVER ERROR for backend error
      */
-    @Path("/archive/{milestoneID}")
+    @Path("/id/{id}/content")
     @GET
-    @Operation(summary = "getArchive", description = "Gets all files from the specified milestone in zip format")
+    @Operation(summary = "getFileContent", description = "Downloads the raw content of a file")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "File object containing the file name and archive"),
+            @ApiResponse(code = 200, message = "The file bytes with the stored content type"),
+            @ApiResponse(code = 400, message = "{error: File ID must be a valid integer}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
+            @ApiResponse(code = 404, message = "{error: No file with that ID exists}"),
             @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
     })
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getArchive(@Parameter(in = ParameterIn.PATH, description = "milestoneID", required = true) @PathParam("milestoneID") String milestoneID,
-                            @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
+    @Produces(MediaType.WILDCARD)
+    public Response getFileContent(@Parameter(in = ParameterIn.PATH, description = "id", required = true) @PathParam("id") String fileID,
+                                   @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
         try {
             Authorization.isLoggedIn(jwt);
 
-            //Send parameters to business layer and store response
-            File file = fileBusiness.zipAllFilesByMilestone(milestoneID, JWTUtility.getUUIDFromToken(jwt));
+            //Check access and read content information before any bytes are sent
+            FileContent fileContent = fileBusiness.getFileContent(fileID, JWTUtility.getUUIDFromToken(jwt));
 
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(file));
+            //Bytes are copied from the database to the client through a small buffer
+            StreamingOutput stream = output -> {
+                try (InputStream input = fileBusiness.openFileContent(fileContent)) {
+                    input.transferTo(output);
+                }
+            };
+
+            Response.ResponseBuilder response = Response.ok(stream, fileContent.getMimeType())
+                    .header("Content-Disposition", ResponseBuilder.attachment(fileContent.getName()));
+            if(fileContent.getContentLength() >= 0){
+                response.header(HttpHeaders.CONTENT_LENGTH, fileContent.getContentLength());
+            }
+            return response.build();
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -124,171 +154,268 @@ public class FileService {
         }
     }
 
+    /**
+     * Stream a zip archive of the files retrieved by milestoneID
+     * @Param jwt JSON web token for authorization
+     * @param asyncResponse Response resumed once the request has been handled
+     * @return HTTP Response: 200 OK with the zip archive
+     *                        401 UNAUTHORIZED for invalid JSON Web Token in header
+     *                        500 INTERNAL SERVER ERROR for backend error
+     *                        503 SERVICE UNAVAILABLE when the server is too busy
+     */
+    @Path("/archive/{milestoneID}")
+    @GET
+    @Operation(summary = "getArchive", description = "Downloads all files from the specified milestone in zip format")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Zip archive of the milestone files"),
+            @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
+    })
+    @Produces({"application/zip", MediaType.APPLICATION_JSON})
+    public void getArchive(@Parameter(in = ParameterIn.PATH, description = "milestoneID", required = true) @PathParam("milestoneID") String milestoneID,
+                            @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                            @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, ARCHIVE_TIMEOUT, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Check access and list the files before any bytes are sent
+                List<FileContent> fileContents = fileBusiness.getMilestoneArchiveContents(milestoneID, JWTUtility.getUUIDFromToken(jwt));
+
+                //The archive is built while it is sent, one file at a time
+                StreamingOutput stream = output -> fileBusiness.writeArchive(fileContents, output);
+
+                return Response.ok(stream, "application/zip")
+                        .header("Content-Disposition", ResponseBuilder.attachment("Milestone_" + milestoneID + "_Archive.zip"))
+                        .build();
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(ForbiddenException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
+            }
+            catch(NotFoundException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
+    }
+
     /**
      * Get all concrete files from the database
      * @Param jwt JSON web token for authorization
+     * @param limit Number of files in a page, at most 500 which is also the default
+     * @param after fileID of the last file of the previous page, left out for the first page
+     * @param companyID Only files of this company
+     * @param view summary to list files without their content, full or left out for whole files
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for file returned
+     *                        400 BAD REQUEST for invalid paging or filter parameters
      *                        401 UNAUTHORIZED for invalid JSON Web Token in header
      *                        500 INTERNAL SERVER ERROR for backend error
+     *                        503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/concrete")
     @GET
     @Operation(summary = "getAllConcreteFiles", description = "Gets all concrete files relevant to the user")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of File objects containing fileID, name, file, confidential and stepID"),
+            @ApiResponse(code = 200, message = "List of File objects containing fileID, name, file, confidential and stepID. One page ordered by fileID, the X-Next-Cursor header holds the after value of the next page"),
             @ApiResponse(code = 400, message = "{error: No user with that userID exists.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllConcreteFiles(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<File> files = fileBusiness.getAllConcreteFiles(JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(files));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getAllConcreteFiles(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                    @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                    @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                    @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID,
+                                    @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                    @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Send parameters to business layer and store response
+                Page<File> page = fileBusiness.getAllConcreteFiles(JWTUtility.getUUIDFromToken(jwt), limit, after, companyID, view);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildPageResponse(page);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get all template files from the database
      * @Param jwt JSON web token for authorization
+     * @param view summary to list files without their content, full or left out for whole files
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for file returned
      *                        401 UNAUTHORIZED for invalid JSON Web Token in header
      *                        500 INTERNAL SERVER ERROR for backend error
+     *                        503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/template")
     @GET
     @Operation(summary = "getAllTemplateFiles", description = "Gets all template files")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "File object containing fileID, name, file, confidential and stepID"),
+            @ApiResponse(code = 400, message = "{error: view must be summary or full.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllTemplateFiles(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<File> files = fileBusiness.getAllTemplateFiles(JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(files));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getAllTemplateFiles(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                    @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                    @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Send parameters to business layer and store response
+                RowSource<File> files = fileBusiness.getAllTemplateFiles(JWTUtility.getUUIDFromToken(jwt), view);
+
+                //If no errors are thrown in the business layer, it was successful and the files are sent as they are read
+                return ResponseBuilder.buildJsonArrayResponse(files, File.class);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get all files by milestoneID from the database
      * @Param jwt JSON web token for authorization
+     * @param view summary to list files without their content, full or left out for whole files
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for file returned
      *                        401 UNAUTHORIZED for invalid JSON Web Token in header
      *                        500 INTERNAL SERVER ERROR for backend error
+     *                        503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/milestone/{milestoneID}")
     @GET
     @Operation(summary = "getAllFilesByMilestone", description = "Gets all files by milestoneID")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "File object containing fileID, name, file, confidential and stepID"),
+            @ApiResponse(code = 400, message = "{error: view must be summary or full.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllFilesByMilestone(@Parameter(in = ParameterIn.PATH, description = "milestoneID", required = true) @PathParam("milestoneID") String milestoneID,
-                            @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<File> files = fileBusiness.getAllFilesByMilestone(milestoneID, JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(files));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(ForbiddenException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
-        }
-        catch(NotFoundException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getAllFilesByMilestone(@Parameter(in = ParameterIn.PATH, description = "milestoneID", required = true) @PathParam("milestoneID") String milestoneID,
+                            @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                            @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                            @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Send parameters to business layer and store response
+                RowSource<File> files = fileBusiness.getAllFilesByMilestone(milestoneID, JWTUtility.getUUIDFromToken(jwt), view);
+
+                //If no errors are thrown in the business layer, it was successful and the files are sent as they are read
+                return ResponseBuilder.buildJsonArrayResponse(files, File.class);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(ForbiddenException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
+            }
+            catch(NotFoundException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get all files by companyID from the database
      * @Param jwt JSON web token for authorization
+     * @param view summary to list files without their content, full or left out for whole files
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for file returned
      *                        401 UNAUTHORIZED for invalid JSON Web Token in header
      *                        500 INTERNAL SERVER ERROR for backend error
+     *                        503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/company/{companyID}")
     @GET
     @Operation(summary = "getAllFilesByCompany", description = "Gets all files by companyID")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "File object containing fileID, name, file, confidential and stepID"),
+            @ApiResponse(code = 400, message = "{error: view must be summary or full.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllFilesByCompany(@Parameter(in = ParameterIn.PATH, description = "companyID", required = true) @PathParam("companyID") String companyID,
-                                           @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<File> files = fileBusiness.getAllFilesByCompany(companyID, JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(files));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(ForbiddenException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
-        }
-        catch(NotFoundException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getAllFilesByCompany(@Parameter(in = ParameterIn.PATH, description = "companyID", required = true) @PathParam("companyID") String companyID,
+                                           @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                           @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                           @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Send parameters to business layer and store response
+                RowSource<File> files = fileBusiness.getAllFilesByCompany(companyID, JWTUtility.getUUIDFromToken(jwt), view);
+
+                //If no errors are thrown in the business layer, it was successful and the files are sent as they are read
+                return ResponseBuilder.buildJsonArrayResponse(files, File.class);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(ForbiddenException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
+            }
+            catch(NotFoundException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
@@ -318,7 +445,7 @@ public class FileService {
             File file = fileBusiness.insertFile(jsonObject);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(file));
+            return ResponseBuilder.buildJsonResponse(file);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -359,7 +486,7 @@ public class FileService {
             File file = fileBusiness.updateFile(jsonObject, JWTUtility.getUUIDFromToken(jwt));
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(file));
+            return ResponseBuilder.buildJsonResponse(file);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
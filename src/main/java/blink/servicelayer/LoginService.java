@@ -1,6 +1,8 @@
 package blink.servicelayer;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -8,10 +10,11 @@ import blink.businesslayer.PersonBusiness;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.ServiceUnavailableException;
+import blink.utility.json.JsonMapper;
 import blink.utility.objects.Person;
 import blink.utility.security.JWTUtility;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
@@ -25,16 +28,19 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 @Api(value = "/login")
 public class LoginService {
     private PersonBusiness personBusiness = new PersonBusiness();
-    private Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
+    private Gson gson = JsonMapper.gson();
 
     /**
      * Checks that a persons username and password match values stored in database
      * @param username Username from POST request body
      * @param password Password from POST request body
+     * @param request Servlet request, used for the client address
      * @return HTTP Response: 200 OK for accepted login
      *                         400 BAD REQUEST for invalid username or password syntax
      *                         401 UNAUTHORIZED for non-existent username or incorrect password for user
+     *                         429 TOO MANY REQUESTS for too many attempts on the username or from the address
      *                         500 INTERNAL SERVER ERROR for backend error
+     *                         503 SERVICE UNAVAILABLE when too many logins are being processed
      */
     @POST
     @Operation(summary = "Login", description = "Authenticates the user by username and password")
@@ -42,15 +48,18 @@ public class LoginService {
             @ApiResponse(code = 200, message = "Person object which contains keys (UUID, name, email, title, companyID, accessLevelID)"),
             @ApiResponse(code = 400, message = "{error: Invalid username/password syntax}"),
             @ApiResponse(code = 401, message = "{error: Invalid login credentials.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 429, message = "{error: Too many login attempts, please try again later.}"),
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
     public Response login(@RequestBody(description = "username", required = true) @FormParam("username") String username,
-                          @RequestBody(description = "password", required = true) @FormParam("password") String password) {
+                          @RequestBody(description = "password", required = true) @FormParam("password") String password,
+                          @Context HttpServletRequest request) {
         try {
             //Send parameters to business layer and store response
-            Person person = personBusiness.login(username, password);
+            Person person = personBusiness.login(username, password, request == null ? null : request.getRemoteAddr());
 
             String jwt = JWTUtility.generateToken(person.getUuid());
 
@@ -65,6 +74,14 @@ public class LoginService {
         catch(BadRequestException bre){
             return Response.status(Response.Status.BAD_REQUEST).entity("{\"error\":\"" + bre.getMessage() + "\"}").build();
         }
+        //Catch a throttled attempt and return Too Many Requests response, keeping the Retry-After header
+        catch(ClientErrorException cee){
+            return Response.fromResponse(cee.getResponse()).entity("{\"error\":\"" + cee.getMessage() + "\"}").build();
+        }
+        //Catch a ServiceUnavailableException and return Service Unavailable response, keeping the Retry-After header
+        catch(ServiceUnavailableException sue){
+            return Response.fromResponse(sue.getResponse()).entity("{\"error\":\"" + AsyncResponder.BUSY_MESSAGE + "\"}").build();
+        }
         //Catch an InternalServerErrorException and return Internal Server Error response with message from error
         catch(InternalServerErrorException isee){
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("{\"error\":\"Sorry, could not process your request at this time.\"}").build();
@@ -0,0 +1,57 @@
+package blink.servicelayer;
+
+import blink.businesslayer.Authorization;
+import blink.utility.metrics.MetricsRegistry;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Service Layer entity responsible for exposing runtime metrics such as connection pool statistics
+ */
+@Path("metrics")
+@Api(value = "/metrics")
+public class MetricsService {
+
+    /**
+     * Get a snapshot of all registered metrics
+     * @param jwt JSON web token for authorization
+     * @return HTTP Response: 200 OK for metrics returned
+     *                         401 UNAUTHORIZED for invalid JSON Web Token in header
+     *                         403 FORBIDDEN if requester does not have access to the endpoint
+     *                         500 INTERNAL SERVER ERROR for backend error
+     */
+    @GET
+    @Operation(summary = "getMetrics", description = "Gets a snapshot of runtime metrics")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Object keyed by metric source name"),
+            @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
+            @ApiResponse(code = 403, message = "{error: You do not have access to that request.}"),
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+    })
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMetrics(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
+        try {
+            Authorization.isAdmin(jwt);
+
+            return ResponseBuilder.buildSuccessResponse(MetricsRegistry.snapshot().toString());
+        }
+        //Catch error exceptions and return relevant Response using ResponseBuilder
+        catch(NotAuthorizedException nae){
+            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+        }
+        catch(ForbiddenException fe){
+            return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, fe.getMessage());
+        }
+        catch(Exception e){
+            return ResponseBuilder.buildInternalServerErrorResponse();
+        }
+    }
+}
@@ -3,9 +3,8 @@ package blink.servicelayer;
 import blink.businesslayer.Authorization;
 import blink.businesslayer.MilestoneBusiness;
 import blink.utility.objects.Milestone;
+import blink.utility.objects.Page;
 import blink.utility.security.JWTUtility;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiResponse;
@@ -16,6 +15,8 @@ import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
@@ -27,107 +28,188 @@ import java.util.List;
 @Api(value = "/milestone")
 public class MilestoneService {
     private MilestoneBusiness milestoneBusiness = new MilestoneBusiness();
-    private Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
 
     /**
      * Get all milestones
      * @param jwt JSON web token for authorization
+     * @param limit Number of milestones in a page, at most 500 which is also the default
+     * @param after milestoneID of the last milestone of the previous page, left out for the first page
+     * @param companyID Only milestones of this company
+     * @param from Only milestones delivered on or after this date (yyyy-MM-dd)
+     * @param to Only milestones delivered on or before this date (yyyy-MM-dd)
+     * @param archived true or false for only archived or only active milestones
+     * @param view summary to leave out descriptions, full or left out for whole milestones
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for milestones returned
+     *                          400 BAD REQUEST for invalid paging or filter parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @GET
     @Operation(summary = "getAllMilestones", description = "Gets all milestones in the system")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of milestone objects which each contain keys (milestoneID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, companyID)"),
+            @ApiResponse(code = 200, message = "List of milestone objects which each contain keys (milestoneID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, companyID). One page ordered by milestoneID, the X-Next-Cursor header holds the after value of the next page"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllMilestones(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
+    public void getAllMilestones(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                 @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                 @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                 @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID,
+                                 @Parameter(in = ParameterIn.QUERY, name = "from") @QueryParam("from") String from,
+                                 @Parameter(in = ParameterIn.QUERY, name = "to") @QueryParam("to") String to,
+                                 @Parameter(in = ParameterIn.QUERY, name = "archived") @QueryParam("archived") String archived,
+                                 @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                 @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
 
-            //Send parameters to business layer and store response
-            List<Milestone> milestoneList = milestoneBusiness.getAllMilestones(JWTUtility.getUUIDFromToken(jwt));
+                //Send parameters to business layer and store response
+                Page<Milestone> page = milestoneBusiness.getAllMilestones(JWTUtility.getUUIDFromToken(jwt), limit, after, companyID, from, to, archived, view);
 
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(milestoneList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildPageResponse(page);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get active milestones
      * @param jwt JSON web token for authorization
+     * @param limit Number of milestones in a page, at most 500 which is also the default
+     * @param after milestoneID of the last milestone of the previous page, left out for the first page
+     * @param companyID Only milestones of this company
+     * @param from Only milestones delivered on or after this date (yyyy-MM-dd)
+     * @param to Only milestones delivered on or before this date (yyyy-MM-dd)
+     * @param view summary to leave out descriptions, full or left out for whole milestones
+     * @param ifNoneMatch ETag of the page the client holds
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for active milestones returned
+     *                          304 NOT MODIFIED for the page the client holds being current
+     *                          400 BAD REQUEST for invalid paging or filter parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/active")
     @GET
     @Operation(summary = "getActiveMilestones", description = "Gets all active milestones")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of active milestone objects which each contain keys (milestoneID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, companyID)"),
+            @ApiResponse(code = 200, message = "List of active milestone objects which each contain keys (milestoneID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, companyID). One page ordered by milestoneID, the X-Next-Cursor header holds the after value of the next page and the ETag header the version of the page"),
+            @ApiResponse(code = 304, message = "The page matching If-None-Match is current"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getActiveMilestones(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
+    public void getActiveMilestones(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                    @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                    @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                    @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID,
+                                    @Parameter(in = ParameterIn.QUERY, name = "from") @QueryParam("from") String from,
+                                    @Parameter(in = ParameterIn.QUERY, name = "to") @QueryParam("to") String to,
+                                    @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                    @Parameter(in = ParameterIn.HEADER, name = ConditionalGet.IF_NONE_MATCH) @HeaderParam(ConditionalGet.IF_NONE_MATCH) String ifNoneMatch,
+                                    @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+                String uuid = JWTUtility.getUUIDFromToken(jwt);
 
-            //Send parameters to business layer and store response
-            List<Milestone> milestoneList = milestoneBusiness.getActiveMilestones(JWTUtility.getUUIDFromToken(jwt));
+                //Compare the versions of the page to the client's copy before the milestones are read
+                String eTag = ConditionalGet.pageTag("milestone", view, milestoneBusiness.getActiveMilestoneVersions(uuid, limit, after, companyID, from, to, view));
+                if(ConditionalGet.isNotModified(ifNoneMatch, null, eTag, null)){
+                    return ResponseBuilder.buildNotModifiedResponse(eTag, null);
+                }
 
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(milestoneList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+                //Send parameters to business layer and store response
+                Page<Milestone> page = milestoneBusiness.getActiveMilestones(uuid, limit, after, companyID, from, to, view);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildPageResponse(page, eTag);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get archived milestones
      * @param jwt JSON web token for authorization
+     * @param limit Number of milestones in a page, at most 500 which is also the default
+     * @param after milestoneID of the last milestone of the previous page, left out for the first page
+     * @param companyID Only milestones of this company
+     * @param from Only milestones delivered on or after this date (yyyy-MM-dd)
+     * @param to Only milestones delivered on or before this date (yyyy-MM-dd)
+     * @param view summary to leave out descriptions, full or left out for whole milestones
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for archived milestones returned
+     *                          400 BAD REQUEST for invalid paging or filter parameters
     *                           401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/archived")
     @GET
     @Operation(summary = "getArchivedMilestones", description = "Gets all archived milestones")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of archived milestone objects which each contain keys (milestoneID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, companyID)"),
+            @ApiResponse(code = 200, message = "List of archived milestone objects which each contain keys (milestoneID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, companyID). One page ordered by milestoneID, the X-Next-Cursor header holds the after value of the next page"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getArchivedMilestones(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
+    public void getArchivedMilestones(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                      @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                      @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                      @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID,
+                                      @Parameter(in = ParameterIn.QUERY, name = "from") @QueryParam("from") String from,
+                                      @Parameter(in = ParameterIn.QUERY, name = "to") @QueryParam("to") String to,
+                                      @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                      @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
 
-            //Send parameters to business layer and store response
-            List<Milestone> milestoneList = milestoneBusiness.getArchivedMilestones(JWTUtility.getUUIDFromToken(jwt));
+                //Send parameters to business layer and store response
+                Page<Milestone> page = milestoneBusiness.getArchivedMilestones(JWTUtility.getUUIDFromToken(jwt), limit, after, companyID, from, to, view);
 
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(milestoneList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildPageResponse(page);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
@@ -159,7 +241,7 @@ public class MilestoneService {
             Milestone milestone = milestoneBusiness.getMilestoneByID(JWTUtility.getUUIDFromToken(jwt), milestoneID);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(milestone));
+            return ResponseBuilder.buildJsonResponse(milestone);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch (BadRequestException bre) {
@@ -213,7 +295,7 @@ public class MilestoneService {
             Milestone milestone = milestoneBusiness.insertMilestone(name, description, startDate, deliveryDate, companyID);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(milestone));
+            return ResponseBuilder.buildJsonResponse(milestone);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -274,7 +356,7 @@ public class MilestoneService {
             Milestone milestone = milestoneBusiness.updateMilestone(milestoneID, name, description, startDate, deliveryDate, companyID);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(milestone));
+            return ResponseBuilder.buildJsonResponse(milestone);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -347,12 +429,14 @@ public class MilestoneService {
     /**
      * Archive a milestone
      * @param milestoneID ID of milestone to archive
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for milestone archived successfully
      *                          400 BAD REQUEST for invalid parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          403 FORBIDDEN if requester does not have access to the endpoint
      *                          404 NOT FOUND for non-existent milestoneID
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/archive")
     @PUT
@@ -363,47 +447,52 @@ public class MilestoneService {
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 403, message = "{error: You do not have access to that request.}"),
             @ApiResponse(code = 404, message = "{error: No milestone with that ID exists.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response archiveMilestone(@RequestBody(description = "id", required = true) @FormParam("id") String milestoneID,
-                                    @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-
-        try {
-            Authorization.isInternal(jwt);
+    public void archiveMilestone(@RequestBody(description = "id", required = true) @FormParam("id") String milestoneID,
+                                    @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                    @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isInternal(jwt);
 
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            JsonObject returnObject = new JsonObject();
-            returnObject.addProperty("success", milestoneBusiness.archiveMilestone(milestoneID));
-            return ResponseBuilder.buildSuccessResponse(returnObject.toString());
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(ForbiddenException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
-        }
-        catch(NotFoundException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                JsonObject returnObject = new JsonObject();
+                returnObject.addProperty("success", milestoneBusiness.archiveMilestone(milestoneID));
+                return ResponseBuilder.buildSuccessResponse(returnObject.toString());
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(ForbiddenException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
+            }
+            catch(NotFoundException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Unarchive a milestone
      * @param milestoneID ID of milestone to unarchive
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for milestone unarchived successfully
      *                          400 BAD REQUEST for invalid parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          403 FORBIDDEN if requester does not have access to the endpoint
      *                          404 NOT FOUND for non-existent milestoneID
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/unarchive")
     @PUT
@@ -414,35 +503,38 @@ public class MilestoneService {
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 403, message = "{error: You do not have access to that request.}"),
             @ApiResponse(code = 404, message = "{error: No milestone with that ID exists.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response unarchiveMilestone(@RequestBody(description = "id", required = true) @FormParam("id") String milestoneID,
-                                     @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-
-        try {
-            Authorization.isInternal(jwt);
+    public void unarchiveMilestone(@RequestBody(description = "id", required = true) @FormParam("id") String milestoneID,
+                                     @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                     @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isInternal(jwt);
 
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            JsonObject returnObject = new JsonObject();
-            returnObject.addProperty("success", milestoneBusiness.unarchiveMilestone(milestoneID));
-            return ResponseBuilder.buildSuccessResponse(returnObject.toString());
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(ForbiddenException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
-        }
-        catch(NotFoundException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                JsonObject returnObject = new JsonObject();
+                returnObject.addProperty("success", milestoneBusiness.unarchiveMilestone(milestoneID));
+                return ResponseBuilder.buildSuccessResponse(returnObject.toString());
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(ForbiddenException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
+            }
+            catch(NotFoundException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 }
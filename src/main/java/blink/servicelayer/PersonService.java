@@ -6,10 +6,9 @@ import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 
 import blink.utility.exceptions.ConflictException;
+import blink.utility.objects.Page;
 import blink.utility.objects.Person;
 import blink.utility.security.JWTUtility;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiResponse;
@@ -31,34 +30,44 @@ import java.util.List;
 @Api(value = "/person")
 public class PersonService {
     private PersonBusiness personBusiness = new PersonBusiness();
-    private Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
 
     /**
      * Get all people from database
      * @param jwt JSON web token for authorization
+     * @param limit Number of people in a page, at most 500 which is also the default
+     * @param after UUID of the last person of the previous page, left out for the first page
+     * @param companyID Only people of this company
      * @return HTTP Response: 200 OK for people returned
+     *                         400 BAD REQUEST for invalid paging or filter parameters
      *                         401 UNAUTHORIZED for invalid JSON Web Token in header
      *                         500 INTERNAL SERVER ERROR for backend error
      */
     @GET
     @Operation(summary = "getAllPeople", description = "Gets all people")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of Person objects which each contain keys (UUID, name, email, title, companyID, accessLevelID)"),
+            @ApiResponse(code = 200, message = "List of Person objects which each contain keys (UUID, name, email, title, companyID, accessLevelID). One page ordered by UUID, the X-Next-Cursor header holds the after value of the next page"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllPeople(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
+    public Response getAllPeople(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                 @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                 @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                 @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID) {
         try {
             Authorization.isLoggedIn(jwt);
 
             //Send parameters to business layer and store response
-            List<Person> people = personBusiness.getAllPeople();
+            Page<Person> page = personBusiness.getAllPeople(limit, after, companyID);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(people));
+            return ResponseBuilder.buildPageResponse(page);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
+        catch(BadRequestException bre){
+            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+        }
         catch(NotAuthorizedException nae){
             return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
         }
@@ -94,7 +103,7 @@ public class PersonService {
             Person person = personBusiness.getPersonByUUID(uuid);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(person));
+            return ResponseBuilder.buildJsonResponse(person);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -138,7 +147,7 @@ public class PersonService {
             Person person = personBusiness.getPersonSignature(uuid);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(person));
+            return ResponseBuilder.buildJsonResponse(person);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -202,7 +211,7 @@ public class PersonService {
             Person person = personBusiness.insertPerson(username, password, fName, lName, email, title, accessLevelID, signature);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(person));
+            return ResponseBuilder.buildJsonResponse(person);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -220,6 +229,10 @@ public class PersonService {
         catch(ConflictException ce){
             return ResponseBuilder.buildErrorResponse(Response.Status.CONFLICT, ce.getMessage());
         }
+        //Every password hashing thread is busy
+        catch(ServiceUnavailableException sue){
+            return ResponseBuilder.buildServiceUnavailableResponse(AsyncResponder.BUSY_MESSAGE, AsyncResponder.RETRY_AFTER_SECONDS);
+        }
         catch(Exception e){
             return ResponseBuilder.buildInternalServerErrorResponse();
         }
@@ -274,7 +287,7 @@ public class PersonService {
             Person person = personBusiness.updatePerson(JWTUtility.getUUIDFromToken(jwt), uuid, username, password, fName, lName, email, title, accessLevelID, signature);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(person));
+            return ResponseBuilder.buildJsonResponse(person);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -292,6 +305,10 @@ public class PersonService {
         catch(ConflictException ce){
             return ResponseBuilder.buildErrorResponse(Response.Status.CONFLICT, ce.getMessage());
         }
+        //Every password hashing thread is busy
+        catch(ServiceUnavailableException sue){
+            return ResponseBuilder.buildServiceUnavailableResponse(AsyncResponder.BUSY_MESSAGE, AsyncResponder.RETRY_AFTER_SECONDS);
+        }
         catch(Exception e){
             return ResponseBuilder.buildInternalServerErrorResponse();
         }
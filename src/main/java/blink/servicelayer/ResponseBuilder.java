@@ -1,13 +1,38 @@
 package blink.servicelayer;
 
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
+import blink.utility.json.JsonMapper;
+import blink.utility.objects.Page;
+import blink.utility.objects.RowSource;
+import com.google.gson.Gson;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Date;
 
 /**
  * Class intended to consolidate logic for building response objects in the service layer
  */
 class ResponseBuilder {
     static final String FORBIDDEN_MESSAGE = "You do not have access to that request.";
+    //Header holding the "after" value of the next page of a list, left out on the last page
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    //Time a json array read while it is sent may take to send, from its first row to its last
+    static final Duration STREAM_TIMEOUT = Duration.parse(new EnvManager().getValue(EnvKeyValues.STREAM_TIMEOUT));
 
     /**
      * default constructor
@@ -27,6 +52,152 @@ class ResponseBuilder {
                         .build();
     }
 
+    /**
+     * Build a success response whose body is the json of an object.
+     * The json is written straight to the response stream as it is serialized, rather than built as a String first.
+     * @param entity Object to send, may be null
+     * @return Response object containing the json of the object
+     */
+    static Response buildJsonResponse(Object entity){
+        return Response.ok(jsonOutput(entity), MediaType.APPLICATION_JSON_TYPE)
+                        .build();
+    }
+
+    /**
+     * Build a success response whose body is the json of an object, along with the validators a client sends back
+     * to ask if it has changed
+     * @param entity Object to send, may be null
+     * @param eTag Entity tag of the object, without quotes
+     * @param lastModified Time the object last changed
+     * @return Response object containing the json of the object and its ETag and Last-Modified headers
+     */
+    static Response buildJsonResponse(Object entity, String eTag, Date lastModified){
+        return Response.ok(jsonOutput(entity), MediaType.APPLICATION_JSON_TYPE)
+                        .tag(eTag)
+                        .lastModified(lastModified)
+                        .build();
+    }
+
+    /**
+     * Build a success response whose body is a json array of rows read a page at a time while the response is sent.
+     * Only one page is held in memory, and no database connection is held while a page is written, so a slow
+     * client ties up neither. The first page is read here, so a failure to read it is reported as a normal error.
+     * Later pages are read after this method returns, so every check must be done before the source is built.
+     * @param rows Rows to send
+     * @param type Type of the rows
+     * @param <T> Type of the rows
+     * @return Response object containing the json array of the rows
+     */
+    static <T> Response buildJsonArrayResponse(RowSource<T> rows, Class<T> type){
+        Page<T> firstPage;
+        try {
+            firstPage = rows.readPage(null);
+        }
+        catch(SQLException sqle){
+            throw new InternalServerErrorException(sqle.getMessage());
+        }
+        return Response.ok(jsonArrayOutput(firstPage, rows, type), MediaType.APPLICATION_JSON_TYPE)
+                        .build();
+    }
+
+    /**
+     * Build a success response for one page of a list
+     * @param page Page of the list, its rows are written straight to the response stream as json
+     * @return Response object containing the page and, unless it is the last page, the next page cursor
+     */
+    static Response buildPageResponse(Page<?> page){
+        Response.ResponseBuilder response = Response.ok(jsonOutput(page.getItems()), MediaType.APPLICATION_JSON_TYPE);
+        if(page.getNextCursor() != null){
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.build();
+    }
+
+    /**
+     * Build a success response for one page of a list, along with the entity tag a client sends back to ask if
+     * the page has changed
+     * @param page Page of the list, its rows are written straight to the response stream as json
+     * @param eTag Entity tag of the page, without quotes
+     * @return Response object containing the page, its ETag header and, unless it is the last page, the next page cursor
+     */
+    static Response buildPageResponse(Page<?> page, String eTag){
+        return Response.fromResponse(buildPageResponse(page))
+                        .tag(eTag)
+                        .build();
+    }
+
+    /**
+     * Build a response telling the client the copy it holds is still current
+     * @param eTag Entity tag of the current response, without quotes
+     * @param lastModified Time the current response last changed, null if it is not known
+     * @return Response object containing Not Modified status and the validators of the current response
+     */
+    static Response buildNotModifiedResponse(String eTag, Date lastModified){
+        Response.ResponseBuilder response = Response.notModified(eTag);
+        if(lastModified != null){
+            response.lastModified(lastModified);
+        }
+        return response.build();
+    }
+
+    private static StreamingOutput jsonOutput(Object entity){
+        return output -> {
+            JsonWriter jsonWriter = newJsonWriter(output);
+            Gson gson = JsonMapper.gson();
+            if(entity == null){
+                gson.toJson(JsonNull.INSTANCE, jsonWriter);
+            }
+            else {
+                gson.toJson(entity, entity.getClass(), jsonWriter);
+            }
+            jsonWriter.flush();
+        };
+    }
+
+    /**
+     * Writes the pages of a list as one json array.
+     * Once the status has been sent a failure can no longer become an error response, so a page that cannot be read
+     * or a response that runs past STREAM_TIMEOUT throws an IOException with the array left open. The container then
+     * fails the response rather than completing it, and the client sees a broken body instead of a short list.
+     */
+    private static <T> StreamingOutput jsonArrayOutput(Page<T> firstPage, RowSource<T> rows, Class<T> type){
+        return output -> {
+            long deadline = System.nanoTime() + STREAM_TIMEOUT.toNanos();
+            JsonWriter jsonWriter = newJsonWriter(output);
+            TypeAdapter<T> adapter = JsonMapper.gson().getAdapter(type);
+            jsonWriter.beginArray();
+            Page<T> page = firstPage;
+            while(true){
+                for(T row : page.getItems()){
+                    if(System.nanoTime() - deadline > 0){
+                        throw new IOException("The list was not sent within " + STREAM_TIMEOUT + ".");
+                    }
+                    adapter.write(jsonWriter, row);
+                }
+                if(page.getNextCursor() == null){
+                    break;
+                }
+                try {
+                    page = rows.readPage(page.getNextCursor());
+                }
+                catch(SQLException sqle){
+                    throw new IOException("Could not read the rest of the list.", sqle);
+                }
+            }
+            jsonWriter.endArray();
+            jsonWriter.flush();
+        };
+    }
+
+    private static JsonWriter newJsonWriter(OutputStream output) throws IOException {
+        //The container closes the stream, the writer is only flushed
+        Gson gson = JsonMapper.gson();
+        JsonWriter jsonWriter = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        //Escape html characters the same way Gson.toJson does
+        jsonWriter.setHtmlSafe(gson.htmlSafe());
+        return jsonWriter;
+    }
+
     /**
      * Build an error response with a custom status and message
      * @param status HTTP status from JAX-RS Response
@@ -65,4 +236,29 @@ class ResponseBuilder {
                 .entity(json.toString())
                 .build();
     }
+
+    /**
+     * Build a response telling the client the server is too busy and when to try again
+     * @param message Message to append to HTTP response
+     * @param retryAfterSeconds Seconds the client should wait before retrying
+     * @return Response object containing Service Unavailable status, Retry-After header and custom message
+     */
+    static Response buildServiceUnavailableResponse(String message, long retryAfterSeconds){
+        JsonObject json = new JsonObject();
+        json.addProperty("error", message);
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", retryAfterSeconds)
+                .entity(json.toString())
+                .build();
+    }
+
+    /**
+     * Build a Content-Disposition value that makes the client download the content under a file name
+     * @param fileName Name to save the file as
+     * @return Content-Disposition header value
+     */
+    static String attachment(String fileName){
+        String safeName = fileName == null ? "file" : fileName.replaceAll("[\\r\\n\"\\\\]", "_");
+        return "attachment; filename=\"" + safeName + "\"";
+    }
 }
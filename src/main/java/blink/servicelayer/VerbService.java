@@ -3,8 +3,6 @@ package blink.servicelayer;
 import blink.businesslayer.Authorization;
 import blink.businesslayer.VerbBusiness;
 import blink.utility.objects.Verb;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
@@ -24,7 +22,6 @@ import java.util.List;
 @Api(value = "/verb")
 public class VerbService {
     private VerbBusiness verbBusiness = new VerbBusiness();
-    private Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
 
     /**
      * Get all verbs from database
@@ -49,7 +46,7 @@ public class VerbService {
             List<Verb> verbList = verbBusiness.getAllVerbs();
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(verbList));
+            return ResponseBuilder.buildJsonResponse(verbList);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(NotAuthorizedException nae){
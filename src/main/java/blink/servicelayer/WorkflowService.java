@@ -2,11 +2,11 @@ package blink.servicelayer;
 
 import blink.businesslayer.Authorization;
 import blink.businesslayer.WorkflowBusiness;
+import blink.utility.objects.EntityVersion;
+import blink.utility.objects.Page;
 import blink.utility.objects.Step;
 import blink.utility.objects.Workflow;
 import blink.utility.security.JWTUtility;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiResponse;
@@ -17,6 +17,8 @@ import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
@@ -25,50 +27,73 @@ import java.util.List;
 @Api(value = "/workflow")
 public class WorkflowService {
     private WorkflowBusiness workflowBusiness = new WorkflowBusiness();
-    private Gson gson = new GsonBuilder().setDateFormat("MMM d, yyy HH:mm:ss").serializeNulls().create();
 
     /**
      * Get all workflows
      * @param jwt JSON web token for authorization
+     * @param limit Number of workflows in a page, at most 500 which is also the default
+     * @param after workflowID of the last workflow of the previous page, left out for the first page
+     * @param companyID Only workflows of this company
+     * @param from Only workflows delivered on or after this date (yyyy-MM-dd)
+     * @param to Only workflows delivered on or before this date (yyyy-MM-dd)
+     * @param archived true or false for only archived or only active workflows
+     * @param view summary to leave out steps and descriptions, full or left out for whole workflows
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for workflows returned
+     *                          400 BAD REQUEST for invalid paging or filter parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @GET
     @Operation(summary = "getConcreteWorkflows", description = "Gets all workflows in the system")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of workflow objects which each contain keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps)"),
+            @ApiResponse(code = 200, message = "List of workflow objects which each contain keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps). One page ordered by workflowID, the X-Next-Cursor header holds the after value of the next page"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<Workflow> workflowList = workflowBusiness.getAllWorkflows(JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflowList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getAllWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID,
+                                @Parameter(in = ParameterIn.QUERY, name = "from") @QueryParam("from") String from,
+                                @Parameter(in = ParameterIn.QUERY, name = "to") @QueryParam("to") String to,
+                                @Parameter(in = ParameterIn.QUERY, name = "archived") @QueryParam("archived") String archived,
+                                @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Send parameters to business layer and store response
+                Page<Workflow> page = workflowBusiness.getAllWorkflows(JWTUtility.getUUIDFromToken(jwt), limit, after, companyID, from, to, archived, view);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildPageResponse(page);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get template workflows
      * @param jwt JSON web token for authorization
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for template workflows returned
      *                           401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/templates")
     @GET
@@ -76,100 +101,164 @@ public class WorkflowService {
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "List of template workflow objects which each contain keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps)"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getTemplateWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isInternal(jwt);
-
-            //Send parameters to business layer and store response
-            List<Workflow> workflowList = workflowBusiness.getTemplateWorkflows(JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflowList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, e.getMessage());
-        }
+    public void getTemplateWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                     @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isInternal(jwt);
+
+                //Send parameters to business layer and store response
+                List<Workflow> workflowList = workflowBusiness.getTemplateWorkflows(JWTUtility.getUUIDFromToken(jwt));
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildJsonResponse(workflowList);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, e.getMessage());
+            }
+        });
     }
 
     /**
      * Get active workflows
      * @param jwt JSON web token for authorization
+     * @param limit Number of workflows in a page, at most 500 which is also the default
+     * @param after workflowID of the last workflow of the previous page, left out for the first page
+     * @param companyID Only workflows of this company
+     * @param from Only workflows delivered on or after this date (yyyy-MM-dd)
+     * @param to Only workflows delivered on or before this date (yyyy-MM-dd)
+     * @param view summary to leave out steps and descriptions, full or left out for whole workflows
+     * @param ifNoneMatch ETag of the page the client holds
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for active workflows returned
+     *                          304 NOT MODIFIED for the page the client holds being current
+     *                          400 BAD REQUEST for invalid paging or filter parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/active")
     @GET
     @Operation(summary = "getActiveWorkflows", description = "Gets all active workflows")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of active workflow objects which each contain keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps)"),
+            @ApiResponse(code = 200, message = "List of active workflow objects which each contain keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps). One page ordered by workflowID, the X-Next-Cursor header holds the after value of the next page and the ETag header the version of the page"),
+            @ApiResponse(code = 304, message = "The page matching If-None-Match is current"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getActiveWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<Workflow> workflowList = workflowBusiness.getActiveWorkflows(JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflowList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getActiveWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                   @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                   @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                   @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID,
+                                   @Parameter(in = ParameterIn.QUERY, name = "from") @QueryParam("from") String from,
+                                   @Parameter(in = ParameterIn.QUERY, name = "to") @QueryParam("to") String to,
+                                   @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                   @Parameter(in = ParameterIn.HEADER, name = ConditionalGet.IF_NONE_MATCH) @HeaderParam(ConditionalGet.IF_NONE_MATCH) String ifNoneMatch,
+                                   @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+                String uuid = JWTUtility.getUUIDFromToken(jwt);
+
+                //Compare the versions of the page to the client's copy before the workflows and their steps are read
+                String eTag = ConditionalGet.pageTag("workflow", view, workflowBusiness.getActiveWorkflowVersions(uuid, limit, after, companyID, from, to, view));
+                if(ConditionalGet.isNotModified(ifNoneMatch, null, eTag, null)){
+                    return ResponseBuilder.buildNotModifiedResponse(eTag, null);
+                }
+
+                //Send parameters to business layer and store response
+                Page<Workflow> page = workflowBusiness.getActiveWorkflows(uuid, limit, after, companyID, from, to, view);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildPageResponse(page, eTag);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get archived workflows
      * @param jwt JSON web token for authorization
+     * @param limit Number of workflows in a page, at most 500 which is also the default
+     * @param after workflowID of the last workflow of the previous page, left out for the first page
+     * @param companyID Only workflows of this company
+     * @param from Only workflows delivered on or after this date (yyyy-MM-dd)
+     * @param to Only workflows delivered on or before this date (yyyy-MM-dd)
+     * @param view summary to leave out steps and descriptions, full or left out for whole workflows
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for archived workflows returned
+     *                           400 BAD REQUEST for invalid paging or filter parameters
      *                           401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/archived")
     @GET
     @Operation(summary = "getArchivedWorkflows", description = "Gets all archived workflows")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "List of archived workflow objects which each contain keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps)"),
+            @ApiResponse(code = 200, message = "List of archived workflow objects which each contain keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps). One page ordered by workflowID, the X-Next-Cursor header holds the after value of the next page"),
+            @ApiResponse(code = 400, message = "{error: limit must be between 1 and 500.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getArchivedWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<Workflow> workflowList = workflowBusiness.getArchivedWorkflows(JWTUtility.getUUIDFromToken(jwt));
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflowList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getArchivedWorkflows(@Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                     @Parameter(in = ParameterIn.QUERY, name = "limit") @QueryParam("limit") String limit,
+                                     @Parameter(in = ParameterIn.QUERY, name = "after") @QueryParam("after") String after,
+                                     @Parameter(in = ParameterIn.QUERY, name = "company") @QueryParam("company") String companyID,
+                                     @Parameter(in = ParameterIn.QUERY, name = "from") @QueryParam("from") String from,
+                                     @Parameter(in = ParameterIn.QUERY, name = "to") @QueryParam("to") String to,
+                                     @Parameter(in = ParameterIn.QUERY, name = "view") @QueryParam("view") String view,
+                                     @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Send parameters to business layer and store response
+                Page<Workflow> page = workflowBusiness.getArchivedWorkflows(JWTUtility.getUUIDFromToken(jwt), limit, after, companyID, from, to, view);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildPageResponse(page);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Get a workflow by workflowID
      * @param workflowID ID of workflow to retrieve
      * @param jwt JSON web token for authorization
+     * @param ifNoneMatch ETag of the workflow the client holds
+     * @param ifModifiedSince Last-Modified time of the workflow the client holds, only read without If-None-Match
      * @return HTTP Response: 200 OK for archived workflows returned
+     *                           304 NOT MODIFIED for the workflow the client holds being current
      *                           401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          500 INTERNAL SERVER ERROR for backend error
      */
@@ -177,7 +266,8 @@ public class WorkflowService {
     @GET
     @Operation(summary = "getWorkflowByID", description = "Gets a specific workflow by ID")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "Workflow object which contains keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps)"),
+            @ApiResponse(code = 200, message = "Workflow object which contains keys (workflowID, name, description, createdDate, lastUpdatedDate, startDate, deliveryDate, completedDate, archived, milestoneID, company, percentComplete, steps). The ETag and Last-Modified headers hold the version of the workflow"),
+            @ApiResponse(code = 304, message = "The workflow matching If-None-Match or If-Modified-Since is current"),
             @ApiResponse(code = 400, message = "{error: WorkflowID must be a valid integer.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 404, message = "{error: No workflow with that ID exists.}"),
@@ -185,15 +275,25 @@ public class WorkflowService {
     })
     @Produces(MediaType.APPLICATION_JSON)
     public Response getWorkflowByID(@Parameter(in = ParameterIn.PATH, name = "id") @PathParam("id") String workflowID,
-                                     @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
+                                     @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                     @Parameter(in = ParameterIn.HEADER, name = ConditionalGet.IF_NONE_MATCH) @HeaderParam(ConditionalGet.IF_NONE_MATCH) String ifNoneMatch,
+                                     @Parameter(in = ParameterIn.HEADER, name = ConditionalGet.IF_MODIFIED_SINCE) @HeaderParam(ConditionalGet.IF_MODIFIED_SINCE) String ifModifiedSince) {
         try {
             Authorization.isLoggedIn(jwt);
+            String uuid = JWTUtility.getUUIDFromToken(jwt);
+
+            //Compare the version of the workflow to the client's copy before its steps are read
+            EntityVersion version = workflowBusiness.getWorkflowVersion(uuid, workflowID);
+            String eTag = ConditionalGet.entityTag("workflow", version);
+            if(ConditionalGet.isNotModified(ifNoneMatch, ifModifiedSince, eTag, version.getLastModified())){
+                return ResponseBuilder.buildNotModifiedResponse(eTag, version.getLastModified());
+            }
 
             //Send parameters to business layer and store response
-            Workflow workflow = workflowBusiness.getWorkflowByID(JWTUtility.getUUIDFromToken(jwt), workflowID);
+            Workflow workflow = workflowBusiness.getWorkflowByID(uuid, workflowID);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflow));
+            return ResponseBuilder.buildJsonResponse(workflow, eTag, version.getLastModified());
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch (BadRequestException bre) {
@@ -211,10 +311,12 @@ public class WorkflowService {
      * Get a set of workflows related to a milestone by ID
      * @param milestoneID ID of milestone to retrieve
      * @param jwt JSON web token for authorization
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for archived milestones returned
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          404 NOT_FOUND for MilestoneID not found
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/milestone/{id}")
     @GET
@@ -224,30 +326,34 @@ public class WorkflowService {
             @ApiResponse(code = 400, message = "{error: MilestoneID must be a valid integer.}"),
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 404, message = "{error: No milestone with that ID exists.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getWorkflowsByMilestoneID(@Parameter(in = ParameterIn.PATH, name = "id") @PathParam("id") String milestoneID,
-                                              @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-        try {
-            Authorization.isLoggedIn(jwt);
-
-            //Send parameters to business layer and store response
-            List<Workflow> workflowList = workflowBusiness.getWorkflowsByMilestoneID(JWTUtility.getUUIDFromToken(jwt), milestoneID);
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflowList));
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch (BadRequestException bre) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        } catch (NotAuthorizedException nae) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        } catch (NotFoundException nfe) {
-            return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
-        } catch (Exception e) {
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void getWorkflowsByMilestoneID(@Parameter(in = ParameterIn.PATH, name = "id") @PathParam("id") String milestoneID,
+                                              @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                              @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isLoggedIn(jwt);
+
+                //Send parameters to business layer and store response
+                List<Workflow> workflowList = workflowBusiness.getWorkflowsByMilestoneID(JWTUtility.getUUIDFromToken(jwt), milestoneID);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                return ResponseBuilder.buildJsonResponse(workflowList);
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch (BadRequestException bre) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            } catch (NotAuthorizedException nae) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            } catch (NotFoundException nfe) {
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            } catch (Exception e) {
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
@@ -284,7 +390,7 @@ public class WorkflowService {
             Workflow workflow = workflowBusiness.insertTemplateWorkflow(workflowJson);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflow));
+            return ResponseBuilder.buildJsonResponse(workflow);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -337,7 +443,7 @@ public class WorkflowService {
             Workflow workflow = workflowBusiness.insertWorkflow(workflowJson);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflow));
+            return ResponseBuilder.buildJsonResponse(workflow);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -391,7 +497,7 @@ public class WorkflowService {
             Workflow workflow = workflowBusiness.updateTemplateWorkflow(workflowJson);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflow));
+            return ResponseBuilder.buildJsonResponse(workflow);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -445,7 +551,7 @@ public class WorkflowService {
             Workflow workflow = workflowBusiness.updateConcreteWorkflow(workflowJson);
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(workflow));
+            return ResponseBuilder.buildJsonResponse(workflow);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(BadRequestException bre){
@@ -539,7 +645,7 @@ public class WorkflowService {
             List<Step> pendingTasks= workflowBusiness.getPendingTasks(JWTUtility.getUUIDFromToken(jwt));
 
             //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            return ResponseBuilder.buildSuccessResponse(gson.toJson(pendingTasks));
+            return ResponseBuilder.buildJsonResponse(pendingTasks);
         }
         //Catch error exceptions and return relevant Response using ResponseBuilder
         catch(NotFoundException nfe){
@@ -555,12 +661,14 @@ public class WorkflowService {
     /**
      * Archive a workflow
      * @param workflowID ID of workflow to archive
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for workflow archived successfully
      *                          400 BAD REQUEST for invalid parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          403 FORBIDDEN if requester does not have access to the endpoint
      *                          404 NOT FOUND for non-existent workflowID
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/archive")
     @PUT
@@ -571,47 +679,52 @@ public class WorkflowService {
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 403, message = "{error: You do not have access to that request.}"),
             @ApiResponse(code = 404, message = "{error: No workflow with that ID exists.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response archiveWorkflow(@RequestBody(description = "id", required = true) @FormParam("id") String workflowID,
-                                     @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-
-        try {
-            Authorization.isInternal(jwt);
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            JsonObject returnObject = new JsonObject();
-            returnObject.addProperty("success", workflowBusiness.archiveWorkflow(workflowID));
-            return ResponseBuilder.buildSuccessResponse(returnObject.toString());
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(ForbiddenException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
-        }
-        catch(NotFoundException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void archiveWorkflow(@RequestBody(description = "id", required = true) @FormParam("id") String workflowID,
+                                     @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                     @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isInternal(jwt);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                JsonObject returnObject = new JsonObject();
+                returnObject.addProperty("success", workflowBusiness.archiveWorkflow(workflowID));
+                return ResponseBuilder.buildSuccessResponse(returnObject.toString());
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(ForbiddenException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
+            }
+            catch(NotFoundException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
      * Unarchive a workflow
      * @param workflowID ID of workflow to unarchive
+     * @param asyncResponse Response resumed once the request has been handled
      * @return HTTP Response: 200 OK for workflow unarchived successfully
      *                          400 BAD REQUEST for invalid parameters
      *                          401 UNAUTHORIZED for invalid JSON Web Token in header
      *                          403 FORBIDDEN if requester does not have access to the endpoint
      *                          404 NOT FOUND for non-existent workflowID
      *                          500 INTERNAL SERVER ERROR for backend error
+     *                          503 SERVICE UNAVAILABLE when the server is too busy
      */
     @Path("/unarchive")
     @PUT
@@ -622,36 +735,39 @@ public class WorkflowService {
             @ApiResponse(code = 401, message = "{error: Invalid JSON Web Token provided.}"),
             @ApiResponse(code = 403, message = "{error: You do not have access to that request.}"),
             @ApiResponse(code = 404, message = "{error: No workflow with that ID exists.}"),
-            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}")
+            @ApiResponse(code = 500, message = "{error: Sorry, cannot process your request at this time.}"),
+            @ApiResponse(code = 503, message = "{error: The server is busy, please try again shortly.}")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public Response unarchiveWorkflow(@RequestBody(description = "id", required = true) @FormParam("id") String workflowID,
-                                       @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt) {
-
-        try {
-            Authorization.isInternal(jwt);
-
-            //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
-            JsonObject returnObject = new JsonObject();
-            returnObject.addProperty("success", workflowBusiness.unarchiveWorkflow(workflowID));
-            return ResponseBuilder.buildSuccessResponse(returnObject.toString());
-        }
-        //Catch error exceptions and return relevant Response using ResponseBuilder
-        catch(BadRequestException bre){
-            return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
-        }
-        catch(ForbiddenException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
-        }
-        catch(NotFoundException nfe){
-            return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
-        }
-        catch(NotAuthorizedException nae){
-            return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
-        }
-        catch(Exception e){
-            return ResponseBuilder.buildInternalServerErrorResponse();
-        }
+    public void unarchiveWorkflow(@RequestBody(description = "id", required = true) @FormParam("id") String workflowID,
+                                       @Parameter(in = ParameterIn.HEADER, name = "Authorization") @HeaderParam("Authorization") String jwt,
+                                       @Suspended final AsyncResponse asyncResponse) {
+        AsyncResponder.submit(asyncResponse, () -> {
+            try {
+                Authorization.isInternal(jwt);
+
+                //If no errors are thrown in the business layer, it was successful and OK response can be sent with message
+                JsonObject returnObject = new JsonObject();
+                returnObject.addProperty("success", workflowBusiness.unarchiveWorkflow(workflowID));
+                return ResponseBuilder.buildSuccessResponse(returnObject.toString());
+            }
+            //Catch error exceptions and return relevant Response using ResponseBuilder
+            catch(BadRequestException bre){
+                return ResponseBuilder.buildErrorResponse(Response.Status.BAD_REQUEST, bre.getMessage());
+            }
+            catch(ForbiddenException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.FORBIDDEN, nfe.getMessage());
+            }
+            catch(NotFoundException nfe){
+                return ResponseBuilder.buildErrorResponse(Response.Status.NOT_FOUND, nfe.getMessage());
+            }
+            catch(NotAuthorizedException nae){
+                return ResponseBuilder.buildErrorResponse(Response.Status.UNAUTHORIZED, nae.getMessage());
+            }
+            catch(Exception e){
+                return ResponseBuilder.buildInternalServerErrorResponse();
+            }
+        });
     }
 
     /**
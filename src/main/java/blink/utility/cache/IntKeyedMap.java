@@ -0,0 +1,152 @@
+package blink.utility.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable map from int keys to values.
+ * Keys are held in a sorted int array and looked up by binary search, so a lookup neither boxes the key nor
+ * hashes it. Changes return a new map and leave this one untouched, which makes an instance safe to share
+ * between threads without locking.
+ * @param <V> Value type
+ */
+public final class IntKeyedMap<V> {
+
+    private static final IntKeyedMap<?> EMPTY = new IntKeyedMap<>(new int[0], new Object[0]);
+
+    private final int[] keys;
+    private final Object[] values;
+
+    private IntKeyedMap(final int[] keys, final Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Returns an empty map.
+     * @param <V> Value type
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> IntKeyedMap<V> empty() {
+        return (IntKeyedMap<V>) EMPTY;
+    }
+
+    /**
+     * Builds a map from values that carry their own key.
+     * @param values Values to hold. A later value replaces an earlier value with the same key.
+     * @param key Reads the key of a value.
+     * @param <V> Value type
+     * @return The map.
+     */
+    public static <V> IntKeyedMap<V> of(final Collection<V> values, final ToIntFunction<V> key) {
+        //Sort key and position pairs packed into longs, so equal keys stay in the order they were given
+        Object[] given = values.toArray();
+        long[] order = new long[given.length];
+        for (int x = 0; x < given.length; x++) {
+            @SuppressWarnings("unchecked")
+            V value = (V) given[x];
+            order[x] = ((long) key.applyAsInt(value) << 32) | x;
+        }
+        Arrays.sort(order);
+
+        //One pass over the sorted pairs, the last of a run of equal keys is the latest value
+        int[] keys = new int[given.length];
+        Object[] sorted = new Object[given.length];
+        int size = 0;
+        for (long pair : order) {
+            int pairKey = (int) (pair >> 32);
+            Object value = given[(int) pair];
+            if (size > 0 && keys[size - 1] == pairKey) {
+                sorted[size - 1] = value;
+            } else {
+                keys[size] = pairKey;
+                sorted[size] = value;
+                size++;
+            }
+        }
+        return size == 0 ? empty() : new IntKeyedMap<>(Arrays.copyOf(keys, size), Arrays.copyOf(sorted, size));
+    }
+
+    /**
+     * Returns a value.
+     * @param key Key of the value
+     * @return The value or null if there is none for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final int key) {
+        int index = Arrays.binarySearch(this.keys, key);
+        return index < 0 ? null : (V) this.values[index];
+    }
+
+    /**
+     * Returns a copy of this map holding a value.
+     * @param key Key of the value
+     * @param value Value to hold, replacing any value already held for the key.
+     * @return The new map.
+     */
+    public IntKeyedMap<V> with(final int key, final V value) {
+        int index = Arrays.binarySearch(this.keys, key);
+        if (index >= 0) {
+            Object[] values = this.values.clone();
+            values[index] = value;
+            return new IntKeyedMap<>(this.keys, values);
+        }
+
+        int insertAt = -index - 1;
+        int[] keys = new int[this.keys.length + 1];
+        Object[] values = new Object[this.values.length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, insertAt);
+        System.arraycopy(this.values, 0, values, 0, insertAt);
+        keys[insertAt] = key;
+        values[insertAt] = value;
+        System.arraycopy(this.keys, insertAt, keys, insertAt + 1, this.keys.length - insertAt);
+        System.arraycopy(this.values, insertAt, values, insertAt + 1, this.values.length - insertAt);
+        return new IntKeyedMap<>(keys, values);
+    }
+
+    /**
+     * Returns a copy of this map without a key.
+     * @param key Key to remove
+     * @return The new map, or this map if it does not hold the key.
+     */
+    public IntKeyedMap<V> without(final int key) {
+        int index = Arrays.binarySearch(this.keys, key);
+        if (index < 0) {
+            return this;
+        }
+
+        int[] keys = new int[this.keys.length - 1];
+        Object[] values = new Object[this.values.length - 1];
+        System.arraycopy(this.keys, 0, keys, 0, index);
+        System.arraycopy(this.values, 0, values, 0, index);
+        System.arraycopy(this.keys, index + 1, keys, index, this.keys.length - index - 1);
+        System.arraycopy(this.values, index + 1, values, index, this.values.length - index - 1);
+        return new IntKeyedMap<>(keys, values);
+    }
+
+    /**
+     * Returns every value in key order.
+     * @return Unmodifiable list of the values.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<>(this.values.length);
+        for (Object value : this.values) {
+            list.add((V) value);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the number of keys held.
+     * @return Number of keys.
+     */
+    public int size() {
+        return this.keys.length;
+    }
+}
@@ -0,0 +1,173 @@
+package blink.utility.cache;
+
+import com.google.gson.JsonObject;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size bounded, least recently used cache whose entries also expire after a fixed time to live.
+ * Safe for use by multiple threads.
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class TtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    //Bumped on every invalidation so loads that raced with an invalidation are not cached
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates an empty cache.
+     * @param maxSize Maximum number of entries. The least recently used entry is evicted past this size.
+     * @param ttl Time an entry stays valid after it was stored.
+     */
+    public TtlCache(final int maxSize, final Duration ttl) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > TtlCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached value.
+     * @param key Key of the value
+     * @return The value or null if it is not cached or has expired.
+     */
+    public V get(final K key) {
+        this.lock.lock();
+        try {
+            CacheEntry<V> entry = this.entries.get(key);
+            if (entry == null) {
+                this.misses.increment();
+                return null;
+            }
+            if (System.nanoTime() - entry.storedAt > this.ttlNanos) {
+                this.entries.remove(key);
+                this.expirations.increment();
+                this.misses.increment();
+                return null;
+            }
+            this.hits.increment();
+            return entry.value;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a stamp to pass to put once a value has been loaded.
+     * @return The current invalidation generation.
+     */
+    public long stamp() {
+        this.lock.lock();
+        try {
+            return this.generation;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a value unless the cache was invalidated since the stamp was taken,
+     * in which case the value may already be stale.
+     * @param key Key of the value
+     * @param value Value to store
+     * @param stamp Stamp taken before the value was loaded
+     */
+    public void put(final K key, final V value, final long stamp) {
+        this.lock.lock();
+        try {
+            if (stamp == this.generation) {
+                this.entries.put(key, new CacheEntry<>(value, System.nanoTime()));
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a single entry.
+     * @param key Key of the entry
+     */
+    public void invalidate(final K key) {
+        this.lock.lock();
+        try {
+            this.generation++;
+            this.entries.remove(key);
+            this.invalidations.increment();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void invalidateAll() {
+        this.lock.lock();
+        try {
+            this.generation++;
+            this.entries.clear();
+            this.invalidations.increment();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a json snapshot of the cache counters.
+     * @return Json object of cache metrics.
+     */
+    public JsonObject metrics() {
+        int size;
+        this.lock.lock();
+        try {
+            size = this.entries.size();
+        } finally {
+            this.lock.unlock();
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("size", size);
+        json.addProperty("maxSize", this.maxSize);
+        json.addProperty("ttlSeconds", this.ttlNanos / 1_000_000_000L);
+        json.addProperty("hits", this.hits.sum());
+        json.addProperty("misses", this.misses.sum());
+        json.addProperty("evictions", this.evictions.sum());
+        json.addProperty("expirations", this.expirations.sum());
+        json.addProperty("invalidations", this.invalidations.sum());
+        return json;
+    }
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long storedAt;
+
+        private CacheEntry(V value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
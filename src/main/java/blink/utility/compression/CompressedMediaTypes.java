@@ -0,0 +1,36 @@
+package blink.utility.compression;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Knows which media types are already compressed, so deflating them again only costs time.
+ */
+public final class CompressedMediaTypes {
+
+    private static final Set<String> COMPRESSED_MIME_TYPES = new HashSet<>(Arrays.asList(
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/vnd.rar", "application/x-bzip2", "application/x-xz"));
+
+    private CompressedMediaTypes() {
+        //this is not used as this class is meant to be used as a static utility class
+    }
+
+    /**
+     * Checks whether a mime type is a format that is already compressed
+     * @param mimeType mime type without parameters, such as "image/png"
+     * @return true if deflating content of this type would not make it meaningfully smaller
+     */
+    public static boolean isCompressed(String mimeType) {
+        String type = mimeType.toLowerCase(Locale.ROOT);
+        if(type.startsWith("video/") || (type.startsWith("audio/") && !type.equals("audio/wav"))) {
+            return true;
+        }
+        if(type.startsWith("image/")) {
+            return !type.equals("image/bmp") && !type.equals("image/svg+xml") && !type.equals("image/tiff");
+        }
+        return COMPRESSED_MIME_TYPES.contains(type) || type.startsWith("application/vnd.openxmlformats-officedocument");
+    }
+}
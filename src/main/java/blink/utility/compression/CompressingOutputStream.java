@@ -0,0 +1,228 @@
+package blink.utility.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses content written to it once the content passes a minimum size.
+ * Content is held back until it passes the minimum size, so nothing reaches the underlying stream before it is
+ * known whether the content will be compressed, and the response headers can still be changed to say so.
+ * Content that ends below the minimum size is written as it is, as compressing it would save too little to be
+ * worth the time. Writes gzip or the zlib format of HTTP deflate with a Deflater borrowed from a pool.
+ * finish must be called once the content is written, this stream does not know otherwise that it has ended.
+ */
+public final class CompressingOutputStream extends OutputStream {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+    private static final int INITIAL_HELD_SIZE = 512;
+
+    private final OutputStream out;
+    private final DeflaterPool pool;
+    private final boolean gzip;
+    private final int minSize;
+    private final Runnable onCompress;
+
+    private byte[] held;
+    private int heldCount;
+    private boolean compressing;
+    private boolean finished;
+
+    private Deflater deflater;
+    private CRC32 crc;
+    private byte[] deflateBuffer;
+
+    private long bytesIn;
+    private long bytesOut;
+
+    /**
+     * @param out Stream the content is sent on, it is flushed but only closed if this stream is closed
+     * @param pool Deflaters to compress with, null to send the content as it is and only count it
+     * @param gzip True to write gzip, false to write the zlib format of HTTP deflate. The pool must match.
+     * @param minSize Content of fewer bytes is sent as it is
+     * @param onCompress Run once, before the first compressed byte is sent, to mark the response as compressed
+     */
+    public CompressingOutputStream(final OutputStream out, final DeflaterPool pool, final boolean gzip,
+                                   final int minSize, final Runnable onCompress) {
+        this.out = out;
+        this.pool = pool;
+        this.gzip = gzip;
+        this.minSize = minSize;
+        this.onCompress = onCompress;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (this.finished) {
+            throw new IOException("Content was written after it was finished.");
+        }
+        this.bytesIn += len;
+
+        if (this.compressing) {
+            this.deflate(b, off, len);
+        } else if (this.pool == null) {
+            this.send(b, off, len);
+        } else if (this.heldCount + len <= this.minSize) {
+            this.ensureHeldCapacity(this.heldCount + len);
+            System.arraycopy(b, off, this.held, this.heldCount, len);
+            this.heldCount += len;
+        } else {
+            this.startCompressing();
+            if (this.heldCount > 0) {
+                this.deflate(this.held, 0, this.heldCount);
+            }
+            this.held = null;
+            this.deflate(b, off, len);
+        }
+    }
+
+    /**
+     * Flushes what has been sent. Content held back below the minimum size stays held, as sending it would
+     * decide that the content is not compressed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (this.compressing || this.pool == null) {
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Ends the content: sends what is held back as it is, or the rest of the compressed content, and hands the
+     * Deflater back. Further calls do nothing.
+     * @throws IOException Error writing to the underlying stream
+     */
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        this.finished = true;
+
+        try {
+            if (this.compressing) {
+                this.deflater.finish();
+                while (!this.deflater.finished()) {
+                    this.drain();
+                }
+                if (this.gzip) {
+                    this.writeTrailer();
+                }
+            } else if (this.heldCount > 0) {
+                this.send(this.held, 0, this.heldCount);
+                this.held = null;
+            }
+            this.out.flush();
+        } finally {
+            this.release();
+        }
+    }
+
+    /**
+     * Hands the Deflater back to the pool without finishing the content, for when the response failed.
+     */
+    public void release() {
+        if (this.deflater != null) {
+            this.pool.release(this.deflater);
+            this.deflater = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.finish();
+        } finally {
+            this.out.close();
+        }
+    }
+
+    /**
+     * @return True if the content was compressed
+     */
+    public boolean isCompressed() {
+        return this.compressing;
+    }
+
+    /**
+     * @return Bytes of content written to this stream
+     */
+    public long getBytesIn() {
+        return this.bytesIn;
+    }
+
+    /**
+     * @return Bytes sent on the underlying stream
+     */
+    public long getBytesOut() {
+        return this.bytesOut;
+    }
+
+    private void ensureHeldCapacity(final int needed) {
+        int capacity = this.held == null ? 0 : this.held.length;
+        if (capacity < needed) {
+            //Grow towards the minimum size rather than taking it all up front, most small responses are far smaller
+            int newCapacity = Math.min(this.minSize, Math.max(needed, Math.max(capacity * 2, INITIAL_HELD_SIZE)));
+            this.held = this.held == null ? new byte[newCapacity] : Arrays.copyOf(this.held, newCapacity);
+        }
+    }
+
+    private void startCompressing() throws IOException {
+        this.onCompress.run();
+        this.compressing = true;
+        this.deflater = this.pool.borrow();
+        this.deflateBuffer = new byte[DEFLATE_BUFFER_SIZE];
+        if (this.gzip) {
+            this.crc = new CRC32();
+            this.send(GZIP_HEADER, 0, GZIP_HEADER.length);
+        }
+    }
+
+    private void deflate(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (this.gzip) {
+            this.crc.update(b, off, len);
+        }
+        //The Deflater keeps a reference to the input, so it is consumed in full before returning to the caller
+        this.deflater.setInput(b, off, len);
+        while (!this.deflater.needsInput()) {
+            this.drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        int count = this.deflater.deflate(this.deflateBuffer, 0, this.deflateBuffer.length, Deflater.NO_FLUSH);
+        if (count > 0) {
+            this.send(this.deflateBuffer, 0, count);
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        byte[] trailer = new byte[8];
+        writeIntLE(trailer, 0, (int) this.crc.getValue());
+        //gzip holds the size modulo 2^32
+        writeIntLE(trailer, 4, (int) this.bytesIn);
+        this.send(trailer, 0, trailer.length);
+    }
+
+    private void send(final byte[] b, final int off, final int len) throws IOException {
+        this.out.write(b, off, len);
+        this.bytesOut += len;
+    }
+
+    private static void writeIntLE(final byte[] b, final int off, final int value) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >>> 8);
+        b[off + 2] = (byte) (value >>> 16);
+        b[off + 3] = (byte) (value >>> 24);
+    }
+}
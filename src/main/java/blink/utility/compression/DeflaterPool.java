@@ -0,0 +1,84 @@
+package blink.utility.compression;
+
+import com.google.gson.JsonObject;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Keeps idle Deflaters for reuse.
+ * A Deflater holds a native zlib stream of a few hundred kilobytes that is only freed by end() or the garbage
+ * collector, so creating one per response churns native memory. Idle Deflaters are shared through a queue rather
+ * than held per thread, as asynchronous responses may be written from virtual threads that are never reused.
+ */
+public final class DeflaterPool {
+
+    private final int level;
+    private final boolean nowrap;
+    private final int maxIdle;
+    private final Queue<Deflater> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    /**
+     * @param level Deflate level from 0 (store) to 9 (best compression)
+     * @param nowrap True for raw deflate data as gzip holds it, false for the zlib format of HTTP deflate
+     * @param maxIdle Most Deflaters kept idle, any more returned are ended
+     */
+    public DeflaterPool(final int level, final boolean nowrap, final int maxIdle) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes an idle Deflater, or creates one if none is idle.
+     * @return Deflater ready for new input, to be handed back with release.
+     */
+    public Deflater borrow() {
+        this.borrowed.increment();
+        Deflater deflater = this.idle.poll();
+        if (deflater != null) {
+            this.idleCount.decrementAndGet();
+            return deflater;
+        }
+        this.created.increment();
+        return new Deflater(this.level, this.nowrap);
+    }
+
+    /**
+     * Hands a Deflater back, whether or not it finished its input.
+     * @param deflater Deflater taken with borrow, it must not be used after this.
+     */
+    public void release(final Deflater deflater) {
+        if (this.idleCount.incrementAndGet() > this.maxIdle) {
+            this.idleCount.decrementAndGet();
+            this.discarded.increment();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        this.idle.offer(deflater);
+    }
+
+    /**
+     * Returns a snapshot of the pool statistics.
+     * @return Json object of the pool statistics.
+     */
+    public JsonObject metrics() {
+        JsonObject json = new JsonObject();
+        json.addProperty("level", this.level);
+        json.addProperty("idle", this.idleCount.get());
+        json.addProperty("maxIdle", this.maxIdle);
+        json.addProperty("borrowed", this.borrowed.sum());
+        json.addProperty("created", this.created.sum());
+        json.addProperty("discarded", this.discarded.sum());
+        return json;
+    }
+}
@@ -0,0 +1,202 @@
+package blink.utility.concurrent;
+
+import blink.utility.metrics.Histogram;
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A bounded executor for blocking work.
+ * By default it is a fixed size thread pool with a bounded queue. In virtual thread mode every task gets
+ * its own virtual thread instead and the same number of tasks (threads plus queue) may be in flight.
+ * Only tasks handed to this executor run on virtual threads, never the threads the server accepts requests on.
+ * Work submitted past either bound is rejected straight away instead of piling up, so callers can shed
+ * load rather than wait.
+ */
+public class BoundedExecutor {
+
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+
+    //Platform thread mode
+    private final ThreadPoolExecutor executor;
+
+    //Virtual thread mode
+    private final ThreadFactory virtualThreadFactory;
+    private final Semaphore virtualPermits;
+    private final AtomicInteger virtualRunning = new AtomicInteger();
+    private final LongAdder virtualCompleted = new LongAdder();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Histogram queueWait = new Histogram();
+    private final Histogram runTime = new Histogram();
+
+    /**
+     * Creates an executor on platform threads and starts its threads on demand.
+     * @param name Prefix of the thread names.
+     * @param threads Number of threads.
+     * @param queueCapacity Number of tasks that may wait for a thread.
+     */
+    public BoundedExecutor(final String name, final int threads, final int queueCapacity) {
+        this(name, threads, queueCapacity, false);
+    }
+
+    /**
+     * Creates an executor.
+     * @param name Prefix of the thread names.
+     * @param threads Number of threads.
+     * @param queueCapacity Number of tasks that may wait for a thread.
+     * @param virtualThreads Run each task on its own virtual thread. Falls back to platform threads
+     *                       if the running JVM has no virtual threads.
+     */
+    public BoundedExecutor(final String name, final int threads, final int queueCapacity, final boolean virtualThreads) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+
+        ThreadFactory factory = virtualThreads ? VirtualThreads.factory(name) : null;
+        if (virtualThreads && factory == null) {
+            Logger.getLogger(this.getClass().getName())
+                    .warning("Virtual threads are not available on this JVM, " + name + " uses platform threads.");
+        }
+
+        if (factory != null) {
+            this.virtualThreadFactory = factory;
+            this.virtualPermits = new Semaphore(this.threads + this.queueCapacity);
+            this.executor = null;
+        } else {
+            this.virtualThreadFactory = null;
+            this.virtualPermits = null;
+
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                //Never keep the server from shutting down
+                thread.setDaemon(true);
+                return thread;
+            };
+
+            this.executor = new ThreadPoolExecutor(
+                    this.threads,
+                    this.threads,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(this.queueCapacity),
+                    threadFactory,
+                    new ThreadPoolExecutor.AbortPolicy()
+            );
+        }
+    }
+
+    /**
+     * Queues a task.
+     * @param task Task to run.
+     * @throws RejectedExecutionException Thrown if the executor is saturated.
+     */
+    public void execute(final Runnable task) {
+        long queuedAt = System.nanoTime();
+        Runnable timedTask = () -> {
+            long startedAt = System.nanoTime();
+            this.queueWait.record(startedAt - queuedAt);
+            try {
+                task.run();
+            } catch (RuntimeException re) {
+                this.failed.increment();
+                throw re;
+            } finally {
+                this.runTime.record(System.nanoTime() - startedAt);
+            }
+        };
+
+        try {
+            if (this.isVirtual()) {
+                this.startVirtual(timedTask);
+            } else {
+                this.executor.execute(timedTask);
+            }
+            this.submitted.increment();
+        } catch (RejectedExecutionException ree) {
+            this.rejected.increment();
+            throw ree;
+        }
+    }
+
+    /**
+     * Queues a task that produces a result.
+     * @param task Task to run.
+     * @param <T> Result type
+     * @return Future holding the result or the exception thrown by the task.
+     * @throws RejectedExecutionException Thrown if the executor is saturated.
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        this.execute(future);
+        return future;
+    }
+
+    private void startVirtual(final Runnable task) {
+        if (!this.virtualPermits.tryAcquire()) {
+            throw new RejectedExecutionException(this.name + " is saturated");
+        }
+
+        try {
+            this.virtualThreadFactory.newThread(() -> {
+                this.virtualRunning.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    this.virtualRunning.decrementAndGet();
+                    this.virtualCompleted.increment();
+                    this.virtualPermits.release();
+                }
+            }).start();
+        } catch (RuntimeException re) {
+            this.virtualPermits.release();
+            throw new RejectedExecutionException(this.name + " could not start a thread", re);
+        }
+    }
+
+    /**
+     * Checks whether tasks run on virtual threads.
+     * @return True in virtual thread mode.
+     */
+    public boolean isVirtual() {
+        return this.virtualThreadFactory != null;
+    }
+
+    /**
+     * Returns the number of tasks waiting for a thread.
+     * In virtual thread mode tasks never wait for a thread, they wait for a database connection instead.
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return this.isVirtual() ? 0 : this.executor.getQueue().size();
+    }
+
+    /**
+     * Returns a json snapshot of the executor counters.
+     * @return Json object of executor metrics.
+     */
+    public JsonObject metrics() {
+        JsonObject json = new JsonObject();
+        json.addProperty("name", this.name);
+        json.addProperty("mode", this.isVirtual() ? "virtual" : "platform");
+        json.addProperty("threads", this.threads);
+        json.addProperty("activeThreads", this.isVirtual() ? this.virtualRunning.get() : this.executor.getActiveCount());
+        json.addProperty("queueDepth", this.getQueueDepth());
+        json.addProperty("queueCapacity", this.queueCapacity);
+        json.addProperty("submitted", this.submitted.sum());
+        json.addProperty("completed", this.isVirtual() ? this.virtualCompleted.sum() : this.executor.getCompletedTaskCount());
+        json.addProperty("rejected", this.rejected.sum());
+        json.addProperty("failed", this.failed.sum());
+        json.add("queueWait", this.queueWait.toJson());
+        json.add("runTime", this.runTime.toJson());
+        return json;
+    }
+}
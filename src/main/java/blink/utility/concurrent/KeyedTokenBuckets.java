@@ -0,0 +1,120 @@
+package blink.utility.concurrent;
+
+import com.google.gson.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One token bucket per key, for throttling by caller.
+ * Each bucket holds up to a fixed number of tokens and refills at a steady rate, so a key may burst up to
+ * the capacity and then continue at the refill rate. Only the most recently used keys are tracked, an evicted
+ * key starts again with a full bucket. Safe for use by multiple threads.
+ * @param <K> Key type
+ */
+public class KeyedTokenBuckets<K> {
+
+    private final int capacity;
+    private final long nanosPerToken;
+    private final int maxKeys;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Bucket> buckets;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * Creates an empty set of buckets.
+     * @param capacity Tokens a full bucket holds.
+     * @param tokensPerMinute Tokens added to a bucket each minute.
+     * @param maxKeys Maximum number of keys tracked. The least recently used key is dropped past this size.
+     */
+    public KeyedTokenBuckets(final int capacity, final int tokensPerMinute, final int maxKeys) {
+        this.capacity = Math.max(1, capacity);
+        this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / Math.max(1, tokensPerMinute);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.buckets = new LinkedHashMap<K, Bucket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Bucket> eldest) {
+                return size() > KeyedTokenBuckets.this.maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Takes a token from the bucket of a key.
+     * @param key Key of the bucket
+     * @return True if a token was taken, false if the bucket is empty and the caller should be throttled.
+     */
+    public boolean tryAcquire(final K key) {
+        long now = System.nanoTime();
+        this.lock.lock();
+        try {
+            Bucket bucket = this.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(this.capacity, now);
+                this.buckets.put(key, bucket);
+            }
+
+            //Add the tokens earned since the last refill, keeping the remainder for next time
+            long earned = (now - bucket.refilledAt) / this.nanosPerToken;
+            if (earned > 0) {
+                bucket.tokens = (int) Math.min(this.capacity, bucket.tokens + earned);
+                bucket.refilledAt = bucket.tokens == this.capacity ? now : bucket.refilledAt + earned * this.nanosPerToken;
+            }
+
+            if (bucket.tokens > 0) {
+                bucket.tokens--;
+                this.allowed.increment();
+                return true;
+            }
+            this.throttled.increment();
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the seconds until an empty bucket has a token again.
+     * @return Seconds between tokens, at least 1.
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(this.nanosPerToken / 1_000_000_000.0));
+    }
+
+    /**
+     * Returns a json snapshot of the bucket counters.
+     * @return Json object of throttling metrics.
+     */
+    public JsonObject metrics() {
+        int size;
+        this.lock.lock();
+        try {
+            size = this.buckets.size();
+        } finally {
+            this.lock.unlock();
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("keys", size);
+        json.addProperty("maxKeys", this.maxKeys);
+        json.addProperty("capacity", this.capacity);
+        json.addProperty("allowed", this.allowed.sum());
+        json.addProperty("throttled", this.throttled.sum());
+        return json;
+    }
+
+    private static class Bucket {
+        private int tokens;
+        private long refilledAt;
+
+        private Bucket(int tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package blink.utility.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * Access to virtual threads without requiring them at compile time.
+ * The project builds for Java 11, so the Java 21 Thread.Builder API is reached through reflection
+ * and callers fall back to platform threads when it is missing.
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreads.class.getName());
+
+    // Empty constructor because this class is meant to be used statically
+    private VirtualThreads() {}
+
+    /**
+     * Creates a factory of unstarted virtual threads named name-1, name-2, and so on.
+     * @param name Prefix of the thread names.
+     * @return The factory or null if the running JVM has no virtual threads.
+     */
+    public static ThreadFactory factory(final String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+            Method factoryMethod = builderClass.getMethod("factory");
+
+            builder = nameMethod.invoke(builder, name + "-", 1L);
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.fine("Virtual threads are not available: " + e);
+            return null;
+        }
+    }
+}
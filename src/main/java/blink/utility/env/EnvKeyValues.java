@@ -14,6 +14,45 @@ public final class EnvKeyValues {
     public static final String DB_USER_PASS = "DB_USER_PASS";
     public static final String DB_DATABASE = "DB_DATABASE";
 
+    // Database connection pool environment key values.
+    public static final String DB_POOL_MIN_SIZE = "DB_POOL_MIN_SIZE";
+    public static final String DB_POOL_MAX_SIZE = "DB_POOL_MAX_SIZE";
+    public static final String DB_POOL_MAX_WAIT = "DB_POOL_MAX_WAIT";
+    public static final String DB_POOL_IDLE_TIMEOUT = "DB_POOL_IDLE_TIMEOUT";
+    public static final String DB_POOL_LEAK_THRESHOLD = "DB_POOL_LEAK_THRESHOLD";
+
+    // Person cache environment key values.
+    public static final String PERSON_CACHE_SIZE = "PERSON_CACHE_SIZE";
+    public static final String PERSON_CACHE_TTL = "PERSON_CACHE_TTL";
+
+    // File archive environment key values.
+    // The timeout only covers checking access and listing the files, not streaming the archive.
+    public static final String ARCHIVE_COMPRESSION_LEVEL = "ARCHIVE_COMPRESSION_LEVEL";
+    public static final String ARCHIVE_TIMEOUT = "ARCHIVE_TIMEOUT";
+
+    // Response compression environment key values.
+    // The minimum size is in bytes, smaller responses are sent as they are.
+    public static final String RESPONSE_COMPRESSION_LEVEL = "RESPONSE_COMPRESSION_LEVEL";
+    public static final String RESPONSE_COMPRESSION_MIN_SIZE = "RESPONSE_COMPRESSION_MIN_SIZE";
+
+    // Time a response that is read from the database while it is sent may take to send.
+    public static final String STREAM_TIMEOUT = "STREAM_TIMEOUT";
+
+    // Async request executor environment key values.
+    public static final String ASYNC_POOL_SIZE = "ASYNC_POOL_SIZE";
+    public static final String ASYNC_QUEUE_SIZE = "ASYNC_QUEUE_SIZE";
+    public static final String ASYNC_TIMEOUT = "ASYNC_TIMEOUT";
+    public static final String ASYNC_VIRTUAL_THREADS = "ASYNC_VIRTUAL_THREADS";
+
+    // Login admission control environment key values.
+    // Attempts are per minute.
+    public static final String LOGIN_QUEUE_SIZE = "LOGIN_QUEUE_SIZE";
+    public static final String LOGIN_USER_ATTEMPTS = "LOGIN_USER_ATTEMPTS";
+    public static final String LOGIN_IP_ATTEMPTS = "LOGIN_IP_ATTEMPTS";
+
+    // Password hashing environment key values.
+    public static final String PASSWORD_HASH_ITERATIONS = "PASSWORD_HASH_ITERATIONS";
+
     // JWT environment key values.
     public static final String JWT_KEY = "JWT_KEY";
     public static final String JWT_ISSUER = "JWT_ISSUER";
@@ -2,6 +2,7 @@ package blink.utility.env;
 
 import blink.utility.env.systemproperties.*;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -10,29 +11,54 @@ import java.util.Map;
  */
 public class EnvManager {
 
-    private static final Map<String, EnvironmentProperty> envProps = new HashMap<>();
+    // Filled once while the class loads, which the JVM guarantees happens exactly once, so later
+    // lookups need no locking and never block a thread (virtual threads included) on first use.
+    private static final Map<String, EnvironmentProperty> envProps = fillWithProperties();
 
     /**
      * Default constructor.
      */
     public EnvManager() {
-        if (envProps.size() == 0) {
-            this.fillWithProperties();
-        }
+        // Properties are read when the class loads.
     }
 
     /**
      * Fill the map with known good kv pairs of our environment properties.
+     * @return Read only map of every environment property.
      */
-    private void fillWithProperties() {
+    private static Map<String, EnvironmentProperty> fillWithProperties() {
+        Map<String, EnvironmentProperty> envProps = new HashMap<>();
+
         // Add properties to the map.
         envProps.put(EnvKeyValues.DB_HOSTNAME, new DBHostName());
         envProps.put(EnvKeyValues.DB_DATABASE, new DBDatabaseName());
         envProps.put(EnvKeyValues.DB_USER_NAME, new DBUserName());
         envProps.put(EnvKeyValues.DB_USER_PASS, new DBUserPass());
+        envProps.put(EnvKeyValues.DB_POOL_MIN_SIZE, new DBPoolMinSize());
+        envProps.put(EnvKeyValues.DB_POOL_MAX_SIZE, new DBPoolMaxSize());
+        envProps.put(EnvKeyValues.DB_POOL_MAX_WAIT, new DBPoolMaxWait());
+        envProps.put(EnvKeyValues.DB_POOL_IDLE_TIMEOUT, new DBPoolIdleTimeout());
+        envProps.put(EnvKeyValues.DB_POOL_LEAK_THRESHOLD, new DBPoolLeakThreshold());
+        envProps.put(EnvKeyValues.PERSON_CACHE_SIZE, new PersonCacheSize());
+        envProps.put(EnvKeyValues.PERSON_CACHE_TTL, new PersonCacheTTL());
+        envProps.put(EnvKeyValues.ARCHIVE_COMPRESSION_LEVEL, new ArchiveCompressionLevel());
+        envProps.put(EnvKeyValues.ARCHIVE_TIMEOUT, new ArchiveTimeout());
+        envProps.put(EnvKeyValues.RESPONSE_COMPRESSION_LEVEL, new ResponseCompressionLevel());
+        envProps.put(EnvKeyValues.RESPONSE_COMPRESSION_MIN_SIZE, new ResponseCompressionMinSize());
+        envProps.put(EnvKeyValues.STREAM_TIMEOUT, new StreamTimeout());
+        envProps.put(EnvKeyValues.ASYNC_POOL_SIZE, new AsyncPoolSize());
+        envProps.put(EnvKeyValues.ASYNC_QUEUE_SIZE, new AsyncQueueSize());
+        envProps.put(EnvKeyValues.ASYNC_TIMEOUT, new AsyncTimeout());
+        envProps.put(EnvKeyValues.ASYNC_VIRTUAL_THREADS, new AsyncVirtualThreads());
+        envProps.put(EnvKeyValues.LOGIN_QUEUE_SIZE, new LoginQueueSize());
+        envProps.put(EnvKeyValues.LOGIN_USER_ATTEMPTS, new LoginUserAttempts());
+        envProps.put(EnvKeyValues.LOGIN_IP_ATTEMPTS, new LoginIPAttempts());
+        envProps.put(EnvKeyValues.PASSWORD_HASH_ITERATIONS, new PasswordHashIterations());
         envProps.put(EnvKeyValues.JWT_KEY, new JWTKey());
         envProps.put(EnvKeyValues.JWT_ISSUER, new JWTIssuer());
         envProps.put(EnvKeyValues.JWT_EXPIRE_DURATION, new JWTExpirationDuration());
+
+        return Collections.unmodifiableMap(envProps);
     }
 
     /**
@@ -0,0 +1,51 @@
+package blink.utility.env.systemproperties;
+
+import blink.utility.env.EnvKeyValues;
+
+import java.util.logging.Logger;
+
+public class ArchiveCompressionLevel implements EnvironmentProperty {
+
+    private static final String KEY = EnvKeyValues.ARCHIVE_COMPRESSION_LEVEL;
+    private static final String DEFAULT_VALUE = "6";
+    private String value = DEFAULT_VALUE;
+
+    public ArchiveCompressionLevel() {
+        this.getValueFromSystem();
+        Logger logger = Logger.getLogger(this.getClass().getName());
+        String msg = String.format("ARCHIVE_COMPRESSION_LEVEL determined to be: %s", this.value);
+        logger.info(msg);
+    }
+
+    @Override
+    public String getKey() {
+        return KEY;
+    }
+
+    @Override
+    public String getValue() {
+        return this.value;
+    }
+
+    @Override
+    public String setValue(String propertyName) {
+        this.value = propertyName;
+        return this.value;
+    }
+
+    @Override
+    public void getValueFromSystem() {
+        String tempVal = System.getenv(KEY);
+
+        // Only accept deflate levels from 0 (store) to 9 (best compression), otherwise keep the default.
+        if (tempVal != null) {
+            if (tempVal.length() > 0) {
+                try {
+                    this.value = Integer.toString(Math.min(9, Math.max(0, Integer.parseInt(tempVal))));
+                } catch (NumberFormatException nfe) {
+                    this.value = DEFAULT_VALUE;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package blink.utility.env.systemproperties;
+
+import blink.utility.env.EnvKeyValues;
+
+import java.util.logging.Logger;
+
+public class AsyncVirtualThreads implements EnvironmentProperty {
+
+    private static final String KEY = EnvKeyValues.ASYNC_VIRTUAL_THREADS;
+    // Off by default, virtual threads need Java 21 or newer at runtime.
+    // Only the asynchronous endpoint executor uses them, the server's own request threads stay platform threads.
+    private static final String DEFAULT_VALUE = "false";
+    private String value = DEFAULT_VALUE;
+
+    public AsyncVirtualThreads() {
+        this.getValueFromSystem();
+        Logger logger = Logger.getLogger(this.getClass().getName());
+        String msg = String.format("ASYNC_VIRTUAL_THREADS determined to be: %s", this.value);
+        logger.info(msg);
+    }
+
+    @Override
+    public String getKey() {
+        return KEY;
+    }
+
+    @Override
+    public String getValue() {
+        return this.value;
+    }
+
+    @Override
+    public String setValue(String propertyName) {
+        this.value = propertyName;
+        return this.value;
+    }
+
+    @Override
+    public void getValueFromSystem() {
+        String tempVal = System.getenv(KEY);
+
+        // Only "true" turns the mode on, anything else keeps the default.
+        if (tempVal != null) {
+            if (tempVal.length() > 0) {
+                this.value = Boolean.toString(Boolean.parseBoolean(tempVal.trim()));
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package blink.utility.env.systemproperties;
+
+import blink.utility.env.EnvKeyValues;
+
+import java.time.Duration;
+import java.util.logging.Logger;
+
+public class DBPoolIdleTimeout implements EnvironmentProperty {
+
+    // ISO-8601
+    // https://docs.oracle.com/javase/8/docs/api/java/time/Duration.html#parse-java.lang.CharSequence-
+    // 10 minutes by default
+    private static final String DEFAULT_VALUE = "PT10M";
+    private String value = Duration.parse(DEFAULT_VALUE).toString();
+    private static final String KEY = EnvKeyValues.DB_POOL_IDLE_TIMEOUT;
+
+    public DBPoolIdleTimeout() {
+        this.getValueFromSystem();
+        Logger logger = Logger.getLogger(this.getClass().getName());
+        String msg = String.format("DB_POOL_IDLE_TIMEOUT determined to be: %s", this.value);
+        logger.info(msg);
+    }
+
+    @Override
+    public String getKey() {
+        return KEY;
+    }
+
+    @Override
+    public String getValue() {
+        return this.value;
+    }
+
+    @Override
+    public String setValue(String propertyName) {
+        this.value = propertyName;
+        return this.value;
+    }
+
+    @Override
+    public void getValueFromSystem() {
+        String tempVal = System.getenv(KEY);
+
+        // Check to see if the systems environment has a value that we can parse.
+        if (tempVal != null) {
+            if (tempVal.length() > 0) {
+                try {
+                    this.value = Duration.parse(tempVal).toString();
+                } catch (Exception E) {
+                    this.value = Duration.parse(DEFAULT_VALUE).toString();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package blink.utility.env.systemproperties;
+
+import blink.utility.env.EnvKeyValues;
+
+import java.util.logging.Logger;
+
+public class DBPoolMaxSize implements EnvironmentProperty {
+
+    private static final String KEY = EnvKeyValues.DB_POOL_MAX_SIZE;
+    private static final String DEFAULT_VALUE = "20";
+    private String value = DEFAULT_VALUE;
+
+    public DBPoolMaxSize() {
+        this.getValueFromSystem();
+        Logger logger = Logger.getLogger(this.getClass().getName());
+        String msg = String.format("DB_POOL_MAX_SIZE determined to be: %s", this.value);
+        logger.info(msg);
+    }
+
+    @Override
+    public String getKey() {
+        return KEY;
+    }
+
+    @Override
+    public String getValue() {
+        return this.value;
+    }
+
+    @Override
+    public String setValue(String propertyName) {
+        this.value = propertyName;
+        return this.value;
+    }
+
+    @Override
+    public void getValueFromSystem() {
+        String tempVal = System.getenv(KEY);
+
+        // Only accept values that are positive integers, otherwise keep the default.
+        if (tempVal != null) {
+            if (tempVal.length() > 0) {
+                try {
+                    this.value = Integer.toString(Math.max(1, Integer.parseInt(tempVal)));
+                } catch (NumberFormatException nfe) {
+                    this.value = DEFAULT_VALUE;
+                }
+            }
+        }
+    }
+}
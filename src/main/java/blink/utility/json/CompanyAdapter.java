@@ -0,0 +1,23 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a Company
+ */
+final class CompanyAdapter extends WritingAdapter<Company> {
+
+    CompanyAdapter(TypeAdapter<Company> reader) {
+        super(reader);
+    }
+
+    @Override
+    void writeFields(JsonWriter out, Company company) throws IOException {
+        out.name("companyID").value(company.getCompanyID());
+        out.name("companyName").value(company.getCompanyName());
+    }
+}
@@ -0,0 +1,53 @@
+package blink.utility.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Reads and writes dates in JsonMapper.DATE_PATTERN in the server's time zone, in Locale.US as Gson's own date pattern
+ * adapter does, so month names never follow the server's default locale.
+ * Handles java.sql.Date and java.sql.Timestamp as well, which is what the data layer hands out.
+ */
+final class DateAdapter extends TypeAdapter<Date> {
+
+    //Immutable, so one formatter serves every thread without locking
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(JsonMapper.DATE_PATTERN, Locale.US)
+            .withZone(ZoneId.systemDefault());
+
+    @Override
+    public void write(JsonWriter out, Date value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        //java.sql.Date does not support toInstant, the epoch millis are valid for every subclass
+        out.value(FORMATTER.format(Instant.ofEpochMilli(value.getTime())));
+    }
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String value = in.nextString();
+        try {
+            return Date.from(ZonedDateTime.parse(value, FORMATTER).toInstant());
+        }
+        catch (DateTimeParseException dtpe) {
+            throw new JsonSyntaxException("Date must be in the format " + JsonMapper.DATE_PATTERN + ": " + value, dtpe);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package blink.utility.json;
+
+import blink.utility.objects.File;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a File, the encoded content is never written
+ */
+final class FileAdapter extends WritingAdapter<File> {
+
+    FileAdapter(TypeAdapter<File> reader) {
+        super(reader);
+    }
+
+    @Override
+    void writeFields(JsonWriter out, File file) throws IOException {
+        out.name("fileID").value(file.getFileID());
+        out.name("name").value(file.getName());
+        out.name("file").value(file.getDecodedString());
+        out.name("confidential").value(file.getConfidential());
+        out.name("form").value(file.getForm());
+    }
+}
@@ -0,0 +1,52 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.File;
+import blink.utility.objects.Milestone;
+import blink.utility.objects.Person;
+import blink.utility.objects.Step;
+import blink.utility.objects.Workflow;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.Date;
+
+/**
+ * Holds the one Gson instance used to read and write request and response bodies.
+ * Gson is thread safe and caches an adapter per type, so sharing one instance means every type is inspected once
+ * per application instead of once per request. The objects returned in bulk are written by hand written adapters
+ * instead of by reflection, and dates are written with an immutable java.time formatter instead of a locked
+ * SimpleDateFormat.
+ */
+public final class JsonMapper {
+
+    /**
+     * Pattern dates are written in, e.g. "Jan 5, 2021 13:45:00".
+     */
+    public static final String DATE_PATTERN = "MMM d, yyy HH:mm:ss";
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeHierarchyAdapter(Date.class, new DateAdapter())
+            .registerTypeAdapterFactory(new ObjectAdapterFactory())
+            .serializeNulls()
+            .create();
+
+    static {
+        //Build the adapters now rather than on the first request that needs each one
+        for (Class<?> type : new Class<?>[]{Workflow.class, Step.class, Milestone.class, Person.class, Company.class, File.class, Step[].class}) {
+            GSON.getAdapter(type);
+        }
+    }
+
+    private JsonMapper() {
+        //this is not used as this class is meant to be used as a static utility class
+    }
+
+    /**
+     * Returns the shared Gson instance.
+     * @return Gson configured for the api.
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+}
@@ -0,0 +1,47 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.Milestone;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Writes a Milestone
+ */
+final class MilestoneAdapter extends WritingAdapter<Milestone> {
+
+    private final TypeAdapter<Date> dateAdapter;
+    private final TypeAdapter<Company> companyAdapter;
+
+    MilestoneAdapter(TypeAdapter<Milestone> reader, TypeAdapter<Date> dateAdapter, TypeAdapter<Company> companyAdapter) {
+        super(reader);
+        this.dateAdapter = dateAdapter;
+        this.companyAdapter = companyAdapter;
+    }
+
+    @Override
+    void writeFields(JsonWriter out, Milestone milestone) throws IOException {
+        out.name("mileStoneID").value(milestone.getMileStoneID());
+        out.name("name").value(milestone.getName());
+        out.name("description").value(milestone.getDescription());
+        out.name("createdDate");
+        this.dateAdapter.write(out, milestone.getCreatedDate());
+        out.name("lastUpdatedDate");
+        this.dateAdapter.write(out, milestone.getLastUpdatedDate());
+        out.name("startDate");
+        this.dateAdapter.write(out, milestone.getStartDate());
+        out.name("deliveryDate");
+        this.dateAdapter.write(out, milestone.getDeliveryDate());
+        out.name("completedDate");
+        this.dateAdapter.write(out, milestone.getCompletedDate());
+        out.name("archived").value(milestone.isArchived());
+        out.name("company");
+        this.companyAdapter.write(out, milestone.getCompany());
+        out.name("leafSteps").value(milestone.getLeafSteps());
+        out.name("completedLeafSteps").value(milestone.getCompletedLeafSteps());
+        out.name("percentComplete").value(milestone.getPercentComplete());
+    }
+}
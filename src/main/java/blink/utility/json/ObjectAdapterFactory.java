@@ -0,0 +1,48 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.File;
+import blink.utility.objects.Milestone;
+import blink.utility.objects.Person;
+import blink.utility.objects.Step;
+import blink.utility.objects.Workflow;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.Date;
+
+/**
+ * Supplies the hand written adapters, each given Gson's reflective adapter of its type for reading.
+ */
+final class ObjectAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Company.class) {
+            return (TypeAdapter<T>) new CompanyAdapter(gson.getDelegateAdapter(this, TypeToken.get(Company.class)));
+        }
+        if (rawType == Step.class) {
+            return (TypeAdapter<T>) new StepAdapter(gson.getDelegateAdapter(this, TypeToken.get(Step.class)));
+        }
+        if (rawType == File.class) {
+            return (TypeAdapter<T>) new FileAdapter(gson.getDelegateAdapter(this, TypeToken.get(File.class)));
+        }
+        if (rawType == Person.class) {
+            return (TypeAdapter<T>) new PersonAdapter(gson.getDelegateAdapter(this, TypeToken.get(Person.class)),
+                    gson.getAdapter(Company.class));
+        }
+        if (rawType == Milestone.class) {
+            return (TypeAdapter<T>) new MilestoneAdapter(gson.getDelegateAdapter(this, TypeToken.get(Milestone.class)),
+                    gson.getAdapter(Date.class), gson.getAdapter(Company.class));
+        }
+        if (rawType == Workflow.class) {
+            return (TypeAdapter<T>) new WorkflowAdapter(gson.getDelegateAdapter(this, TypeToken.get(Workflow.class)),
+                    gson.getAdapter(Date.class), gson.getAdapter(Company.class), gson.getAdapter(Step.class));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.Person;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a Person, the password hash and salt are never written
+ */
+final class PersonAdapter extends WritingAdapter<Person> {
+
+    private final TypeAdapter<Company> companyAdapter;
+
+    PersonAdapter(TypeAdapter<Person> reader, TypeAdapter<Company> companyAdapter) {
+        super(reader);
+        this.companyAdapter = companyAdapter;
+    }
+
+    @Override
+    void writeFields(JsonWriter out, Person person) throws IOException {
+        out.name("uuid").value(person.getUuid());
+        out.name("username").value(person.getUsername());
+        out.name("fName").value(person.getFName());
+        out.name("lName").value(person.getLName());
+        out.name("email").value(person.getEmail());
+        out.name("title").value(person.getTitle());
+        out.name("companies");
+        List<Company> companies = person.getCompanies();
+        if (companies == null) {
+            out.nullValue();
+        }
+        else {
+            out.beginArray();
+            for (Company company : companies) {
+                this.companyAdapter.write(out, company);
+            }
+            out.endArray();
+        }
+        out.name("accessLevelID").value(person.getAccessLevelID());
+        out.name("signature").value(person.getSignature());
+    }
+}
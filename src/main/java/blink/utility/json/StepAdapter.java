@@ -0,0 +1,54 @@
+package blink.utility.json;
+
+import blink.utility.objects.Step;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a Step and its children, using the names the front end's tree component expects
+ */
+final class StepAdapter extends WritingAdapter<Step> {
+
+    StepAdapter(TypeAdapter<Step> reader) {
+        super(reader);
+    }
+
+    @Override
+    void writeFields(JsonWriter out, Step step) throws IOException {
+        out.name("stepID").value(step.getStepID());
+        out.name("orderNumber").value(step.getOrderNumber());
+        out.name("subtitle").value(step.getDescription());
+        out.name("parentStepID").value(step.getParentStepID());
+        out.name("uuid").value(step.getUUID());
+        out.name("title").value(step.getVerbID());
+        out.name("fileID").value(step.getFileID());
+        out.name("workflowID").value(step.getWorkflowID());
+        out.name("asynchronous").value(step.getAsynchronous());
+        out.name("completed").value(step.getCompleted());
+        out.name("expanded").value(step.getExpanded());
+        out.name("children");
+        writeSteps(this, out, step.getChildren());
+    }
+
+    /**
+     * Writes a list of steps
+     * @param stepAdapter Adapter of a step
+     * @param out Writer
+     * @param steps Steps to write, may be null
+     * @throws IOException Error writing
+     */
+    static void writeSteps(TypeAdapter<Step> stepAdapter, JsonWriter out, List<Step> steps) throws IOException {
+        if (steps == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (Step step : steps) {
+            stepAdapter.write(out, step);
+        }
+        out.endArray();
+    }
+}
@@ -0,0 +1,53 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.Step;
+import blink.utility.objects.Workflow;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Writes a Workflow and its step tree
+ */
+final class WorkflowAdapter extends WritingAdapter<Workflow> {
+
+    private final TypeAdapter<Date> dateAdapter;
+    private final TypeAdapter<Company> companyAdapter;
+    private final TypeAdapter<Step> stepAdapter;
+
+    WorkflowAdapter(TypeAdapter<Workflow> reader, TypeAdapter<Date> dateAdapter, TypeAdapter<Company> companyAdapter, TypeAdapter<Step> stepAdapter) {
+        super(reader);
+        this.dateAdapter = dateAdapter;
+        this.companyAdapter = companyAdapter;
+        this.stepAdapter = stepAdapter;
+    }
+
+    @Override
+    void writeFields(JsonWriter out, Workflow workflow) throws IOException {
+        out.name("workflowID").value(workflow.getWorkflowID());
+        out.name("name").value(workflow.getName());
+        out.name("description").value(workflow.getDescription());
+        out.name("createdDate");
+        this.dateAdapter.write(out, workflow.getCreatedDate());
+        out.name("lastUpdatedDate");
+        this.dateAdapter.write(out, workflow.getLastUpdatedDate());
+        out.name("startDate");
+        this.dateAdapter.write(out, workflow.getStartDate());
+        out.name("deliveryDate");
+        this.dateAdapter.write(out, workflow.getDeliveryDate());
+        out.name("completedDate");
+        this.dateAdapter.write(out, workflow.getCompletedDate());
+        out.name("archived").value(workflow.isArchived());
+        out.name("milestoneID").value(workflow.getMilestoneID());
+        out.name("company");
+        this.companyAdapter.write(out, workflow.getCompany());
+        out.name("leafSteps").value(workflow.getLeafSteps());
+        out.name("completedLeafSteps").value(workflow.getCompletedLeafSteps());
+        out.name("percentComplete").value(workflow.getPercentComplete());
+        out.name("steps");
+        StepAdapter.writeSteps(this.stepAdapter, out, workflow.getSteps());
+    }
+}
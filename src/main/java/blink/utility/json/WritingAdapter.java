@@ -0,0 +1,48 @@
+package blink.utility.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Base for adapters that write an object by hand and read it with Gson's reflective adapter.
+ * Request bodies are rarely these objects, so only writing is worth doing by hand.
+ * @param <T> Type written
+ */
+abstract class WritingAdapter<T> extends TypeAdapter<T> {
+
+    private final TypeAdapter<T> reader;
+
+    /**
+     * @param reader Reflective adapter used to read the type
+     */
+    WritingAdapter(TypeAdapter<T> reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public final void write(JsonWriter out, T value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        this.writeFields(out, value);
+        out.endObject();
+    }
+
+    @Override
+    public final T read(JsonReader in) throws IOException {
+        return this.reader.read(in);
+    }
+
+    /**
+     * Writes the fields of an object, in the order they are declared so the output matches the reflective adapter
+     * @param out Writer positioned inside the object
+     * @param value Object to write
+     * @throws IOException Error writing
+     */
+    abstract void writeFields(JsonWriter out, T value) throws IOException;
+}
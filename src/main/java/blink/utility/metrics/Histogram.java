@@ -0,0 +1,86 @@
+package blink.utility.metrics;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free latency histogram with fixed millisecond buckets.
+ * Intended for exposing timings through the MetricsRegistry, not for precise percentiles.
+ */
+public class Histogram {
+
+    // Upper bounds (inclusive) of each bucket in milliseconds. Anything above the last bound lands in the overflow bucket.
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Creates an empty histogram.
+     */
+    public Histogram() {
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a single observation.
+     * @param nanos The observed duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int index = BUCKET_BOUNDS_MILLIS.length;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            if (millis <= BUCKET_BOUNDS_MILLIS[i]) {
+                index = i;
+                break;
+            }
+        }
+
+        this.buckets[index].increment();
+        this.count.increment();
+        this.sumNanos.add(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns the number of observations recorded.
+     * @return The number of observations recorded.
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Returns a json snapshot of the histogram.
+     * Bucket keys are the inclusive upper bound in milliseconds, "le_inf" holds everything above the largest bound.
+     * @return Json object containing count, mean, max and bucket counts.
+     */
+    public JsonObject toJson() {
+        long observations = this.count.sum();
+
+        JsonObject json = new JsonObject();
+        json.addProperty("count", observations);
+        json.addProperty("meanMillis", observations == 0 ? 0.0 : (this.sumNanos.sum() / (double) observations) / 1_000_000.0);
+        json.addProperty("maxMillis", this.maxNanos.get() / 1_000_000.0);
+
+        JsonObject bucketJson = new JsonObject();
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            bucketJson.addProperty("le_" + BUCKET_BOUNDS_MILLIS[i], this.buckets[i].sum());
+        }
+        bucketJson.addProperty("le_inf", this.buckets[BUCKET_BOUNDS_MILLIS.length].sum());
+        json.add("buckets", bucketJson);
+
+        return json;
+    }
+}
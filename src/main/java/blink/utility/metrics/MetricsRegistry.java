@@ -0,0 +1,40 @@
+package blink.utility.metrics;
+
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Central place for components to publish runtime statistics.
+ * Each source supplies a json snapshot on demand, so nothing is computed unless metrics are requested.
+ */
+public final class MetricsRegistry {
+
+    private static final Map<String, Supplier<JsonObject>> SOURCES = new ConcurrentSkipListMap<>();
+
+    // Empty constructor because this class is meant to be used statically
+    private MetricsRegistry() {}
+
+    /**
+     * Registers a metrics source. Registering the same name twice replaces the previous source.
+     * @param name The name the snapshot will be published under.
+     * @param source Supplier of the current snapshot.
+     */
+    public static void register(final String name, final Supplier<JsonObject> source) {
+        SOURCES.put(name, source);
+    }
+
+    /**
+     * Returns a snapshot of every registered source.
+     * @return Json object keyed by source name.
+     */
+    public static JsonObject snapshot() {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, Supplier<JsonObject>> entry : SOURCES.entrySet()) {
+            json.add(entry.getKey(), entry.getValue().get());
+        }
+        return json;
+    }
+}
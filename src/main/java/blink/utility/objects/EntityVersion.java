@@ -0,0 +1,43 @@
+package blink.utility.objects;
+
+import java.util.Date;
+
+/**
+ * Version of a workflow or milestone row, read without the row itself.
+ * Every write to the row counts the version up, so a client holding the same version holds the same row.
+ */
+public class EntityVersion {
+    private final int id;
+    private final int version;
+    private final Date lastModified;
+    private final Integer companyID;
+
+    /**
+     * @param id Primary key of the row
+     * @param version Number of writes to the row
+     * @param lastModified Time of the last write to the row
+     * @param companyID Company the row belongs to, null if it belongs to none
+     */
+    public EntityVersion(int id, int version, Date lastModified, Integer companyID){
+        this.id = id;
+        this.version = version;
+        this.lastModified = lastModified;
+        this.companyID = companyID;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public Integer getCompanyID() {
+        return companyID;
+    }
+}
@@ -0,0 +1,177 @@
+package blink.utility.objects;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Describes the raw content of a stored file without holding the content itself.
+ * Files are stored as base64 encoded data urls ("data:[mime];base64,[data]"), this class works out
+ * the mime type and decoded size from the start and end of the stored value so the content can be streamed.
+ */
+public class FileContent {
+
+    //Number of stored characters needed to see the whole data url header. Multiple of 4 so it decodes on its own.
+    public static final int HEAD_LENGTH = 512;
+    //Number of stored characters needed to see the padding of the inner base64 data. Multiple of 4.
+    public static final int TAIL_LENGTH = 8;
+
+    private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_MARKER = ";base64,".getBytes(StandardCharsets.US_ASCII);
+
+    private int fileID;
+    private String name;
+    private String digest;
+    private String mimeType;
+    private long storedLength;
+    private long contentLength;
+
+    private FileContent(int fileID, String name, String digest, String mimeType, long storedLength, long contentLength) {
+        this.fileID = fileID;
+        this.name = name;
+        this.digest = digest;
+        this.mimeType = mimeType;
+        this.storedLength = storedLength;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Builds file content information from the edges of a stored file.
+     * @param fileID ID of the file
+     * @param name Name of the file
+     * @param digest Digest of the stored value, null if the file still holds it inline
+     * @param storedLength Length of the stored value
+     * @param head Up to the first HEAD_LENGTH stored bytes
+     * @param tail Up to the last TAIL_LENGTH stored bytes, starting on a multiple of 4
+     * @return File content information. Content length is -1 if it cannot be worked out.
+     */
+    public static FileContent fromStoredEdges(int fileID, String name, String digest, long storedLength, byte[] head, byte[] tail) {
+        if (storedLength == 0) {
+            return new FileContent(fileID, name, digest, DEFAULT_MIME_TYPE, 0, 0);
+        }
+
+        try {
+            byte[] decodedHead = Base64.getDecoder().decode(head);
+            int headerLength = dataUrlHeaderLength(decodedHead);
+            long decodedLength = decodedLength(storedLength, tail);
+
+            //Not a data url, the decoded value is the content
+            if (headerLength < 0) {
+                return new FileContent(fileID, name, digest, DEFAULT_MIME_TYPE, storedLength, decodedLength);
+            }
+
+            String mimeType = new String(decodedHead, DATA_PREFIX.length,
+                    headerLength - DATA_PREFIX.length - BASE64_MARKER.length, StandardCharsets.US_ASCII);
+            if (mimeType.isEmpty()) {
+                mimeType = DEFAULT_MIME_TYPE;
+            }
+
+            byte[] decodedTail = Base64.getDecoder().decode(tail);
+            long contentLength = decodedLength(decodedLength - headerLength, decodedTail);
+            return new FileContent(fileID, name, digest, mimeType, storedLength, contentLength);
+        } catch (IllegalArgumentException iae) {
+            //Stored value is not clean base64, stream it without promising a length
+            return new FileContent(fileID, name, digest, DEFAULT_MIME_TYPE, storedLength, -1);
+        }
+    }
+
+    /**
+     * Wraps a stream of the stored value so it yields the raw file bytes.
+     * Only the data url header is buffered, the rest is decoded as it is read.
+     * @param storedStream Stream of the stored value
+     * @return Stream of the raw file content
+     * @throws IOException Error reading the stored value
+     */
+    public static InputStream decode(InputStream storedStream) throws IOException {
+        InputStream dataUrl = Base64.getDecoder().wrap(storedStream);
+
+        //Read up to the end of the header one byte at a time so nothing past it is consumed
+        byte[] header = new byte[HEAD_LENGTH];
+        int headerLength = 0;
+        int next;
+        while (headerLength < HEAD_LENGTH && (next = dataUrl.read()) != -1) {
+            header[headerLength++] = (byte) next;
+            if (endsWith(header, headerLength, BASE64_MARKER)) {
+                return Base64.getDecoder().wrap(dataUrl);
+            }
+        }
+
+        //Not a data url, hand back what was read followed by the remainder
+        return new SequenceInputStream(new ByteArrayInputStream(header, 0, headerLength), dataUrl);
+    }
+
+    /**
+     * Finds the end of a data url header.
+     * @param decodedHead Start of a decoded data url
+     * @return Index just past ";base64," or -1 if the value is not a base64 data url
+     */
+    private static int dataUrlHeaderLength(byte[] decodedHead) {
+        if (!startsWith(decodedHead, DATA_PREFIX)) {
+            return -1;
+        }
+        for (int i = DATA_PREFIX.length; i <= decodedHead.length - BASE64_MARKER.length; i++) {
+            boolean match = true;
+            for (int j = 0; j < BASE64_MARKER.length && match; j++) {
+                match = decodedHead[i + j] == BASE64_MARKER[j];
+            }
+            if (match) {
+                return i + BASE64_MARKER.length;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Works out the decoded size of base64 data from its length and last characters.
+     */
+    private static long decodedLength(long encodedLength, byte[] encodedTail) {
+        if (encodedLength % 4 != 0) {
+            throw new IllegalArgumentException("Base64 length must be a multiple of 4");
+        }
+        int padding = 0;
+        for (int i = encodedTail.length - 1; i >= 0 && encodedTail[i] == '=' && padding < 2; i--) {
+            padding++;
+        }
+        return encodedLength / 4 * 3 - padding;
+    }
+
+    private static boolean startsWith(byte[] value, byte[] prefix) {
+        if (value.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (value[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean endsWith(byte[] value, int length, byte[] suffix) {
+        if (length < suffix.length) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (value[length - suffix.length + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getFileID() { return fileID; }
+
+    public String getName() { return name; }
+
+    public String getDigest() { return digest; }
+
+    public String getMimeType() { return mimeType; }
+
+    public long getStoredLength() { return storedLength; }
+
+    public long getContentLength() { return contentLength; }
+}
@@ -0,0 +1,78 @@
+package blink.utility.objects;
+
+import java.time.LocalDate;
+
+/**
+ * Page and filters requested for a list endpoint.
+ * Lists are ordered by their primary key, a page holds the rows after the key in "after" and filters that
+ * do not apply to a list are ignored by it. A summary leaves out the large parts of each row, such as the
+ * steps of a workflow or the content of a file, and they are not read from the database at all.
+ */
+public class ListQuery {
+    //Largest page a client may ask for, also used when it does not ask for a size
+    public static final int MAX_LIMIT = 500;
+
+    private final int limit;
+    private final String after;
+    private final Integer companyID;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Boolean archived;
+    private final boolean summary;
+
+    /**
+     * @param limit Number of rows in a page
+     * @param after Key of the last row of the previous page, null for the first page
+     * @param companyID Only rows of this company, null for any company
+     * @param from Only rows delivered on or after this date, null for no lower bound
+     * @param to Only rows delivered on or before this date, null for no upper bound
+     * @param archived Only archived or only active rows, null for both
+     * @param summary Only read and return the summary of each row
+     */
+    public ListQuery(int limit, String after, Integer companyID, LocalDate from, LocalDate to, Boolean archived, boolean summary){
+        this.limit = limit;
+        this.after = after;
+        this.companyID = companyID;
+        this.from = from;
+        this.to = to;
+        this.archived = archived;
+        this.summary = summary;
+    }
+
+    /**
+     * Copy of this query restricted to archived or active rows
+     * @param archived Search for either archived or active rows
+     * @return New query with the same page and other filters
+     */
+    public ListQuery withArchived(boolean archived){
+        return new ListQuery(this.limit, this.after, this.companyID, this.from, this.to, archived, this.summary);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public Integer getCompanyID() {
+        return companyID;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public Boolean getArchived() {
+        return archived;
+    }
+
+    public boolean isSummary() {
+        return summary;
+    }
+}
@@ -1,9 +1,6 @@
 package blink.utility.objects;
 
-import blink.businesslayer.WorkflowBusiness;
-
 import java.util.Date;
-import java.util.List;
 
 public class Milestone {
     private int mileStoneID;
@@ -16,6 +13,8 @@ public class Milestone {
     private Date completedDate;
     private boolean archived;
     private Company company;
+    private int leafSteps;
+    private int completedLeafSteps;
     private double percentComplete;
 
     /**
@@ -29,8 +28,10 @@ public class Milestone {
      * @param completedDate date workflow was completed
      * @param archived whether the workflow is archived or not
      * @param company company that the workflow is assigned to
+     * @param leafSteps number of leaf steps across the milestone's workflows
+     * @param completedLeafSteps number of those leaf steps that are completed
      */
-    public Milestone(int mileStoneID, String name, String description, Date createdDate, Date lastUpdatedDate, Date startDate, Date deliveryDate, Date completedDate, boolean archived, Company company) {
+    public Milestone(int mileStoneID, String name, String description, Date createdDate, Date lastUpdatedDate, Date startDate, Date deliveryDate, Date completedDate, boolean archived, Company company, int leafSteps, int completedLeafSteps) {
         this.mileStoneID = mileStoneID;
         this.name = name;
         this.description = description;
@@ -41,6 +42,9 @@ public class Milestone {
         this.completedDate = completedDate;
         this.archived = archived;
         this.company = company;
+        this.leafSteps = leafSteps;
+        this.completedLeafSteps = completedLeafSteps;
+        this.percentComplete = (leafSteps == 0) ? 0.0 : ((double) completedLeafSteps / (double) leafSteps);
     }
 
     public Milestone(int mileStoneID, String name, String description, Date startDate, Date deliveryDate, Company company) {
@@ -136,32 +140,15 @@ public class Milestone {
         this.company = company;
     }
 
-    public double getPercentComplete() {
-        return this.percentComplete;
+    public int getLeafSteps() {
+        return this.leafSteps;
     }
 
-    public void setPercentComplete(String uuid) {
-        this.percentComplete = calculateCompletion(uuid, this.mileStoneID);
-        //If completed and not already marked as complete, mark complete
-        if(this.percentComplete == 1.0 && this.completedDate == null){
-            this.completedDate = new Date();
-        }
+    public int getCompletedLeafSteps() {
+        return this.completedLeafSteps;
     }
 
-    public static double calculateCompletion(String uuid, int milestoneID) {
-        WorkflowBusiness workflowBusiness = new WorkflowBusiness();
-        List<Workflow> workflowList = workflowBusiness.getWorkflowsByMilestoneID(uuid, Integer.toString(milestoneID));
-
-        if(workflowList.isEmpty()){
-            return 0.0;
-        }
-
-        double completion = 0.0;
-
-        for(Workflow workflow : workflowList) {
-            completion += workflow.getPercentComplete();
-        }
-
-        return (completion / (double) workflowList.size());
+    public double getPercentComplete() {
+        return this.percentComplete;
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package blink.utility.objects;
+
+import java.util.List;
+
+/**
+ * One page of a list
+ * @param <T> Type of the rows
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    /**
+     * @param items Rows of this page
+     * @param nextCursor Value of "after" that requests the next page, null if this is the last page
+     */
+    public Page(List<T> items, String nextCursor){
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,23 @@
+package blink.utility.objects;
+
+import java.sql.SQLException;
+
+/**
+ * A list that is read a page at a time while it is consumed rather than held in memory as a whole.
+ * Each page is read on its own connection, which is released before the page is handed out, so nothing is held
+ * on the database while the rows are passed on. Rows are ordered by their key and a page holds the rows after the
+ * cursor of the previous one, so a row changed between pages is never read twice.
+ * Checks on who may read the list are done before a RowSource is handed out, so consuming it only reads rows.
+ * @param <T> Type of the rows
+ */
+@FunctionalInterface
+public interface RowSource<T> {
+
+    /**
+     * Read one page of rows
+     * @param after Cursor of the previous page, null for the first page
+     * @return Page of rows and the cursor of the next page, null if it is the last page
+     * @throws SQLException Error connecting to database or executing query
+     */
+    Page<T> readPage(String after) throws SQLException;
+}
@@ -15,10 +15,12 @@ public class Workflow {
     private boolean archived;
     private int milestoneID;
     private Company company;
+    private int leafSteps;
+    private int completedLeafSteps;
     private double percentComplete;
     private List<Step> steps;
 
-    public Workflow(int workflowID, String name, String description, Date createdDate, Date lastUpdatedDate, Date startDate, Date deliveryDate, Date completedDate, boolean archived, Company company, int milestoneID, List<Step> steps) {
+    public Workflow(int workflowID, String name, String description, Date createdDate, Date lastUpdatedDate, Date startDate, Date deliveryDate, Date completedDate, boolean archived, Company company, int milestoneID, int leafSteps, int completedLeafSteps, List<Step> steps) {
         this.workflowID = workflowID;
         this.description = description;
         this.name = name;
@@ -31,7 +33,9 @@ public class Workflow {
         this.company = company;
         this.milestoneID = milestoneID;
         this.steps = steps;
-        this.percentComplete = this.calcPercentComplete();
+        this.leafSteps = leafSteps;
+        this.completedLeafSteps = completedLeafSteps;
+        this.percentComplete = (leafSteps == 0) ? 1 : ((double)completedLeafSteps / (double)leafSteps);
 
         //If completed and not already marked as complete, mark complete
         if(this.percentComplete == 1 && this.completedDate == null){
@@ -122,32 +126,16 @@ public class Workflow {
         this.milestoneID = milestoneID;
     }
 
-    public double getPercentComplete() {
-        return percentComplete;
+    public int getLeafSteps() {
+        return leafSteps;
     }
 
-    private double calcPercentComplete() {
-        int[] counts = this.calcPercentComplete(this.steps, 0, 0);
-        int totalSteps = counts[0];
-        int completeSteps = counts[1];
-        return (totalSteps == 0) ? 1 : ((double)completeSteps / (double)totalSteps);
-    }
-
-    private int[] calcPercentComplete(List<Step> steps, int totalSteps, int completeSteps) {
-        for(Step step : steps){
-            if(step.hasChildren()){
-                int[] updatedCounts = this.calcPercentComplete(step.getChildren(), totalSteps, completeSteps);
-                totalSteps = updatedCounts[0];
-                completeSteps = updatedCounts[1];
-            }
-            else {
-                if (step.getCompleted()) {
-                    completeSteps++;
-                }
-                totalSteps++;
-            }
-        }
-        return new int[] {totalSteps, completeSteps};
+    public int getCompletedLeafSteps() {
+        return completedLeafSteps;
+    }
+
+    public double getPercentComplete() {
+        return percentComplete;
     }
 
     public Company getCompany() {
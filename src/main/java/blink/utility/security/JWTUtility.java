@@ -1,10 +1,19 @@
 package blink.utility.security;
 
+import blink.utility.cache.TtlCache;
 import blink.utility.env.EnvManager;
 import blink.utility.env.EnvKeyValues;
+import blink.utility.metrics.MetricsRegistry;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -15,11 +24,26 @@ import java.util.Map;
 public final class JWTUtility {
 
     private static final EnvManager ENV_MANAGER = new EnvManager();
-    private static final String SECRET_KEY = ENV_MANAGER.getValue(EnvKeyValues.JWT_KEY);
+    private static final SignatureAlgorithm SIGNATURE_ALGORITHM = SignatureAlgorithm.HS256;
+    //The configured key is base64 encoded, decode it once instead of on every sign and verify
+    private static final SecretKey SECRET_KEY = new SecretKeySpec(
+            TextCodec.BASE64.decode(ENV_MANAGER.getValue(EnvKeyValues.JWT_KEY)), SIGNATURE_ALGORITHM.getJcaName());
+    //Configured once and never changed afterwards, so it is safe to share between threads
+    private static final JwtParser PARSER = Jwts.parser().setSigningKey(SECRET_KEY);
     private static final String ISSUER = ENV_MANAGER.getValue(EnvKeyValues.JWT_ISSUER);
     private static final long JWT_TOKEN_VALIDITY_DURATION =
             Duration.parse(ENV_MANAGER.getValue(EnvKeyValues.JWT_EXPIRE_DURATION)).toMillis();
 
+    //Claims of recently verified tokens keyed by the SHA-256 digest of the token, so raw tokens are not kept around.
+    //Entries are only served while the token itself is unexpired.
+    private static final int VERIFIED_CACHE_SIZE = 10_000;
+    private static final Duration VERIFIED_CACHE_TTL = Duration.ofMinutes(5);
+    private static final TtlCache<String, Claims> VERIFIED_TOKENS = new TtlCache<>(VERIFIED_CACHE_SIZE, VERIFIED_CACHE_TTL);
+
+    static {
+        MetricsRegistry.register("verifiedTokenCache", VERIFIED_TOKENS::metrics);
+    }
+
     //Empty constructor because this class is meant to be used statically
     private JWTUtility() {}
 
@@ -39,51 +63,92 @@ public final class JWTUtility {
                 .setIssuedAt(currDate)
                 .setExpiration(expirationDate)
                 //using HMAC-SHA256 for signature hashing algorithm
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .signWith(SIGNATURE_ALGORITHM, SECRET_KEY)
                 .compact();
     }
 
 
     //Retrieves all claims from token body
     private static Claims getAllClaimsFromToken(final String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+        return PARSER.parseClaimsJws(token).getBody();
+    }
+
+    //Verifies the token and returns its claims, null if the token is missing, invalid or expired
+    public static Claims verifyToken(final String token) {
+        if(token == null || token.isEmpty()){
+            return null;
+        }
+
+        String digest = digestOf(token);
+        Claims cached = VERIFIED_TOKENS.get(digest);
+        if(cached != null){
+            if(isExpired(cached)){
+                VERIFIED_TOKENS.invalidate(digest);
+                return null;
+            }
+            return cached;
+        }
+
+        long stamp = VERIFIED_TOKENS.stamp();
+        try {
+            Claims claims = getAllClaimsFromToken(token);
+            if(isExpired(claims)){
+                return null;
+            }
+            VERIFIED_TOKENS.put(digest, claims, stamp);
+            return claims;
+        }
+        catch(JwtException | IllegalArgumentException e){
+            return null;
+        }
     }
 
     //Get UUID from token
     public static String getUUIDFromToken(final String token) {
-        Claims claims = getAllClaimsFromToken(token);
-        return claims.getSubject();
+        //Reuse the claims verified for this request when possible
+        RequestPrincipal principal = RequestPrincipal.forToken(token);
+        if(principal != null){
+            return principal.getName();
+        }
+
+        return getVerifiedClaims(token).getSubject();
     }
 
     //Get Expiration date from token
     public static Date getExpirationDateFromToken(final String token) {
-        Claims claims = getAllClaimsFromToken(token);
-        return claims.getExpiration();
+        return getVerifiedClaims(token).getExpiration();
     }
 
-    //Check if the token has expired
-    private static Boolean isTokenExpired(final String token) {
-        try {
-            Date expiration = getExpirationDateFromToken(token);
-            Date currDate = new Date();
-
-            return expiration.before(currDate);
+    //Validate that token has not expired
+    public static Boolean validateToken(final String token) {
+        //Reuse the claims verified for this request when possible
+        RequestPrincipal principal = RequestPrincipal.forToken(token);
+        if(principal != null){
+            return !principal.isExpired();
         }
-        catch(ExpiredJwtException ejwte){
-            return true;
+        return verifyToken(token) != null;
+    }
+
+    //Returns the claims of a valid token, throws if the token is missing, invalid or expired
+    private static Claims getVerifiedClaims(final String token) {
+        Claims claims = verifyToken(token);
+        if(claims == null){
+            throw new MalformedJwtException("Invalid JSON Web Token provided.");
         }
+        return claims;
     }
 
-    //Validate that token has not expired
-    public static Boolean validateToken(final String token) {
+    private static boolean isExpired(final Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
+    }
+
+    private static String digestOf(final String token) {
         try {
-            if(token == null || token.isEmpty()){
-                return false;
-            }
-            return !isTokenExpired(token);
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII)));
         }
-        catch(MalformedJwtException mje){
-            return false;
+        catch(NoSuchAlgorithmException nsae){
+            throw new IllegalStateException("SHA-256 is not available", nsae);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,44 +1,118 @@
 package blink.utility.security;
 
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
+
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
-import java.math.BigInteger;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Utility class for handling salt generation and password hashing
+ *
+ * Hashes are stored as versioned records that carry their own parameters:
+ * "$pbkdf2-sha256$i=[iterations]$[base64 salt]$[base64 hash]"
+ * Records without a leading "$" are the original format, a 128 character hex PBKDF2WithHmacSHA1 hash of
+ * 1000 iterations salted with the person's salt column. Both verify, and anything weaker than the current
+ * policy can be replaced the next time the plain text password is known.
  */
 public class PasswordEncryption {
-    private static final String HASH_ALGORITHM = "PBKDF2WithHmacSHA1";
-    private static final int NUM_ITERATIONS = 1000;
-    private static final int KEY_LENGTH = 64 * 8;
+    private static final String LEGACY_ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final int LEGACY_ITERATIONS = 1000;
+    private static final int LEGACY_KEY_LENGTH = 64 * 8;
+
+    //Current policy, every new hash is created with it
+    private static final String ALGORITHM_ID = "pbkdf2-sha256";
+    private static final int ITERATIONS =
+            Integer.parseInt(new EnvManager().getValue(EnvKeyValues.PASSWORD_HASH_ITERATIONS));
+    private static final int KEY_LENGTH = 32 * 8;
+
+    private static final String RECORD_PREFIX = "$";
+    private static final String ITERATIONS_PREFIX = "i=";
+
+    //Record algorithm ids and the JCA algorithm each one names
+    private static final Map<String, String> ALGORITHMS = new HashMap<>();
+    static {
+        ALGORITHMS.put("pbkdf2-sha256", "PBKDF2WithHmacSHA256");
+        ALGORITHMS.put("pbkdf2-sha512", "PBKDF2WithHmacSHA512");
+    }
+
+    //Looking up a factory is costly and an instance is not thread safe, so each thread keeps its own
+    private static final ThreadLocal<Map<String, SecretKeyFactory>> KEY_FACTORIES = ThreadLocal.withInitial(HashMap::new);
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     private PasswordEncryption(){
         //Empty default constructor as this class is meant to be used statically
     }
 
     /**
-     * Hashes a password given a plain text password and salt
+     * Hashes a password under the current policy
      * @param password password to hash
-     * @param salt salt to increase hashing algorithm complexity
-     * @return Hexidecimal string of hashed password
+     * @param salt hexidecimal salt from getSalt
+     * @return Versioned hash record
      * @throws ArithmeticException General exception for handling errors with retrieving hash algorithm or key spec errors
      */
     public static String hash(String password, String salt) throws ArithmeticException {
-        try {
-            char[] chars = password.toCharArray();
+        byte[] saltBytes = fromHex(salt);
+        byte[] hash = pbkdf2(ALGORITHMS.get(ALGORITHM_ID), password, saltBytes, ITERATIONS, KEY_LENGTH);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return RECORD_PREFIX + ALGORITHM_ID
+                + RECORD_PREFIX + ITERATIONS_PREFIX + ITERATIONS
+                + RECORD_PREFIX + encoder.encodeToString(saltBytes)
+                + RECORD_PREFIX + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored hash record
+     * @param password plain text password to check
+     * @param storedHash stored hash record
+     * @param salt the person's salt column, only used by records in the original format
+     * @return True if the password matches
+     * @throws ArithmeticException General exception for handling errors with retrieving hash algorithm or key spec errors
+     */
+    public static boolean verify(String password, String storedHash, String salt) throws ArithmeticException {
+        if(storedHash == null){
+            return false;
+        }
 
-            PBEKeySpec spec = new PBEKeySpec(chars, salt.getBytes(), NUM_ITERATIONS, KEY_LENGTH);
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(HASH_ALGORITHM);
-            byte[] hash = skf.generateSecret(spec).getEncoded();
+        if(!storedHash.startsWith(RECORD_PREFIX)){
+            byte[] legacyHash = pbkdf2(LEGACY_ALGORITHM, password, salt.getBytes(StandardCharsets.US_ASCII),
+                    LEGACY_ITERATIONS, LEGACY_KEY_LENGTH);
+            return MessageDigest.isEqual(toHex(legacyHash).getBytes(StandardCharsets.US_ASCII),
+                    storedHash.getBytes(StandardCharsets.US_ASCII));
+        }
 
-            return toHex(hash);
+        HashRecord record = HashRecord.parse(storedHash);
+        if(record == null){
+            return false;
         }
-        catch(NoSuchAlgorithmException | InvalidKeySpecException e){
-            throw new ArithmeticException(e.getMessage());
+        byte[] hash = pbkdf2(record.algorithm, password, record.salt, record.iterations, record.hash.length * 8);
+        return MessageDigest.isEqual(hash, record.hash);
+    }
+
+    /**
+     * Checks whether a stored hash is weaker than the current policy and should be replaced
+     * @param storedHash stored hash record
+     * @return True for the original format, another algorithm or fewer iterations than the current policy
+     */
+    public static boolean needsRehash(String storedHash) {
+        if(storedHash == null || !storedHash.startsWith(RECORD_PREFIX)){
+            return true;
         }
+        HashRecord record = HashRecord.parse(storedHash);
+        return record == null
+                || !record.algorithm.equals(ALGORITHMS.get(ALGORITHM_ID))
+                || record.iterations < ITERATIONS
+                || record.hash.length * 8 < KEY_LENGTH;
     }
 
     /**
@@ -58,19 +132,107 @@ public class PasswordEncryption {
         }
     }
 
+    private static byte[] pbkdf2(String algorithm, String password, byte[] salt, int iterations, int keyLength) throws ArithmeticException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+        try {
+            return keyFactory(algorithm).generateSecret(spec).getEncoded();
+        }
+        catch(NoSuchAlgorithmException | InvalidKeySpecException e){
+            throw new ArithmeticException(e.getMessage());
+        }
+        finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static SecretKeyFactory keyFactory(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, SecretKeyFactory> factories = KEY_FACTORIES.get();
+        SecretKeyFactory factory = factories.get(algorithm);
+        if(factory == null){
+            factory = SecretKeyFactory.getInstance(algorithm);
+            factories.put(algorithm, factory);
+        }
+        return factory;
+    }
+
     /**
      * Converts a byte[] to a hexidecimal string
      * @param array byte[] to convert. Primarily for hash and salt conversion
-     * @return Hexidecimal string of whatever byte[] is passed in
+     * @return Lower case hexidecimal string of whatever byte[] is passed in, two characters per byte
      */
     private static String toHex(byte[] array) {
-        BigInteger bigInteger = new BigInteger(1, array);
-        String hex = bigInteger.toString(16);
-        int paddingLength = (array.length * 2) - hex.length();
-        if(paddingLength > 0) {
-            return String.format("%0" +paddingLength+ "d", 0) + hex;
-        } else {
-            return hex;
+        char[] hex = new char[array.length * 2];
+        for(int i = 0; i < array.length; i++){
+            hex[i * 2] = HEX_DIGITS[(array[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[array[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Converts a hexidecimal string to a byte[]
+     * @param hex hexidecimal string such as a salt from getSalt
+     * @return Decoded bytes
+     * @throws ArithmeticException The string is not hexidecimal
+     */
+    private static byte[] fromHex(String hex) throws ArithmeticException {
+        if(hex == null || hex.length() % 2 != 0){
+            throw new ArithmeticException("Salt must be a hexidecimal string.");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for(int i = 0; i < bytes.length; i++){
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if(high < 0 || low < 0){
+                throw new ArithmeticException("Salt must be a hexidecimal string.");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * The parameters and hash held by a versioned hash record
+     */
+    static class HashRecord {
+        final String algorithm;
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        private HashRecord(String algorithm, int iterations, byte[] salt, byte[] hash) {
+            this.algorithm = algorithm;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        /**
+         * Reads a record
+         * @param storedHash stored hash record
+         * @return The record or null if it is malformed, names an unknown algorithm or has no work to check against
+         */
+        static HashRecord parse(String storedHash) {
+            //"$id$i=n$salt$hash" splits into an empty first part followed by the four fields
+            String[] parts = storedHash.split("\\$");
+            if(parts.length != 5 || !ALGORITHMS.containsKey(parts[1]) || !parts[2].startsWith(ITERATIONS_PREFIX)){
+                return null;
+            }
+            try {
+                HashRecord record = new HashRecord(
+                        ALGORITHMS.get(parts[1]),
+                        Integer.parseInt(parts[2].substring(ITERATIONS_PREFIX.length())),
+                        Base64.getDecoder().decode(parts[3]),
+                        Base64.getDecoder().decode(parts[4]));
+                //PBEKeySpec refuses these, so they would fail every login with an exception instead of a mismatch
+                if(record.iterations < 1 || record.salt.length == 0 || record.hash.length == 0){
+                    return null;
+                }
+                return record;
+            }
+            catch(IllegalArgumentException iae){
+                return null;
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package blink.utility.security;
+
+import blink.utility.objects.Person;
+import io.jsonwebtoken.Claims;
+
+import java.security.Principal;
+import java.util.Date;
+
+/**
+ * The authenticated caller of the request currently being handled.
+ * Built once per request from the verified JSON Web Token so the token is parsed once and the
+ * caller's Person is loaded at most once, no matter how many layers ask for it.
+ * The principal is held in a ThreadLocal rather than injected. AuthenticationFilter also sets it as the
+ * user principal of the request's SecurityContext, but the layers below the services create each other with new
+ * and pass the caller as a UUID or token String, so injecting it would change every business and data layer
+ * signature. The ThreadLocal lets the lookups that already take those Strings find the principal behind them.
+ * AuthenticationFilter sets it before the resource method runs and clears it before and after each request,
+ * so a pooled thread never carries one caller into the next request.
+ * Work handed to another thread must read current() on the request thread, set it with setCurrent on the other
+ * thread before running and clear it in a finally block. Otherwise the other thread sees no principal and parses
+ * the token and loads the Person again. Code that runs after the response filter, such as a streamed response body,
+ * must not rely on it.
+ */
+public final class RequestPrincipal implements Principal {
+
+    private static final ThreadLocal<RequestPrincipal> CURRENT = new ThreadLocal<>();
+
+    private final String token;
+    private final Claims claims;
+    private Person person;
+
+    /**
+     * Creates a principal from verified claims.
+     * @param token The JSON Web Token the claims were read from.
+     * @param claims Verified claims of the token.
+     */
+    public RequestPrincipal(final String token, final Claims claims) {
+        this.token = token;
+        this.claims = claims;
+    }
+
+    /**
+     * Makes a principal the caller of the request handled by this thread.
+     * @param principal The principal, null clears the current principal.
+     */
+    public static void setCurrent(final RequestPrincipal principal) {
+        if (principal == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(principal);
+        }
+    }
+
+    /**
+     * Returns the caller of the request handled by this thread.
+     * @return The principal or null if the request is not authenticated.
+     */
+    public static RequestPrincipal current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the current principal if it was built from the given token.
+     * @param token JSON Web Token
+     * @return The principal or null if there is none for this token.
+     */
+    public static RequestPrincipal forToken(final String token) {
+        RequestPrincipal principal = CURRENT.get();
+        if (principal != null && principal.token.equals(token)) {
+            return principal;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the current principal if it belongs to the given person.
+     * @param uuid UUID of a person
+     * @return The principal or null if the caller is someone else.
+     */
+    public static RequestPrincipal forUUID(final String uuid) {
+        RequestPrincipal principal = CURRENT.get();
+        if (principal != null && principal.getName().equals(uuid)) {
+            return principal;
+        }
+        return null;
+    }
+
+    /**
+     * Drops the loaded Person of the current principal if it belongs to the given person,
+     * so changes made during this request are seen by later lookups.
+     * @param uuid UUID of the person that changed
+     */
+    public static void invalidatePerson(final String uuid) {
+        RequestPrincipal principal = forUUID(uuid);
+        if (principal != null) {
+            principal.person = null;
+        }
+    }
+
+    /**
+     * Returns the UUID of the caller.
+     * @return The subject of the token.
+     */
+    @Override
+    public String getName() {
+        return this.claims.getSubject();
+    }
+
+    public Claims getClaims() {
+        return this.claims;
+    }
+
+    /**
+     * Checks the token expiry against the current time.
+     * @return True if the token has expired since it was verified.
+     */
+    public boolean isExpired() {
+        Date expiration = this.claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
+    }
+
+    public Person getPerson() {
+        return this.person;
+    }
+
+    public void setPerson(final Person person) {
+        this.person = person;
+    }
+}
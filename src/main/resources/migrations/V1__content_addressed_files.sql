@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS `fileBlob` (
+  `digest` char(64) NOT NULL,
+  `content` longblob NOT NULL,
+  PRIMARY KEY (`digest`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+ALTER TABLE `file` ADD COLUMN IF NOT EXISTS `digest` char(64) DEFAULT NULL AFTER `file`;
+
+CREATE INDEX IF NOT EXISTS `idx_file_digest` ON `file` (`digest`);
@@ -0,0 +1,17 @@
+ALTER TABLE `workflow` ADD COLUMN IF NOT EXISTS `leafSteps` int(11) NOT NULL DEFAULT 0 AFTER `archived`;
+ALTER TABLE `workflow` ADD COLUMN IF NOT EXISTS `completedLeafSteps` int(11) NOT NULL DEFAULT 0 AFTER `leafSteps`;
+ALTER TABLE `milestone` ADD COLUMN IF NOT EXISTS `leafSteps` int(11) NOT NULL DEFAULT 0 AFTER `archived`;
+ALTER TABLE `milestone` ADD COLUMN IF NOT EXISTS `completedLeafSteps` int(11) NOT NULL DEFAULT 0 AFTER `leafSteps`;
+
+/* Count the existing steps, the application keeps the counters up to date from here on */
+UPDATE `workflow` SET
+  leafSteps = (SELECT COUNT(*) FROM step
+                WHERE step.workflowID = workflow.workflowID
+                AND NOT EXISTS (SELECT 1 FROM step AS child WHERE child.parentStepID = step.stepID)),
+  completedLeafSteps = (SELECT COUNT(*) FROM step
+                WHERE step.workflowID = workflow.workflowID AND step.completed = 1
+                AND NOT EXISTS (SELECT 1 FROM step AS child WHERE child.parentStepID = step.stepID));
+
+UPDATE `milestone` SET
+  leafSteps = (SELECT COALESCE(SUM(workflow.leafSteps), 0) FROM workflow WHERE workflow.milestoneID = milestone.milestoneID),
+  completedLeafSteps = (SELECT COALESCE(SUM(workflow.completedLeafSteps), 0) FROM workflow WHERE workflow.milestoneID = milestone.milestoneID);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS `idx_step_uuid_completed` ON `step` (`UUID`, `completed`);
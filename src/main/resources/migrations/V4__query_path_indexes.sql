@@ -0,0 +1,13 @@
+/* Step trees, sibling order and step diffs look steps up by workflow, then parent */
+CREATE INDEX IF NOT EXISTS `idx_step_workflow` ON `step` (`workflowID`, `parentStepID`, `orderNumber`);
+
+/* Child lookups, leaf checks and completion roll-up */
+CREATE INDEX IF NOT EXISTS `idx_step_parent` ON `step` (`parentStepID`, `completed`);
+
+CREATE INDEX IF NOT EXISTS `idx_workflow_milestone` ON `workflow` (`milestoneID`, `archived`);
+
+CREATE INDEX IF NOT EXISTS `idx_milestone_company` ON `milestone` (`companyID`, `archived`);
+
+CREATE INDEX IF NOT EXISTS `idx_personCompany_company` ON `personCompany` (`companyID`);
+
+CREATE INDEX IF NOT EXISTS `idx_person_username` ON `person` (`username`);
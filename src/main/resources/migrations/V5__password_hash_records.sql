@@ -0,0 +1,2 @@
+/* Versioned password hash records are longer than the original 128 character hex hashes */
+ALTER TABLE `person` MODIFY COLUMN `passwordHash` varchar(255) NOT NULL;
@@ -0,0 +1,11 @@
+/* Every write to a workflow or milestone counts up its version, so a client's copy can be checked without reading the row's steps.
+   lastModified follows any change to the row, including the version. */
+ALTER TABLE `workflow` ADD COLUMN IF NOT EXISTS `version` int(11) NOT NULL DEFAULT 0 AFTER `completedLeafSteps`;
+ALTER TABLE `workflow` ADD COLUMN IF NOT EXISTS `lastModified` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP AFTER `version`;
+ALTER TABLE `milestone` ADD COLUMN IF NOT EXISTS `version` int(11) NOT NULL DEFAULT 0 AFTER `completedLeafSteps`;
+ALTER TABLE `milestone` ADD COLUMN IF NOT EXISTS `lastModified` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP AFTER `version`;
+
+/* Active and archived lists read one page at a time in primary key order, and version checks of those lists read only these indexes */
+CREATE INDEX IF NOT EXISTS `idx_workflow_archived_version` ON `workflow` (`archived`, `workflowID`, `version`);
+
+CREATE INDEX IF NOT EXISTS `idx_milestone_archived_version` ON `milestone` (`archived`, `milestoneID`, `version`);
@@ -0,0 +1,8 @@
+/* Files written before contents were shared still hold them inline in file.file.
+   Move them into fileBlob so every download reads by digest, files with the same contents share one row. */
+INSERT IGNORE INTO `fileBlob` (digest, content)
+  SELECT SHA2(file.file, 256), file.file FROM `file`
+  WHERE file.digest IS NULL AND file.file IS NOT NULL;
+
+UPDATE `file` SET file.digest = SHA2(file.file, 256), file.file = NULL
+  WHERE file.digest IS NULL AND file.file IS NOT NULL;
@@ -0,0 +1,136 @@
+package blink.businesslayer;
+
+import blink.datalayer.FakeConnection;
+import blink.datalayer.FileDB;
+import blink.datalayer.StepDB;
+import blink.datalayer.StepTable;
+import blink.utility.objects.Step;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.NotFoundException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StepBusinessTest {
+
+    private static final int WORKFLOWID = 7;
+    private static final int OTHER_WORKFLOWID = 8;
+
+    private StepTable table;
+    private FakeConnection database;
+    private List<Integer> copiedFileIDs;
+    private boolean filesExist;
+    private StepBusiness stepBusiness;
+
+    @Before
+    public void setUp() {
+        this.table = new StepTable();
+        this.table.addTree(WORKFLOWID, new Random(1), 3, 2);
+        this.table.addTree(OTHER_WORKFLOWID, new Random(2), 1, 2);
+        this.database = new FakeConnection(this.table);
+        this.copiedFileIDs = new ArrayList<>();
+        this.filesExist = true;
+
+        //Copies are numbered from 5001 so they can be told apart from the stored fileIDs
+        FileDB fileDB = new FileDB() {
+            @Override
+            public int copyFile(int fileID) {
+                if (!filesExist) {
+                    return 0;
+                }
+                copiedFileIDs.add(fileID);
+                return 5000 + copiedFileIDs.size();
+            }
+        };
+        this.stepBusiness = new StepBusiness(new StepDB(), fileDB, new PersonBusiness(), new VerbBusiness());
+    }
+
+    @Test
+    public void unchangedTreeCopiesNoFilesAndWritesNothing() throws SQLException {
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+
+        assertEquals(0, this.updateSteps(steps));
+        assertTrue(this.copiedFileIDs.isEmpty());
+        assertEquals(1, this.database.getExecutions().size());
+    }
+
+    @Test
+    public void reparentedStepKeepsItsFile() throws SQLException {
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+        Step moved = steps.get(0).getChildren().remove(1);
+        int fileID = moved.getFileID();
+        steps.get(1).getChildren().add(moved);
+
+        assertEquals(1, this.updateSteps(steps));
+        assertTrue(this.copiedFileIDs.isEmpty());
+        assertEquals(fileID, this.table.getRow(moved.getStepID()).get("fileID"));
+    }
+
+    @Test
+    public void stepsOfAnotherWorkflowGetTheirOwnFileCopies() throws SQLException {
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+        Step foreign = this.table.loadTree(OTHER_WORKFLOWID).get(0);
+        int foreignStepID = foreign.getStepID();
+        List<Integer> foreignFileIDs = new ArrayList<>();
+        foreignFileIDs.add(foreign.getFileID());
+        for (Step child : foreign.getChildren()) {
+            foreignFileIDs.add(child.getFileID());
+        }
+        steps.add(foreign);
+
+        assertEquals(3, this.updateSteps(steps));
+
+        //The new steps point at copies, the steps they came from keep the originals
+        assertEquals(foreignFileIDs, this.copiedFileIDs);
+        assertEquals(5001, foreign.getFileID());
+        assertEquals(5001, this.table.getRow(foreign.getStepID()).get("fileID"));
+        assertEquals(foreignFileIDs.get(0), this.table.getRow(foreignStepID).get("fileID"));
+        assertEquals(OTHER_WORKFLOWID, this.table.getRow(foreignStepID).get("workflowID"));
+    }
+
+    @Test
+    public void changedFileIsCopied() throws SQLException {
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+        Step step = steps.get(2).getChildren().get(0);
+        step.setFileID(42);
+
+        assertEquals(1, this.updateSteps(steps));
+        assertEquals(1, this.copiedFileIDs.size());
+        assertEquals(42, (int) this.copiedFileIDs.get(0));
+        assertEquals(5001, this.table.getRow(step.getStepID()).get("fileID"));
+    }
+
+    @Test
+    public void missingFileWritesNothing() throws SQLException {
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+        steps.get(0).setFileID(42);
+        this.filesExist = false;
+
+        try {
+            this.updateSteps(steps);
+            fail("Expected the missing file to be reported");
+        } catch (NotFoundException nfe) {
+            //Expected
+        }
+        assertEquals(0, this.database.getExecutions("UPDATE").size());
+        assertEquals(0, this.database.getExecutions("INSERT").size());
+        assertEquals(0, this.database.getExecutions("DELETE").size());
+    }
+
+    private int updateSteps(List<Step> steps) {
+        this.database.reset();
+        try (Connection conn = this.database.open()) {
+            return this.stepBusiness.updateSteps(WORKFLOWID, steps, conn);
+        } catch (SQLException sqle) {
+            throw new IllegalStateException(sqle);
+        }
+    }
+}
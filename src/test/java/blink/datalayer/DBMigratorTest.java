@@ -0,0 +1,193 @@
+package blink.datalayer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DBMigratorTest {
+
+    private static final List<Integer> ALL_VERSIONS = Arrays.asList(1, 2, 3, 4, 5, 6, 7);
+
+    private SchemaDatabase schema;
+    private FakeConnection database;
+    private DBMigrator migrator;
+    private ClassLoader contextClassLoader;
+
+    @Before
+    public void setUp() {
+        //ResourceReader looks two directories above the class path root, where the deployed war keeps resources
+        this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new ClassLoader(this.contextClassLoader) {
+            @Override
+            public InputStream getResourceAsStream(String name) {
+                return super.getResourceAsStream(name.startsWith("../../") ? name.substring("../../".length()) : name);
+            }
+        });
+
+        this.schema = new SchemaDatabase();
+        this.database = new FakeConnection(this.schema);
+        this.migrator = new DBMigrator(this.database.asDBConn());
+    }
+
+    @After
+    public void tearDown() {
+        Thread.currentThread().setContextClassLoader(this.contextClassLoader);
+    }
+
+    @Test
+    public void freshDatabaseAppliesEveryMigrationInOrder() throws IOException, SQLException {
+        this.migrator.migrate();
+
+        assertEquals(ALL_VERSIONS, new ArrayList<>(this.schema.appliedChecksums.keySet()));
+        assertEquals(ALL_VERSIONS, this.schema.recordedVersions);
+        assertFalse(this.schema.scriptStatements.isEmpty());
+        assertEquals(1, this.database.getUnpooledConnections());
+        assertFalse(this.schema.lockHeld);
+    }
+
+    @Test
+    public void migratedDatabaseRunsNoScripts() throws IOException, SQLException {
+        this.migrator.migrate();
+        this.schema.scriptStatements.clear();
+        this.schema.recordedVersions.clear();
+        this.database.reset();
+
+        this.migrator.migrate();
+
+        assertTrue(this.schema.scriptStatements.isEmpty());
+        assertTrue(this.schema.recordedVersions.isEmpty());
+        assertEquals(1, this.database.getExecutions("SELECT GET_LOCK").size());
+        assertEquals(1, this.database.getExecutions("SELECT RELEASE_LOCK").size());
+        assertFalse(this.schema.lockHeld);
+    }
+
+    @Test
+    public void changedMigrationFailsAndReleasesTheLock() throws IOException, SQLException {
+        this.migrator.migrate();
+        this.schema.scriptStatements.clear();
+        this.schema.appliedChecksums.put(3, "0000");
+        this.schema.appliedChecksums.remove(7);
+
+        try {
+            this.migrator.migrate();
+            fail("Expected the changed migration to be reported");
+        } catch (SQLException sqle) {
+            assertEquals("Migration V3__pending_task_index.sql has changed since it was applied.", sqle.getMessage());
+        }
+
+        //Migrations after the changed one are not applied
+        assertTrue(this.schema.scriptStatements.isEmpty());
+        assertFalse(this.schema.appliedChecksums.containsKey(7));
+        assertFalse(this.schema.lockHeld);
+    }
+
+    @Test
+    public void lockTimeoutFailsBeforeTouchingTheSchema() throws IOException {
+        this.schema.lockAvailable = false;
+
+        try {
+            this.migrator.migrate();
+            fail("Expected the lock timeout to be reported");
+        } catch (SQLException sqle) {
+            assertEquals("Timed out waiting for another instance to finish migrating the database.", sqle.getMessage());
+        }
+
+        assertEquals(1, this.database.getExecutions().size());
+        assertEquals(Arrays.asList("blink_schema_migration", 60), this.database.getExecutions().get(0).getParameters());
+        assertEquals(0, this.database.getExecutions("SELECT RELEASE_LOCK").size());
+        assertEquals(1, this.database.getClosedConnections());
+    }
+
+    @Test
+    public void failedMigrationIsNotRecordedAndRunsAgain() throws IOException, SQLException {
+        this.schema.failingStatement = "CREATE INDEX IF NOT EXISTS `idx_workflow_archived_version`";
+
+        try {
+            this.migrator.migrate();
+            fail("Expected the failing statement to be reported");
+        } catch (SQLException sqle) {
+            //Expected
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), new ArrayList<>(this.schema.appliedChecksums.keySet()));
+        assertFalse(this.schema.lockHeld);
+
+        this.schema.failingStatement = null;
+        this.migrator.migrate();
+        assertEquals(ALL_VERSIONS, new ArrayList<>(this.schema.appliedChecksums.keySet()));
+    }
+
+    /**
+     * Answers the statements of DBMigrator, keeping the schemaVersion rows and the migration lock.
+     * Statements of the migration scripts are only recorded.
+     */
+    private static class SchemaDatabase implements FakeConnection.Handler {
+        private final Map<Integer, String> appliedChecksums = new TreeMap<>();
+        private final List<Integer> recordedVersions = new ArrayList<>();
+        private final List<String> scriptStatements = new ArrayList<>();
+        private boolean lockAvailable = true;
+        private boolean lockHeld;
+        private String failingStatement;
+
+        @Override
+        public List<Map<String, Object>> query(String sql, List<Object> parameters) throws SQLException {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            switch (sql) {
+                case "SELECT GET_LOCK(?, ?);":
+                    this.lockHeld = this.lockAvailable;
+                    rows.add(row("GET_LOCK", this.lockAvailable ? 1 : 0));
+                    return rows;
+                case "SELECT RELEASE_LOCK(?);":
+                    rows.add(row("RELEASE_LOCK", this.lockHeld ? 1 : null));
+                    this.lockHeld = false;
+                    return rows;
+                case "SELECT version, checksum FROM schemaVersion;":
+                    for (Map.Entry<Integer, String> applied : this.appliedChecksums.entrySet()) {
+                        Map<String, Object> row = row("version", applied.getKey());
+                        row.put("checksum", applied.getValue());
+                        rows.add(row);
+                    }
+                    return rows;
+                default:
+                    throw new SQLException("Unexpected query: " + sql);
+            }
+        }
+
+        @Override
+        public int update(String sql, List<Object> parameters, List<Long> generatedKeys) throws SQLException {
+            if (sql.startsWith("CREATE TABLE IF NOT EXISTS `schemaVersion`")) {
+                return 0;
+            }
+            if (sql.startsWith("INSERT INTO schemaVersion")) {
+                this.appliedChecksums.put((Integer) parameters.get(0), (String) parameters.get(2));
+                this.recordedVersions.add((Integer) parameters.get(0));
+                return 1;
+            }
+            if (this.failingStatement != null && sql.contains(this.failingStatement)) {
+                throw new SQLException("Statement failed");
+            }
+            this.scriptStatements.add(sql);
+            return 0;
+        }
+
+        private static Map<String, Object> row(String column, Object value) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(column, value);
+            return row;
+        }
+    }
+}
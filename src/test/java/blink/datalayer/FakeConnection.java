@@ -0,0 +1,467 @@
+package blink.datalayer;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An in-memory stand-in for a database connection.
+ * Every statement sent through it is answered by a Handler and recorded, so tests can check what was written
+ * and benchmarks can count round trips. A fixed latency can be added to each round trip.
+ */
+public class FakeConnection {
+
+    /**
+     * Answers the statements sent to a fake connection.
+     */
+    public interface Handler {
+        /**
+         * Answers a query
+         * @param sql statement text
+         * @param parameters parameter values by position, starting at index 0 for parameter 1
+         * @return rows, each mapping column label to value in column order
+         * @throws SQLException to fail the statement
+         */
+        List<Map<String, Object>> query(String sql, List<Object> parameters) throws SQLException;
+
+        /**
+         * Answers an insert, update, delete or other statement that returns no rows
+         * @param sql statement text
+         * @param parameters parameter values by position, starting at index 0 for parameter 1
+         * @param generatedKeys keys of inserted rows are added here
+         * @return number of changed rows
+         * @throws SQLException to fail the statement
+         */
+        int update(String sql, List<Object> parameters, List<Long> generatedKeys) throws SQLException;
+    }
+
+    /**
+     * A statement executed through the connection with the parameter values it was executed with.
+     */
+    public static final class Execution {
+        private final String sql;
+        private final List<Object> parameters;
+
+        private Execution(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        public String getSql() { return sql; }
+
+        public List<Object> getParameters() { return parameters; }
+
+        @Override
+        public String toString() {
+            return sql + " " + parameters;
+        }
+    }
+
+    private final Handler handler;
+    private final List<Execution> executions = new ArrayList<>();
+    private long latencyNanos;
+    private int roundTrips;
+    private int commits;
+    private int rollbacks;
+    private int aborts;
+    private int openConnections;
+    private int unpooledConnections;
+    private int closedConnections;
+
+    public FakeConnection(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Adds a busy wait to every round trip, to stand in for the network between the application and the database.
+     * @param latencyNanos wait per round trip in nanoseconds
+     */
+    public void setLatencyNanos(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * Opens a connection. Each call stands for borrowing one from the pool.
+     * @return a connection sending every statement to the handler
+     */
+    public Connection open() {
+        this.openConnections++;
+        return (Connection) Proxy.newProxyInstance(
+                FakeConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler());
+    }
+
+    /**
+     * Returns a DBConn whose pooled and unpooled connections both come from this fake.
+     */
+    DBConn asDBConn() {
+        return new DBConn() {
+            @Override
+            Connection connect() {
+                return FakeConnection.this.open();
+            }
+
+            @Override
+            Connection connectUnpooled() {
+                FakeConnection.this.unpooledConnections++;
+                return FakeConnection.this.open();
+            }
+        };
+    }
+
+    public List<Execution> getExecutions() {
+        return Collections.unmodifiableList(executions);
+    }
+
+    /**
+     * Returns the executed statements whose text starts with a prefix, such as "UPDATE" or "DELETE FROM step"
+     */
+    public List<Execution> getExecutions(String prefix) {
+        List<Execution> matching = new ArrayList<>();
+        for (Execution execution : executions) {
+            if (execution.sql.startsWith(prefix)) {
+                matching.add(execution);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the number of calls that went to the database. A batch counts once.
+     */
+    public int getRoundTrips() { return roundTrips; }
+
+    public int getCommits() { return commits; }
+
+    public int getRollbacks() { return rollbacks; }
+
+    public int getAborts() { return aborts; }
+
+    /**
+     * Returns the number of opened connections, pooled and unpooled
+     */
+    public int getOpenConnections() { return openConnections; }
+
+    public int getUnpooledConnections() { return unpooledConnections; }
+
+    public int getClosedConnections() { return closedConnections; }
+
+    /**
+     * Forgets the recorded statements and counters, the handler keeps its state.
+     */
+    public void reset() {
+        this.executions.clear();
+        this.roundTrips = 0;
+        this.commits = 0;
+        this.rollbacks = 0;
+        this.aborts = 0;
+        this.openConnections = 0;
+        this.unpooledConnections = 0;
+        this.closedConnections = 0;
+    }
+
+    private void roundTrip() {
+        this.roundTrips++;
+        if (this.latencyNanos > 0) {
+            long deadline = System.nanoTime() + this.latencyNanos;
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private ResultSet runQuery(String sql, List<Object> parameters) throws SQLException {
+        this.executions.add(new Execution(sql, parameters));
+        return resultSet(this.handler.query(sql, parameters));
+    }
+
+    private int runUpdate(String sql, List<Object> parameters, List<Long> generatedKeys) throws SQLException {
+        this.executions.add(new Execution(sql, parameters));
+        return this.handler.update(sql, parameters, generatedKeys);
+    }
+
+    private static UnsupportedOperationException unsupported(Method method) {
+        return new UnsupportedOperationException(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+    }
+
+    /**
+     * Connection calls, transactions are only counted
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private boolean closed;
+        private boolean autoCommit = true;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    boolean returnKeys = args.length > 1 && args[1] instanceof Integer
+                            && (Integer) args[1] == Statement.RETURN_GENERATED_KEYS;
+                    return statement(PreparedStatement.class, (String) args[0], returnKeys, (Connection) proxy);
+                case "createStatement":
+                    return statement(Statement.class, null, false, (Connection) proxy);
+                case "setAutoCommit":
+                    this.autoCommit = (Boolean) args[0];
+                    return null;
+                case "getAutoCommit":
+                    return this.autoCommit;
+                case "commit":
+                    FakeConnection.this.commits++;
+                    return null;
+                case "rollback":
+                    FakeConnection.this.rollbacks++;
+                    return null;
+                case "abort":
+                    FakeConnection.this.aborts++;
+                    this.close();
+                    return null;
+                case "close":
+                    this.close();
+                    return null;
+                case "isClosed":
+                    return this.closed;
+                case "setTransactionIsolation":
+                case "setReadOnly":
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakeConnection";
+                default:
+                    throw unsupported(method);
+            }
+        }
+
+        private void close() {
+            if (!this.closed) {
+                this.closed = true;
+                FakeConnection.this.closedConnections++;
+            }
+        }
+
+        private Object statement(Class<? extends Statement> type, String sql, boolean returnKeys, Connection connection) {
+            return Proxy.newProxyInstance(
+                    FakeConnection.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler(sql, returnKeys, connection));
+        }
+    }
+
+    /**
+     * Statement and prepared statement calls
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final String sql;
+        private final boolean returnKeys;
+        private final Connection connection;
+        private final TreeMap<Integer, Object> parameters = new TreeMap<>();
+        private final List<List<Object>> batches = new ArrayList<>();
+        private List<Long> generatedKeys = new ArrayList<>();
+        private boolean closed;
+
+        private StatementHandler(String sql, boolean returnKeys, Connection connection) {
+            this.sql = sql;
+            this.returnKeys = returnKeys;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                this.parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                return null;
+            }
+
+            switch (name) {
+                case "executeQuery":
+                    roundTrip();
+                    return runQuery(this.sqlOf(args), this.parameterList());
+                case "executeUpdate":
+                    roundTrip();
+                    this.generatedKeys = new ArrayList<>();
+                    return runUpdate(this.sqlOf(args), this.parameterList(), this.generatedKeys);
+                case "execute":
+                    roundTrip();
+                    String text = this.sqlOf(args);
+                    if (text.trim().toUpperCase().startsWith("SELECT")) {
+                        runQuery(text, this.parameterList());
+                        return true;
+                    }
+                    this.generatedKeys = new ArrayList<>();
+                    runUpdate(text, this.parameterList(), this.generatedKeys);
+                    return false;
+                case "addBatch":
+                    this.batches.add(this.parameterList());
+                    return null;
+                case "executeBatch":
+                    roundTrip();
+                    this.generatedKeys = new ArrayList<>();
+                    int[] counts = new int[this.batches.size()];
+                    for (int x = 0; x < counts.length; x++) {
+                        counts[x] = runUpdate(this.sql, this.batches.get(x), this.generatedKeys);
+                    }
+                    this.batches.clear();
+                    return counts;
+                case "clearBatch":
+                    this.batches.clear();
+                    return null;
+                case "clearParameters":
+                    this.parameters.clear();
+                    return null;
+                case "getGeneratedKeys":
+                    List<Map<String, Object>> rows = new ArrayList<>();
+                    if (this.returnKeys) {
+                        for (Long key : this.generatedKeys) {
+                            Map<String, Object> row = new LinkedHashMap<>();
+                            row.put("GENERATED_KEY", key);
+                            rows.add(row);
+                        }
+                    }
+                    return resultSet(rows);
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setQueryTimeout":
+                    return null;
+                case "getConnection":
+                    return this.connection;
+                case "close":
+                    this.closed = true;
+                    return null;
+                case "isClosed":
+                    return this.closed;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakeStatement " + this.sql;
+                default:
+                    throw unsupported(method);
+            }
+        }
+
+        private String sqlOf(Object[] args) {
+            return args != null && args.length > 0 ? (String) args[0] : this.sql;
+        }
+
+        private List<Object> parameterList() {
+            List<Object> list = new ArrayList<>();
+            if (!this.parameters.isEmpty()) {
+                for (int index = 1; index <= this.parameters.lastKey(); index++) {
+                    list.add(this.parameters.get(index));
+                }
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Wraps rows in a forward only result set
+     */
+    static ResultSet resultSet(List<Map<String, Object>> rows) {
+        return (ResultSet) Proxy.newProxyInstance(
+                FakeConnection.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                new ResultSetHandler(rows));
+    }
+
+    /**
+     * Result set calls, columns can be read by label or by position
+     */
+    private static class ResultSetHandler implements InvocationHandler {
+        private final List<Map<String, Object>> rows;
+        private int position = -1;
+        private boolean wasNull;
+        private boolean closed;
+
+        private ResultSetHandler(List<Map<String, Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "next":
+                    this.position++;
+                    return this.position < this.rows.size();
+                case "wasNull":
+                    return this.wasNull;
+                case "close":
+                    this.closed = true;
+                    return null;
+                case "isClosed":
+                    return this.closed;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakeResultSet";
+                default:
+                    break;
+            }
+            if (!name.startsWith("get") || args == null || args.length != 1) {
+                throw unsupported(method);
+            }
+
+            Object value = this.column(args[0]);
+            this.wasNull = value == null;
+            switch (name) {
+                case "getObject":
+                    return value;
+                case "getString":
+                    return value == null ? null : String.valueOf(value);
+                case "getInt":
+                    return value == null ? 0 : value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+                case "getLong":
+                    return value == null ? 0L : value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+                case "getBoolean":
+                    return value != null && (value instanceof Boolean ? (Boolean) value : ((Number) value).intValue() != 0);
+                case "getBytes":
+                    return value;
+                case "getBinaryStream":
+                    return value == null ? null : new ByteArrayInputStream((byte[]) value);
+                case "getTimestamp":
+                case "getDate":
+                    return value;
+                default:
+                    throw unsupported(method);
+            }
+        }
+
+        private Object column(Object key) throws SQLException {
+            if (this.position < 0 || this.position >= this.rows.size()) {
+                throw new SQLException("Result set is not positioned on a row");
+            }
+            Map<String, Object> row = this.rows.get(this.position);
+            if (key instanceof Integer) {
+                int index = (Integer) key;
+                if (index < 1 || index > row.size()) {
+                    throw new SQLException("No column " + index);
+                }
+                return new ArrayList<>(row.values()).get(index - 1);
+            }
+            if (!row.containsKey(key)) {
+                throw new SQLException("No column " + key);
+            }
+            return row.get(key);
+        }
+    }
+}
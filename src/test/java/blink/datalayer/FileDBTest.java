@@ -0,0 +1,207 @@
+package blink.datalayer;
+
+import blink.utility.objects.File;
+import blink.utility.objects.FileContent;
+import blink.utility.objects.ListQuery;
+import blink.utility.objects.Page;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileDBTest {
+
+    private static final String DIGEST = "d1";
+
+    private byte[] raw;
+    private byte[] stored;
+    private boolean reverseRows;
+    private FakeConnection database;
+    private FileDB fileDB;
+
+    @Before
+    public void setUp() {
+        this.raw = new byte[2 * 1024 * 1024];
+        new Random(6).nextBytes(this.raw);
+        String dataUrl = "data:application/pdf;base64," + Base64.getEncoder().encodeToString(this.raw);
+        this.stored = Base64.getEncoder().encode(dataUrl.getBytes(StandardCharsets.US_ASCII));
+
+        this.database = new FakeConnection(new BlobHandler());
+        this.fileDB = new FileDB(this.database.asDBConn());
+    }
+
+    @Test
+    public void contentIsReadWithOneStreamingQuery() throws IOException {
+        try (InputStream input = this.fileDB.openFileContent(this.fileContent(DIGEST))) {
+            assertArrayEquals(this.raw, input.readAllBytes());
+        }
+
+        //The stored value spans several chunks but is read by a single query on a connection outside the pool
+        assertTrue(this.stored.length > 3 * 1024 * 1024);
+        assertEquals(1, this.database.getRoundTrips());
+        assertEquals(1, this.database.getUnpooledConnections());
+        assertEquals(1, this.database.getOpenConnections());
+        assertEquals(1, this.database.getClosedConnections());
+        assertEquals(0, this.database.getAborts());
+    }
+
+    @Test
+    public void closingEarlyAbortsTheConnection() throws IOException {
+        try (InputStream input = this.fileDB.openFileContent(this.fileContent(DIGEST))) {
+            assertEquals(1000, input.readNBytes(new byte[1000], 0, 1000));
+        }
+
+        assertEquals(1, this.database.getAborts());
+        assertEquals(1, this.database.getClosedConnections());
+    }
+
+    @Test
+    public void chunksOutOfOrderFail() {
+        this.reverseRows = true;
+        this.assertReadFails(DIGEST);
+    }
+
+    @Test
+    public void removedContentsFail() {
+        this.assertReadFails("removed");
+    }
+
+    @Test
+    public void emptyFileDoesNotQuery() throws IOException {
+        FileContent empty = FileContent.fromStoredEdges(1, "empty.pdf", null, 0, new byte[0], new byte[0]);
+        try (InputStream input = this.fileDB.openFileContent(empty)) {
+            assertEquals(-1, input.read());
+        }
+        assertEquals(0, this.database.getOpenConnections());
+    }
+
+    @Test
+    public void filePagesAreReadInFullAndReleaseTheirConnection() throws SQLException {
+        Page<File> page = this.fileDB.getFilePageByCompany(3, true, null);
+
+        assertEquals(10, page.getItems().size());
+        assertEquals("10", page.getNextCursor());
+        assertEquals("first", page.getItems().get(0).getName());
+        assertEquals(1, this.database.getOpenConnections());
+        assertEquals(1, this.database.getClosedConnections());
+        assertEquals(0, this.database.getUnpooledConnections());
+
+        //The rows of a page are bounded, one past the page tells whether another follows
+        FakeConnection.Execution query = this.database.getExecutions().get(0);
+        assertTrue(query.getSql(), query.getSql().endsWith("AND milestone.companyID = ?) ORDER BY file.fileID LIMIT ?;"));
+        assertEquals(Arrays.asList(3, 11), query.getParameters());
+
+        //The next page starts after the cursor
+        this.database.reset();
+        page = this.fileDB.getFilePageByCompany(3, true, page.getNextCursor());
+        assertEquals(2, page.getItems().size());
+        assertNull(page.getNextCursor());
+        query = this.database.getExecutions().get(0);
+        assertTrue(query.getSql(), query.getSql().endsWith("AND file.fileID > ? ORDER BY file.fileID LIMIT ?;"));
+        assertEquals(Arrays.asList(3, 10, 11), query.getParameters());
+        assertEquals(1, this.database.getClosedConnections());
+    }
+
+    @Test
+    public void summaryPagesAreLarger() throws SQLException {
+        Page<File> page = this.fileDB.getTemplateFilePage(false, null);
+
+        assertEquals(12, page.getItems().size());
+        assertNull(page.getNextCursor());
+        assertNull(page.getItems().get(0).getDecodedString());
+        FakeConnection.Execution query = this.database.getExecutions().get(0);
+        assertTrue(query.getSql(), query.getSql().startsWith("SELECT file.fileID, file.name, file.confidential, file.form FROM file WHERE NOT EXISTS"));
+        assertEquals(Collections.singletonList(ListQuery.MAX_LIMIT + 1), query.getParameters());
+    }
+
+    private void assertReadFails(String digest) {
+        try (InputStream input = this.fileDB.openFileContent(this.fileContent(digest))) {
+            input.readAllBytes();
+            fail("Expected the read to fail");
+        } catch (IOException ioe) {
+            //Expected
+        }
+        assertEquals(1, this.database.getClosedConnections());
+    }
+
+    private FileContent fileContent(String digest) {
+        byte[] head = Arrays.copyOf(this.stored, FileContent.HEAD_LENGTH);
+        byte[] tail = Arrays.copyOfRange(this.stored, this.stored.length - FileContent.TAIL_LENGTH, this.stored.length);
+        return FileContent.fromStoredEdges(1, "file.pdf", digest, this.stored.length, head, tail);
+    }
+
+    /**
+     * Answers the chunk query for the one stored value, as the recursive CTE would, and file lists of twelve files
+     */
+    private class BlobHandler implements FakeConnection.Handler {
+        @Override
+        public List<Map<String, Object>> query(String sql, List<Object> parameters) throws SQLException {
+            if (sql.startsWith("SELECT file.fileID")) {
+                return this.files(sql, parameters);
+            }
+            if (!sql.startsWith("WITH RECURSIVE chunks")) {
+                throw new SQLException("Unexpected query: " + sql);
+            }
+            List<Map<String, Object>> rows = new ArrayList<>();
+            if (!DIGEST.equals(parameters.get(4))) {
+                return rows;
+            }
+
+            int chunkSize = (Integer) parameters.get(3);
+            long storedLength = (Long) parameters.get(2);
+            for (long position = 1; position <= storedLength; position += chunkSize) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("position", position);
+                int from = (int) position - 1;
+                row.put("chunk", Arrays.copyOfRange(stored, from, Math.min(from + chunkSize, stored.length)));
+                rows.add(row);
+            }
+            if (reverseRows) {
+                Collections.reverse(rows);
+            }
+            return rows;
+        }
+
+        private List<Map<String, Object>> files(String sql, List<Object> parameters) {
+            boolean afterCursor = sql.contains("file.fileID > ?");
+            int after = afterCursor ? (Integer) parameters.get(parameters.size() - 2) : 0;
+            int limit = (Integer) parameters.get(parameters.size() - 1);
+
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int fileID = after + 1; fileID <= 12 && rows.size() < limit; fileID++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("fileID", fileID);
+                row.put("name", fileID == 1 ? "first" : "file" + fileID);
+                row.put("confidential", false);
+                row.put("form", false);
+                if (sql.contains(" AS file,")) {
+                    row.put("file", Arrays.copyOf(stored, 64));
+                }
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        @Override
+        public int update(String sql, List<Object> parameters, List<Long> generatedKeys) throws SQLException {
+            throw new SQLException("Unexpected update: " + sql);
+        }
+    }
+}
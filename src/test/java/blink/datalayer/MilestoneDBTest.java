@@ -0,0 +1,120 @@
+package blink.datalayer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MilestoneDBTest {
+
+    private static final Date NOW = new Date();
+
+    private MilestoneTable table;
+    private FakeConnection database;
+    private MilestoneDB milestoneDB;
+
+    @Before
+    public void setUp() {
+        this.table = new MilestoneTable();
+        this.table.milestoneCompany.put(1, 10);
+        this.table.milestoneCompany.put(2, 10);
+        this.table.addWorkflow(100, 1);
+        this.table.addWorkflow(101, 1);
+        this.table.addWorkflow(200, 2);
+        this.database = new FakeConnection(this.table);
+        this.milestoneDB = new MilestoneDB(this.database.asDBConn());
+    }
+
+    @Test
+    public void changingCompanyChangesTheVersionOfItsWorkflows() throws SQLException {
+        this.milestoneDB.updateMilestone(1, "M", null, NOW, NOW, NOW, 11);
+
+        assertEquals(11, (int) this.table.milestoneCompany.get(1));
+        assertEquals(1, (int) this.table.workflowVersion.get(100));
+        assertEquals(1, (int) this.table.workflowVersion.get(101));
+        assertEquals(0, (int) this.table.workflowVersion.get(200));
+        assertEquals(1, this.database.getCommits());
+        assertEquals(0, this.database.getRollbacks());
+    }
+
+    @Test
+    public void keepingCompanyLeavesItsWorkflowsAlone() throws SQLException {
+        this.milestoneDB.updateMilestone(1, "Renamed", "Details", NOW, NOW, NOW, 10);
+
+        assertEquals(0, (int) this.table.workflowVersion.get(100));
+        assertEquals(0, (int) this.table.workflowVersion.get(101));
+        assertEquals(1, this.database.getCommits());
+    }
+
+    @Test
+    public void failedMilestoneUpdateRollsBackTheWorkflows() {
+        this.table.failMilestoneUpdate = true;
+        try {
+            this.milestoneDB.updateMilestone(1, "M", null, NOW, NOW, NOW, 11);
+            fail("Expected the failure to be thrown");
+        } catch (SQLException sqle) {
+            //Expected
+        }
+
+        assertEquals(0, this.database.getCommits());
+        assertEquals(1, this.database.getRollbacks());
+        assertEquals(1, this.database.getClosedConnections());
+    }
+
+    /**
+     * Keeps the company of each milestone and the version of each workflow
+     */
+    private static class MilestoneTable implements FakeConnection.Handler {
+        private final Map<Integer, Integer> milestoneCompany = new HashMap<>();
+        private final Map<Integer, Integer> workflowMilestone = new HashMap<>();
+        private final Map<Integer, Integer> workflowVersion = new HashMap<>();
+        private boolean failMilestoneUpdate;
+
+        private void addWorkflow(int workflowID, int milestoneID) {
+            this.workflowMilestone.put(workflowID, milestoneID);
+            this.workflowVersion.put(workflowID, 0);
+        }
+
+        @Override
+        public List<Map<String, Object>> query(String sql, List<Object> parameters) throws SQLException {
+            throw new SQLException("Unexpected query: " + sql);
+        }
+
+        @Override
+        public int update(String sql, List<Object> parameters, List<Long> generatedKeys) throws SQLException {
+            if (sql.startsWith("UPDATE workflow JOIN milestone")) {
+                int milestoneID = (Integer) parameters.get(0);
+                int companyID = (Integer) parameters.get(1);
+                if (this.milestoneCompany.get(milestoneID) == companyID) {
+                    return 0;
+                }
+                List<Integer> changed = new ArrayList<>();
+                for (Map.Entry<Integer, Integer> workflow : this.workflowMilestone.entrySet()) {
+                    if (workflow.getValue() == milestoneID) {
+                        changed.add(workflow.getKey());
+                    }
+                }
+                for (int workflowID : changed) {
+                    this.workflowVersion.merge(workflowID, 1, Integer::sum);
+                }
+                return changed.size();
+            }
+            if (sql.startsWith("UPDATE milestone SET name")) {
+                if (this.failMilestoneUpdate) {
+                    throw new SQLException("Lock wait timeout exceeded");
+                }
+                this.milestoneCompany.put((Integer) parameters.get(6), (Integer) parameters.get(5));
+                return 1;
+            }
+            throw new SQLException("Unexpected update: " + sql);
+        }
+    }
+}
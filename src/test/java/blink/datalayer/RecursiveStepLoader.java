@@ -0,0 +1,67 @@
+package blink.datalayer;
+
+import blink.utility.objects.Step;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The step tree loader StepDB.getStepTree replaced, kept to check and measure the replacement against.
+ * It reads the higher level steps and then the children of every step with one query each,
+ * borrowing a connection for every query as StepDB.getHigherLevelSteps and StepDB.getRelatedSteps did.
+ */
+class RecursiveStepLoader {
+
+    private final DBConn dbConn;
+
+    RecursiveStepLoader(DBConn dbConn) {
+        this.dbConn = dbConn;
+    }
+
+    List<Step> getSteps(int workflowID) throws SQLException {
+        List<Step> steps = this.query(StepTable.HIGHER_LEVEL_QUERY, workflowID);
+        for (Step step : steps) {
+            step.setChildren(this.getRelatedSteps(step));
+        }
+        return steps;
+    }
+
+    private List<Step> getRelatedSteps(Step step) throws SQLException {
+        List<Step> relatedSteps = this.query(StepTable.RELATED_QUERY, step.getStepID());
+        step.setChildren(relatedSteps);
+        for (Step relatedStep : step.getChildren()) {
+            relatedStep.setChildren(this.getRelatedSteps(relatedStep));
+        }
+        return relatedSteps;
+    }
+
+    private List<Step> query(String query, int id) throws SQLException {
+        try (Connection conn = this.dbConn.connect();
+             PreparedStatement preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, id);
+
+            try (ResultSet result = preparedStatement.executeQuery()) {
+                List<Step> steps = new ArrayList<>();
+                while (result.next()) {
+                    steps.add(new Step.StepBuilder(
+                            result.getInt("workflowID"),
+                            result.getBoolean("asynchronous"),
+                            result.getBoolean("completed"))
+                            .stepID(result.getInt("stepID"))
+                            .orderNumber(result.getInt("orderNumber"))
+                            .description(result.getString("description"))
+                            .parentStep(result.getInt("parentStepID"))
+                            .uuid(result.getString("UUID"))
+                            .verbID(result.getInt("verbID"))
+                            .fileID(result.getInt("fileID"))
+                            .build());
+                }
+                return steps;
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package blink.datalayer;
+
+import blink.utility.json.JsonMapper;
+import blink.utility.objects.Step;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StepDBTest {
+
+    private static final int WORKFLOWID = 7;
+    private static final int OTHER_WORKFLOWID = 8;
+
+    private StepTable table;
+    private FakeConnection database;
+    private StepDB stepDB;
+
+    @Before
+    public void setUp() {
+        this.table = new StepTable();
+        this.database = new FakeConnection(this.table);
+        this.stepDB = new StepDB(this.database.asDBConn());
+    }
+
+    @Test
+    public void stepTreeMatchesRecursiveLoaderOnRandomTrees() throws SQLException {
+        Random random = new Random(404);
+        for (int run = 0; run < 50; run++) {
+            this.setUp();
+            this.table.addRandomTree(OTHER_WORKFLOWID, 20, random);
+            this.table.addRandomTree(WORKFLOWID, 1 + random.nextInt(200), random);
+            this.table.addRandomTree(OTHER_WORKFLOWID + 1, 20, random);
+
+            this.assertSameTree();
+        }
+    }
+
+    @Test
+    public void stepTreeMatchesRecursiveLoaderOnDeepTree() throws SQLException {
+        this.table.addTree(WORKFLOWID, new Random(1), 2, 2, 2, 2, 2, 2, 2);
+        this.assertSameTree();
+    }
+
+    @Test
+    public void stepTreeMatchesRecursiveLoaderOnWideTree() throws SQLException {
+        this.table.addTree(WORKFLOWID, new Random(2), 8, 15);
+        this.assertSameTree();
+    }
+
+    @Test
+    public void stepTreeIsOneRoundTripAtAnyDepth() throws SQLException {
+        int added = this.table.addTree(WORKFLOWID, new Random(3), 3, 3, 3, 3);
+
+        this.stepDB.getStepTree(WORKFLOWID);
+        assertEquals(1, this.database.getRoundTrips());
+        assertEquals(1, this.database.getOpenConnections());
+
+        this.database.reset();
+        new RecursiveStepLoader(this.database.asDBConn()).getSteps(WORKFLOWID);
+        assertEquals(added + 1, this.database.getRoundTrips());
+    }
+
+    @Test
+    public void stepTreeOfWorkflowWithoutStepsIsEmpty() throws SQLException {
+        this.table.addRandomTree(OTHER_WORKFLOWID, 10, new Random(4));
+
+        List<Step> steps = this.stepDB.getStepTree(WORKFLOWID);
+        assertTrue(steps.isEmpty());
+    }
+
+    @Test
+    public void unchangedTreeWritesNothing() throws SQLException {
+        this.table.addRandomTree(WORKFLOWID, 60, new Random(5));
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+
+        assertEquals(0, this.updateSteps(steps));
+        assertEquals(1, this.database.getRoundTrips());
+        assertEquals(StepTable.FOR_UPDATE_QUERY, this.database.getExecutions().get(0).getSql());
+    }
+
+    @Test
+    public void reparentedStepIsUpdatedWithItsNewSiblings() throws SQLException {
+        this.table.addTree(WORKFLOWID, new Random(6), 3, 3, 2);
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+
+        //Move the first child of the first step, with its own children, to the end of the last step
+        Step moved = steps.get(0).getChildren().remove(0);
+        steps.get(2).getChildren().add(moved);
+
+        //The moved step and the two siblings it left behind change, its children do not
+        assertEquals(3, this.updateSteps(steps));
+        assertPlaced(steps, 0);
+        assertEquals(0, this.database.getExecutions("INSERT").size());
+        assertEquals(0, this.database.getExecutions("DELETE").size());
+        List<FakeConnection.Execution> updates = this.database.getExecutions("UPDATE");
+        assertEquals(3, updates.size());
+        FakeConnection.Execution movedUpdate = updates.get(updates.size() - 1);
+        assertEquals(moved.getStepID(), movedUpdate.getParameters().get(9));
+        assertEquals(steps.get(2).getStepID(), movedUpdate.getParameters().get(2));
+        assertEquals(4, movedUpdate.getParameters().get(0));
+
+        assertEquals(describe(steps), describe(this.table.loadTree(WORKFLOWID)));
+    }
+
+    @Test
+    public void removedSubtreeIsDeleted() throws SQLException {
+        this.table.addTree(WORKFLOWID, new Random(7), 3, 2, 2);
+        this.table.addTree(OTHER_WORKFLOWID, new Random(8), 2, 2);
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+
+        Step removed = steps.remove(0);
+        Set<Integer> removedStepIDs = new HashSet<>();
+        collectStepIDs(Collections.singletonList(removed), removedStepIDs);
+
+        //Seven deletes for the subtree and an update for each of the two steps moving up
+        assertEquals(9, this.updateSteps(steps));
+        assertPlaced(steps, 0);
+        assertEquals(7, this.database.getExecutions("DELETE").size());
+        Set<Object> deletedStepIDs = new HashSet<>();
+        for (FakeConnection.Execution delete : this.database.getExecutions("DELETE")) {
+            deletedStepIDs.add(delete.getParameters().get(0));
+        }
+        assertEquals(new HashSet<Object>(removedStepIDs), deletedStepIDs);
+        assertEquals(2, this.database.getExecutions("UPDATE").size());
+        assertEquals(0, this.database.getExecutions("INSERT").size());
+
+        assertEquals(describe(steps), describe(this.table.loadTree(WORKFLOWID)));
+        List<Step> otherSteps = this.table.loadTree(OTHER_WORKFLOWID);
+        assertEquals(6, otherSteps.size() + countChildren(otherSteps));
+    }
+
+    @Test
+    public void stepIDsOfAnotherWorkflowAreInsertedAsNewSteps() throws SQLException {
+        this.table.addTree(WORKFLOWID, new Random(9), 2, 2);
+        this.table.addTree(OTHER_WORKFLOWID, new Random(10), 2, 2);
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+        Step foreign = this.table.loadTree(OTHER_WORKFLOWID).get(0);
+        int foreignStepID = foreign.getStepID();
+        Map<String, Object> foreignRow = new HashMap<>(this.table.getRow(foreignStepID));
+
+        //A client sends a step, with its children, that it copied from another workflow
+        steps.add(foreign);
+
+        assertEquals(3, this.updateSteps(steps));
+        assertPlaced(steps, 0);
+        assertEquals(3, this.database.getExecutions("INSERT").size());
+        assertEquals(0, this.database.getExecutions("UPDATE").size());
+        assertEquals(0, this.database.getExecutions("DELETE").size());
+
+        //The copy got its own stepID and its children hang off it, the original is untouched
+        assertTrue(foreign.getStepID() != foreignStepID);
+        assertEquals(WORKFLOWID, foreign.getWorkflowID());
+        for (Step child : foreign.getChildren()) {
+            assertEquals(foreign.getStepID(), child.getParentStepID());
+            assertEquals(WORKFLOWID, child.getWorkflowID());
+        }
+        assertEquals(foreignRow, this.table.getRow(foreignStepID));
+        assertEquals(describe(steps), describe(this.table.loadTree(WORKFLOWID)));
+    }
+
+    @Test
+    public void repeatedStepIDIsInsertedOnce() throws SQLException {
+        this.table.addTree(WORKFLOWID, new Random(11), 2);
+        List<Step> steps = this.table.loadTree(WORKFLOWID);
+        int stepID = steps.get(0).getStepID();
+
+        //The same stepID appears twice, the second step becomes a new one
+        steps.add(this.table.loadTree(WORKFLOWID).get(0));
+
+        assertEquals(1, this.updateSteps(steps));
+        assertEquals(1, this.database.getExecutions("INSERT").size());
+        assertEquals(stepID, steps.get(0).getStepID());
+        assertTrue(steps.get(2).getStepID() != stepID);
+        assertEquals(describe(steps), describe(this.table.loadTree(WORKFLOWID)));
+    }
+
+    /**
+     * Runs updateSteps in a transaction as StepBusiness does, counting only its own statements
+     */
+    private int updateSteps(List<Step> steps) throws SQLException {
+        this.database.reset();
+        try (Connection conn = this.database.open()) {
+            Map<Integer, Step> storedSteps = this.stepDB.getStepsForUpdate(WORKFLOWID, conn);
+            return this.stepDB.updateSteps(WORKFLOWID, steps, storedSteps, conn);
+        }
+    }
+
+    /**
+     * Describes the stored columns and shape of a tree, ignoring how the child lists were built
+     */
+    private static String describe(List<Step> steps) {
+        StringBuilder description = new StringBuilder("[");
+        if (steps != null) {
+            for (Step step : steps) {
+                description.append(step.getStepID()).append('(')
+                        .append(step.getOrderNumber()).append(',')
+                        .append(step.getParentStepID()).append(',')
+                        .append(step.getDescription()).append(',')
+                        .append(step.getFileID()).append(',')
+                        .append(step.getWorkflowID()).append(',')
+                        .append(step.getCompleted()).append(',')
+                        .append(step.getAsynchronous()).append(')')
+                        .append(describe(step.getChildren()));
+            }
+        }
+        return description.append(']').toString();
+    }
+
+    /**
+     * Checks that every step was given its position among its siblings and its parent's stepID
+     */
+    private static void assertPlaced(List<Step> steps, int parentStepID) {
+        for (int x = 0; x < steps.size(); x++) {
+            Step step = steps.get(x);
+            assertEquals(x + 1, step.getOrderNumber());
+            assertEquals(parentStepID, step.getParentStepID());
+            if (step.getChildren() != null) {
+                assertPlaced(step.getChildren(), step.getStepID());
+            }
+        }
+    }
+
+    private static void collectStepIDs(List<Step> steps, Set<Integer> stepIDs) {
+        for (Step step : steps) {
+            stepIDs.add(step.getStepID());
+            collectStepIDs(step.getChildren(), stepIDs);
+        }
+    }
+
+    private static int countChildren(List<Step> steps) {
+        int count = 0;
+        for (Step step : steps) {
+            count += step.getChildren().size() + countChildren(step.getChildren());
+        }
+        return count;
+    }
+
+    /**
+     * Loads the workflow with both loaders and compares the trees as the client would receive them
+     */
+    private void assertSameTree() throws SQLException {
+        List<Step> expected = new RecursiveStepLoader(this.database.asDBConn()).getSteps(WORKFLOWID);
+        List<Step> actual = this.stepDB.getStepTree(WORKFLOWID);
+
+        assertEquals(JsonMapper.gson().toJson(expected), JsonMapper.gson().toJson(actual));
+    }
+}
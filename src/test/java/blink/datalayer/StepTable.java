@@ -0,0 +1,220 @@
+package blink.datalayer;
+
+import blink.utility.objects.Step;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory step table answering the statements StepDB sends, for use with FakeConnection.
+ * Rows are kept by stepID and hold the columns of the step table.
+ */
+public class StepTable implements FakeConnection.Handler {
+
+    static final String TREE_QUERY_PREFIX = "SELECT * FROM step WHERE workflowID IN (";
+    static final String FOR_UPDATE_QUERY = "SELECT * FROM step WHERE step.workflowID = ? FOR UPDATE;";
+    static final String HIGHER_LEVEL_QUERY = "SELECT * FROM step WHERE parentStepID IS NULL AND workflowID = ? ORDER BY step.orderNumber;";
+    static final String RELATED_QUERY = "SELECT * FROM step WHERE parentStepID = ? ORDER BY step.orderNumber;";
+    static final String INSERT_QUERY = "INSERT INTO step (orderNumber, description, parentStepID, UUID, verbID, fileID, workflowID, completed, asynchronous) " +
+                                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    static final String UPDATE_QUERY = "UPDATE step " +
+                                            "SET orderNumber = ?, description = ?, parentStepID = ?, UUID = ?, verbID = ?, fileID = ?, workflowID = ?, completed = ?, asynchronous = ? " +
+                                            "WHERE stepID = ?;";
+    static final String DELETE_QUERY = "DELETE FROM step WHERE stepID = ?;";
+
+    private final TreeMap<Integer, Map<String, Object>> rows = new TreeMap<>();
+    private int nextStepID = 1;
+
+    /**
+     * Adds a row with the next stepID
+     * @param workflowID workflow of the step
+     * @param parentStepID parent of the step, 0 for a higher level step
+     * @param orderNumber position among its siblings
+     * @return the stepID of the row
+     */
+    public int add(int workflowID, int parentStepID, int orderNumber) {
+        int stepID = this.nextStepID++;
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("stepID", stepID);
+        row.put("orderNumber", orderNumber);
+        row.put("description", "step " + stepID);
+        row.put("parentStepID", parentStepID == 0 ? null : parentStepID);
+        row.put("UUID", null);
+        row.put("verbID", 0);
+        row.put("fileID", 1000 + stepID);
+        row.put("workflowID", workflowID);
+        row.put("asynchronous", stepID % 3 == 0);
+        row.put("completed", stepID % 4 == 0);
+        this.rows.put(stepID, row);
+        return stepID;
+    }
+
+    /**
+     * Adds a tree of irregular shape whose stepIDs do not follow the orderNumbers of siblings
+     * @param workflowID workflow of the steps
+     * @param count number of steps
+     * @param random source of the shape
+     */
+    public void addRandomTree(int workflowID, int count, Random random) {
+        //Pick each step's parent among the steps before it, then hand out stepIDs in shuffled order
+        int[] parents = new int[count];
+        List<Integer> order = new ArrayList<>();
+        for (int x = 0; x < count; x++) {
+            parents[x] = x == 0 || random.nextInt(10) < 3 ? -1 : random.nextInt(x);
+            order.add(x);
+        }
+        Collections.shuffle(order, random);
+        int[] stepIDs = new int[count];
+        for (int x = 0; x < count; x++) {
+            stepIDs[order.get(x)] = this.nextStepID + x;
+        }
+
+        int[] orderNumbers = new int[count];
+        Map<Integer, List<Integer>> siblings = new TreeMap<>();
+        for (int x = 0; x < count; x++) {
+            siblings.computeIfAbsent(parents[x], parent -> new ArrayList<>()).add(x);
+        }
+        for (List<Integer> group : siblings.values()) {
+            Collections.shuffle(group, random);
+            for (int position = 0; position < group.size(); position++) {
+                orderNumbers[group.get(position)] = position + 1;
+            }
+        }
+
+        for (Integer node : order) {
+            this.add(workflowID, parents[node] < 0 ? 0 : stepIDs[parents[node]], orderNumbers[node]);
+        }
+    }
+
+    /**
+     * Adds a tree with the same number of children under every step of a level.
+     * StepIDs are handed out level by level and siblings get shuffled orderNumbers.
+     * @param workflowID workflow of the steps
+     * @param random source of the sibling order
+     * @param fanOut number of higher level steps, then the number of children of each step on the level above
+     * @return number of added steps
+     */
+    public int addTree(int workflowID, Random random, int... fanOut) {
+        int added = 0;
+        List<Integer> parents = Collections.singletonList(0);
+        for (int children : fanOut) {
+            List<Integer> level = new ArrayList<>();
+            for (Integer parent : parents) {
+                List<Integer> orderNumbers = new ArrayList<>();
+                for (int x = 1; x <= children; x++) {
+                    orderNumbers.add(x);
+                }
+                Collections.shuffle(orderNumbers, random);
+                for (Integer orderNumber : orderNumbers) {
+                    level.add(this.add(workflowID, parent, orderNumber));
+                    added++;
+                }
+            }
+            parents = level;
+        }
+        return added;
+    }
+
+    public Map<String, Object> getRow(int stepID) {
+        return this.rows.get(stepID);
+    }
+
+    public int size() {
+        return this.rows.size();
+    }
+
+    @Override
+    public List<Map<String, Object>> query(String sql, List<Object> parameters) throws SQLException {
+        if (sql.startsWith(TREE_QUERY_PREFIX)) {
+            List<Map<String, Object>> found = this.select(row -> parameters.contains(row.get("workflowID")));
+            found.sort(Comparator.comparing((Map<String, Object> row) -> (Integer) row.get("orderNumber"))
+                    .thenComparing(row -> (Integer) row.get("stepID")));
+            return found;
+        }
+        switch (sql) {
+            case FOR_UPDATE_QUERY:
+                return this.select(row -> row.get("workflowID").equals(parameters.get(0)));
+            case HIGHER_LEVEL_QUERY:
+                return this.ordered(this.select(row -> row.get("parentStepID") == null
+                        && row.get("workflowID").equals(parameters.get(0))));
+            case RELATED_QUERY:
+                return this.ordered(this.select(row -> Objects.equals(row.get("parentStepID"), parameters.get(0))));
+            default:
+                throw new SQLException("Unexpected query: " + sql);
+        }
+    }
+
+    @Override
+    public int update(String sql, List<Object> parameters, List<Long> generatedKeys) throws SQLException {
+        switch (sql) {
+            case INSERT_QUERY:
+                int stepID = this.nextStepID++;
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("stepID", stepID);
+                this.setColumns(row, parameters);
+                this.rows.put(stepID, row);
+                generatedKeys.add((long) stepID);
+                return 1;
+            case UPDATE_QUERY:
+                Map<String, Object> updated = this.rows.get((Integer) parameters.get(9));
+                if (updated == null) {
+                    return 0;
+                }
+                this.setColumns(updated, parameters);
+                return 1;
+            case DELETE_QUERY:
+                return this.rows.remove((Integer) parameters.get(0)) == null ? 0 : 1;
+            default:
+                throw new SQLException("Unexpected update: " + sql);
+        }
+    }
+
+    /**
+     * Loads the step tree of a workflow with StepDB over a fresh fake connection
+     * @param workflowID workflow of the steps
+     * @return higher level steps as StepDB.getStepTree returns them
+     * @throws SQLException Error from the table
+     */
+    public List<Step> loadTree(int workflowID) throws SQLException {
+        return new StepDB(new FakeConnection(this).asDBConn()).getStepTree(workflowID);
+    }
+
+    /**
+     * Sets the columns of a row from the parameters of an insert or update, in insert column order
+     */
+    private void setColumns(Map<String, Object> row, List<Object> parameters) {
+        row.put("orderNumber", parameters.get(0));
+        row.put("description", parameters.get(1));
+        row.put("parentStepID", parameters.get(2));
+        row.put("UUID", parameters.get(3));
+        row.put("verbID", parameters.get(4));
+        row.put("fileID", parameters.get(5));
+        row.put("workflowID", parameters.get(6));
+        row.put("asynchronous", parameters.get(8));
+        row.put("completed", parameters.get(7));
+    }
+
+    private List<Map<String, Object>> select(Predicate<Map<String, Object>> filter) {
+        List<Map<String, Object>> found = new ArrayList<>();
+        for (Map<String, Object> row : this.rows.values()) {
+            if (filter.test(row)) {
+                found.add(new LinkedHashMap<>(row));
+            }
+        }
+        return found;
+    }
+
+    private List<Map<String, Object>> ordered(List<Map<String, Object>> found) {
+        found.sort(Comparator.comparing(row -> (Integer) row.get("orderNumber")));
+        return found;
+    }
+}
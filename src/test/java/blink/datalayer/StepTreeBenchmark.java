@@ -0,0 +1,93 @@
+package blink.datalayer;
+
+import blink.utility.objects.Step;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a workflow's step tree with the single query of StepDB.getStepTree and with the recursive loader it replaced.
+ * Each round trip to the fake database waits latencyMicros, the roundTrips and loads counters give round trips per load.
+ * The deep tree is a binary tree seven levels deep (254 steps), the wide tree eight higher level steps of fifteen children each (128 steps).
+ * Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main StepTreeBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepTreeBenchmark {
+
+    private static final int WORKFLOWID = 1;
+
+    @Param({"deep", "wide"})
+    public String shape;
+
+    @Param({"0", "100", "500"})
+    public long latencyMicros;
+
+    private FakeConnection database;
+    private StepDB stepDB;
+    private RecursiveStepLoader recursiveLoader;
+
+    /**
+     * Totals per iteration, roundTrips divided by loads is the number of round trips per load
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long roundTrips;
+        public long loads;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StepTable table = new StepTable();
+        if (this.shape.equals("deep")) {
+            table.addTree(WORKFLOWID, new Random(1), 2, 2, 2, 2, 2, 2, 2);
+        } else {
+            table.addTree(WORKFLOWID, new Random(1), 8, 15);
+        }
+
+        this.database = new FakeConnection(table);
+        this.database.setLatencyNanos(TimeUnit.MICROSECONDS.toNanos(this.latencyMicros));
+        this.stepDB = new StepDB(this.database.asDBConn());
+        this.recursiveLoader = new RecursiveStepLoader(this.database.asDBConn());
+    }
+
+    @Benchmark
+    public List<Step> singleQuery(RoundTrips counter) throws SQLException {
+        return this.measure(counter, true);
+    }
+
+    @Benchmark
+    public List<Step> recursive(RoundTrips counter) throws SQLException {
+        return this.measure(counter, false);
+    }
+
+    private List<Step> measure(RoundTrips counter, boolean singleQuery) throws SQLException {
+        this.database.reset();
+        List<Step> steps = singleQuery ? this.stepDB.getStepTree(WORKFLOWID) : this.recursiveLoader.getSteps(WORKFLOWID);
+        counter.roundTrips += this.database.getRoundTrips();
+        counter.loads++;
+        return steps;
+    }
+}
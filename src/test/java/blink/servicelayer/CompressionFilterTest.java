@@ -0,0 +1,79 @@
+package blink.servicelayer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CompressionFilterTest {
+
+    @Test
+    public void noHeaderIsSentAsItIs() {
+        assertNull(CompressionFilter.negotiate(null));
+        assertNull(CompressionFilter.negotiate(""));
+    }
+
+    @Test
+    public void gzipIsPreferredWhenEquallyAccepted() {
+        assertEquals("gzip", CompressionFilter.negotiate("deflate, gzip"));
+        assertEquals("gzip", CompressionFilter.negotiate("gzip;q=0.5, deflate;q=0.5"));
+    }
+
+    @Test
+    public void higherQualityWins() {
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0.4, deflate;q=0.8"));
+        assertEquals("gzip", CompressionFilter.negotiate("GZIP ; q=0.9, deflate;q=0.1"));
+    }
+
+    @Test
+    public void xGzipIsGzip() {
+        assertEquals("gzip", CompressionFilter.negotiate("x-gzip"));
+    }
+
+    @Test
+    public void zeroQualityRefusesTheCoding() {
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, deflate"));
+        assertNull(CompressionFilter.negotiate("gzip;q=0, deflate;q=0"));
+    }
+
+    @Test
+    public void starCoversCodingsNotNamed() {
+        assertEquals("gzip", CompressionFilter.negotiate("*"));
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, *"));
+        assertEquals("gzip", CompressionFilter.negotiate("gzip;q=0.2, *;q=0"));
+        assertNull(CompressionFilter.negotiate("*;q=0"));
+    }
+
+    @Test
+    public void identityAndUnknownCodingsAreSentAsTheyAre() {
+        assertNull(CompressionFilter.negotiate("identity"));
+        assertNull(CompressionFilter.negotiate("br, identity;q=0.5"));
+    }
+
+    @Test
+    public void unparsableQualityRefusesTheCoding() {
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=high, deflate"));
+        assertNull(CompressionFilter.negotiate("gzip;q="));
+    }
+
+    @Test
+    public void tagOfTheNegotiatedEncodingLosesItsEncoding() {
+        assertEquals("\"workflow-1-3\"", CompressionFilter.withoutEncoding("\"workflow-1-3-gzip\"", "gzip"));
+        assertEquals("W/\"workflow-1-3\"", CompressionFilter.withoutEncoding("W/\"workflow-1-3-deflate\"", "deflate"));
+        assertEquals("workflow-1-3", CompressionFilter.withoutEncoding("workflow-1-3-gzip", "gzip"));
+    }
+
+    @Test
+    public void tagOfAnotherEncodingIsLeftToNotMatch() {
+        assertEquals("\"workflow-1-3-deflate\"", CompressionFilter.withoutEncoding("\"workflow-1-3-deflate\"", "gzip"));
+        assertEquals("\"workflow-1-3-gzip\"", CompressionFilter.withoutEncoding("\"workflow-1-3-gzip\"", "deflate"));
+        assertEquals("\"workflow-1-3-gzip\"", CompressionFilter.withoutEncoding("\"workflow-1-3-gzip\"", null));
+    }
+
+    @Test
+    public void everyTagInTheListIsChecked() {
+        assertEquals("\"a-1-deflate\", \"a-2\", W/\"a-3\"",
+                CompressionFilter.withoutEncoding("\"a-1-deflate\",\"a-2-gzip\" , W/\"a-3\"", "gzip"));
+        assertEquals("*", CompressionFilter.withoutEncoding("*", "gzip"));
+    }
+}
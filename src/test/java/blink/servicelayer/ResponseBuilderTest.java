@@ -0,0 +1,105 @@
+package blink.servicelayer;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.Page;
+import blink.utility.objects.RowSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResponseBuilderTest {
+
+    private List<String> readCursors;
+    private String failingCursor;
+
+    @Before
+    public void setUp() {
+        this.readCursors = new ArrayList<>();
+        this.failingCursor = null;
+    }
+
+    @Test
+    public void pagesAreWrittenAsOneArray() throws IOException {
+        Response response = ResponseBuilder.buildJsonArrayResponse(this.companies(), Company.class);
+
+        //Only the first page is read before the response is sent
+        assertEquals(Collections.singletonList((String) null), this.readCursors);
+        assertEquals("[{\"companyID\":1,\"companyName\":\"A\"},{\"companyID\":2,\"companyName\":\"B\"},"
+                + "{\"companyID\":3,\"companyName\":\"C\"}]", write(response));
+        assertEquals(Arrays.asList(null, "2", "3"), this.readCursors);
+    }
+
+    @Test
+    public void emptyListIsAnEmptyArray() throws IOException {
+        Response response = ResponseBuilder.buildJsonArrayResponse(after -> new Page<>(new ArrayList<>(), null), Company.class);
+        assertEquals("[]", write(response));
+    }
+
+    @Test
+    public void failureOnFirstPageIsAnErrorResponse() {
+        this.failingCursor = "first";
+        try {
+            ResponseBuilder.buildJsonArrayResponse(this.companies(), Company.class);
+            fail("Expected the failure to be thrown before the response is built");
+        } catch (InternalServerErrorException isee) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void failureOnLaterPageBreaksTheBody() {
+        this.failingCursor = "3";
+        Response response = ResponseBuilder.buildJsonArrayResponse(this.companies(), Company.class);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ((StreamingOutput) response.getEntity()).write(output);
+            fail("Expected the failure to reach the container");
+        } catch (IOException ioe) {
+            assertTrue(ioe.getCause() instanceof SQLException);
+        }
+        //Nothing written may look like a complete list
+        assertFalse(new String(output.toByteArray(), StandardCharsets.UTF_8).endsWith("]"));
+    }
+
+    /**
+     * Three companies in pages of two, one and none after cursor "3"
+     */
+    private RowSource<Company> companies() {
+        return after -> {
+            this.readCursors.add(after);
+            if ((after == null && "first".equals(this.failingCursor)) || (after != null && after.equals(this.failingCursor))) {
+                throw new SQLException("Lost connection");
+            }
+            if (after == null) {
+                return new Page<>(Arrays.asList(new Company(1, "A"), new Company(2, "B")), "2");
+            }
+            if (after.equals("2")) {
+                return new Page<>(Collections.singletonList(new Company(3, "C")), "3");
+            }
+            return new Page<>(new ArrayList<>(), null);
+        };
+    }
+
+    private static String write(Response response) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,179 @@
+package blink.utility.compression;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressingOutputStreamTest {
+
+    private static final int MIN_SIZE = 1024;
+
+    private DeflaterPool gzipPool;
+    private DeflaterPool deflatePool;
+    private ByteArrayOutputStream sent;
+    private int marked;
+
+    @Before
+    public void setUp() {
+        this.gzipPool = new DeflaterPool(6, true, 2);
+        this.deflatePool = new DeflaterPool(6, false, 2);
+        this.sent = new ByteArrayOutputStream();
+        this.marked = 0;
+    }
+
+    @Test
+    public void contentBelowMinSizeIsSentAsItIs() throws IOException {
+        byte[] content = text(MIN_SIZE - 1);
+        CompressingOutputStream stream = this.gzipStream();
+        stream.write(content, 0, 10);
+        stream.write(content, 10, content.length - 10);
+
+        //Nothing is sent until it is known whether the content is compressed
+        assertEquals(0, this.sent.size());
+        stream.finish();
+
+        assertFalse(stream.isCompressed());
+        assertEquals(0, this.marked);
+        assertArrayEquals(content, this.sent.toByteArray());
+        assertEquals(content.length, stream.getBytesIn());
+        assertEquals(content.length, stream.getBytesOut());
+    }
+
+    @Test
+    public void contentAtMinSizeIsSentAsItIs() throws IOException {
+        byte[] content = text(MIN_SIZE);
+        CompressingOutputStream stream = this.gzipStream();
+        stream.write(content);
+        stream.finish();
+
+        assertFalse(stream.isCompressed());
+        assertEquals(0, this.marked);
+        assertArrayEquals(content, this.sent.toByteArray());
+    }
+
+    @Test
+    public void contentAboveMinSizeIsGzipped() throws IOException {
+        byte[] content = text(MIN_SIZE + 1);
+        CompressingOutputStream stream = this.gzipStream();
+        stream.write(content, 0, MIN_SIZE);
+        stream.write(content[MIN_SIZE]);
+        stream.finish();
+
+        assertTrue(stream.isCompressed());
+        assertEquals(1, this.marked);
+        assertArrayEquals(content, read(new GZIPInputStream(new ByteArrayInputStream(this.sent.toByteArray()))));
+        assertEquals(content.length, stream.getBytesIn());
+        assertEquals(this.sent.size(), stream.getBytesOut());
+        assertTrue(stream.getBytesOut() < stream.getBytesIn());
+    }
+
+    @Test
+    public void largeContentRoundTripsThroughGzip() throws IOException {
+        //Several deflate buffers of content that does not compress well
+        byte[] content = new byte[100_000];
+        new Random(7).nextBytes(content);
+        Arrays.fill(content, 50_000, 60_000, (byte) 'a');
+
+        CompressingOutputStream stream = this.gzipStream();
+        for (int off = 0; off < content.length; off += 333) {
+            stream.write(content, off, Math.min(333, content.length - off));
+        }
+        stream.finish();
+
+        assertEquals(1, this.marked);
+        assertArrayEquals(content, read(new GZIPInputStream(new ByteArrayInputStream(this.sent.toByteArray()))));
+    }
+
+    @Test
+    public void contentAboveMinSizeIsDeflated() throws IOException {
+        byte[] content = text(MIN_SIZE * 4);
+        CompressingOutputStream stream = new CompressingOutputStream(this.sent, this.deflatePool, false, MIN_SIZE,
+                () -> this.marked++);
+        stream.write(content);
+        stream.finish();
+
+        assertTrue(stream.isCompressed());
+        assertArrayEquals(content, read(new InflaterInputStream(new ByteArrayInputStream(this.sent.toByteArray()))));
+    }
+
+    @Test
+    public void noPoolSendsEverythingAsItIs() throws IOException {
+        byte[] content = text(MIN_SIZE * 4);
+        CompressingOutputStream stream = new CompressingOutputStream(this.sent, null, false, MIN_SIZE,
+                () -> this.marked++);
+        stream.write(content, 0, 10);
+
+        //Nothing is held back when the content is never compressed
+        assertEquals(10, this.sent.size());
+        stream.write(content, 10, content.length - 10);
+        stream.finish();
+
+        assertFalse(stream.isCompressed());
+        assertEquals(0, this.marked);
+        assertArrayEquals(content, this.sent.toByteArray());
+    }
+
+    @Test
+    public void writingAfterFinishFails() throws IOException {
+        CompressingOutputStream stream = this.gzipStream();
+        stream.write(text(MIN_SIZE + 1));
+        stream.finish();
+        stream.finish();
+        try {
+            stream.write('x');
+            fail("Expected the write to be refused");
+        } catch (IOException ioe) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void deflaterIsHandedBack() throws IOException {
+        CompressingOutputStream stream = this.gzipStream();
+        stream.write(text(MIN_SIZE + 1));
+        stream.release();
+        stream.release();
+
+        assertEquals(1, this.gzipPool.metrics().get("idle").getAsInt());
+    }
+
+    private CompressingOutputStream gzipStream() {
+        return new CompressingOutputStream(this.sent, this.gzipPool, true, MIN_SIZE, () -> this.marked++);
+    }
+
+    /**
+     * Repetitive text, as JSON is
+     */
+    private static byte[] text(int size) {
+        byte[] content = new byte[size];
+        byte[] pattern = "{\"stepID\":1,\"description\":\"Step\"},".getBytes();
+        for (int x = 0; x < size; x++) {
+            content[x] = pattern[x % pattern.length];
+        }
+        return content;
+    }
+
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = input.read(buffer)) > 0) {
+            output.write(buffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,193 @@
+package blink.utility.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the asynchronous endpoint executor with 1,000 to 10,000 concurrent clients, in platform and virtual thread mode.
+ * Each client sends a request, waits for the response and sends the next one after a short pause. A request runs on the
+ * BoundedExecutor the way AsyncResponder hands it over and holds one of DB_POOL_MAX_SIZE connections for a fixed time,
+ * giving up after DB_POOL_MAX_WAIT like the connection pool. Rejected requests count as 503 responses.
+ * Clients are scheduled callbacks rather than threads. Platform mode runs with the default pool and with a pool as large
+ * as the default pool and queue together, which is the concurrency virtual thread mode allows.
+ * Virtual thread mode is skipped with a note on JVMs without virtual threads.
+ * Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) blink.utility.concurrent.BoundedExecutorLoadSimulation
+ */
+public class BoundedExecutorLoadSimulation {
+
+    //Defaults of ASYNC_POOL_SIZE, ASYNC_QUEUE_SIZE, DB_POOL_MAX_SIZE and DB_POOL_MAX_WAIT
+    private static final int POOL_SIZE = 10;
+    private static final int QUEUE_SIZE = 50;
+    private static final int CONNECTIONS = 20;
+    private static final long CONNECTION_WAIT_MILLIS = 5000;
+
+    //Time a request holds its connection and time a client waits between requests
+    private static final long SERVICE_MILLIS = 5;
+    private static final long PAUSE_MILLIS = 50;
+
+    private static final long WARMUP_MILLIS = 2000;
+    private static final long MEASURE_MILLIS = 10000;
+
+    private static final int[] CLIENTS = {1000, 2500, 5000, 10000};
+
+    private final int clients;
+    private final BoundedExecutor executor;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakRunning = new AtomicInteger();
+    private final Semaphore connections = new Semaphore(CONNECTIONS, true);
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+    private final AtomicBoolean measuring = new AtomicBoolean();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder noConnection = new LongAdder();
+    private long[] latencies = new long[1 << 20];
+    private int latencyCount;
+
+    private BoundedExecutorLoadSimulation(int clients, int poolSize, boolean virtualThreads) {
+        this.clients = clients;
+        this.executor = new BoundedExecutor("load", poolSize, QUEUE_SIZE, virtualThreads);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-8s %5s %7s %9s %8s %8s %8s %8s %8s%n",
+                "mode", "pool", "clients", "served/s", "503 %", "p50 ms", "p99 ms", "max ms", "running");
+        int[] poolSizes = {POOL_SIZE, POOL_SIZE + QUEUE_SIZE, POOL_SIZE};
+        boolean[] virtualThreads = {false, false, true};
+        for (int config = 0; config < poolSizes.length; config++) {
+            if (virtualThreads[config] && VirtualThreads.factory("probe") == null) {
+                System.out.println("virtual  skipped, this JVM has no virtual threads (Java " + Runtime.version().feature() + ")");
+                continue;
+            }
+            for (int clients : CLIENTS) {
+                new BoundedExecutorLoadSimulation(clients, poolSizes[config], virtualThreads[config]).run(poolSizes[config]);
+            }
+        }
+    }
+
+    private void run(int poolSize) throws InterruptedException {
+        //Clients start spread over the first pause so they do not all arrive in the same millisecond
+        for (int client = 0; client < this.clients; client++) {
+            this.scheduler.schedule(this::send, client % PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(WARMUP_MILLIS);
+        this.peakRunning.set(0);
+        this.measuring.set(true);
+        Thread.sleep(MEASURE_MILLIS);
+        this.measuring.set(false);
+        this.stopped.set(true);
+        this.scheduler.shutdownNow();
+
+        long[] measured;
+        synchronized (this) {
+            measured = Arrays.copyOf(this.latencies, this.latencyCount);
+        }
+        Arrays.sort(measured);
+        long requests = this.served.sum() + this.rejected.sum() + this.noConnection.sum();
+        System.out.printf("%-8s %5d %7d %9.0f %8.1f %8.1f %8.1f %8.1f %8d%n",
+                this.executor.isVirtual() ? "virtual" : "platform",
+                poolSize,
+                this.clients,
+                this.served.sum() * 1000.0 / MEASURE_MILLIS,
+                requests == 0 ? 0 : (this.rejected.sum() + this.noConnection.sum()) * 100.0 / requests,
+                percentile(measured, 0.50),
+                percentile(measured, 0.99),
+                measured.length == 0 ? 0 : measured[measured.length - 1] / 1e6,
+                this.peakRunning.get());
+
+        //Let the last requests finish before the next run
+        Thread.sleep(CONNECTION_WAIT_MILLIS + 1000);
+    }
+
+    /**
+     * Sends one request of a client and schedules the next once the response is in
+     */
+    private void send() {
+        if (this.stopped.get()) {
+            return;
+        }
+        long sentAt = System.nanoTime();
+        try {
+            this.executor.execute(() -> {
+                boolean gotConnection = this.handle();
+                this.respond(sentAt, gotConnection);
+            });
+        } catch (RejectedExecutionException ree) {
+            if (this.measuring.get()) {
+                this.rejected.increment();
+            }
+            this.next();
+        }
+    }
+
+    /**
+     * Blocks on a connection and the query the way an endpoint does
+     * @return false if no connection was free in time
+     */
+    private boolean handle() {
+        this.peakRunning.accumulateAndGet(this.running.incrementAndGet(), Math::max);
+        try {
+            if (!this.connections.tryAcquire(CONNECTION_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            try {
+                Thread.sleep(SERVICE_MILLIS);
+            } finally {
+                this.connections.release();
+            }
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.running.decrementAndGet();
+        }
+    }
+
+    private void respond(long sentAt, boolean gotConnection) {
+        if (this.measuring.get()) {
+            if (gotConnection) {
+                this.served.increment();
+                this.recordLatency(System.nanoTime() - sentAt);
+            } else {
+                this.noConnection.increment();
+            }
+        }
+        this.next();
+    }
+
+    private void next() {
+        if (!this.stopped.get()) {
+            try {
+                this.scheduler.schedule(this::send, PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ree) {
+                //The run is over
+            }
+        }
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        if (this.latencyCount == this.latencies.length) {
+            this.latencies = Arrays.copyOf(this.latencies, this.latencies.length * 2);
+        }
+        this.latencies[this.latencyCount++] = nanos;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * fraction))] / 1e6;
+    }
+}
@@ -0,0 +1,108 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.File;
+import blink.utility.objects.Milestone;
+import blink.utility.objects.Person;
+import blink.utility.objects.Step;
+import blink.utility.objects.Workflow;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Objects as the data layer hands them out, shared by the golden output tests and the benchmark
+ */
+final class JsonFixtures {
+
+    private JsonFixtures() {
+    }
+
+    /**
+     * The Gson every service built for itself before JsonMapper, writing every type by reflection
+     * @return A new reflective Gson
+     */
+    static Gson reflectiveGson() {
+        return new GsonBuilder().setDateFormat(JsonMapper.DATE_PATTERN).serializeNulls().create();
+    }
+
+    /**
+     * A date in the server's time zone
+     */
+    static Date date(int year, int month, int day, int hour, int minute, int second) {
+        return new GregorianCalendar(year, month - 1, day, hour, minute, second).getTime();
+    }
+
+    static Company company() {
+        return new Company(3, "Acme <Rockets> & \"Sons\"");
+    }
+
+    /**
+     * A workflow with a step tree of the given fan out, dates of every kind the data layer hands out and nulls
+     */
+    static Workflow workflow(int workflowID, Random random, int... fanOut) {
+        List<Step> steps = steps(workflowID, 0, random, fanOut, 0);
+        Workflow workflow = new Workflow(workflowID, "Workflow " + workflowID, "Déjà vu, 'quoted' = ☃",
+                new Timestamp(date(2021, 1, 5, 13, 45, 0).getTime()),
+                new Timestamp(date(2021, 12, 31, 23, 59, 59).getTime() + 123),
+                new java.sql.Date(date(2021, 2, 1, 0, 0, 0).getTime()),
+                null,
+                null,
+                workflowID % 2 == 0, company(), 9, 3, 1, steps);
+        workflow.setDeliveryDate(date(2022, 5, 9, 8, 0, 0));
+        return workflow;
+    }
+
+    static Milestone milestone() {
+        return new Milestone(12, "Milestone", null,
+                new Timestamp(date(2021, 1, 5, 13, 45, 0).getTime()),
+                date(2021, 3, 1, 9, 30, 0),
+                date(2021, 4, 1, 0, 0, 0),
+                date(2021, 10, 15, 17, 5, 7),
+                null,
+                false, company(), 7, 3);
+    }
+
+    static Person person() {
+        Person person = new Person("3f1c", "jdoe", "$pbkdf2-sha256$i=1$c2FsdA$aGFzaA", "00ff", "Jane", null,
+                "jane@example.com", "Lead </script>", 2);
+        person.setCompanies(Arrays.asList(company(), new Company(4, null)));
+        person.setSignature(null);
+        return person;
+    }
+
+    static File file() {
+        File file = new File(21, "plan.pdf", "data:application/pdf;base64,JVBERi0=", true, false);
+        file.setEncodedString("never written");
+        return file;
+    }
+
+    private static List<Step> steps(int workflowID, int parentStepID, Random random, int[] fanOut, int level) {
+        List<Step> steps = new ArrayList<>();
+        if (level == fanOut.length) {
+            return steps;
+        }
+        for (int x = 0; x < fanOut[level]; x++) {
+            int stepID = random.nextInt(1000000);
+            Step step = new Step.StepBuilder(workflowID, random.nextBoolean(), random.nextBoolean())
+                    .stepID(stepID)
+                    .orderNumber(x + 1)
+                    .description(random.nextInt(4) == 0 ? null : "Step " + stepID + " \"check\" <b>")
+                    .parentStep(parentStepID)
+                    .uuid(random.nextInt(4) == 0 ? null : Integer.toHexString(random.nextInt()))
+                    .verbID(random.nextInt(20))
+                    .fileID(random.nextInt(50))
+                    .childSteps(steps(workflowID, stepID, random, fanOut, level + 1))
+                    .build();
+            steps.add(step);
+        }
+        return steps;
+    }
+}
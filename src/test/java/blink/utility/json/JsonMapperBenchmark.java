@@ -0,0 +1,73 @@
+package blink.utility.json;
+
+import blink.utility.objects.Workflow;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one workflow with the shared JsonMapper Gson and with the reflective Gson each service used before.
+ * reflectivePerRequest also builds that Gson each time, as StepBusiness.jsonToStepList and the services did per call or per instance.
+ * The workflow has steps steps in two levels (120 is eight higher level steps of fifteen children).
+ * Run with the gc profiler for allocation per workflow (gc.alloc.rate.norm):
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main JsonMapperBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMapperBenchmark {
+
+    @Param({"0", "12", "120"})
+    public int steps;
+
+    private Workflow workflow;
+    private Gson reflective;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (this.steps == 0) {
+            this.workflow = JsonFixtures.workflow(1, new Random(1));
+        } else if (this.steps == 12) {
+            this.workflow = JsonFixtures.workflow(1, new Random(1), 3, 3);
+        } else {
+            this.workflow = JsonFixtures.workflow(1, new Random(1), 8, 14);
+        }
+        this.reflective = JsonFixtures.reflectiveGson();
+
+        if (!this.reflective.toJson(this.workflow).equals(JsonMapper.gson().toJson(this.workflow))) {
+            throw new IllegalStateException("The adapters and reflective Gson write different output");
+        }
+    }
+
+    @Benchmark
+    public String adapters() {
+        return JsonMapper.gson().toJson(this.workflow);
+    }
+
+    @Benchmark
+    public String reflective() {
+        return this.reflective.toJson(this.workflow);
+    }
+
+    @Benchmark
+    public String reflectivePerRequest() {
+        return JsonFixtures.reflectiveGson().toJson(this.workflow);
+    }
+}
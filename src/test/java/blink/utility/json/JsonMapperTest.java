@@ -0,0 +1,157 @@
+package blink.utility.json;
+
+import blink.utility.objects.Company;
+import blink.utility.objects.Milestone;
+import blink.utility.objects.Person;
+import blink.utility.objects.Step;
+import blink.utility.objects.Workflow;
+import com.google.gson.JsonSyntaxException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the hand written adapters write exactly what the reflective Gson every service used before wrote
+ */
+public class JsonMapperTest {
+
+    private static final List<Locale> LOCALES = Arrays.asList(Locale.US, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN, new Locale("ar", "EG"));
+
+    private Locale defaultLocale;
+
+    @Before
+    public void setUp() {
+        this.defaultLocale = Locale.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(this.defaultLocale);
+    }
+
+    @Test
+    public void workflowsMatchReflectiveGson() {
+        Random random = new Random(22);
+        for (int workflowID = 1; workflowID <= 20; workflowID++) {
+            this.assertSameOutput(JsonFixtures.workflow(workflowID, random, 1 + random.nextInt(4), random.nextInt(4), random.nextInt(3)));
+        }
+    }
+
+    @Test
+    public void workflowWithNullsMatchesReflectiveGson() {
+        Workflow workflow = new Workflow(1, null, null, null, null, null, null, null, false, null, 0, 0, 0, null);
+        workflow.setCompletedDate(null);
+        this.assertSameOutput(workflow);
+    }
+
+    @Test
+    public void otherObjectsMatchReflectiveGson() {
+        this.assertSameOutput(JsonFixtures.milestone());
+        this.assertSameOutput(new Milestone(0, null, null, null, null, null));
+        this.assertSameOutput(JsonFixtures.person());
+        this.assertSameOutput(new Person(null, null, null, null, null, null, null, null, 0));
+        this.assertSameOutput(JsonFixtures.file());
+        this.assertSameOutput(JsonFixtures.company());
+        this.assertSameOutput(new Company(null));
+        this.assertSameOutput(new Step.StepBuilder(1, false, true).build());
+        this.assertSameOutput(Arrays.asList(JsonFixtures.workflow(1, new Random(1), 2), null, JsonFixtures.workflow(2, new Random(2), 1)));
+        this.assertSameOutput(new Step[]{new Step.StepBuilder(1, true, false).stepID(4).build()});
+    }
+
+    @Test
+    public void serializedNamesAreKept() {
+        Step step = new Step.StepBuilder(1, false, false).stepID(4).description("Sign").verbID(2).build();
+        assertEquals("{\"stepID\":4,\"orderNumber\":0,\"subtitle\":\"Sign\",\"parentStepID\":0,\"uuid\":null,\"title\":2,"
+                        + "\"fileID\":0,\"workflowID\":1,\"asynchronous\":false,\"completed\":false,\"expanded\":false,\"children\":null}",
+                JsonMapper.gson().toJson(step));
+
+        String milestone = JsonMapper.gson().toJson(new Milestone(12, "M", null, null, null, null));
+        assertTrue(milestone, milestone.startsWith("{\"mileStoneID\":12,\"name\":\"M\",\"description\":null,"));
+
+        String person = JsonMapper.gson().toJson(JsonFixtures.person());
+        assertTrue(person, person.contains("\"title\":\"Lead \\u003c/script\\u003e\""));
+        assertTrue(person, !person.contains("passwordHash") && !person.contains("salt") && !person.contains("00ff"));
+
+        String file = JsonMapper.gson().toJson(JsonFixtures.file());
+        assertEquals("{\"fileID\":21,\"name\":\"plan.pdf\",\"file\":\"data:application/pdf;base64,JVBERi0\\u003d\",\"confidential\":true,\"form\":false}", file);
+    }
+
+    @Test
+    public void datesAreWrittenInDatePatternInEveryDefaultLocale() {
+        Date date = JsonFixtures.date(2021, 1, 5, 13, 45, 0);
+        for (Locale locale : LOCALES) {
+            Locale.setDefault(locale);
+            assertEquals(locale.toString(), "\"Jan 5, 2021 13:45:00\"", JsonMapper.gson().toJson(date));
+            assertEquals(locale.toString(), "\"Sep 30, 2021 07:05:09\"",
+                    JsonMapper.gson().toJson(new java.sql.Timestamp(JsonFixtures.date(2021, 9, 30, 7, 5, 9).getTime() + 999)));
+        }
+    }
+
+    @Test
+    public void datesMatchReflectiveGsonInEveryDefaultLocale() {
+        //Gson formats a date pattern with a SimpleDateFormat in Locale.US, so the old output never followed the default locale either
+        Milestone milestone = JsonFixtures.milestone();
+        String expected = JsonFixtures.reflectiveGson().toJson(milestone);
+        for (Locale locale : LOCALES) {
+            Locale.setDefault(locale);
+            assertEquals(locale.toString(), expected, JsonFixtures.reflectiveGson().toJson(milestone));
+            assertEquals(locale.toString(), expected, JsonMapper.gson().toJson(milestone));
+        }
+    }
+
+    @Test
+    public void defaultLocaleSimpleDateFormatWouldHaveDiffered() {
+        //What the pattern gives without a locale, the reason DateAdapter names Locale.US
+        Date date = JsonFixtures.date(2021, 3, 5, 13, 45, 0);
+        Locale.setDefault(Locale.FRANCE);
+        String defaultLocale = new java.text.SimpleDateFormat(JsonMapper.DATE_PATTERN).format(date);
+        assertNotEquals("Mar 5, 2021 13:45:00", defaultLocale);
+        assertEquals("\"Mar 5, 2021 13:45:00\"", JsonMapper.gson().toJson(date));
+    }
+
+    @Test
+    public void datesReadBackAsWritten() {
+        Date date = JsonFixtures.date(2021, 12, 31, 23, 59, 59);
+        for (Locale locale : LOCALES) {
+            Locale.setDefault(locale);
+            assertEquals(date, JsonMapper.gson().fromJson("\"Dec 31, 2021 23:59:59\"", Date.class));
+            assertEquals(date, JsonFixtures.reflectiveGson().fromJson("\"Dec 31, 2021 23:59:59\"", Date.class));
+        }
+        assertEquals(null, JsonMapper.gson().fromJson("null", Date.class));
+    }
+
+    @Test
+    public void objectsReadAsReflectiveGsonReadsThem() {
+        Milestone milestone = JsonFixtures.milestone();
+        String json = JsonFixtures.reflectiveGson().toJson(milestone);
+
+        Milestone read = JsonMapper.gson().fromJson(json, Milestone.class);
+        assertEquals(json, JsonFixtures.reflectiveGson().toJson(read));
+        assertEquals(milestone.getStartDate(), read.getStartDate());
+    }
+
+    @Test
+    public void malformedDateIsASyntaxError() {
+        try {
+            JsonMapper.gson().fromJson("\"2021-01-05\"", Date.class);
+            fail("Expected the date to be refused");
+        } catch (JsonSyntaxException jse) {
+            assertTrue(jse.getMessage(), jse.getMessage().contains(JsonMapper.DATE_PATTERN));
+        }
+    }
+
+    private void assertSameOutput(Object value) {
+        assertEquals(JsonFixtures.reflectiveGson().toJson(value), JsonMapper.gson().toJson(value));
+    }
+}
@@ -0,0 +1,147 @@
+package blink.utility.security;
+
+import blink.utility.env.EnvKeyValues;
+import blink.utility.env.EnvManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * The expected hashes were computed with Python's hashlib.pbkdf2_hmac, not with this class
+ */
+public class PasswordEncryptionTest {
+
+    private static final String PASSWORD = "correct horse";
+    private static final String SALT = "00112233445566778899aabbccddeeff";
+    private static final byte[] SALT_BYTES = {
+            0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77,
+            (byte) 0x88, (byte) 0x99, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc, (byte) 0xdd, (byte) 0xee, (byte) 0xff};
+    private static final int ITERATIONS = Integer.parseInt(new EnvManager().getValue(EnvKeyValues.PASSWORD_HASH_ITERATIONS));
+
+    //PBKDF2WithHmacSHA1 of 1000 iterations salted with the text of the salt column, as the original format stored it
+    private static final String LEGACY_HASH = "099209006f63dd8462bd8fc4833bb225d1518e1b28da1e091c796e0ce21b63c4"
+            + "ebeee876a2de5714a8997c3cef5bb6521b764feb3bfdaffc89ada076a8f2d395";
+
+    private static final String SHA256_310000 = "$pbkdf2-sha256$i=310000$ABEiM0RVZneImaq7zN3u/w$51/iM0DnSvouNF0xEfC8SQlHhRyFj40zxHX/lEL8sto";
+    private static final String SHA256_310000_SHORT_KEY = "$pbkdf2-sha256$i=310000$ABEiM0RVZneImaq7zN3u/w$51/iM0DnSvouNF0xEfC8SQ";
+    private static final String SHA256_2000 = "$pbkdf2-sha256$i=2000$ABEiM0RVZneImaq7zN3u/w$6jc6tAk54qjxe1kxvYRRNNWCpRuDM6u1gE6qEEgV4yc";
+    private static final String SHA512_2000 = "$pbkdf2-sha512$i=2000$ABEiM0RVZneImaq7zN3u/w"
+            + "$02EKQG6z628DM3FUEfsJDjQqFznOS+FgBSI2EMLFbjUhmqaVYpDOihc+G3LXIzb9GlmQQDT8DEUENEd9NWNbWA";
+
+    @Test
+    public void legacyHashVerifiesWithTheSaltColumn() {
+        assertTrue(PasswordEncryption.verify(PASSWORD, LEGACY_HASH, SALT));
+    }
+
+    @Test
+    public void legacyHashRejectsWrongPasswordOrSalt() {
+        assertFalse(PasswordEncryption.verify("correct horsf", LEGACY_HASH, SALT));
+        assertFalse(PasswordEncryption.verify(PASSWORD, LEGACY_HASH, "00112233445566778899aabbccddeefe"));
+        //The salt column is hashed as text, so the same bytes written in upper case are a different salt
+        assertFalse(PasswordEncryption.verify(PASSWORD, LEGACY_HASH, SALT.toUpperCase()));
+    }
+
+    @Test
+    public void legacyHashComparesTheWholeHexString() {
+        assertFalse(PasswordEncryption.verify(PASSWORD, LEGACY_HASH.toUpperCase(), SALT));
+        assertFalse(PasswordEncryption.verify(PASSWORD, LEGACY_HASH.substring(0, 64), SALT));
+        assertFalse(PasswordEncryption.verify(PASSWORD, LEGACY_HASH + "0", SALT));
+        assertFalse(PasswordEncryption.verify(PASSWORD, "", SALT));
+    }
+
+    @Test
+    public void missingHashNeverVerifies() {
+        assertFalse(PasswordEncryption.verify(PASSWORD, null, SALT));
+    }
+
+    @Test
+    public void recordsVerifyUnderTheirOwnParameters() {
+        assertTrue(PasswordEncryption.verify(PASSWORD, SHA256_310000, null));
+        assertTrue(PasswordEncryption.verify(PASSWORD, SHA256_2000, null));
+        assertTrue(PasswordEncryption.verify(PASSWORD, SHA512_2000, null));
+        assertTrue(PasswordEncryption.verify(PASSWORD, SHA256_310000_SHORT_KEY, null));
+
+        assertFalse(PasswordEncryption.verify("correct horsf", SHA256_2000, null));
+        assertFalse(PasswordEncryption.verify(PASSWORD, SHA256_2000.replace("i=2000", "i=2001"), null));
+        assertFalse(PasswordEncryption.verify(PASSWORD, SHA512_2000.replace("sha512", "sha256"), null));
+    }
+
+    @Test
+    public void malformedRecordsFailWithoutThrowing() {
+        assertFalse(PasswordEncryption.verify(PASSWORD, "$pbkdf2-sha256$i=0$ABEiM0RVZneImaq7zN3u/w$6jc6tAk54qjxe1kxvYRRNNWCpRuDM6u1gE6qEEgV4yc", null));
+        assertFalse(PasswordEncryption.verify(PASSWORD, "$pbkdf2-sha256$i=2000$$6jc6tAk54qjxe1kxvYRRNNWCpRuDM6u1gE6qEEgV4yc", null));
+        assertFalse(PasswordEncryption.verify(PASSWORD, "$", null));
+    }
+
+    @Test
+    public void parseReadsEveryField() {
+        PasswordEncryption.HashRecord record = PasswordEncryption.HashRecord.parse(SHA512_2000);
+
+        assertEquals("PBKDF2WithHmacSHA512", record.algorithm);
+        assertEquals(2000, record.iterations);
+        assertArrayEquals(SALT_BYTES, record.salt);
+        assertEquals(64, record.hash.length);
+
+        assertEquals("PBKDF2WithHmacSHA256", PasswordEncryption.HashRecord.parse(SHA256_2000).algorithm);
+        assertEquals(32, PasswordEncryption.HashRecord.parse(SHA256_2000).hash.length);
+    }
+
+    @Test
+    public void parseRejectsMalformedRecords() {
+        String salt = "ABEiM0RVZneImaq7zN3u/w";
+        String hash = "6jc6tAk54qjxe1kxvYRRNNWCpRuDM6u1gE6qEEgV4yc";
+
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-md5$i=2000$" + salt + "$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$PBKDF2-SHA256$i=2000$" + salt + "$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=2000$" + salt));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=2000$" + salt + "$" + hash + "$extra"));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$2000$" + salt + "$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=lots$" + salt + "$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=99999999999$" + salt + "$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=-1$" + salt + "$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=0$" + salt + "$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=2000$$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=2000$" + salt + "$"));
+        assertNull(PasswordEncryption.HashRecord.parse("$pbkdf2-sha256$i=2000$not*base64$" + hash));
+        assertNull(PasswordEncryption.HashRecord.parse("pbkdf2-sha256$i=2000$" + salt + "$" + hash + "$x"));
+    }
+
+    @Test
+    public void weakerRecordsNeedRehash() {
+        assertTrue(PasswordEncryption.needsRehash(null));
+        assertTrue(PasswordEncryption.needsRehash(LEGACY_HASH));
+        assertTrue(PasswordEncryption.needsRehash("$pbkdf2-sha256$i=lots$ABEiM0RVZneImaq7zN3u/w$6jc6tAk54qjxe1kxvYRRNNWCpRuDM6u1gE6qEEgV4yc"));
+        assertTrue(PasswordEncryption.needsRehash(SHA512_2000.replace("i=2000", "i=" + ITERATIONS)));
+        assertTrue(PasswordEncryption.needsRehash(SHA256_2000.replace("i=2000", "i=" + (ITERATIONS - 1))));
+        assertTrue(PasswordEncryption.needsRehash(SHA256_310000_SHORT_KEY.replace("i=310000", "i=" + ITERATIONS)));
+    }
+
+    @Test
+    public void recordsAtOrAbovePolicyDoNotNeedRehash() {
+        assertFalse(PasswordEncryption.needsRehash(SHA256_2000.replace("i=2000", "i=" + ITERATIONS)));
+        assertFalse(PasswordEncryption.needsRehash(SHA256_2000.replace("i=2000", "i=" + (ITERATIONS + 1))));
+    }
+
+    @Test
+    public void newHashIsACurrentRecordThatVerifies() {
+        String stored = PasswordEncryption.hash(PASSWORD, SALT);
+
+        assertTrue(stored.startsWith("$pbkdf2-sha256$i=" + ITERATIONS + "$ABEiM0RVZneImaq7zN3u/w$"));
+        assertTrue(PasswordEncryption.verify(PASSWORD, stored, SALT));
+        assertFalse(PasswordEncryption.verify("correct horsf", stored, SALT));
+        assertFalse(PasswordEncryption.needsRehash(stored));
+        assertNotEquals(stored, PasswordEncryption.hash(PASSWORD, PasswordEncryption.getSalt()));
+    }
+
+    @Test
+    public void newHashMatchesReferenceAtDefaultPolicy() {
+        assumeTrue(ITERATIONS == 310000);
+        assertEquals(SHA256_310000, PasswordEncryption.hash(PASSWORD, SALT));
+    }
+}
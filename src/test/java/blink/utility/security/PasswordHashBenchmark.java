@@ -0,0 +1,88 @@
+package blink.utility.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins per second on one core for each cost setting, measured as PasswordEncryption.verify of a matching password.
+ * cost is "legacy" for the original PBKDF2WithHmacSHA1 format of 1000 iterations, otherwise a record algorithm id and
+ * iteration count. 310000 is the PASSWORD_HASH_ITERATIONS default.
+ * Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main PasswordHashBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(1)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "correct horse";
+    private static final String SALT = "00112233445566778899aabbccddeeff";
+
+    @Param({"legacy", "pbkdf2-sha256:100000", "pbkdf2-sha256:210000", "pbkdf2-sha256:310000",
+            "pbkdf2-sha256:600000", "pbkdf2-sha512:210000"})
+    public String cost;
+
+    private String storedHash;
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException {
+        byte[] saltBytes = new byte[SALT.length() / 2];
+        for (int i = 0; i < saltBytes.length; i++) {
+            saltBytes[i] = (byte) Integer.parseInt(SALT.substring(i * 2, i * 2 + 2), 16);
+        }
+
+        if (this.cost.equals("legacy")) {
+            byte[] hash = pbkdf2("PBKDF2WithHmacSHA1", SALT.getBytes(), 1000, 64 * 8);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            this.storedHash = hex.toString();
+        } else {
+            String algorithmID = this.cost.substring(0, this.cost.indexOf(':'));
+            int iterations = Integer.parseInt(this.cost.substring(this.cost.indexOf(':') + 1));
+            String algorithm = algorithmID.equals("pbkdf2-sha512") ? "PBKDF2WithHmacSHA512" : "PBKDF2WithHmacSHA256";
+            int keyLength = algorithmID.equals("pbkdf2-sha512") ? 64 * 8 : 32 * 8;
+
+            Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+            this.storedHash = "$" + algorithmID + "$i=" + iterations + "$" + encoder.encodeToString(saltBytes)
+                    + "$" + encoder.encodeToString(pbkdf2(algorithm, saltBytes, iterations, keyLength));
+        }
+
+        if (!PasswordEncryption.verify(PASSWORD, this.storedHash, SALT)) {
+            throw new IllegalStateException("The benchmark record does not verify: " + this.storedHash);
+        }
+    }
+
+    @Benchmark
+    public boolean login() {
+        return PasswordEncryption.verify(PASSWORD, this.storedHash, SALT);
+    }
+
+    private static byte[] pbkdf2(String algorithm, byte[] salt, int iterations, int keyLength) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(PASSWORD.toCharArray(), salt, iterations, keyLength);
+        return SecretKeyFactory.getInstance(algorithm).generateSecret(spec).getEncoded();
+    }
+}